@@ -32,4 +32,196 @@ public @interface Command {
    * @return {@code true} to disable the {@code --help} mechanism
    */
   boolean helpDisabled() default false;
+
+  /**
+   * When {@code true},
+   * then the generated parser keeps one parser state per thread,
+   * and clears it after each parse instead of allocating a new one.
+   * This reduces the garbage that is created when the same command
+   * is parsed many times.
+   * A list that held more than 256 tokens is dropped instead of cleared,
+   * so that a single long input does not keep its memory for the life of the thread.
+   *
+   * @return {@code true} to reuse the parser state
+   */
+  boolean reuseParserState() default false;
+
+  /**
+   * Determines when the tokens are mapped to the return values
+   * of the {@code abstract} methods.
+   *
+   * @return the coercion mode
+   */
+  Coercion coercion() default Coercion.EAGER;
+
+  /**
+   * When {@code true},
+   * then each mapper is invoked at most once per distinct token during a single parse.
+   * Parameters that use the same mapper share their results.
+   * This helps if the same expensive value, like a regular expression,
+   * is repeated in the input array.
+   *
+   * @return {@code true} to memoize the mapped values within a parse
+   */
+  boolean memoizeValues() default false;
+
+  /**
+   * When positive,
+   * then each pure mapper keeps a cache of this many recently mapped tokens,
+   * which is shared by all parsers in all threads.
+   * Pure mappers are those marked with {@link Mapper#pure()}, and the
+   * built-in mappers for {@code Pattern}, {@code URI}, {@code LocalDate},
+   * {@code BigInteger} and {@code BigDecimal}.
+   *
+   * @return the maximum number of cached values per mapper, or {@code 0} for no cache
+   */
+  int valueCacheSize() default 0;
+
+  /**
+   * When {@code true},
+   * then the generated parser is immutable.
+   * Its configuration methods, like {@code withMessages},
+   * return a new parser instead of modifying this one.
+   * A configured parser can then be shared between threads,
+   * and its {@code parse} method can be invoked concurrently.
+   *
+   * @return {@code true} to generate an immutable parser
+   */
+  boolean immutable() default false;
+
+  /**
+   * When {@code true},
+   * then a parse error is not reported as an exception with a stack trace.
+   * Instead, {@code ParsingFailed} describes the error by its kind,
+   * the index of the offending token, and the option or parameter that was involved.
+   * The error message is only rendered when it is requested.
+   * This makes rejecting invalid input cheaper.
+   *
+   * @return {@code true} to report structured parse errors
+   */
+  boolean structuredErrors() default false;
+
+  /**
+   * When {@code true},
+   * then the generated parser does not use lambdas, method references or streams.
+   * Standard mappers are anonymous classes instead.
+   * This avoids the one-time cost of bootstrapping lambdas,
+   * which is noticeable in short-lived processes that parse only once.
+   *
+   * @return {@code true} to generate code without lambdas
+   */
+  boolean fastStartup() default false;
+
+  /**
+   * When {@code true},
+   * then the generated parser keeps the tokens of all parameters in a single parser state,
+   * which dispatches on a table of parameter kinds, indexed by ordinal.
+   * The parser helper classes, one per kind of parameter, are not generated.
+   * This reduces the number of classes that must be loaded.
+   *
+   * @return {@code true} to generate a compact parser
+   */
+  boolean compact() default false;
+
+  /**
+   * When {@code true},
+   * then the generated parser delegates to the parse engine and the help renderer
+   * in the {@code jbock-runtime} library, which must be on the classpath.
+   * The generated parser then contains only tables that describe the parameters,
+   * and the code that maps the tokens.
+   * If an application has many commands, the parsing code is loaded and compiled only once.
+   * This implies {@link #compact()}.
+   *
+   * @return {@code true} to use the shared runtime library
+   */
+  boolean sharedRuntime() default false;
+
+  /**
+   * The subcommands of this command.
+   * Each class in this array must be annotated with {@link Command},
+   * and its {@link #value()} becomes the name of the subcommand.
+   * The generated {@code dispatch} method selects a subcommand by the first token,
+   * parses the remaining tokens with the parser of that subcommand,
+   * and passes the result to a generated visitor, which has a method for each subcommand.
+   * Only the parser of the selected subcommand is loaded.
+   * The subcommands are listed in the help text of this command.
+   *
+   * @return the subcommands, or an empty array if this command has none
+   */
+  Class<?>[] subcommands() default {};
+
+  /**
+   * When {@code true},
+   * then each argument of the form {@code @file} is replaced by the tokens in that file,
+   * like the argument files of {@code javac}.
+   * The tokens are separated by whitespace, and can be quoted with single or double quotes.
+   * A line that starts with {@code #} is a comment.
+   * The file is read while parsing, through a buffer of fixed size.
+   * The tokens themselves are still collected, like any other arguments,
+   * so memory use grows with the total size of the tokens.
+   * Use {@code @@} to pass an argument that starts with {@code @}.
+   *
+   * @return {@code true} to expand argument files
+   */
+  boolean argumentFiles() default false;
+
+  /**
+   * When {@code true},
+   * then the generated parser has additional {@code parse} methods,
+   * which read the tokens from a {@code ReadableByteChannel} or an {@code InputStream}.
+   * The tokens are UTF-8 encoded, and separated by a NUL byte or a newline,
+   * like the output of {@code find -print0}.
+   * They are decoded one at a time, while parsing.
+   *
+   * <p>If the last positional parameter is a {@code Stream} or an {@code Iterator},
+   * then its tokens are not collected.
+   * Parsing stops at its first token, and the remaining tokens are read
+   * while the stream or iterator is consumed, so the input can be unbounded.
+   * Every token after that is a value of this parameter, even if it looks like an option.
+   * The stream or iterator can then only be consumed once.
+   * This does not apply together with {@link #sharedRuntime()} or {@link #argumentFiles()}.
+   *
+   * @return {@code true} to generate the parse methods for delimited input
+   */
+  boolean delimitedInput() default false;
+
+  /**
+   * When {@code true},
+   * then the generated parser has {@code parseAll} methods,
+   * which parse many command lines in parallel, and return the results in input order.
+   * The input is split into chunks, which run on the common {@code ForkJoinPool}
+   * or on a given {@code Executor}.
+   *
+   * @return {@code true} to generate the batch parse methods
+   */
+  boolean batchParsing() default false;
+
+  /**
+   * The coercion modes.
+   *
+   * @see #coercion()
+   */
+  enum Coercion {
+
+    /**
+     * All values are mapped while parsing.
+     * If a mapper fails, parsing fails.
+     */
+    EAGER,
+
+    /**
+     * Each value is mapped when its method is first invoked,
+     * and the result is cached.
+     * If a mapper fails, the method throws the mapper's exception.
+     * Missing required parameters are still detected while parsing.
+     * The parse result should not be shared between threads.
+     */
+    LAZY,
+
+    /**
+     * Like {@link #LAZY}, but the parse result
+     * can be safely shared between threads.
+     */
+    LAZY_SYNCHRONIZED
+  }
 }
@@ -26,9 +26,35 @@ import static java.lang.annotation.RetentionPolicy.SOURCE;
  *   and {@code M} is the boxed version of the corresponding primitive type.</li>
  *   <li>The return type of the associated {@code abstract}
  *   parameter method is {@code List<M>}.</li>
+ *   <li>The return type of the associated {@code abstract}
+ *   parameter method is one of the types {@code int[], long[], double[],
+ *   IntStream, LongStream, DoubleStream}
+ *   and {@code M} is the boxed version of the corresponding primitive type.</li>
  * </ul>
  */
 @Target(TYPE)
 @Retention(SOURCE)
 public @interface Mapper {
+
+  /**
+   * When {@code true}, the mapper function is created only once,
+   * when it is first needed, and then used by all parsers in all threads.
+   * For a {@code Supplier}, this means that {@code get()} is invoked only once.
+   * The function must then be safe for concurrent use.
+   * If creating the function fails, the parse fails,
+   * and the next parse tries again.
+   *
+   * @return {@code true} to share the mapper function
+   */
+  boolean shared() default false;
+
+  /**
+   * When {@code true}, the mapper function always returns an equal value
+   * for equal input, and has no side effects.
+   * Its results may then be cached across parses.
+   *
+   * @return {@code true} if the mapper function is pure
+   * @see Command#valueCacheSize()
+   */
+  boolean pure() default false;
 }
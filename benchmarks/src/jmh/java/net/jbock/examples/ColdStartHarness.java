@@ -0,0 +1,262 @@
+package net.jbock.examples;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Measures what a user of a command line tool notices:
+ * JVM launch, class loading, and the first parse.
+ * For each parser of the examples project, a number of fresh JVMs are launched with {@code -verbose:class}.
+ * In each JVM, the parser is created and invoked exactly once.
+ * There are three kinds of runs:
+ *
+ * <ul>
+ *   <li>{@code baseline}: The JVM exits as soon as {@code main} is entered.</li>
+ *   <li>{@code parse}: The parser's {@code parse} method is invoked with an empty input array.
+ *     The time until {@code parse} returns, and the number of classes loaded until then, are recorded.
+ *     An empty input fails for some of the examples; this is recorded as the outcome.</li>
+ *   <li>{@code help}: The parser's {@code parseOrExit} method is invoked with {@code --help}.
+ *     The time until the usage line appears on stdout, and the number of classes loaded until then,
+ *     are recorded.</li>
+ * </ul>
+ *
+ * <p>Times are measured by this process, from launching the child process
+ * until the marker line is read from its stdout. The medians over all forks are reported.
+ * Since the parser is invoked via reflection, the numbers include a small constant overhead,
+ * which is the same for all parsers.
+ *
+ * <p>Run with {@code ./gradlew benchmarks:coldStart}.
+ * The results are written to {@code benchmarks/build/results/coldstart/results.json}.
+ */
+public final class ColdStartHarness {
+
+  private static final String PARSED = "#parsed";
+  private static final String NANOS = "#nanos ";
+  private static final String OUTCOME = "#outcome ";
+  private static final String USAGE = "Usage:";
+
+  /**
+   * @param args the output file, the number of forks, and optionally the simple names
+   *             of the parsers that should be measured
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    Path output = Paths.get(args.length >= 1 ? args[0] : "build/results/coldstart/results.json");
+    int forks = args.length >= 2 ? Integer.parseInt(args[1]) : 10;
+    List<String> parsers = findParsers();
+    if (args.length >= 3) {
+      parsers.retainAll(Arrays.asList(args).subList(2, args.length));
+    }
+    Run baseline = measure("baseline", "", forks);
+    List<Run> parseRuns = new ArrayList<>();
+    List<Run> helpRuns = new ArrayList<>();
+    System.out.printf("%-40s %14s %14s %14s %14s %14s%n", "parser",
+        "parse ms", "parse classes", "parse us", "help ms", "help classes");
+    System.out.printf("%-40s %14d %14d %14s %14s %14s%n", "(baseline)",
+        baseline.millis(), baseline.classes(), "", "", "");
+    for (String parser : parsers) {
+      Run parse = measure("parse", parser, forks);
+      Run help = measure("help", parser, forks);
+      parseRuns.add(parse);
+      helpRuns.add(help);
+      System.out.printf("%-40s %14d %14d %14d %14s %14s%n", parser,
+          parse.millis(), parse.classes(), parse.inProcessMicros(),
+          help.isPresent() ? Long.toString(help.millis()) : "-",
+          help.isPresent() ? Long.toString(help.classes()) : "-");
+    }
+    Files.createDirectories(output.toAbsolutePath().getParent());
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8))) {
+      writeJson(out, forks, baseline, parsers, parseRuns, helpRuns);
+    }
+    System.out.println("Results written to " + output.toAbsolutePath());
+  }
+
+  private static void writeJson(
+      PrintWriter out, int forks, Run baseline,
+      List<String> parsers, List<Run> parseRuns, List<Run> helpRuns) {
+    out.println("{");
+    out.printf("  \"javaVersion\": \"%s\",%n", System.getProperty("java.version"));
+    out.printf("  \"forks\": %d,%n", forks);
+    out.printf("  \"baseline\": {\"timeToMainMs\": %d, \"classesLoaded\": %d},%n",
+        baseline.millis(), baseline.classes());
+    out.println("  \"parsers\": [");
+    for (int i = 0; i < parsers.size(); i++) {
+      Run parse = parseRuns.get(i);
+      Run help = helpRuns.get(i);
+      out.println("    {");
+      out.printf("      \"parser\": \"%s\",%n", parsers.get(i));
+      out.printf("      \"outcome\": \"%s\",%n", parse.outcome);
+      out.printf("      \"timeToFirstParseMs\": %d,%n", parse.millis());
+      out.printf("      \"classesLoadedAtFirstParse\": %d,%n", parse.classes());
+      out.printf("      \"firstParseInProcessUs\": %d,%n", parse.inProcessMicros());
+      out.printf("      \"timeToHelpMs\": %s,%n", help.isPresent() ? Long.toString(help.millis()) : "null");
+      out.printf("      \"classesLoadedAtHelp\": %s%n", help.isPresent() ? Long.toString(help.classes()) : "null");
+      out.println(i == parsers.size() - 1 ? "    }" : "    },");
+    }
+    out.println("  ]");
+    out.println("}");
+  }
+
+  private static Run measure(String mode, String parser, int forks) throws IOException, InterruptedException {
+    Run run = new Run();
+    for (int i = 0; i < forks; i++) {
+      fork(mode, parser, run);
+    }
+    return run;
+  }
+
+  private static void fork(String mode, String parser, Run run) throws IOException, InterruptedException {
+    String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    ProcessBuilder builder = new ProcessBuilder(java, "-verbose:class",
+        "-cp", System.getProperty("java.class.path"),
+        Child.class.getName(), mode, parser);
+    builder.redirectErrorStream(true);
+    long start = System.nanoTime();
+    Process process = builder.start();
+    long classes = 0;
+    long nanos = -1;
+    long classesAtMarker = 0;
+    try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (nanos < 0 && (line.equals(PARSED) || line.startsWith(USAGE))) {
+          nanos = System.nanoTime() - start;
+          classesAtMarker = classes;
+        } else if (line.startsWith(NANOS)) {
+          run.inProcessNanos.add(Long.parseLong(line.substring(NANOS.length())));
+        } else if (line.startsWith(OUTCOME)) {
+          run.outcome = line.substring(OUTCOME.length());
+        } else if (isClassLoad(line)) {
+          classes++;
+        }
+      }
+    }
+    // if the help is disabled, the usage line is printed with the error message, and the exit code is not 0
+    if (process.waitFor() == 0 && nanos >= 0) {
+      run.nanos.add(nanos);
+      run.classes.add(classesAtMarker);
+    }
+  }
+
+  // JDK 9+: "[0.010s][info][class,load] java.lang.Object source: shared objects file"
+  // JDK 8: "[Loaded java.lang.Object from /usr/lib/jvm/.../rt.jar]"
+  private static boolean isClassLoad(String line) {
+    return line.contains("[class,load]") || line.startsWith("[Loaded ");
+  }
+
+  private static List<String> findParsers() throws IOException {
+    File location;
+    try {
+      location = new File(SimpleArguments_Parser.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    } catch (URISyntaxException e) {
+      throw new IllegalStateException(e);
+    }
+    String prefix = SimpleArguments_Parser.class.getPackage().getName().replace('.', '/') + '/';
+    List<String> names = new ArrayList<>();
+    if (location.isDirectory()) {
+      String[] files = new File(location, prefix).list();
+      if (files != null) {
+        for (String file : files) {
+          addParser(names, file);
+        }
+      }
+    } else {
+      try (JarFile jar = new JarFile(location)) {
+        Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+          String name = entries.nextElement().getName();
+          if (name.startsWith(prefix) && name.indexOf('/', prefix.length()) < 0) {
+            addParser(names, name.substring(prefix.length()));
+          }
+        }
+      }
+    }
+    Collections.sort(names);
+    return names;
+  }
+
+  private static void addParser(List<String> names, String file) {
+    if (file.endsWith("_Parser.class") && file.indexOf('$') < 0) {
+      names.add(file.substring(0, file.length() - ".class".length()));
+    }
+  }
+
+  private static final class Run {
+
+    final List<Long> nanos = new ArrayList<>();
+    final List<Long> classes = new ArrayList<>();
+    final List<Long> inProcessNanos = new ArrayList<>();
+    String outcome = "";
+
+    boolean isPresent() {
+      return !nanos.isEmpty();
+    }
+
+    long millis() {
+      return median(nanos) / 1_000_000;
+    }
+
+    long classes() {
+      return median(classes);
+    }
+
+    long inProcessMicros() {
+      return median(inProcessNanos) / 1_000;
+    }
+
+    private static long median(List<Long> values) {
+      if (values.isEmpty()) {
+        return 0;
+      }
+      List<Long> sorted = new ArrayList<>(values);
+      Collections.sort(sorted);
+      return sorted.get(sorted.size() / 2);
+    }
+  }
+
+  /**
+   * The main class of the child process.
+   * It doesn't reference any other classes of this project,
+   * so it doesn't add to the number of loaded classes.
+   */
+  static final class Child {
+
+    public static void main(String[] args) throws Exception {
+      String mode = args[0];
+      if (mode.equals("baseline")) {
+        System.out.println(PARSED);
+        return;
+      }
+      Class<?> parserClass = Class.forName(Child.class.getPackage().getName() + '.' + args[1]);
+      if (mode.equals("help")) {
+        Object parser = parserClass.getDeclaredConstructor().newInstance();
+        Method parseOrExit = parserClass.getDeclaredMethod("parseOrExit", String[].class);
+        parseOrExit.invoke(parser, (Object) new String[]{"--help"});
+        return;
+      }
+      long start = System.nanoTime();
+      Object parser = parserClass.getDeclaredConstructor().newInstance();
+      Method parse = parserClass.getDeclaredMethod("parse", String[].class);
+      Object result = parse.invoke(parser, (Object) new String[0]);
+      long nanos = System.nanoTime() - start;
+      System.out.println(PARSED);
+      System.out.println(NANOS + nanos);
+      System.out.println(OUTCOME + result.getClass().getSimpleName());
+    }
+  }
+}
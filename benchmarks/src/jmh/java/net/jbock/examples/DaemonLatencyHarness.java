@@ -0,0 +1,187 @@
+package net.jbock.examples;
+
+import net.jbock.daemon.Daemon;
+import net.jbock.daemon.DaemonClient;
+import net.jbock.daemon.Handler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.SocketAddress;
+import java.net.URISyntaxException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares the end-to-end latency of a command line invocation with and without a {@link Daemon}.
+ * For each parser, there are three kinds of runs:
+ *
+ * <ul>
+ *   <li>{@code cold}: A fresh JVM loads the parser and parses an empty input,
+ *     like in {@link ColdStartHarness}. The time until the process exits is recorded.</li>
+ *   <li>{@code client}: A fresh JVM runs the {@link DaemonClient},
+ *     which sends the empty input to a warm daemon in this process.
+ *     The time until the client process exits is recorded.</li>
+ *   <li>{@code socket}: The daemon is invoked from this process, without launching a JVM.
+ *     This is the latency that a native client would see.</li>
+ * </ul>
+ *
+ * <p>The daemon listens on a Unix domain socket in a temporary directory.
+ * Each handler invokes the parser's {@code parse} method by reflection.
+ * The medians over all runs are reported.
+ *
+ * <p>Run with {@code ./gradlew benchmarks:daemonLatency}.
+ * The results are written to {@code benchmarks/build/results/daemon/results.json}.
+ */
+public final class DaemonLatencyHarness {
+
+  private static final String[] CLIENT_JVM_OPTIONS = {"-Xshare:auto", "-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC"};
+
+  private static final int WARMUP_INVOCATIONS = 2_000;
+
+  private static final int SOCKET_INVOCATIONS = 1_000;
+
+  /**
+   * @param args the output file, the number of JVM launches per parser, and optionally the simple names
+   *             of the parsers that should be measured
+   */
+  public static void main(String[] args) throws Exception {
+    Path output = Paths.get(args.length >= 1 ? args[0] : "build/results/daemon/results.json");
+    int forks = args.length >= 2 ? Integer.parseInt(args[1]) : 10;
+    List<String> parsers = new ArrayList<>(Arrays.asList(
+        "CpArguments_Parser", "GitArguments_Parser", "SimpleArguments_Parser", "SubcommandArguments_Parser"));
+    if (args.length >= 3) {
+      parsers = Arrays.asList(args).subList(2, args.length);
+    }
+    Path directory = Files.createTempDirectory("jbock-daemon");
+    Path socket = directory.resolve("daemon.sock");
+    Daemon daemon = new Daemon();
+    for (String parser : parsers) {
+      daemon.register(parser, handler(parser));
+    }
+    List<long[]> rows = new ArrayList<>();
+    try (Daemon started = daemon.start(UnixDomainSocketAddress.of(socket))) {
+      SocketAddress address = started.address();
+      System.out.printf("%-40s %14s %14s %14s%n", "parser", "cold ms", "client ms", "socket us");
+      for (String parser : parsers) {
+        for (int i = 0; i < WARMUP_INVOCATIONS; i++) {
+          invoke(address, parser);
+        }
+        List<Long> socketNanos = new ArrayList<>();
+        for (int i = 0; i < SOCKET_INVOCATIONS; i++) {
+          long start = System.nanoTime();
+          invoke(address, parser);
+          socketNanos.add(System.nanoTime() - start);
+        }
+        List<Long> coldNanos = new ArrayList<>();
+        List<Long> clientNanos = new ArrayList<>();
+        for (int i = 0; i < forks; i++) {
+          coldNanos.add(launch(coldCommand(parser)));
+          clientNanos.add(launch(clientCommand(socket, parser)));
+        }
+        long[] row = {median(coldNanos) / 1_000_000, median(clientNanos) / 1_000_000, median(socketNanos) / 1_000};
+        rows.add(row);
+        System.out.printf("%-40s %14d %14d %14d%n", parser, row[0], row[1], row[2]);
+      }
+    } finally {
+      Files.deleteIfExists(socket);
+      Files.deleteIfExists(directory);
+    }
+    Files.createDirectories(output.toAbsolutePath().getParent());
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8))) {
+      writeJson(out, forks, parsers, rows);
+    }
+    System.out.println("Results written to " + output.toAbsolutePath());
+  }
+
+  private static void writeJson(PrintWriter out, int forks, List<String> parsers, List<long[]> rows) {
+    out.println("{");
+    out.printf("  \"javaVersion\": \"%s\",%n", System.getProperty("java.version"));
+    out.printf("  \"forks\": %d,%n", forks);
+    out.println("  \"parsers\": [");
+    for (int i = 0; i < parsers.size(); i++) {
+      long[] row = rows.get(i);
+      out.println("    {");
+      out.printf("      \"parser\": \"%s\",%n", parsers.get(i));
+      out.printf("      \"coldLaunchMs\": %d,%n", row[0]);
+      out.printf("      \"clientLaunchMs\": %d,%n", row[1]);
+      out.printf("      \"socketRoundTripUs\": %d%n", row[2]);
+      out.println(i == parsers.size() - 1 ? "    }" : "    },");
+    }
+    out.println("  ]");
+    out.println("}");
+  }
+
+  private static Handler handler(String parser) throws ReflectiveOperationException {
+    Class<?> parserClass = Class.forName(DaemonLatencyHarness.class.getPackage().getName() + '.' + parser);
+    Constructor<?> constructor = parserClass.getDeclaredConstructor();
+    Method parse = parserClass.getDeclaredMethod("parse", String[].class);
+    return invocation -> {
+      Object result = parse.invoke(constructor.newInstance(), (Object) invocation.args());
+      invocation.out().println(result.getClass().getSimpleName());
+      return 0;
+    };
+  }
+
+  private static void invoke(SocketAddress address, String parser) throws IOException {
+    DaemonClient.run(address, parser, new String[0], new ByteArrayOutputStream(), new ByteArrayOutputStream());
+  }
+
+  private static List<String> coldCommand(String parser) {
+    List<String> command = new ArrayList<>();
+    command.add(java());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(ColdStartHarness.Child.class.getName());
+    command.add("parse");
+    command.add(parser);
+    return command;
+  }
+
+  // the client only needs the daemon library
+  private static List<String> clientCommand(Path socket, String parser) throws URISyntaxException {
+    List<String> command = new ArrayList<>();
+    command.add(java());
+    command.addAll(Arrays.asList(CLIENT_JVM_OPTIONS));
+    command.add("-cp");
+    command.add(new File(DaemonClient.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString());
+    command.add(DaemonClient.class.getName());
+    command.add(socket.toString());
+    command.add(parser);
+    return command;
+  }
+
+  private static String java() {
+    return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+  }
+
+  private static long launch(List<String> command) throws IOException, InterruptedException {
+    ProcessBuilder builder = new ProcessBuilder(command)
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        .redirectError(ProcessBuilder.Redirect.DISCARD);
+    long start = System.nanoTime();
+    Process process = builder.start();
+    int exitCode = process.waitFor();
+    long nanos = System.nanoTime() - start;
+    if (exitCode != 0) {
+      throw new IllegalStateException("Exit code " + exitCode + ": " + command);
+    }
+    return nanos;
+  }
+
+  private static long median(List<Long> values) {
+    List<Long> sorted = new ArrayList<>(values);
+    Collections.sort(sorted);
+    return sorted.get(sorted.size() / 2);
+  }
+}
@@ -0,0 +1,105 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Option;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compares a parser that maps every token with one that uses
+ * {@link Command#memoizeValues()} and {@link Command#valueCacheSize()}.
+ * The input repeats a few distinct patterns and URIs many times.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MemoizeBenchmark {
+
+  @Command
+  abstract static class PlainArguments {
+
+    @Option(value = "include", mnemonic = 'i')
+    abstract List<Pattern> include();
+
+    @Option(value = "exclude", mnemonic = 'e')
+    abstract List<Pattern> exclude();
+
+    @Option(value = "url", mnemonic = 'u')
+    abstract List<URI> urls();
+  }
+
+  @Command(memoizeValues = true)
+  abstract static class MemoizedArguments {
+
+    @Option(value = "include", mnemonic = 'i')
+    abstract List<Pattern> include();
+
+    @Option(value = "exclude", mnemonic = 'e')
+    abstract List<Pattern> exclude();
+
+    @Option(value = "url", mnemonic = 'u')
+    abstract List<URI> urls();
+  }
+
+  @Command(valueCacheSize = 64)
+  abstract static class CachedArguments {
+
+    @Option(value = "include", mnemonic = 'i')
+    abstract List<Pattern> include();
+
+    @Option(value = "exclude", mnemonic = 'e')
+    abstract List<Pattern> exclude();
+
+    @Option(value = "url", mnemonic = 'u')
+    abstract List<URI> urls();
+  }
+
+  @Param({"1", "4", "32"})
+  int repetitions;
+
+  private String[] args;
+
+  private final MemoizeBenchmark_PlainArguments_Parser plain = new MemoizeBenchmark_PlainArguments_Parser();
+  private final MemoizeBenchmark_MemoizedArguments_Parser memoized = new MemoizeBenchmark_MemoizedArguments_Parser();
+  private final MemoizeBenchmark_CachedArguments_Parser cached = new MemoizeBenchmark_CachedArguments_Parser();
+
+  @Setup
+  public void setup() {
+    List<String> result = new ArrayList<>();
+    for (int i = 0; i < repetitions; i++) {
+      result.add("--include=[a-z]+-\\d{2,4}\\.(txt|md)");
+      result.add("--exclude=^\\.git(/.*)?$");
+      result.add("--include=(?i)readme.*");
+      result.add("--exclude=[a-z]+-\\d{2,4}\\.(txt|md)");
+      result.add("--url=https://example.com/a/b?c=d#e");
+    }
+    args = result.toArray(new String[0]);
+  }
+
+  @Benchmark
+  public Object plain() {
+    return plain.parse(args);
+  }
+
+  @Benchmark
+  public Object memoized() {
+    return memoized.parse(args);
+  }
+
+  @Benchmark
+  public Object cached() {
+    return cached.parse(args);
+  }
+}
@@ -0,0 +1,113 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Option;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how {@link Command#batchParsing()} scales with the number of threads.
+ * Each invocation parses a batch of job definitions.
+ * With {@code threads = n}, the chunks run on a pool of {@code n - 1} threads,
+ * and on the calling thread.
+ * The score is the number of command lines per millisecond,
+ * so it should grow almost linearly with {@code threads}, up to the number of cores.
+ * With {@code threads = 1}, all chunks run on the calling thread, which is the sequential baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParseAllBenchmark {
+
+  private static final int BATCH_SIZE = 20_000;
+
+  @Command(batchParsing = true, immutable = true, reuseParserState = true)
+  abstract static class JobArguments {
+
+    @Option(value = "name", mnemonic = 'n')
+    abstract String name();
+
+    @Option(value = "priority", mnemonic = 'p')
+    abstract Optional<Integer> priority();
+
+    @Option(value = "input", mnemonic = 'i')
+    abstract List<Path> inputs();
+
+    @Option(value = "callback", mnemonic = 'c')
+    abstract Optional<URI> callback();
+
+    @Option(value = "retry", mnemonic = 'r')
+    abstract boolean retry();
+  }
+
+  @Param({"1", "2", "4", "8"})
+  int threads;
+
+  private final ParseAllBenchmark_JobArguments_Parser parser = new ParseAllBenchmark_JobArguments_Parser();
+
+  private final List<String[]> argvs = new ArrayList<>();
+
+  private ForkJoinPool pool;
+
+  private Executor executor;
+
+  @Setup
+  public void setup() {
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      List<String> argv = new ArrayList<>();
+      argv.add("--name=job" + i);
+      argv.add("-p" + i % 10);
+      for (int j = 0; j < 5; j++) {
+        argv.add("-i");
+        argv.add("/data/" + i + "/part-" + j + ".csv");
+      }
+      argv.add("--callback=https://scheduler.example.com/jobs/" + i);
+      if (i % 2 == 0) {
+        argv.add("-r");
+      }
+      argvs.add(argv.toArray(new String[0]));
+    }
+    if (threads == 1) {
+      executor = Runnable::run;
+    } else {
+      pool = new ForkJoinPool(threads - 1);
+      executor = pool;
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public Object parseAll() {
+    return parser.parseAll(argvs, executor);
+  }
+}
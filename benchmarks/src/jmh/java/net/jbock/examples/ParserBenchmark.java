@@ -0,0 +1,281 @@
+package net.jbock.examples;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Measures the generated parsers of some of the examples,
+ * on the {@code parse} and the {@code parseOrExit} path.
+ * The input size is the number of repetitions of the repeatable parameters.
+ * A command line of {@code tar}, {@code allFlags} or {@code listInteger} has a fixed number of tokens,
+ * because these commands have no repeatable parameters.
+ * For these commands, each invocation parses a batch of that many command lines instead.
+ * In the large case, each invocation reads thousands of tokens.
+ *
+ * <p>On the error and the help path, {@code parseOrExit} prints to a null stream,
+ * and its {@code runBeforeExit} callback throws before the JVM would exit.
+ * The error input is the regular input with an invalid token at the end.
+ * The help input is the regular input with {@code --help} in front.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParserBenchmark {
+
+  private static final PrintStream NULL_STREAM = new PrintStream(OutputStream.nullOutputStream());
+
+  // thrown by runBeforeExit, so that parseOrExit returns instead of exiting
+  private static final RuntimeException EXIT = new RuntimeException("exit", null, false, false) {
+  };
+
+  @Param({"git", "curl", "tar", "gradle", "allFlags", "listInteger"})
+  String command;
+
+  @Param({"small", "medium", "large"})
+  String size;
+
+  // the command lines of one invocation
+  private String[][] argvs;
+  private String[][] errorArgvs;
+  private String[][] helpArgvs;
+  private Function<String[], Object> parse;
+  private Function<String[], Object> parseOrExit;
+
+  @Setup
+  public void setup() {
+    int n = repetitions(size);
+    switch (command) {
+      case "git": {
+        GitArguments_Parser parser = new GitArguments_Parser()
+            .withErrorStream(NULL_STREAM).withHelpStream(NULL_STREAM)
+            .runBeforeExit(result -> {
+              throw EXIT;
+            });
+        parse = parser::parse;
+        parseOrExit = parser::parseOrExit;
+        argvs = new String[][]{gitArgs(n)};
+        break;
+      }
+      case "curl": {
+        CurlArguments_Parser parser = new CurlArguments_Parser()
+            .withErrorStream(NULL_STREAM).withHelpStream(NULL_STREAM)
+            .runBeforeExit(result -> {
+              throw EXIT;
+            });
+        parse = parser::parse;
+        parseOrExit = parser::parseOrExit;
+        argvs = new String[][]{curlArgs(n)};
+        break;
+      }
+      case "tar": {
+        TarArguments_Parser parser = new TarArguments_Parser()
+            .withErrorStream(NULL_STREAM).withHelpStream(NULL_STREAM)
+            .runBeforeExit(result -> {
+              throw EXIT;
+            });
+        parse = parser::parse;
+        parseOrExit = parser::parseOrExit;
+        argvs = tarArgs(n);
+        break;
+      }
+      case "gradle": {
+        GradleArguments_Parser parser = new GradleArguments_Parser()
+            .withErrorStream(NULL_STREAM).withHelpStream(NULL_STREAM)
+            .runBeforeExit(result -> {
+              throw EXIT;
+            });
+        parse = parser::parse;
+        parseOrExit = parser::parseOrExit;
+        argvs = new String[][]{gradleArgs(n)};
+        break;
+      }
+      case "allFlags": {
+        AllFlagsArguments_Parser parser = new AllFlagsArguments_Parser()
+            .withErrorStream(NULL_STREAM).withHelpStream(NULL_STREAM)
+            .runBeforeExit(result -> {
+              throw EXIT;
+            });
+        parse = parser::parse;
+        parseOrExit = parser::parseOrExit;
+        argvs = allFlagsArgs(n);
+        break;
+      }
+      case "listInteger": {
+        ListIntegerArguments_Parser parser = new ListIntegerArguments_Parser()
+            .withErrorStream(NULL_STREAM).withHelpStream(NULL_STREAM)
+            .runBeforeExit(result -> {
+              throw EXIT;
+            });
+        parse = parser::parse;
+        parseOrExit = parser::parseOrExit;
+        argvs = listIntegerArgs(n);
+        break;
+      }
+      default:
+        throw new IllegalArgumentException("Unknown command: " + command);
+    }
+    errorArgvs = new String[argvs.length][];
+    helpArgvs = new String[argvs.length][];
+    for (int i = 0; i < argvs.length; i++) {
+      errorArgvs[i] = Arrays.copyOf(argvs[i], argvs[i].length + 1);
+      errorArgvs[i][argvs[i].length] = "--no-such-option";
+      helpArgvs[i] = new String[argvs[i].length + 1];
+      helpArgvs[i][0] = "--help";
+      System.arraycopy(argvs[i], 0, helpArgvs[i], 1, argvs[i].length);
+    }
+    expect("ParsingSuccess", argvs);
+    expect("ParsingFailed", errorArgvs);
+    expect("HelpRequested", helpArgvs);
+  }
+
+  private void expect(String resultType, String[][] input) {
+    for (String[] argv : input) {
+      Object result = parse.apply(argv);
+      if (!result.getClass().getSimpleName().equals(resultType)) {
+        throw new IllegalStateException("Expecting " + resultType + ": " + command + " " + Arrays.toString(argv));
+      }
+    }
+  }
+
+  @Benchmark
+  public Object parse() {
+    Object result = null;
+    for (String[] argv : argvs) {
+      result = parse.apply(argv);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public Object parseOrExit() {
+    Object result = null;
+    for (String[] argv : argvs) {
+      result = parseOrExit.apply(argv);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int parseOrExitError() {
+    return exits(errorArgvs);
+  }
+
+  @Benchmark
+  public int parseOrExitHelp() {
+    return exits(helpArgvs);
+  }
+
+  private int exits(String[][] input) {
+    int exits = 0;
+    for (String[] argv : input) {
+      try {
+        parseOrExit.apply(argv);
+      } catch (RuntimeException e) {
+        if (e != EXIT) {
+          throw e;
+        }
+        exits++;
+      }
+    }
+    if (exits != input.length) {
+      throw new IllegalStateException("Expecting parseOrExit to exit: " + command);
+    }
+    return exits;
+  }
+
+  private static int repetitions(String size) {
+    switch (size) {
+      case "small":
+        return 1;
+      case "medium":
+        return 32;
+      case "large":
+        return 4096;
+      default:
+        throw new IllegalArgumentException("Unknown size: " + size);
+    }
+  }
+
+  private static String[] gitArgs(int n) {
+    List<String> result = new ArrayList<>();
+    result.add("commit");
+    for (int i = 0; i < n; i++) {
+      result.add("src/main/java/File" + i + ".java");
+    }
+    return result.toArray(new String[0]);
+  }
+
+  private static String[] curlArgs(int n) {
+    List<String> result = new ArrayList<>();
+    result.add("-v");
+    result.add("--request=POST");
+    for (int i = 0; i < n; i++) {
+      result.add("-H");
+      result.add("X-Header-" + i + ": value");
+      result.add("https://example.com/" + i);
+    }
+    return result.toArray(new String[0]);
+  }
+
+  // each flag can be given at most once, so there are n command lines
+  private static String[][] allFlagsArgs(int n) {
+    String[][] result = new String[n][];
+    for (int i = 0; i < n; i++) {
+      result[i] = i % 2 == 0 ? new String[]{"--smallFlag", "--bigFlag"} : new String[]{"--bigFlag"};
+    }
+    return result;
+  }
+
+  // the option takes a single value, so there are n command lines
+  private static String[][] listIntegerArgs(int n) {
+    String[][] result = new String[n][];
+    for (int i = 0; i < n; i++) {
+      result[i] = new String[]{"-a", Integer.toString(i)};
+    }
+    return result;
+  }
+
+  // the options can be given at most once, so there are n command lines
+  private static String[][] tarArgs(int n) {
+    String[][] result = new String[n][];
+    for (int i = 0; i < n; i++) {
+      result[i] = new String[]{"-x", "-v", "-z", "-f", "archive" + i + ".tar.gz"};
+    }
+    return result;
+  }
+
+  private static String[] gradleArgs(int n) {
+    List<String> result = new ArrayList<>();
+    result.add("-m");
+    result.add("message");
+    result.add("--dir=build");
+    result.add("-c");
+    result.add("-v");
+    for (int i = 0; i < n; i++) {
+      result.add("-f");
+      result.add("file" + i);
+      result.add("task" + i);
+    }
+    return result.toArray(new String[0]);
+  }
+}
@@ -0,0 +1,100 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Option;
+import net.jbock.Param;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the first parse in a fresh JVM, with and without {@link Command#fastStartup()}.
+ * Each fork runs a single parse, so the time includes loading the parser classes,
+ * and bootstrapping the lambdas that the parser uses.
+ * The benchmark methods themselves don't use lambdas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(20)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class StartupBenchmark {
+
+  enum Strategy {FAST, SLOW}
+
+  @Command
+  abstract static class DefaultArguments {
+
+    @Option(value = "count", mnemonic = 'c')
+    abstract Optional<Integer> count();
+
+    @Option(value = "strategy", mnemonic = 't')
+    abstract Optional<Strategy> strategy();
+
+    @Option(value = "include", mnemonic = 'i')
+    abstract List<Pattern> include();
+
+    @Option(value = "sizes", mnemonic = 's')
+    abstract int[] sizes();
+
+    @Option(value = "verbose", mnemonic = 'v')
+    abstract boolean verbose();
+
+    @Param(1)
+    abstract String command();
+
+    @Param(2)
+    abstract List<Path> paths();
+  }
+
+  @Command(fastStartup = true)
+  abstract static class FastArguments {
+
+    @Option(value = "count", mnemonic = 'c')
+    abstract Optional<Integer> count();
+
+    @Option(value = "strategy", mnemonic = 't')
+    abstract Optional<Strategy> strategy();
+
+    @Option(value = "include", mnemonic = 'i')
+    abstract List<Pattern> include();
+
+    @Option(value = "sizes", mnemonic = 's')
+    abstract int[] sizes();
+
+    @Option(value = "verbose", mnemonic = 'v')
+    abstract boolean verbose();
+
+    @Param(1)
+    abstract String command();
+
+    @Param(2)
+    abstract List<Path> paths();
+  }
+
+  private static final String[] ARGS = {
+      "-c3", "--strategy=FAST", "-i", "[a-z]+\\.txt", "-s1", "-s2", "-v", "build", "a", "b/c"};
+
+  @Benchmark
+  public Object defaultFirstParse() {
+    return new StartupBenchmark_DefaultArguments_Parser().parse(ARGS);
+  }
+
+  @Benchmark
+  public Object fastStartupFirstParse() {
+    return new StartupBenchmark_FastArguments_Parser().parse(ARGS);
+  }
+}
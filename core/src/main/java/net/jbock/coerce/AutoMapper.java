@@ -1,11 +1,17 @@
 package net.jbock.coerce;
 
 import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import net.jbock.Command;
 import net.jbock.compiler.TypeTool;
 import net.jbock.either.Either;
+import net.jbock.qualifier.SourceElement;
 
 import javax.inject.Inject;
+import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.TypeMirror;
 import java.io.File;
 import java.math.BigDecimal;
@@ -21,6 +27,7 @@ import java.util.Map.Entry;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
+import static javax.lang.model.element.Modifier.PUBLIC;
 import static net.jbock.compiler.Constants.STRING;
 import static net.jbock.either.Either.left;
 import static net.jbock.either.Either.right;
@@ -33,26 +40,66 @@ public class AutoMapper {
   private static final String COMPILE = "compile";
   private static final String PARSE = "parse";
 
+  private static final ParameterSpec S = ParameterSpec.builder(STRING, "s").build();
+
   private final TypeTool tool;
+  private final boolean fastStartup;
 
   @Inject
-  AutoMapper(TypeTool tool) {
+  AutoMapper(TypeTool tool, @SourceElement TypeElement sourceElement) {
     this.tool = tool;
+    this.fastStartup = sourceElement.getAnnotation(Command.class).fastStartup();
+  }
+
+  /**
+   * A standard mapper, as a lambda expression or method reference,
+   * and as the body of a method that takes the string {@link #S}.
+   * The method body does not use the {@code +} operator.
+   */
+  private static final class StandardMapper {
+
+    final TypeName mappedType;
+    final CodeBlock lambda;
+    final CodeBlock body;
+
+    StandardMapper(TypeName mappedType, CodeBlock lambda, CodeBlock body) {
+      this.mappedType = mappedType;
+      this.lambda = lambda;
+      this.body = body;
+    }
+  }
+
+  private static Entry<String, StandardMapper> create(Class<?> mappedType, String createFromString) {
+    return create(mappedType, TypeName.get(mappedType), createFromString);
   }
 
-  private static Entry<String, CodeBlock> create(Class<?> mappedType, String createFromString) {
-    return create(mappedType, CodeBlock.of("$T::" + createFromString, mappedType));
+  private static Entry<String, StandardMapper> create(Class<?> mappedType, TypeName functionType, String createFromString) {
+    CodeBlock body = NEW.equals(createFromString) ?
+        CodeBlock.builder().addStatement("return new $T($N)", mappedType, S).build() :
+        CodeBlock.builder().addStatement("return $T.$L($N)", mappedType, createFromString, S).build();
+    return create(mappedType, new StandardMapper(functionType,
+        CodeBlock.of("$T::" + createFromString, mappedType), body));
   }
 
-  private static Entry<String, CodeBlock> create(Class<?> mappedType, CodeBlock mapExpr) {
-    return new SimpleImmutableEntry<>(mappedType.getCanonicalName(), mapExpr);
+  private static Entry<String, StandardMapper> create(Class<?> mappedType, StandardMapper mapper) {
+    return new SimpleImmutableEntry<>(mappedType.getCanonicalName(), mapper);
   }
 
-  private static final List<Entry<String, CodeBlock>> MAPPERS = Arrays.asList(
-      create(String.class, CodeBlock.of("$T.identity()", Function.class)),
+  private static Entry<String, StandardMapper> createMultiline(Class<?> mappedType, Function<Boolean, CodeBlock> body) {
+    CodeBlock lambda = CodeBlock.builder()
+        .add("$N -> {\n", S).indent()
+        .add(body.apply(false))
+        .unindent().add("}").build();
+    return create(mappedType, new StandardMapper(TypeName.get(mappedType), lambda, body.apply(true)));
+  }
+
+  private static final List<Entry<String, StandardMapper>> MAPPERS = Arrays.asList(
+      create(String.class, new StandardMapper(STRING, CodeBlock.of("$T.identity()", Function.class),
+          CodeBlock.builder().addStatement("return $N", S).build())),
       create(Integer.class, VALUE_OF),
-      create(Path.class, CodeBlock.of("$T::get", Paths.class)),
-      create(File.class, autoMapperFile()),
+      create(Path.class, new StandardMapper(TypeName.get(Path.class), CodeBlock.of("$T::get", Paths.class),
+          CodeBlock.builder().addStatement("return $T.get($N)", Paths.class, S).build())),
+      createMultiline(File.class, AutoMapper::autoMapperFile),
       create(URI.class, CREATE),
       create(Pattern.class, COMPILE),
       create(LocalDate.class, PARSE),
@@ -61,47 +108,108 @@ public class AutoMapper {
       create(Byte.class, VALUE_OF),
       create(Float.class, VALUE_OF),
       create(Double.class, VALUE_OF),
-      create(Character.class, autoMapperChar()),
+      createMultiline(Character.class, AutoMapper::autoMapperChar),
       create(BigInteger.class, NEW),
       create(BigDecimal.class, NEW));
 
+  private static final List<Entry<String, StandardMapper>> PRIMITIVE_MAPPERS = Arrays.asList(
+      create(Integer.class, TypeName.INT, "parseInt"),
+      create(Long.class, TypeName.LONG, "parseLong"),
+      create(Double.class, TypeName.DOUBLE, "parseDouble"));
+
+  // mappers that are expensive enough to be worth caching, and return equal results for equal input
+  private static final List<String> PURE_MAPPERS = Arrays.asList(
+      Pattern.class.getCanonicalName(),
+      URI.class.getCanonicalName(),
+      LocalDate.class.getCanonicalName(),
+      BigInteger.class.getCanonicalName(),
+      BigDecimal.class.getCanonicalName());
+
   public Either<String, CodeBlock> findAutoMapper(TypeMirror unwrappedReturnType) {
-    for (Entry<String, CodeBlock> coercion : MAPPERS) {
+    for (Entry<String, StandardMapper> coercion : MAPPERS) {
       if (tool.isSameType(unwrappedReturnType, coercion.getKey())) {
-        CodeBlock mapExpr = coercion.getValue();
+        CodeBlock mapExpr = mapExpr(coercion.getValue());
         return right(mapExpr);
       }
     }
     return left("");
   }
 
-  private static CodeBlock autoMapperFile() {
-    ParameterSpec s = ParameterSpec.builder(STRING, "s").build();
+  public CodeBlock enumMapper(TypeMirror enumType) {
+    TypeName type = TypeName.get(enumType);
+    return mapExpr(new StandardMapper(type, CodeBlock.of("$T::valueOf", type),
+        CodeBlock.builder().addStatement("return $T.valueOf($N)", type, S).build()));
+  }
+
+  public boolean isPure(TypeMirror unwrappedReturnType) {
+    for (String pureType : PURE_MAPPERS) {
+      if (tool.isSameType(unwrappedReturnType, pureType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Finds a mapper that returns a primitive, rather than the given wrapper type.
+   */
+  public Either<String, CodeBlock> findPrimitiveMapper(TypeMirror wrapperType) {
+    for (Entry<String, StandardMapper> coercion : PRIMITIVE_MAPPERS) {
+      if (tool.isSameType(wrapperType, coercion.getKey())) {
+        return right(mapExpr(coercion.getValue()));
+      }
+    }
+    return left("");
+  }
+
+  /**
+   * In fast startup mode, the mapper is an anonymous class.
+   * This avoids the bootstrap of a lambda.
+   */
+  private CodeBlock mapExpr(StandardMapper mapper) {
+    if (!fastStartup) {
+      return mapper.lambda;
+    }
+    MethodSpec apply = MethodSpec.methodBuilder(Util.applyMethod(mapper.mappedType))
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addParameter(S)
+        .returns(mapper.mappedType)
+        .addCode(mapper.body)
+        .build();
+    return CodeBlock.of("$L", TypeSpec.anonymousClassBuilder("")
+        .addSuperinterface(Util.mapperType(mapper.mappedType))
+        .addMethod(apply)
+        .build());
+  }
+
+  private static CodeBlock autoMapperFile(boolean plain) {
     ParameterSpec f = ParameterSpec.builder(File.class, "f").build();
     return CodeBlock.builder()
-        .add("$N -> {\n", s).indent()
-        .add("$T $N = new $T($N);\n", File.class, f, File.class, s)
+        .add("$T $N = new $T($N);\n", File.class, f, File.class, S)
         .beginControlFlow("if (!$N.exists())", f)
-        .add("throw new $T($S + $N);\n", IllegalStateException.class,
-            "File does not exist: ", s)
+        .add("throw new $T($L);\n", IllegalStateException.class,
+            message(plain, CodeBlock.of("$S", "File does not exist: "), CodeBlock.of("$N", S)))
         .endControlFlow()
         .beginControlFlow("if (!$N.isFile())", f)
-        .add("throw new $T($S + $N);\n", IllegalStateException.class,
-            "Not a file: ", s)
+        .add("throw new $T($L);\n", IllegalStateException.class,
+            message(plain, CodeBlock.of("$S", "Not a file: "), CodeBlock.of("$N", S)))
         .endControlFlow()
         .add("return $N;\n", f)
-        .unindent().add("}").build();
+        .build();
   }
 
-  private static CodeBlock autoMapperChar() {
-    ParameterSpec s = ParameterSpec.builder(STRING, "s").build();
+  private static CodeBlock autoMapperChar(boolean plain) {
     return CodeBlock.builder()
-        .add("$N -> {\n", s).indent()
-        .beginControlFlow("if ($N.length() != 1)", s)
-        .add("throw new $T($S + $N + $S);\n", RuntimeException.class,
-            "Not a single character: <", s, ">")
+        .beginControlFlow("if ($N.length() != 1)", S)
+        .add("throw new $T($L);\n", RuntimeException.class,
+            message(plain, CodeBlock.of("$S", "Not a single character: <"), CodeBlock.of("$N", S), CodeBlock.of("$S", ">")))
         .endControlFlow()
-        .add("return $N.charAt(0);\n", s)
-        .unindent().add("}").build();
+        .add("return $N.charAt(0);\n", S)
+        .build();
+  }
+
+  private static CodeBlock message(boolean plain, CodeBlock... parts) {
+    return plain ? Util.concat(parts) : CodeBlock.join(Arrays.asList(parts), " + ");
   }
 }
@@ -2,11 +2,15 @@ package net.jbock.coerce;
 
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
 import net.jbock.qualifier.ConstructorParam;
 import net.jbock.compiler.EnumName;
 import net.jbock.qualifier.ExtractExpr;
+import net.jbock.qualifier.LazySequence;
 import net.jbock.qualifier.MapExpr;
-import net.jbock.qualifier.TailExpr;
+import net.jbock.qualifier.MappedType;
+import net.jbock.qualifier.PureMapper;
+import net.jbock.qualifier.SharedMapper;
 
 import javax.inject.Inject;
 
@@ -14,25 +18,34 @@ public class Coercion {
 
   private final ParameterSpec constructorParam;
   private final EnumName enumName;
-  private final CodeBlock tailExpr;
+  private final TypeName mappedType;
   private final CodeBlock mapExpr;
   private final CodeBlock extractExpr;
   private final Skew skew;
+  private final boolean sharedMapper;
+  private final boolean pureMapper;
+  private final boolean lazySequence;
 
   @Inject
   Coercion(
       EnumName enumName,
       @MapExpr CodeBlock mapExpr,
-      @TailExpr CodeBlock tailExpr,
+      @MappedType TypeName mappedType,
       @ExtractExpr CodeBlock extractExpr,
       Skew skew,
-      @ConstructorParam ParameterSpec constructorParam) {
+      @ConstructorParam ParameterSpec constructorParam,
+      @SharedMapper boolean sharedMapper,
+      @PureMapper boolean pureMapper,
+      @LazySequence boolean lazySequence) {
     this.constructorParam = constructorParam;
     this.enumName = enumName;
-    this.tailExpr = tailExpr;
+    this.mappedType = mappedType;
     this.mapExpr = mapExpr;
     this.extractExpr = extractExpr;
     this.skew = skew;
+    this.sharedMapper = sharedMapper;
+    this.pureMapper = pureMapper;
+    this.lazySequence = lazySequence;
   }
 
   public CodeBlock mapExpr() {
@@ -43,8 +56,36 @@ public class Coercion {
     return extractExpr;
   }
 
-  public CodeBlock tailExpr() {
-    return tailExpr;
+  /**
+   * @return the output type of the function that is given by {@link #mapExpr()}
+   */
+  public TypeName mappedType() {
+    return mappedType;
+  }
+
+  /**
+   * @return true if the function that is given by {@link #mapExpr()}
+   * can be created once, and then used by all parsers
+   */
+  public boolean isSharedMapper() {
+    return sharedMapper;
+  }
+
+  /**
+   * @return true if the function that is given by {@link #mapExpr()}
+   * returns equal results for equal input, so its results can be cached
+   */
+  public boolean isPureMapper() {
+    return pureMapper;
+  }
+
+  /**
+   * @return true if the return type is a {@code Stream} or {@code Iterator},
+   * and the function that is given by {@link #mapExpr()} is applied
+   * while the caller consumes it
+   */
+  public boolean isLazySequence() {
+    return lazySequence;
   }
 
   public Skew skew() {
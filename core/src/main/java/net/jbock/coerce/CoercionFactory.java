@@ -10,6 +10,8 @@ import net.jbock.compiler.ParameterScoped;
 import javax.inject.Inject;
 import java.util.function.Function;
 
+import static net.jbock.compiler.Constants.STRING;
+
 public class CoercionFactory extends ParameterScoped {
 
   @Inject
@@ -19,18 +21,21 @@ public class CoercionFactory extends ParameterScoped {
 
   public Coercion create(MatchWithMap success) {
     CodeBlock mapExpr = success.mapExpr();
-    CodeBlock tailExpr = success.tailExpr();
+    TypeName mappedType = success.mappedType();
     CodeBlock extractExpr = success.extractExpr();
     Skew skew = success.skew();
     ParameterSpec constructorParam = success.constructorParam();
-    return new Coercion(enumName(), mapExpr, tailExpr, extractExpr, skew, constructorParam);
+    boolean sharedMapper = success.isSharedMapper();
+    boolean pureMapper = success.isPureMapper();
+    boolean lazySequence = success.isLazySequence();
+    return new Coercion(enumName(), mapExpr, mappedType, extractExpr, skew, constructorParam, sharedMapper, pureMapper,
+        lazySequence);
   }
 
   public Coercion createFlag() {
     ParameterSpec constructorParam = ParameterSpec.builder(TypeName.get(returnType()), enumName().snake()).build();
     CodeBlock mapExpr = CodeBlock.of("$T.identity()", Function.class);
-    CodeBlock tailExpr = CodeBlock.of(".findAny().isPresent()");
     CodeBlock extractExpr = CodeBlock.of("$N", constructorParam);
-    return new Coercion(enumName(), mapExpr, tailExpr, extractExpr, Skew.FLAG, constructorParam);
+    return new Coercion(enumName(), mapExpr, STRING, extractExpr, Skew.FLAG, constructorParam, false, false, false);
   }
 }
@@ -1,14 +1,70 @@
 package net.jbock.coerce;
 
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
 import net.jbock.compiler.TypeTool;
 
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
+import static net.jbock.compiler.Constants.STRING;
+
 public final class Util {
 
+  /**
+   * A primitive mapped type means that the mapper is one of the
+   * primitive specializations of {@link Function}, which avoid boxing.
+   */
+  public static TypeName mapperType(TypeName mappedType) {
+    if (mappedType.equals(TypeName.INT)) {
+      return ParameterizedTypeName.get(ClassName.get(ToIntFunction.class), STRING);
+    }
+    if (mappedType.equals(TypeName.LONG)) {
+      return ParameterizedTypeName.get(ClassName.get(ToLongFunction.class), STRING);
+    }
+    if (mappedType.equals(TypeName.DOUBLE)) {
+      return ParameterizedTypeName.get(ClassName.get(ToDoubleFunction.class), STRING);
+    }
+    return ParameterizedTypeName.get(ClassName.get(Function.class), STRING, mappedType);
+  }
+
+  public static String applyMethod(TypeName mappedType) {
+    if (mappedType.equals(TypeName.INT)) {
+      return "applyAsInt";
+    }
+    if (mappedType.equals(TypeName.LONG)) {
+      return "applyAsLong";
+    }
+    if (mappedType.equals(TypeName.DOUBLE)) {
+      return "applyAsDouble";
+    }
+    return "apply";
+  }
+
+  /**
+   * Concatenates strings with {@link String#concat}.
+   * Unlike the {@code +} operator, this does not compile to invokedynamic
+   * when the target is Java 9 or later.
+   *
+   * @param parts non-null expressions of type {@code String}
+   * @return an expression of type {@code String}
+   */
+  public static CodeBlock concat(CodeBlock... parts) {
+    CodeBlock result = parts[0];
+    for (int i = 1; i < parts.length; i++) {
+      result = CodeBlock.of("$L.concat($L)", result, parts[i]);
+    }
+    return result;
+  }
+
   public static String addBreaks(String code) {
     return code.replace(" ", "$W");
   }
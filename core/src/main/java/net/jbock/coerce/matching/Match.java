@@ -11,33 +11,50 @@ public class Match {
   private final TypeMirror baseReturnType;
   private final ParameterSpec constructorParam;
   private final CodeBlock extractExpr;
-  private final CodeBlock tailExpr;
   private final Skew skew;
+  private final boolean primitiveSequence;
+  private final boolean lazySequence;
 
   private Match(
       TypeMirror baseReturnType,
       ParameterSpec constructorParam,
       CodeBlock extractExpr,
-      CodeBlock tailExpr,
-      Skew skew) {
+      Skew skew,
+      boolean primitiveSequence,
+      boolean lazySequence) {
     this.baseReturnType = baseReturnType;
     this.constructorParam = constructorParam;
     this.extractExpr = extractExpr;
-    this.tailExpr = tailExpr;
     this.skew = skew;
+    this.primitiveSequence = primitiveSequence;
+    this.lazySequence = lazySequence;
   }
 
-  public static Match create(TypeMirror wrappedType, ParameterSpec constructorParam, Skew skew, CodeBlock tailExpr) {
-    return create(wrappedType, constructorParam, skew, tailExpr, CodeBlock.of("$N", constructorParam));
+  public static Match create(TypeMirror wrappedType, ParameterSpec constructorParam, Skew skew) {
+    return create(wrappedType, constructorParam, skew, CodeBlock.of("$N", constructorParam));
   }
 
   public static Match create(
       TypeMirror wrappedType,
       ParameterSpec constructorParam,
       Skew skew,
-      CodeBlock tailExpr,
       CodeBlock extractExpr) {
-    return new Match(wrappedType, constructorParam, extractExpr, tailExpr, skew);
+    return new Match(wrappedType, constructorParam, extractExpr, skew, false, false);
+  }
+
+  public static Match createPrimitiveSequence(TypeMirror wrappedType, ParameterSpec constructorParam) {
+    return createPrimitiveSequence(wrappedType, constructorParam, CodeBlock.of("$N", constructorParam));
+  }
+
+  public static Match createPrimitiveSequence(
+      TypeMirror wrappedType,
+      ParameterSpec constructorParam,
+      CodeBlock extractExpr) {
+    return new Match(wrappedType, constructorParam, extractExpr, Skew.REPEATABLE, true, false);
+  }
+
+  public static Match createLazySequence(TypeMirror wrappedType, ParameterSpec constructorParam) {
+    return new Match(wrappedType, constructorParam, CodeBlock.of("$N", constructorParam), Skew.REPEATABLE, false, true);
   }
 
   public TypeMirror baseReturnType() {
@@ -52,11 +69,23 @@ public class Match {
     return extractExpr;
   }
 
-  public CodeBlock tailExpr() {
-    return tailExpr;
-  }
-
   public Skew skew() {
     return skew;
   }
+
+  /**
+   * True if the constructor param is a primitive array,
+   * and the base return type is the corresponding wrapper type.
+   */
+  public boolean isPrimitiveSequence() {
+    return primitiveSequence;
+  }
+
+  /**
+   * True if the constructor param is the list of tokens,
+   * and the return type is a {@code Stream} or {@code Iterator} that maps them on demand.
+   */
+  public boolean isLazySequence() {
+    return lazySequence;
+  }
 }
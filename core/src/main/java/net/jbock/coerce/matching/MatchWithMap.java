@@ -2,17 +2,33 @@ package net.jbock.coerce.matching;
 
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
 import net.jbock.coerce.Skew;
 import net.jbock.coerce.matching.Match;
 
 public class MatchWithMap {
 
   private final CodeBlock mapExpr;
+  private final TypeName mappedType;
   private final Match match;
+  private final boolean sharedMapper;
+  private final boolean pureMapper;
 
-  public MatchWithMap(CodeBlock mapExpr, Match match) {
+  public MatchWithMap(CodeBlock mapExpr, Match match, boolean sharedMapper, boolean pureMapper) {
+    this(mapExpr, TypeName.get(match.baseReturnType()), match, sharedMapper, pureMapper);
+  }
+
+  public MatchWithMap(
+      CodeBlock mapExpr,
+      TypeName mappedType,
+      Match match,
+      boolean sharedMapper,
+      boolean pureMapper) {
     this.mapExpr = mapExpr;
+    this.mappedType = mappedType;
     this.match = match;
+    this.sharedMapper = sharedMapper;
+    this.pureMapper = pureMapper;
   }
 
   public CodeBlock mapExpr() {
@@ -31,7 +47,19 @@ public class MatchWithMap {
     return match.skew();
   }
 
-  public CodeBlock tailExpr() {
-    return match.tailExpr();
+  public boolean isSharedMapper() {
+    return sharedMapper;
+  }
+
+  public boolean isPureMapper() {
+    return pureMapper;
+  }
+
+  public boolean isLazySequence() {
+    return match.isLazySequence();
+  }
+
+  public TypeName mappedType() {
+    return mappedType;
   }
 }
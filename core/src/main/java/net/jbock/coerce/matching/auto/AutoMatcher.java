@@ -1,7 +1,7 @@
 package net.jbock.coerce.matching.auto;
 
 import com.google.common.collect.ImmutableList;
-import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
 import net.jbock.Option;
 import net.jbock.coerce.AutoMapper;
 import net.jbock.coerce.Coercion;
@@ -58,12 +58,19 @@ public class AutoMatcher extends ParameterScoped {
 
   private Either<String, Coercion> findMapper(Match match) {
     TypeMirror baseReturnType = match.baseReturnType();
+    if (match.isPrimitiveSequence()) {
+      TypeName mappedType = TypeName.get(baseReturnType).unbox();
+      return autoMapper.findPrimitiveMapper(baseReturnType)
+          .mapLeft(s -> noMatchError(baseReturnType))
+          .map(mapExpr -> new MatchWithMap(mapExpr, mappedType, match, false, false))
+          .map(coercionFactory::create);
+    }
     return autoMapper.findAutoMapper(baseReturnType)
         .maybeRecover(() -> isEnumType(baseReturnType) ?
-            Optional.of(CodeBlock.of("$T::valueOf", baseReturnType)) :
+            Optional.of(autoMapper.enumMapper(baseReturnType)) :
             Optional.empty())
         .mapLeft(s -> noMatchError(baseReturnType))
-        .map(mapExpr -> new MatchWithMap(mapExpr, match))
+        .map(mapExpr -> new MatchWithMap(mapExpr, match, false, autoMapper.isPure(baseReturnType)))
         .map(coercionFactory::create);
   }
 
@@ -104,7 +104,10 @@ public class MapperMatcher extends ParameterScoped {
   public MatchWithMap addMapExpr(Match match, FunctionType functionType) {
     CodeBlock mapExpr = CodeBlock.of("new $T()$L", mapperClass.asType(),
         functionType.isSupplier() ? ".get()" : "");
-    return new MatchWithMap(mapExpr, match);
+    Mapper mapperAnnotation = mapperClass.getAnnotation(Mapper.class);
+    boolean sharedMapper = mapperAnnotation != null && mapperAnnotation.shared();
+    boolean pureMapper = mapperAnnotation != null && mapperAnnotation.pure();
+    return new MatchWithMap(mapExpr, match, sharedMapper, pureMapper);
   }
 
   public boolean isValidMatch(Match match, FunctionType functionType) {
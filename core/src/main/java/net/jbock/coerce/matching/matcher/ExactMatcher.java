@@ -1,6 +1,5 @@
 package net.jbock.coerce.matching.matcher;
 
-import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.ParameterSpec;
 import net.jbock.coerce.Skew;
 import net.jbock.coerce.matching.Match;
@@ -19,11 +18,6 @@ public class ExactMatcher extends Matcher {
   @Override
   public Optional<Match> tryMatch() {
     ParameterSpec constructorParam = constructorParam(boxedReturnType());
-    return Optional.of(Match.create(boxedReturnType(), constructorParam, Skew.REQUIRED, tailExpr()));
-  }
-
-  private CodeBlock tailExpr() {
-    return CodeBlock.of(".findAny().orElseThrow($T.$L::missingRequired)", optionType(),
-        enumName().enumConstant());
+    return Optional.of(Match.create(boxedReturnType(), constructorParam, Skew.REQUIRED));
   }
 }
@@ -0,0 +1,36 @@
+package net.jbock.coerce.matching.matcher;
+
+import com.squareup.javapoet.ParameterSpec;
+import net.jbock.coerce.matching.Match;
+import net.jbock.compiler.ParameterContext;
+
+import javax.inject.Inject;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static net.jbock.compiler.Constants.LIST_OF_STRING;
+
+/**
+ * Matches {@code Stream<M>} and {@code Iterator<M>}.
+ * The tokens are kept, and each one is mapped when the caller consumes it.
+ */
+public class LazySequenceMatcher extends Matcher {
+
+  @Inject
+  LazySequenceMatcher(ParameterContext parameterContext) {
+    super(parameterContext);
+  }
+
+  @Override
+  public Optional<Match> tryMatch() {
+    ParameterSpec constructorParam = ParameterSpec.builder(LIST_OF_STRING, enumName().camel()).build();
+    Optional<Match> stream = tool().getSingleTypeArgument(returnType(), Stream.class)
+        .map(typeArg -> Match.createLazySequence(typeArg, constructorParam));
+    if (stream.isPresent()) {
+      return stream;
+    }
+    return tool().getSingleTypeArgument(returnType(), Iterator.class)
+        .map(typeArg -> Match.createLazySequence(typeArg, constructorParam));
+  }
+}
@@ -1,6 +1,5 @@
 package net.jbock.coerce.matching.matcher;
 
-import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.ParameterSpec;
 import net.jbock.coerce.Skew;
 import net.jbock.coerce.matching.Match;
@@ -9,7 +8,6 @@ import net.jbock.compiler.ParameterContext;
 import javax.inject.Inject;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 public class ListMatcher extends Matcher {
 
@@ -22,10 +20,6 @@ public class ListMatcher extends Matcher {
   public Optional<Match> tryMatch() {
     ParameterSpec constructorParam = constructorParam(returnType());
     return tool().getSingleTypeArgument(returnType(), List.class)
-        .map(typeArg -> Match.create(typeArg, constructorParam, Skew.REPEATABLE, tailExpr()));
-  }
-
-  private CodeBlock tailExpr() {
-    return CodeBlock.of(".collect($T.toList())", Collectors.class);
+        .map(typeArg -> Match.create(typeArg, constructorParam, Skew.REPEATABLE));
   }
 }
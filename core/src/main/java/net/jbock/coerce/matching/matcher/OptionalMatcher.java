@@ -1,6 +1,5 @@
 package net.jbock.coerce.matching.matcher;
 
-import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.ParameterSpec;
 import net.jbock.coerce.Skew;
 import net.jbock.coerce.matching.Match;
@@ -27,11 +26,7 @@ public class OptionalMatcher extends Matcher {
       return optionalPrimitive;
     }
     return tool().getSingleTypeArgument(returnType(), Optional.class)
-        .map(typeArg -> Match.create(typeArg, constructorParam(returnType()), Skew.OPTIONAL, tailExpr()));
-  }
-
-  private CodeBlock tailExpr() {
-    return CodeBlock.of(".findAny()");
+        .map(typeArg -> Match.create(typeArg, constructorParam(returnType()), Skew.OPTIONAL));
   }
 
   private Optional<Match> getOptionalPrimitive(TypeMirror type) {
@@ -42,7 +37,6 @@ public class OptionalMatcher extends Matcher {
             tool().asTypeElement(optionalPrimitive.wrappedObjectType()).asType(),
             constructorParam,
             Skew.OPTIONAL,
-            tailExpr(),
             optionalPrimitive.extractExpr(constructorParam)));
       }
     }
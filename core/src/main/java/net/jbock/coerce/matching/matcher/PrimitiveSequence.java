@@ -0,0 +1,49 @@
+package net.jbock.coerce.matching.matcher;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.ParameterSpec;
+
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+enum PrimitiveSequence {
+
+  INT(TypeKind.INT, IntStream.class, Integer.class),
+  LONG(TypeKind.LONG, LongStream.class, Long.class),
+  DOUBLE(TypeKind.DOUBLE, DoubleStream.class, Double.class);
+
+  private final TypeKind kind;
+  private final Class<?> streamType;
+  private final String wrappedObjectType;
+
+  PrimitiveSequence(TypeKind kind, Class<?> streamType, Class<? extends Number> wrappedObjectType) {
+    this.kind = kind;
+    this.streamType = streamType;
+    this.wrappedObjectType = wrappedObjectType.getCanonicalName();
+  }
+
+  boolean isArray(TypeMirror type) {
+    return type.getKind() == TypeKind.ARRAY &&
+        ((ArrayType) type).getComponentType().getKind() == kind;
+  }
+
+  CodeBlock streamExpr(ParameterSpec constructorParam) {
+    return CodeBlock.of("$T.of($N)", streamType, constructorParam);
+  }
+
+  TypeKind kind() {
+    return kind;
+  }
+
+  String streamType() {
+    return streamType.getCanonicalName();
+  }
+
+  String wrappedObjectType() {
+    return wrappedObjectType;
+  }
+}
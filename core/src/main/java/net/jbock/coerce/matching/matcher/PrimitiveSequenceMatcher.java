@@ -0,0 +1,44 @@
+package net.jbock.coerce.matching.matcher;
+
+import com.squareup.javapoet.ParameterSpec;
+import net.jbock.coerce.matching.Match;
+import net.jbock.compiler.ParameterContext;
+
+import javax.inject.Inject;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeMirror;
+import java.util.Optional;
+
+/**
+ * Matches {@code int[]}, {@code long[]}, {@code double[]}
+ * and the corresponding primitive streams.
+ * The tokens are collected into a primitive array, without boxing.
+ */
+public class PrimitiveSequenceMatcher extends Matcher {
+
+  @Inject
+  PrimitiveSequenceMatcher(ParameterContext parameterContext) {
+    super(parameterContext);
+  }
+
+  @Override
+  public Optional<Match> tryMatch() {
+    for (PrimitiveSequence sequence : PrimitiveSequence.values()) {
+      TypeMirror wrappedType = tool().asTypeElement(sequence.wrappedObjectType()).asType();
+      if (sequence.isArray(returnType())) {
+        ParameterSpec constructorParam = constructorParam(returnType());
+        return Optional.of(Match.createPrimitiveSequence(wrappedType, constructorParam));
+      }
+      if (tool().isSameType(returnType(), sequence.streamType())) {
+        ParameterSpec constructorParam = constructorParam(asArray(sequence));
+        return Optional.of(Match.createPrimitiveSequence(wrappedType, constructorParam,
+            sequence.streamExpr(constructorParam)));
+      }
+    }
+    return Optional.empty();
+  }
+
+  private ArrayType asArray(PrimitiveSequence sequence) {
+    return tool().types().getArrayType(tool().types().getPrimitiveType(sequence.kind()));
+  }
+}
@@ -0,0 +1,76 @@
+package net.jbock.compiler;
+
+import net.jbock.compiler.parameter.Parameter;
+import net.jbock.compiler.parameter.PositionalParameter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The parameters that were created so far, indexed by the names that must be unique.
+ * There is one instance per command, which is shared by all parameter components.
+ */
+public final class AlreadyCreated {
+
+  private final List<Parameter> parameters = new ArrayList<>();
+  private final List<PositionalParameter> positionalParameters = new ArrayList<>();
+  private final Set<String> enumConstants = new HashSet<>();
+  private final Set<String> optionNames = new HashSet<>();
+  private final Set<Character> mnemonics = new HashSet<>();
+  private final Set<String> bundleKeys = new HashSet<>();
+  private PositionalParameter repeatablePositional;
+
+  void add(Parameter param) {
+    parameters.add(param);
+    enumConstants.add(param.enumName().enumConstant());
+    param.bundleKey().ifPresent(bundleKeys::add);
+    if (param.optionName() != null) {
+      optionNames.add(param.optionName());
+    }
+    if (param.mnemonic() != ' ') {
+      mnemonics.add(param.mnemonic());
+    }
+    if (param instanceof PositionalParameter) {
+      PositionalParameter positional = (PositionalParameter) param;
+      positionalParameters.add(positional);
+      if (positional.isRepeatable()) {
+        repeatablePositional = positional;
+      }
+    }
+  }
+
+  int size() {
+    return parameters.size();
+  }
+
+  boolean hasEnumConstant(String enumConstant) {
+    return enumConstants.contains(enumConstant);
+  }
+
+  boolean hasOptionName(String optionName) {
+    return optionNames.contains(optionName);
+  }
+
+  boolean hasMnemonic(char mnemonic) {
+    return mnemonics.contains(mnemonic);
+  }
+
+  boolean hasBundleKey(String bundleKey) {
+    return bundleKeys.contains(bundleKey);
+  }
+
+  Optional<PositionalParameter> repeatablePositional() {
+    return Optional.ofNullable(repeatablePositional);
+  }
+
+  List<PositionalParameter> positionalParameters() {
+    return positionalParameters;
+  }
+
+  List<Parameter> parameters() {
+    return parameters;
+  }
+}
@@ -1,7 +1,9 @@
 package net.jbock.compiler;
 
 import com.google.auto.common.AnnotationMirrors;
+import com.google.auto.common.MoreElements;
 import com.google.auto.common.MoreTypes;
+import net.jbock.Command;
 import net.jbock.Option;
 import net.jbock.Param;
 
@@ -12,16 +14,21 @@ import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.SimpleAnnotationValueVisitor8;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
 
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
 class AnnotationUtil {
 
   private static final String MAPPER_ATTRIBUTE = "mappedBy";
 
+  private static final String SUBCOMMANDS_ATTRIBUTE = "subcommands";
+
   private static final Set<String> ANNOTATIONS = Stream.of(Param.class, Option.class)
       .map(Class::getCanonicalName).collect(toSet());
 
@@ -33,6 +40,22 @@ class AnnotationUtil {
     }
   };
 
+  private static final AnnotationValueVisitor<List<? extends AnnotationValue>, Void> GET_ARRAY = new SimpleAnnotationValueVisitor8<List<? extends AnnotationValue>, Void>(Collections.emptyList()) {
+
+    @Override
+    public List<? extends AnnotationValue> visitArray(List<? extends AnnotationValue> values, Void unused) {
+      return values;
+    }
+  };
+
+  List<TypeElement> getSubcommands(TypeElement sourceElement) {
+    AnnotationMirror command = MoreElements.getAnnotationMirror(sourceElement, Command.class).get();
+    return GET_ARRAY.visit(AnnotationMirrors.getAnnotationValue(command, SUBCOMMANDS_ATTRIBUTE)).stream()
+        .map(GET_TYPE::visit)
+        .map(MoreTypes::asTypeElement)
+        .collect(toList());
+  }
+
   Optional<TypeElement> getMapper(ExecutableElement sourceMethod) {
     return getAnnotationMirror(sourceMethod)
         .map(AnnotationUtil::getAnnotationValue)
@@ -1,10 +1,10 @@
 package net.jbock.compiler;
 
 import com.google.auto.common.BasicAnnotationProcessor;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import dagger.BindsInstance;
 import dagger.Component;
@@ -34,6 +34,7 @@ import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -86,7 +87,7 @@ class CommandProcessingStep implements BasicAnnotationProcessor.Step {
       Builder description(String[] description);
 
       @BindsInstance
-      Builder alreadyCreated(ImmutableList<Parameter> alreadyCreated);
+      Builder alreadyCreated(AlreadyCreated alreadyCreated);
 
       Builder parameterModule(ParameterModule module);
 
@@ -116,13 +117,14 @@ class CommandProcessingStep implements BasicAnnotationProcessor.Step {
       Either.fromFailure(validateSourceElement(sourceElement), null)
           .mapLeft(msg -> new ValidationFailure(msg, sourceElement))
           .mapLeft(Collections::singletonList)
-          .flatMap(nothing -> getParams(sourceElement, optionType))
+          .flatMap(nothing -> getSubcommands(sourceElement))
+          .flatMap(subcommands -> getParams(sourceElement, optionType)
+              .map(parameters -> new Context(sourceElement, generatedClass, optionType, parameters, subcommands)))
           .accept(failures -> {
             for (ValidationFailure failure : failures) {
               messager.printMessage(Diagnostic.Kind.ERROR, failure.message(), failure.about());
             }
-          }, parameters -> {
-            Context context = new Context(sourceElement, generatedClass, optionType, parameters);
+          }, context -> {
             TypeSpec typeSpec = GeneratedClass.create(context).define();
             write(sourceElement, context.generatedClass(), typeSpec);
           });
@@ -147,9 +149,39 @@ class CommandProcessingStep implements BasicAnnotationProcessor.Step {
     }
   }
 
+  private Either<List<ValidationFailure>, List<Subcommand>> getSubcommands(TypeElement sourceElement) {
+    List<ValidationFailure> failures = new ArrayList<>();
+    List<Subcommand> subcommands = new ArrayList<>();
+    Set<String> names = new HashSet<>();
+    for (TypeElement subcommand : new AnnotationUtil().getSubcommands(sourceElement)) {
+      Command command = subcommand.getAnnotation(Command.class);
+      if (command == null) {
+        failures.add(new ValidationFailure("subcommand " + subcommand + " must be annotated with @Command", sourceElement));
+        continue;
+      }
+      if (subcommand.equals(sourceElement)) {
+        failures.add(new ValidationFailure("command cannot be its own subcommand", sourceElement));
+        continue;
+      }
+      String name = Context.programName(subcommand);
+      if (name.startsWith("-") || name.chars().anyMatch(Character::isWhitespace)) {
+        failures.add(new ValidationFailure("invalid subcommand name: " + name, sourceElement));
+        continue;
+      }
+      if (!names.add(name)) {
+        failures.add(new ValidationFailure("duplicate subcommand name: " + name, sourceElement));
+        continue;
+      }
+      String description = String.join(" ", getDescription(subcommand)).trim();
+      subcommands.add(new Subcommand(name, TypeName.get(subcommand.asType()), generatedClass(subcommand),
+          description, !command.helpDisabled()));
+    }
+    return failures.isEmpty() ? right(subcommands) : left(failures);
+  }
+
   private Either<List<ValidationFailure>, List<Parameter>> getParams(TypeElement sourceElement, ClassName optionType) {
     return createMethods(sourceElement).flatMap(methods -> {
-      List<Parameter> params = new ArrayList<>();
+      AlreadyCreated alreadyCreated = new AlreadyCreated();
       AnnotationUtil annotationUtil = new AnnotationUtil();
       List<ValidationFailure> failures = new ArrayList<>();
       List<ExecutableElement> positionalParameters = methods.params();
@@ -162,11 +194,11 @@ class CommandProcessingStep implements BasicAnnotationProcessor.Step {
             .optionType(optionType)
             .sourceMethod(sourceMethod)
             .typeTool(tool)
-            .alreadyCreated(ImmutableList.copyOf(params))
+            .alreadyCreated(alreadyCreated)
             .parameterModule(module)
             .description(getDescription(sourceMethod));
         builder.build().positionalParameterFactory().createPositionalParam(i)
-            .accept(failures::add, params::add);
+            .accept(failures::add, alreadyCreated::add);
       }
       boolean anyMnemonics = methods.options().stream().anyMatch(method -> method.getAnnotation(Option.class).mnemonic() != ' ');
       for (ExecutableElement sourceMethod : methods.options()) {
@@ -176,13 +208,13 @@ class CommandProcessingStep implements BasicAnnotationProcessor.Step {
             .optionType(optionType)
             .sourceMethod(sourceMethod)
             .typeTool(tool)
-            .alreadyCreated(ImmutableList.copyOf(params))
+            .alreadyCreated(alreadyCreated)
             .parameterModule(module)
             .description(getDescription(sourceMethod));
         builder.build().namedOptionFactory().createNamedOption(anyMnemonics)
-            .accept(failures::add, params::add);
+            .accept(failures::add, alreadyCreated::add);
       }
-      return failures.isEmpty() ? right(params) : left(failures);
+      return failures.isEmpty() ? right(alreadyCreated.parameters()) : left(failures);
     });
   }
 
@@ -216,6 +248,13 @@ class CommandProcessingStep implements BasicAnnotationProcessor.Step {
           }
           return Optional.empty();
         })
+        .filter(nothing -> {
+          if (sourceElement.getAnnotation(Command.class).sharedRuntime()
+              && elements.getTypeElement(Constants.PARSE_ENGINE.canonicalName()) == null) {
+            return Optional.of("sharedRuntime requires the jbock-runtime library on the classpath");
+          }
+          return Optional.empty();
+        })
         .filter(nothing -> {
           TypeMirror superclass = sourceElement.getSuperclass();
           boolean isObject = tool.isSameType(superclass, Object.class.getCanonicalName());
@@ -278,8 +317,8 @@ class CommandProcessingStep implements BasicAnnotationProcessor.Step {
     return false;
   }
 
-  private String[] getDescription(ExecutableElement method) {
-    String docComment = elements.getDocComment(method);
+  private String[] getDescription(Element element) {
+    String docComment = elements.getDocComment(element);
     return docComment == null ? new String[0] : tokenizeJavadoc(docComment);
   }
 
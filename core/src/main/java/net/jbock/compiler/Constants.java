@@ -31,6 +31,15 @@ public final class Constants {
 
   public static final TypeName STRING_ITERATOR = ParameterizedTypeName.get(ClassName.get(Iterator.class), STRING);
 
+  public static final TypeName STRING_ITERABLE = ParameterizedTypeName.get(ClassName.get(Iterable.class), STRING);
+
+  // the optional runtime library
+  public static final ClassName PARSE_ENGINE = ClassName.get("net.jbock.runtime", "ParseEngine");
+
+  public static final ClassName PARSE_EXCEPTION = ClassName.get("net.jbock.runtime", "ParseException");
+
+  public static final ClassName HELP_RENDERER = ClassName.get("net.jbock.runtime", "HelpRenderer");
+
   public static TypeName listOf(TypeName typeName) {
     return ParameterizedTypeName.get(ClassName.get(List.class), typeName);
   }
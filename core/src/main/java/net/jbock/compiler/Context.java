@@ -31,23 +31,80 @@ public final class Context {
   // whether "--help" is a special token
   private final boolean helpParameterEnabled;
 
+  // whether the parser state is thread-confined and reused
+  private final boolean reuseParserState;
+
+  // when the tokens are mapped
+  private final Command.Coercion coercion;
+
+  // whether mapped values are memoized within a parse
+  private final boolean memoizeValues;
+
+  // size of the shared cache for pure mappers
+  private final int valueCacheSize;
+
+  // whether the configuration methods return new instances
+  private final boolean immutable;
+
+  // whether parse errors are reported without exceptions
+  private final boolean structuredErrors;
+
+  // whether lambdas are avoided
+  private final boolean fastStartup;
+
+  // whether the parser state dispatches on tables, instead of helper classes
+  private final boolean compact;
+
+  // whether the parsing loop is in the runtime library
+  private final boolean sharedRuntime;
+
+  // whether @file arguments are expanded
+  private final boolean argumentFiles;
+
+  // whether tokens can be read from a channel
+  private final boolean delimitedInput;
+
+  // whether many command lines can be parsed in parallel
+  private final boolean batchParsing;
+
   // program name from attribute
   private final String programName;
 
+  // selected by the first token
+  private final List<Subcommand> subcommands;
+
   private final ClassName optionType;
 
-  Context(TypeElement sourceElement, ClassName generatedClass, ClassName optionType, List<Parameter> parameters) {
+  Context(
+      TypeElement sourceElement,
+      ClassName generatedClass,
+      ClassName optionType,
+      List<Parameter> parameters,
+      List<Subcommand> subcommands) {
     this.sourceElement = sourceElement;
     this.generatedClass = generatedClass;
     this.parameters = parameters;
     this.params = parameters.stream().filter(Parameter::isPositional).collect(Collectors.toList());
     this.options = parameters.stream().filter(parameter -> !parameter.isPositional()).collect(Collectors.toList());
     this.helpParameterEnabled = !sourceElement.getAnnotation(Command.class).helpDisabled();
+    this.reuseParserState = sourceElement.getAnnotation(Command.class).reuseParserState();
+    this.coercion = sourceElement.getAnnotation(Command.class).coercion();
+    this.memoizeValues = sourceElement.getAnnotation(Command.class).memoizeValues();
+    this.valueCacheSize = sourceElement.getAnnotation(Command.class).valueCacheSize();
+    this.immutable = sourceElement.getAnnotation(Command.class).immutable();
+    this.structuredErrors = sourceElement.getAnnotation(Command.class).structuredErrors();
+    this.fastStartup = sourceElement.getAnnotation(Command.class).fastStartup();
+    this.compact = sourceElement.getAnnotation(Command.class).compact();
+    this.sharedRuntime = sourceElement.getAnnotation(Command.class).sharedRuntime();
+    this.argumentFiles = sourceElement.getAnnotation(Command.class).argumentFiles();
+    this.delimitedInput = sourceElement.getAnnotation(Command.class).delimitedInput();
+    this.batchParsing = sourceElement.getAnnotation(Command.class).batchParsing();
     this.programName = programName(sourceElement);
     this.optionType = optionType;
+    this.subcommands = subcommands;
   }
 
-  private static String programName(TypeElement sourceType) {
+  static String programName(TypeElement sourceType) {
     if (!sourceType.getAnnotation(Command.class).value().isEmpty()) {
       return sourceType.getAnnotation(Command.class).value();
     }
@@ -82,10 +139,50 @@ public final class Context {
     return generatedClass.nestedClass("ParserState");
   }
 
+  public ClassName argumentFilesType() {
+    return generatedClass.nestedClass("ArgumentFiles");
+  }
+
+  public ClassName tokenIteratorType() {
+    return generatedClass.nestedClass("TokenIterator");
+  }
+
+  public ClassName indexedIteratorType() {
+    return generatedClass.nestedClass("IndexedIterator");
+  }
+
+  public ClassName indexedValuesType() {
+    return generatedClass.nestedClass("IndexedValues");
+  }
+
+  public ClassName delimitedTokensType() {
+    return generatedClass.nestedClass("DelimitedTokens");
+  }
+
+  public ClassName remainingTokensType() {
+    return generatedClass.nestedClass("RemainingTokens");
+  }
+
+  public ClassName delimiterType() {
+    return generatedClass.nestedClass("Delimiter");
+  }
+
+  public ClassName parseAllChunkType() {
+    return generatedClass.nestedClass("ParseAllChunk");
+  }
+
   public ClassName implType() {
     return generatedClass.nestedClass(sourceElement.getSimpleName() + "Impl");
   }
 
+  public ClassName resultVisitorType() {
+    return generatedClass.nestedClass("ResultVisitor");
+  }
+
+  public ClassName commandVisitorType() {
+    return generatedClass.nestedClass("CommandVisitor");
+  }
+
   public ClassName parseResultType() {
     return generatedClass.nestedClass("ParseResult");
   }
@@ -98,6 +195,14 @@ public final class Context {
     return generatedClass.nestedClass("ParsingFailed");
   }
 
+  public ClassName errorKindType() {
+    return generatedClass.nestedClass("ErrorKind");
+  }
+
+  public ClassName parseErrorType() {
+    return generatedClass.nestedClass("ParseError");
+  }
+
   public Optional<ClassName> helpRequestedType() {
     return helpParameterEnabled ? Optional.of(generatedClass.nestedClass("HelpRequested")) : Optional.empty();
   }
@@ -130,7 +235,83 @@ public final class Context {
     return helpParameterEnabled;
   }
 
+  public boolean isReuseParserState() {
+    return reuseParserState;
+  }
+
+  public boolean isLazyCoercion() {
+    return coercion != Command.Coercion.EAGER;
+  }
+
+  public boolean isSynchronizedCoercion() {
+    return coercion == Command.Coercion.LAZY_SYNCHRONIZED;
+  }
+
+  public boolean isMemoizeValues() {
+    return memoizeValues;
+  }
+
+  public int valueCacheSize() {
+    return valueCacheSize;
+  }
+
+  public boolean isImmutable() {
+    return immutable;
+  }
+
+  public boolean isStructuredErrors() {
+    return structuredErrors;
+  }
+
+  public boolean isFastStartup() {
+    return fastStartup;
+  }
+
+  // the shared runtime uses the compact parser state
+  public boolean isCompact() {
+    return compact || sharedRuntime;
+  }
+
+  public boolean isSharedRuntime() {
+    return sharedRuntime;
+  }
+
+  public boolean isArgumentFiles() {
+    return argumentFiles;
+  }
+
+  public boolean isDelimitedInput() {
+    return delimitedInput;
+  }
+
+  public boolean isBatchParsing() {
+    return batchParsing;
+  }
+
+  /**
+   * With delimited input, a {@code Stream} or {@code Iterator} param at the last position
+   * takes the remaining tokens directly from the input, instead of collecting them.
+   * This is not possible if the parsing loop is in the runtime library,
+   * or if the input is an argument file, which is closed when parsing is done.
+   *
+   * @return the param that is streamed, if any
+   */
+  public Optional<Parameter> streamedParam() {
+    if (!delimitedInput || sharedRuntime || argumentFiles || params.isEmpty()) {
+      return Optional.empty();
+    }
+    Parameter last = params.get(params.size() - 1);
+    if (!last.coercion().isLazySequence()) {
+      return Optional.empty();
+    }
+    return Optional.of(last);
+  }
+
   public String programName() {
     return programName;
   }
+
+  public List<Subcommand> subcommands() {
+    return subcommands;
+  }
 }
@@ -60,10 +60,8 @@ class NamedOptionFactory extends ParameterScoped {
     if (option == null || option.mnemonic() == ' ') {
       return right(' ');
     }
-    for (Parameter param : alreadyCreated()) {
-      if (option.mnemonic() == param.mnemonic()) {
-        return left("duplicate mnemonic");
-      }
+    if (alreadyCreated().hasMnemonic(option.mnemonic())) {
+      return left("duplicate mnemonic");
     }
     return checkMnemonic(option.mnemonic());
   }
@@ -80,10 +78,8 @@ class NamedOptionFactory extends ParameterScoped {
       return left("'help' cannot be an option name, unless the help feature is disabled. " +
           "The help feature can be disabled by setting @Command.helpDisabled = true.");
     }
-    for (Parameter param : alreadyCreated()) {
-      if (option.value().equals(param.optionName())) {
-        return left("duplicate option name");
-      }
+    if (alreadyCreated().hasOptionName(option.value())) {
+      return left("duplicate option name");
     }
     return checkName(option.value());
   }
@@ -1,9 +1,7 @@
 package net.jbock.compiler;
 
-import com.google.common.collect.ImmutableList;
 import com.squareup.javapoet.ClassName;
 import dagger.Reusable;
-import net.jbock.compiler.parameter.Parameter;
 import net.jbock.qualifier.BundleKey;
 import net.jbock.qualifier.SourceElement;
 
@@ -18,7 +16,7 @@ public class ParameterContext {
   final TypeElement sourceElement;
   final TypeTool tool;
   final ClassName optionType;
-  final ImmutableList<Parameter> alreadyCreated;
+  final AlreadyCreated alreadyCreated;
   final String[] description;
   final String bundleKey;
   final EnumName enumName;
@@ -29,7 +27,7 @@ public class ParameterContext {
       @SourceElement TypeElement sourceElement,
       TypeTool tool,
       ClassName optionType,
-      ImmutableList<Parameter> alreadyCreated,
+      AlreadyCreated alreadyCreated,
       String[] description,
       @BundleKey String bundleKey,
       EnumName enumName) {
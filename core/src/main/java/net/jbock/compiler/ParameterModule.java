@@ -5,10 +5,11 @@ import dagger.Module;
 import dagger.Provides;
 import dagger.Reusable;
 import net.jbock.coerce.matching.matcher.ExactMatcher;
+import net.jbock.coerce.matching.matcher.LazySequenceMatcher;
 import net.jbock.coerce.matching.matcher.ListMatcher;
 import net.jbock.coerce.matching.matcher.Matcher;
 import net.jbock.coerce.matching.matcher.OptionalMatcher;
-import net.jbock.compiler.parameter.Parameter;
+import net.jbock.coerce.matching.matcher.PrimitiveSequenceMatcher;
 import net.jbock.qualifier.BundleKey;
 import net.jbock.qualifier.MapperClass;
 import net.jbock.qualifier.SourceElement;
@@ -50,13 +51,11 @@ public class ParameterModule {
 
   @Reusable
   @Provides
-  EnumName enumName(ExecutableElement sourceMethod, ImmutableList<Parameter> alreadyCreated) {
+  EnumName enumName(ExecutableElement sourceMethod, AlreadyCreated alreadyCreated) {
     String methodName = sourceMethod.getSimpleName().toString();
     EnumName result = EnumName.create(methodName);
-    for (Parameter param : alreadyCreated) {
-      if (param.enumName().enumConstant().equals(result.enumConstant())) {
-        return result.append(Integer.toString(alreadyCreated.size()));
-      }
+    if (alreadyCreated.hasEnumConstant(result.enumConstant())) {
+      return result.append(Integer.toString(alreadyCreated.size()));
     }
     return result;
   }
@@ -66,7 +65,9 @@ public class ParameterModule {
   ImmutableList<Matcher> getMatchers(
       OptionalMatcher optionalMatcher,
       ListMatcher listMatcher,
+      LazySequenceMatcher lazySequenceMatcher,
+      PrimitiveSequenceMatcher primitiveSequenceMatcher,
       ExactMatcher exactMatcher) {
-    return ImmutableList.of(optionalMatcher, listMatcher, exactMatcher);
+    return ImmutableList.of(optionalMatcher, listMatcher, lazySequenceMatcher, primitiveSequenceMatcher, exactMatcher);
   }
 }
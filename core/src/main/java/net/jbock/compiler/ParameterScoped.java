@@ -1,11 +1,9 @@
 package net.jbock.compiler;
 
-import com.google.common.collect.ImmutableList;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.ParameterSpec;
 import com.squareup.javapoet.TypeName;
 import net.jbock.Command;
-import net.jbock.compiler.parameter.Parameter;
 
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
@@ -38,7 +36,7 @@ public class ParameterScoped {
     return parameterContext.optionType;
   }
 
-  final ImmutableList<Parameter> alreadyCreated() {
+  final AlreadyCreated alreadyCreated() {
     return parameterContext.alreadyCreated;
   }
 
@@ -79,12 +77,8 @@ public class ParameterScoped {
     if (key.matches(".*\\s+.*")) {
       return Optional.of("bundle key contains whitespace characters");
     }
-    for (Parameter param : alreadyCreated()) {
-      Optional<String> failure = param.bundleKey()
-          .filter(bundleKey -> bundleKey.equals(key));
-      if (failure.isPresent()) {
-        return Optional.of("duplicate bundle key");
-      }
+    if (alreadyCreated().hasBundleKey(key)) {
+      return Optional.of("duplicate bundle key");
     }
     return Optional.empty();
   }
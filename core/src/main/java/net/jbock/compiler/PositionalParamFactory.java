@@ -7,10 +7,8 @@ import net.jbock.either.Either;
 
 import javax.inject.Inject;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 class PositionalParamFactory extends ParameterScoped {
 
@@ -41,19 +39,14 @@ class PositionalParamFactory extends ParameterScoped {
     if (!param.isRepeatable()) {
       return Optional.empty();
     }
-    return alreadyCreated().stream()
-        .filter(p -> p.isRepeatable() && p.isPositional())
-        .map(p -> "positional parameter " + p.enumConstant() + " is also repeatable")
-        .findAny();
+    return alreadyCreated().repeatablePositional()
+        .map(p -> "positional parameter " + p.enumConstant() + " is also repeatable");
   }
 
   private Optional<String> checkRankConsistentWithPosition(PositionalParameter p) {
     int thisOrder = p.isRepeatable() ? 2 : p.isOptional() ? 1 : 0;
     int thisPosition = p.position();
-    List<PositionalParameter> allPositional = alreadyCreated().stream().filter(Parameter::isPositional)
-        .map(parameter -> (PositionalParameter) parameter)
-        .collect(Collectors.toList());
-    for (PositionalParameter other : allPositional) {
+    for (PositionalParameter other : alreadyCreated().positionalParameters()) {
       int otherOrder = other.isRepeatable() ? 2 : other.isOptional() ? 1 : 0;
       if (thisPosition == other.position()) {
         return Optional.of("duplicate position");
@@ -0,0 +1,59 @@
+package net.jbock.compiler;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.TypeName;
+
+/**
+ * A subcommand, as seen from the parser of its parent command.
+ * All of this is known at compile time, so the parent's help text
+ * can list the subcommands without loading their classes.
+ */
+public final class Subcommand {
+
+  // the first token that selects this subcommand
+  private final String name;
+
+  // the class that is annotated with @Command
+  private final TypeName sourceType;
+
+  // the parser of the subcommand
+  private final ClassName parserType;
+
+  // the javadoc of the subcommand, or the empty string
+  private final String description;
+
+  // whether the subcommand's parser has a help stream
+  private final boolean helpParameterEnabled;
+
+  Subcommand(String name, TypeName sourceType, ClassName parserType, String description, boolean helpParameterEnabled) {
+    this.name = name;
+    this.sourceType = sourceType;
+    this.parserType = parserType;
+    this.description = description;
+    this.helpParameterEnabled = helpParameterEnabled;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public TypeName sourceType() {
+    return sourceType;
+  }
+
+  public ClassName parserType() {
+    return parserType;
+  }
+
+  public ClassName parseResultType() {
+    return parserType.nestedClass("ParseResult");
+  }
+
+  public String description() {
+    return description;
+  }
+
+  public boolean isHelpParameterEnabled() {
+    return helpParameterEnabled;
+  }
+}
@@ -0,0 +1,267 @@
+package net.jbock.compiler.view;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import net.jbock.compiler.Context;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import static com.squareup.javapoet.MethodSpec.constructorBuilder;
+import static com.squareup.javapoet.MethodSpec.methodBuilder;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static net.jbock.compiler.Constants.STRING;
+import static net.jbock.compiler.Constants.STRING_ARRAY;
+
+/**
+ * Defines the inner class ArgumentFiles, if the command has {@code argumentFiles}.
+ * It is an iterator over the arguments, which replaces each {@code @file} argument
+ * by the tokens in that file.
+ * The file is decoded into a fixed size buffer, and tokenized one token at a time,
+ * so the file is never read as a whole.
+ * The parser state still collects the tokens.
+ *
+ * @see GeneratedClass
+ */
+final class ArgumentFiles {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Context context;
+
+  private final FieldSpec args = FieldSpec.builder(STRING_ARRAY, "args", PRIVATE, FINAL).build();
+  private final FieldSpec index = FieldSpec.builder(TypeName.INT, "index", PRIVATE).build();
+  private final FieldSpec reader = FieldSpec.builder(Reader.class, "reader", PRIVATE).build();
+  private final FieldSpec buffer = FieldSpec.builder(char[].class, "buffer", PRIVATE, FINAL)
+      .initializer("new char[$L]", BUFFER_SIZE).build();
+  private final FieldSpec position = FieldSpec.builder(TypeName.INT, "position", PRIVATE).build();
+  private final FieldSpec limit = FieldSpec.builder(TypeName.INT, "limit", PRIVATE).build();
+  private final FieldSpec sb = FieldSpec.builder(StringBuilder.class, "sb", PRIVATE, FINAL)
+      .initializer("new $T()", StringBuilder.class).build();
+  private final FieldSpec next = FieldSpec.builder(STRING, "next", PRIVATE).build();
+
+  ArgumentFiles(Context context) {
+    this.context = context;
+  }
+
+  TypeSpec define() {
+    ParameterSpec argsParam = ParameterSpec.builder(STRING_ARRAY, "args").build();
+    TypeSpec.Builder spec = TypeSpec.classBuilder(context.argumentFilesType())
+        .addSuperinterface(IndexedValues.iteratorType(context))
+        .addModifiers(PRIVATE, STATIC, FINAL)
+        .addFields(Arrays.asList(args, index, reader, buffer, position, limit, sb, next))
+        .addMethod(constructorBuilder()
+            .addParameter(argsParam)
+            .addStatement("this.$N = $N", args, argsParam)
+            .build())
+        .addMethod(hasNextMethod())
+        .addMethod(nextMethod())
+        .addMethod(closeMethod())
+        .addMethod(advanceMethod())
+        .addMethod(readTokenMethod())
+        .addMethod(readMethod());
+    if (context.isStructuredErrors()) {
+      spec.addMethod(previousIndexMethod());
+    }
+    return spec.build();
+  }
+
+  private MethodSpec hasNextMethod() {
+    return methodBuilder("hasNext")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(TypeName.BOOLEAN)
+        .addCode(CodeBlock.builder()
+            .add("if ($N == null)\n", next).indent()
+            .addStatement("$N = advance()", next).unindent()
+            .build())
+        .addStatement("return $N != null", next)
+        .build();
+  }
+
+  private MethodSpec nextMethod() {
+    ParameterSpec result = ParameterSpec.builder(STRING, "result").build();
+    return methodBuilder("next")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(STRING)
+        .addCode(CodeBlock.builder()
+            .add("if (!hasNext())\n").indent()
+            .addStatement("throw new $T()", NoSuchElementException.class).unindent()
+            .build())
+        .addStatement("$T $N = $N", STRING, result, next)
+        .addStatement("$N = null", next)
+        .addStatement("return $N", result)
+        .build();
+  }
+
+  /**
+   * The index of the argument that contained the last token,
+   * as in {@link java.util.ListIterator#previousIndex()}.
+   * This is only defined with {@code structuredErrors}.
+   */
+  private MethodSpec previousIndexMethod() {
+    return methodBuilder("previousIndex")
+        .addModifiers(PUBLIC)
+        .returns(TypeName.INT)
+        .addStatement("return $N - 1", index)
+        .build();
+  }
+
+  /**
+   * Closes the current file, if any.
+   * This is invoked at the end of each file, and when parsing stops early.
+   */
+  private MethodSpec closeMethod() {
+    ParameterSpec e = ParameterSpec.builder(IOException.class, "e").build();
+    return methodBuilder("close")
+        .addCode(CodeBlock.builder()
+            .add("if ($N == null)\n", reader).indent()
+            .addStatement("return").unindent()
+            .beginControlFlow("try")
+            .addStatement("$N.close()", reader)
+            .nextControlFlow("catch ($T $N)", e.type, e)
+            .add("// ignore\n")
+            .endControlFlow()
+            .addStatement("$N = null", reader)
+            .addStatement("$N = 0", position)
+            .addStatement("$N = 0", limit)
+            .build())
+        .build();
+  }
+
+  /**
+   * Reads the next token of the current file, or opens the next file.
+   * An argument that starts with {@code @@} is passed on without its first character.
+   */
+  private MethodSpec advanceMethod() {
+    ParameterSpec token = ParameterSpec.builder(STRING, "token").build();
+    ParameterSpec arg = ParameterSpec.builder(STRING, "arg").build();
+    ParameterSpec e = ParameterSpec.builder(IOException.class, "e").build();
+    CodeBlock.Builder code = CodeBlock.builder();
+    code.beginControlFlow("try");
+    code.beginControlFlow("while (true)");
+    code.beginControlFlow("if ($N != null)", reader)
+        .addStatement("$T $N = readToken()", STRING, token)
+        .add("if ($N != null)\n", token).indent()
+        .addStatement("return $N", token).unindent()
+        .addStatement("close()")
+        .endControlFlow();
+    code.add("if ($N == $N.length)\n", index, args).indent()
+        .addStatement("return null").unindent();
+    code.addStatement("$T $N = $N[$N++]", STRING, arg, args, index);
+    code.add("if ($N.startsWith($S))\n", arg, "@@").indent()
+        .addStatement("return $N.substring(1)", arg).unindent();
+    code.add("if ($N.length() < 2 || $N.charAt(0) != '@')\n", arg, arg).indent()
+        .addStatement("return $N", arg).unindent();
+    code.addStatement("$N = $T.newBufferedReader($T.get($N.substring(1)), $T.UTF_8)",
+        reader, Files.class, Paths.class, arg, StandardCharsets.class);
+    code.endControlFlow();
+    code.nextControlFlow("catch ($T $N)", e.type, e)
+        .addStatement("throw new $T($N)", UncheckedIOException.class, e)
+        .endControlFlow();
+    return methodBuilder("advance")
+        .addModifiers(PRIVATE)
+        .returns(STRING)
+        .addCode(code.build())
+        .build();
+  }
+
+  /**
+   * Tokenizes like {@code javac}: Whitespace separates the tokens, unless it is quoted.
+   * Within quotes, a backslash escapes the next character, and a backslash at the end of a line
+   * continues the token after the leading whitespace of the next line.
+   * A {@code #} at the start of a token begins a comment, which ends at the end of the line.
+   *
+   * @return the next token in the current file, or {@code null} at the end of the file
+   */
+  private MethodSpec readTokenMethod() {
+    ParameterSpec ch = ParameterSpec.builder(TypeName.INT, "ch").build();
+    ParameterSpec quote = ParameterSpec.builder(TypeName.INT, "quote").build();
+    CodeBlock.Builder code = CodeBlock.builder();
+    code.addStatement("$T $N = read()", ch.type, ch);
+    code.beginControlFlow("while (true)")
+        .add("if ($N == -1)\n", ch).indent()
+        .addStatement("return null").unindent()
+        .beginControlFlow("if ($N == '#')", ch)
+        .add("while ($N != -1 && $N != '\\n' && $N != '\\r')\n", ch, ch, ch).indent()
+        .addStatement("$N = read()", ch).unindent()
+        .addStatement("continue")
+        .endControlFlow()
+        .add("if (!$T.isWhitespace($N))\n", Character.class, ch).indent()
+        .addStatement("break").unindent()
+        .addStatement("$N = read()", ch)
+        .endControlFlow();
+    code.addStatement("$N.setLength(0)", sb);
+    code.addStatement("$T $N = 0", quote.type, quote);
+    code.beginControlFlow("while ($N != -1)", ch)
+        .add("if ($N == 0 && $T.isWhitespace($N))\n", quote, Character.class, ch).indent()
+        .addStatement("break").unindent()
+        .beginControlFlow("if (($N == '\\'' || $N == '\"') && ($N == 0 || $N == $N))", ch, ch, quote, quote, ch)
+        .addStatement("$N = $N == 0 ? $N : 0", quote, quote, ch)
+        .addStatement("$N = read()", ch)
+        .addStatement("continue")
+        .endControlFlow()
+        .beginControlFlow("if ($N == '\\\\' && $N != 0)", ch, quote)
+        .addStatement("$N = read()", ch)
+        .beginControlFlow("switch ($N)", ch)
+        .add("case -1:\n").indent().addStatement("continue").unindent()
+        .add("case '\\n':\n")
+        .add("case '\\r':\n").indent()
+        .add("do {\n").indent()
+        .addStatement("$N = read()", ch).unindent()
+        .add("} while ($N == ' ' || $N == '\\t' || $N == '\\n' || $N == '\\r' || $N == '\\f');\n",
+            ch, ch, ch, ch, ch)
+        .addStatement("continue").unindent()
+        .add("case 'n':\n").indent().addStatement("$N = '\\n'", ch).addStatement("break").unindent()
+        .add("case 'r':\n").indent().addStatement("$N = '\\r'", ch).addStatement("break").unindent()
+        .add("case 't':\n").indent().addStatement("$N = '\\t'", ch).addStatement("break").unindent()
+        .add("case 'f':\n").indent().addStatement("$N = '\\f'", ch).addStatement("break").unindent()
+        .add("default:\n").indent().addStatement("break").unindent()
+        .endControlFlow()
+        .endControlFlow()
+        .addStatement("$N.append((char) $N)", sb, ch)
+        .addStatement("$N = read()", ch)
+        .endControlFlow();
+    code.addStatement("return $N.toString()", sb);
+    return methodBuilder("readToken")
+        .addModifiers(PRIVATE)
+        .returns(STRING)
+        .addException(IOException.class)
+        .addCode(code.build())
+        .build();
+  }
+
+  private MethodSpec readMethod() {
+    CodeBlock code = CodeBlock.builder()
+        .beginControlFlow("if ($N == $N)", position, limit)
+        .addStatement("$N = 0", position)
+        .addStatement("$N = $N.read($N, 0, $N.length)", limit, reader, buffer, buffer)
+        .beginControlFlow("if ($N <= 0)", limit)
+        .addStatement("$N = 0", limit)
+        .addStatement("return -1")
+        .endControlFlow()
+        .endControlFlow()
+        .addStatement("return $N[$N++]", buffer, position)
+        .build();
+    return methodBuilder("read")
+        .addModifiers(PRIVATE)
+        .returns(TypeName.INT)
+        .addException(IOException.class)
+        .addCode(code)
+        .build();
+  }
+}
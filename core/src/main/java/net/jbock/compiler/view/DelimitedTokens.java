@@ -0,0 +1,307 @@
+package net.jbock.compiler.view;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import net.jbock.compiler.Context;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import static com.squareup.javapoet.MethodSpec.constructorBuilder;
+import static com.squareup.javapoet.MethodSpec.methodBuilder;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static net.jbock.compiler.Constants.STRING;
+import static net.jbock.compiler.Constants.STRING_ITERABLE;
+import static net.jbock.compiler.Constants.STRING_ITERATOR;
+
+/**
+ * Defines the inner enum Delimiter and the inner class DelimitedTokens,
+ * if the command has {@code delimitedInput}.
+ * DelimitedTokens is an iterator over the tokens in a channel.
+ * The bytes are read into a heap buffer, which is reused for each read.
+ * The buffer's array is scanned directly, and each token is decoded when its delimiter is found.
+ * A token that is contained in the buffer is decoded without copying.
+ * If there is a streamed param, the inner class RemainingTokens is also defined.
+ *
+ * @see GeneratedClass
+ */
+final class DelimitedTokens {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Context context;
+
+  private final FieldSpec channel = FieldSpec.builder(ReadableByteChannel.class, "channel", PRIVATE, FINAL).build();
+  private final FieldSpec delimiter = FieldSpec.builder(TypeName.BYTE, "delimiter", PRIVATE, FINAL).build();
+  private final FieldSpec buffer = FieldSpec.builder(byte[].class, "buffer", PRIVATE, FINAL)
+      .initializer("new byte[$L]", BUFFER_SIZE).build();
+  private final FieldSpec wrapped = FieldSpec.builder(ByteBuffer.class, "wrapped", PRIVATE, FINAL)
+      .initializer("$T.wrap($N)", ByteBuffer.class, buffer).build();
+  private final FieldSpec position = FieldSpec.builder(TypeName.INT, "position", PRIVATE).build();
+  private final FieldSpec limit = FieldSpec.builder(TypeName.INT, "limit", PRIVATE).build();
+  private final FieldSpec bytes = FieldSpec.builder(byte[].class, "bytes", PRIVATE)
+      .initializer("new byte[64]").build();
+  private final FieldSpec length = FieldSpec.builder(TypeName.INT, "length", PRIVATE).build();
+  private final FieldSpec eof = FieldSpec.builder(TypeName.BOOLEAN, "eof", PRIVATE).build();
+  private final FieldSpec index = FieldSpec.builder(TypeName.INT, "index", PRIVATE).build();
+  private final FieldSpec next = FieldSpec.builder(STRING, "next", PRIVATE).build();
+
+  DelimitedTokens(Context context) {
+    this.context = context;
+  }
+
+  TypeSpec defineDelimiter() {
+    FieldSpec value = FieldSpec.builder(TypeName.BYTE, "value", FINAL).build();
+    ParameterSpec valueParam = ParameterSpec.builder(TypeName.CHAR, "value").build();
+    return TypeSpec.enumBuilder(context.delimiterType())
+        .addModifiers(context.getAccessModifiers())
+        .addEnumConstant("NUL", TypeSpec.anonymousClassBuilder("'\\0'")
+            .addJavadoc("The NUL byte, as in the output of {@code find -print0}.\n")
+            .build())
+        .addEnumConstant("NEWLINE", TypeSpec.anonymousClassBuilder("'\\n'")
+            .addJavadoc("The line feed character.\n")
+            .build())
+        .addField(value)
+        .addMethod(constructorBuilder()
+            .addParameter(valueParam)
+            .addStatement("this.$N = ($T) $N", value, TypeName.BYTE, valueParam)
+            .build())
+        .addJavadoc("The delimiters of tokens that are read from a channel.\n")
+        .build();
+  }
+
+  TypeSpec define() {
+    ParameterSpec channelParam = ParameterSpec.builder(channel.type, "channel").build();
+    ParameterSpec delimiterParam = ParameterSpec.builder(context.delimiterType(), "delimiter").build();
+    TypeSpec.Builder spec = TypeSpec.classBuilder(context.delimitedTokensType())
+        .addSuperinterface(IndexedValues.iteratorType(context))
+        .addModifiers(PRIVATE, STATIC, FINAL)
+        .addFields(Arrays.asList(channel, delimiter, buffer, wrapped, position, limit, bytes, length, eof, next))
+        .addMethod(constructorBuilder()
+            .addParameter(channelParam)
+            .addParameter(delimiterParam)
+            .addStatement("this.$N = $N", channel, channelParam)
+            .addStatement("this.$N = $N.value", delimiter, delimiterParam)
+            .build())
+        .addMethod(hasNextMethod())
+        .addMethod(nextMethod())
+        .addMethod(peekMethod())
+        .addMethod(advanceMethod())
+        .addMethod(appendMethod())
+        .addMethod(tokenMethod());
+    if (context.isStructuredErrors()) {
+      spec.addField(index).addMethod(previousIndexMethod());
+    }
+    return spec.build();
+  }
+
+  private MethodSpec hasNextMethod() {
+    return methodBuilder("hasNext")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(TypeName.BOOLEAN)
+        .addCode(CodeBlock.builder()
+            .add("if ($N == null)\n", next).indent()
+            .addStatement("$N = advance()", next).unindent()
+            .build())
+        .addStatement("return $N != null", next)
+        .build();
+  }
+
+  private MethodSpec nextMethod() {
+    ParameterSpec result = ParameterSpec.builder(STRING, "result").build();
+    return methodBuilder("next")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(STRING)
+        .addCode(CodeBlock.builder()
+            .add("if (!hasNext())\n").indent()
+            .addStatement("throw new $T()", NoSuchElementException.class).unindent()
+            .build())
+        .addStatement("$T $N = $N", STRING, result, next)
+        .addStatement("$N = null", next)
+        .addCode(context.isStructuredErrors() ? CodeBlock.of("$N++;\n", index) : CodeBlock.of(""))
+        .addStatement("return $N", result)
+        .build();
+  }
+
+  /**
+   * @return the next token without consuming it, or {@code null} at the end of the input
+   */
+  private MethodSpec peekMethod() {
+    return methodBuilder("peek")
+        .returns(STRING)
+        .addStatement("return hasNext() ? $N : null", next)
+        .build();
+  }
+
+  /**
+   * The index of the last token, as in {@link java.util.ListIterator#previousIndex()}.
+   * This is only defined with {@code structuredErrors}.
+   */
+  private MethodSpec previousIndexMethod() {
+    return methodBuilder("previousIndex")
+        .addModifiers(PUBLIC)
+        .returns(TypeName.INT)
+        .addStatement("return $N - 1", index)
+        .build();
+  }
+
+  /**
+   * Reads up to the next delimiter.
+   * The last token does not need a delimiter, but it must not be empty.
+   * Since the delimiter is an ASCII character, it can't be part of a multibyte character.
+   */
+  private MethodSpec advanceMethod() {
+    ParameterSpec i = ParameterSpec.builder(TypeName.INT, "i").build();
+    ParameterSpec token = ParameterSpec.builder(STRING, "token").build();
+    ParameterSpec n = ParameterSpec.builder(TypeName.INT, "n").build();
+    ParameterSpec e = ParameterSpec.builder(IOException.class, "e").build();
+    CodeBlock.Builder code = CodeBlock.builder();
+    code.beginControlFlow("try");
+    code.beginControlFlow("while (true)");
+    code.beginControlFlow("for ($T $N = $N; $N < $N; $N++)", i.type, i, position, i, limit, i)
+        .beginControlFlow("if ($N[$N] == $N)", buffer, i, delimiter)
+        .addStatement("$T $N = token($N, $N)", STRING, token, position, i)
+        .addStatement("$N = $N + 1", position, i)
+        .addStatement("return $N", token)
+        .endControlFlow()
+        .endControlFlow();
+    code.add("if ($N)\n", eof).indent()
+        .addStatement("return null").unindent();
+    code.addStatement("append($N, $N)", position, limit);
+    code.addStatement("$N = 0", position);
+    code.addStatement("$N = 0", limit);
+    code.addStatement("$N.clear()", wrapped);
+    code.addStatement("$T $N = $N.read($N)", n.type, n, channel, wrapped);
+    code.beginControlFlow("if ($N == -1)", n)
+        .addStatement("$N = true", eof)
+        .addStatement("return $N == 0 ? null : token(0, 0)", length)
+        .endControlFlow();
+    code.addStatement("$N = $N", limit, n);
+    code.endControlFlow();
+    code.nextControlFlow("catch ($T $N)", e.type, e)
+        .addStatement("throw new $T($N)", UncheckedIOException.class, e)
+        .endControlFlow();
+    return methodBuilder("advance")
+        .addModifiers(PRIVATE)
+        .returns(STRING)
+        .addCode(code.build())
+        .build();
+  }
+
+  /**
+   * Appends a part of the buffer to the current token,
+   * when the token continues in the next read.
+   */
+  private MethodSpec appendMethod() {
+    ParameterSpec from = ParameterSpec.builder(TypeName.INT, "from").build();
+    ParameterSpec to = ParameterSpec.builder(TypeName.INT, "to").build();
+    ParameterSpec n = ParameterSpec.builder(TypeName.INT, "n").build();
+    return methodBuilder("append")
+        .addModifiers(PRIVATE)
+        .addParameter(from)
+        .addParameter(to)
+        .addStatement("$T $N = $N - $N", n.type, n, to, from)
+        .addCode(CodeBlock.builder()
+            .add("if ($N + $N > $N.length)\n", length, n, bytes).indent()
+            .addStatement("$N = $T.copyOf($N, $T.max(2 * $N.length, $N + $N))",
+                bytes, Arrays.class, bytes, Math.class, bytes, length, n).unindent()
+            .build())
+        .addStatement("$T.arraycopy($N, $N, $N, $N, $N)", System.class, buffer, from, bytes, length, n)
+        .addStatement("$N += $N", length, n)
+        .build();
+  }
+
+  /**
+   * Decodes the current token, which ends with the given part of the buffer.
+   */
+  private MethodSpec tokenMethod() {
+    ParameterSpec from = ParameterSpec.builder(TypeName.INT, "from").build();
+    ParameterSpec to = ParameterSpec.builder(TypeName.INT, "to").build();
+    ParameterSpec result = ParameterSpec.builder(STRING, "result").build();
+    return methodBuilder("token")
+        .addModifiers(PRIVATE)
+        .addParameter(from)
+        .addParameter(to)
+        .returns(STRING)
+        .addCode(CodeBlock.builder()
+            .add("if ($N == 0)\n", length).indent()
+            .addStatement("return new $T($N, $N, $N - $N, $T.UTF_8)", STRING, buffer, from, to, from,
+                StandardCharsets.class).unindent()
+            .build())
+        .addStatement("append($N, $N)", from, to)
+        .addStatement("$T $N = new $T($N, 0, $N, $T.UTF_8)", STRING, result, STRING, bytes, length,
+            StandardCharsets.class)
+        .addStatement("$N = 0", length)
+        .addStatement("return $N", result)
+        .build();
+  }
+
+  /**
+   * An iterable over the streamed param's first token, and the tokens that are still in the input.
+   * It can only be iterated once, because the tokens are not stored.
+   */
+  TypeSpec defineRemainingTokens() {
+    FieldSpec first = FieldSpec.builder(STRING, "first", PRIVATE).build();
+    FieldSpec tokens = FieldSpec.builder(STRING_ITERATOR, "tokens", PRIVATE, FINAL).build();
+    FieldSpec consumed = FieldSpec.builder(TypeName.BOOLEAN, "consumed", PRIVATE).build();
+    ParameterSpec firstParam = ParameterSpec.builder(STRING, "first").build();
+    ParameterSpec tokensParam = ParameterSpec.builder(STRING_ITERATOR, "tokens").build();
+    ParameterSpec result = ParameterSpec.builder(STRING, "result").build();
+    return TypeSpec.classBuilder(context.remainingTokensType())
+        .addSuperinterface(STRING_ITERABLE)
+        .addSuperinterface(STRING_ITERATOR)
+        .addModifiers(PRIVATE, STATIC, FINAL)
+        .addFields(Arrays.asList(first, tokens, consumed))
+        .addMethod(constructorBuilder()
+            .addParameter(firstParam)
+            .addParameter(tokensParam)
+            .addStatement("this.$N = $N", first, firstParam)
+            .addStatement("this.$N = $N", tokens, tokensParam)
+            .build())
+        .addMethod(methodBuilder("iterator")
+            .addAnnotation(Override.class)
+            .addModifiers(PUBLIC)
+            .returns(STRING_ITERATOR)
+            .addCode(CodeBlock.builder()
+                .add("if ($N)\n", consumed).indent()
+                .addStatement("throw new $T($S)", IllegalStateException.class,
+                    "The remaining tokens can only be consumed once").unindent()
+                .build())
+            .addStatement("$N = true", consumed)
+            .addStatement("return this")
+            .build())
+        .addMethod(methodBuilder("hasNext")
+            .addAnnotation(Override.class)
+            .addModifiers(PUBLIC)
+            .returns(TypeName.BOOLEAN)
+            .addStatement("return $N != null || $N.hasNext()", first, tokens)
+            .build())
+        .addMethod(methodBuilder("next")
+            .addAnnotation(Override.class)
+            .addModifiers(PUBLIC)
+            .returns(STRING)
+            .addCode(CodeBlock.builder()
+                .add("if ($N == null)\n", first).indent()
+                .addStatement("return $N.next()", tokens).unindent()
+                .build())
+            .addStatement("$T $N = $N", STRING, result, first)
+            .addStatement("$N = null", first)
+            .addStatement("return $N", result)
+            .build())
+        .build();
+  }
+}
@@ -0,0 +1,86 @@
+package net.jbock.compiler.view;
+
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import net.jbock.compiler.Context;
+import net.jbock.compiler.Subcommand;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.squareup.javapoet.MethodSpec.methodBuilder;
+import static javax.lang.model.element.Modifier.ABSTRACT;
+import static javax.lang.model.element.Modifier.PUBLIC;
+
+/**
+ * Defines the inner interfaces ResultVisitor and CommandVisitor,
+ * if the command has {@code subcommands}.
+ * They give the results of {@code dispatch} and {@code dispatchOrExit} a static type.
+ * Each interface has one {@code visit} method for this command, and one for each subcommand,
+ * which are overloaded on the parameter type.
+ * The subcommand types only appear in method signatures, so they are not loaded
+ * unless their subcommand is selected.
+ *
+ * @see GeneratedClass
+ */
+final class DispatchVisitors {
+
+  private static final TypeVariableName R = TypeVariableName.get("R");
+
+  private final Context context;
+
+  DispatchVisitors(Context context) {
+    this.context = context;
+  }
+
+  /**
+   * @return the type of the visitor of {@code dispatch}
+   */
+  static TypeName resultVisitor(Context context) {
+    return ParameterizedTypeName.get(context.resultVisitorType(), R);
+  }
+
+  /**
+   * @return the type of the visitor of {@code dispatchOrExit}
+   */
+  static TypeName commandVisitor(Context context) {
+    return ParameterizedTypeName.get(context.commandVisitorType(), R);
+  }
+
+  static TypeVariableName returnType() {
+    return R;
+  }
+
+  List<TypeSpec> define() {
+    TypeSpec.Builder results = TypeSpec.interfaceBuilder(context.resultVisitorType())
+        .addTypeVariable(R)
+        .addModifiers(context.getAccessModifiers())
+        .addJavadoc("Receives the {@code ParseResult} of {@code dispatch},\n" +
+            "either of this command, or of the selected subcommand.\n\n" +
+            "@param <R> the return type of {@code dispatch}\n")
+        .addMethod(visitMethod(context.parseResultType(), "result"));
+    TypeSpec.Builder commands = TypeSpec.interfaceBuilder(context.commandVisitorType())
+        .addTypeVariable(R)
+        .addModifiers(context.getAccessModifiers())
+        .addJavadoc("Receives the parsed command of {@code dispatchOrExit},\n" +
+            "either this command, or the selected subcommand.\n\n" +
+            "@param <R> the return type of {@code dispatchOrExit}\n")
+        .addMethod(visitMethod(context.sourceType(), "command"));
+    for (Subcommand subcommand : context.subcommands()) {
+      results.addMethod(visitMethod(subcommand.parseResultType(), "result"));
+      commands.addMethod(visitMethod(subcommand.sourceType(), "command"));
+    }
+    return Arrays.asList(results.build(), commands.build());
+  }
+
+  private static MethodSpec visitMethod(TypeName type, String name) {
+    return methodBuilder("visit")
+        .addModifiers(PUBLIC, ABSTRACT)
+        .addParameter(type, name)
+        .returns(R)
+        .build();
+  }
+}
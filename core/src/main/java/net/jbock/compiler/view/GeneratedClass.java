@@ -1,28 +1,38 @@
 package net.jbock.compiler.view;
 
-import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import net.jbock.compiler.Constants;
 import net.jbock.compiler.Context;
-import net.jbock.compiler.parameter.Parameter;
+import net.jbock.compiler.Subcommand;
 
 import javax.lang.model.element.Modifier;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.Objects;
 import java.util.ResourceBundle;
-import java.util.StringJoiner;
+import java.util.WeakHashMap;
 import java.util.function.Consumer;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.squareup.javapoet.MethodSpec.methodBuilder;
@@ -31,11 +41,13 @@ import static com.squareup.javapoet.TypeName.INT;
 import static java.util.Arrays.asList;
 import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PROTECTED;
 import static javax.lang.model.element.Modifier.STATIC;
-import static net.jbock.coerce.Util.addBreaks;
 import static net.jbock.compiler.Constants.ENTRY_STRING_STRING;
+import static net.jbock.compiler.Constants.PARSE_EXCEPTION;
 import static net.jbock.compiler.Constants.STRING;
 import static net.jbock.compiler.Constants.STRING_ARRAY;
+import static net.jbock.compiler.Constants.STRING_ITERABLE;
 import static net.jbock.compiler.Constants.STRING_ITERATOR;
 import static net.jbock.compiler.Constants.STRING_TO_STRING_MAP;
 
@@ -44,7 +56,6 @@ import static net.jbock.compiler.Constants.STRING_TO_STRING_MAP;
  */
 public final class GeneratedClass {
 
-  private static final int DEFAULT_WRAP_AFTER = 80;
   private static final int EXITCODE_ON_ERROR = 1;
 
   private static final String PROJECT_URL = "https://github.com/h908714124/jbock";
@@ -52,6 +63,7 @@ public final class GeneratedClass {
   private final Context context;
   private final OptionEnum optionEnum;
   private final ParserState parserState;
+  private final ValueCache valueCache;
   private final ParseResult parseResult;
 
   private final FieldSpec out = FieldSpec.builder(PrintStream.class, "out", PRIVATE)
@@ -61,34 +73,85 @@ public final class GeneratedClass {
       .initializer("$T.err", System.class).build();
 
   private final FieldSpec maxLineWidth = FieldSpec.builder(INT, "maxLineWidth", PRIVATE)
-      .initializer("$L", DEFAULT_WRAP_AFTER).build();
+      .initializer("$L", HelpText.DEFAULT_WRAP_AFTER).build();
 
   private final FieldSpec messages = FieldSpec.builder(STRING_TO_STRING_MAP, "messages", PRIVATE)
       .initializer("$T.emptyMap()", Collections.class).build();
 
+  private final FieldSpec bundle = FieldSpec.builder(ResourceBundle.class, "bundle", PRIVATE)
+      .initializer("null").build();
+
+  private final FieldSpec bundleMessages;
+
   private final FieldSpec runBeforeExit;
 
+  private final FieldSpec reusableState;
+
+  private final HelpText helpText;
+
   private GeneratedClass(
       Context context,
       OptionEnum optionEnum,
       ParserState parserState,
+      ValueCache valueCache,
       ParseResult parseResult,
       FieldSpec runBeforeExit) {
     this.context = context;
     this.optionEnum = optionEnum;
     this.parserState = parserState;
+    this.valueCache = valueCache;
     this.parseResult = parseResult;
     this.runBeforeExit = runBeforeExit;
+    this.reusableState = FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(ThreadLocal.class), context.parserStateType()),
+        "reusableState", PRIVATE, STATIC, FINAL)
+        .initializer(reusableStateInitializer(context))
+        .build();
+    this.bundleMessages = FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(Map.class),
+        TypeName.get(ResourceBundle.class), STRING_TO_STRING_MAP), "BUNDLE_MESSAGES", PRIVATE, STATIC, FINAL)
+        .initializer("$T.synchronizedMap(new $T<>())", Collections.class, WeakHashMap.class)
+        .build();
+    this.helpText = new HelpText(context, maxLineWidth, messages, bundle);
   }
 
   public static GeneratedClass create(Context context) {
     OptionEnum optionEnum = OptionEnum.create(context);
-    ParserState state = ParserState.create(context, optionEnum);
+    ValueCache valueCache = ValueCache.create(context);
+    ParserState state = ParserState.create(context, optionEnum, valueCache);
     ParseResult parseResult = new ParseResult(context);
     FieldSpec runBeforeExit = FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(Consumer.class), context.parseResultType()), "runBeforeExit").addModifiers(PRIVATE)
-        .initializer("r -> {}")
+        .initializer(context.isFastStartup() ? "null" : "r -> {}")
+        .build();
+    return new GeneratedClass(context, optionEnum, state, valueCache, parseResult, runBeforeExit);
+  }
+
+  private static CodeBlock reusableStateInitializer(Context context) {
+    if (!context.isFastStartup()) {
+      return CodeBlock.of("$T.withInitial($T::new)", ThreadLocal.class, context.parserStateType());
+    }
+    TypeSpec threadLocal = TypeSpec.anonymousClassBuilder("")
+        .superclass(ParameterizedTypeName.get(ClassName.get(ThreadLocal.class), context.parserStateType()))
+        .addMethod(methodBuilder("initialValue")
+            .addAnnotation(Override.class)
+            .addModifiers(PROTECTED)
+            .returns(context.parserStateType())
+            .addStatement("return new $T()", context.parserStateType())
+            .build())
         .build();
-    return new GeneratedClass(context, optionEnum, state, parseResult, runBeforeExit);
+    return CodeBlock.of("$L", threadLocal);
+  }
+
+  /**
+   * In fast startup mode, the default is {@code null} rather than a lambda.
+   */
+  private CodeBlock runBeforeExitStatement(ParameterSpec result) {
+    CodeBlock.Builder code = CodeBlock.builder();
+    if (context.isFastStartup()) {
+      code.add("if ($N != null)\n", runBeforeExit).indent()
+          .addStatement("$N.accept($N)", runBeforeExit, result).unindent();
+    } else {
+      code.addStatement("$N.accept($N)", runBeforeExit, result);
+    }
+    return code.build();
   }
 
   public TypeSpec define() {
@@ -103,45 +166,166 @@ public final class GeneratedClass {
     if (context.isHelpParameterEnabled()) {
       spec.addMethod(withHelpStreamMethod(accessModifiers));
     }
-    spec.addMethod(parseOrExitMethod(accessModifiers))
-        .addMethod(buildRowsMethod(accessModifiers))
+    if (context.isDelimitedInput()) {
+      spec.addMethod(parseChannelMethod(accessModifiers))
+          .addMethod(parseInputStreamMethod(accessModifiers));
+    }
+    if (context.isBatchParsing()) {
+      spec.addMethods(new ParseAll(context).methods(accessModifiers));
+    }
+    spec.addMethod(parseIteratorMethod(accessModifiers))
+        .addMethod(parseIterableMethod(accessModifiers))
+        .addMethod(parseOrExitMethod(accessModifiers));
+    if (!context.subcommands().isEmpty()) {
+      spec.addMethod(dispatchMethod(accessModifiers))
+          .addMethod(dispatchOrExitMethod(accessModifiers));
+    }
+    spec.addMethod(buildRowsMethod(accessModifiers))
         .addMethod(printOnlineHelpMethod(accessModifiers))
+        .addMethod(printOnlineHelpAppendableMethod(accessModifiers))
+        .addMethod(printUsageMethod(accessModifiers))
+        .addMethod(printUsageAppendableMethod(accessModifiers))
         .addMethod(printWrapMethod(accessModifiers))
         .addMethod(synopsisMethod(accessModifiers));
 
     // PRIVATE Methods
-    spec.addMethod(parseMethodOverloadIterator())
-        .addMethod(readOptionArgumentMethod());
-
-    if (context.isHelpParameterEnabled()) {
-      spec.addField(out);
+    spec.addMethod(parseMethodOverloadIterator());
+    if (!context.isSharedRuntime()) {
+      spec.addMethod(readOptionArgumentMethod());
+    }
+    spec.addMethod(helpText.helpMethod())
+        .addMethod(messagesMethod())
+        .addMethod(bundleMessagesMethod())
+        .addMethod(usageMethod())
+        .addMethod(helpText.appendWrapMethod());
+    if (!context.isSharedRuntime()) {
+      spec.addMethod(HelpText.isSeparatorMethod());
+    }
+    spec.addMethod(flushMethod());
+
+    if (context.isImmutable()) {
+      spec.addFields(configFields().stream()
+          .map(field -> FieldSpec.builder(field.type, field.name, PRIVATE, FINAL).build())
+          .collect(Collectors.toList()));
+      spec.addMethod(defaultConstructor(accessModifiers));
+      spec.addMethod(configConstructor());
+    } else {
+      spec.addFields(configFields());
+    }
+    spec.addField(bundleMessages);
+    spec.addFields(helpText.fields());
+    if (context.isReuseParserState()) {
+      spec.addField(reusableState);
     }
-    spec.addFields(Arrays.asList(err, maxLineWidth, runBeforeExit, messages));
 
     spec.addType(parserState.define())
-        .addType(Impl.define(context))
-        .addType(optionEnum.define())
-        .addTypes(OptionParser.define(context))
-        .addTypes(ParamParser.define(context))
-        .addTypes(parseResult.defineResultTypes());
+        .addType(Impl.define(context, valueCache))
+        .addTypes(MapperHolder.define(context))
+        .addTypes(valueCache.define())
+        .addType(optionEnum.define());
+    if (!context.isCompact()) {
+      spec.addTypes(OptionParser.define(context))
+          .addTypes(ParamParser.define(context));
+    }
+    if (context.isArgumentFiles()) {
+      spec.addType(new ArgumentFiles(context).define());
+    }
+    if (TokenIterator.isNeeded(context)) {
+      spec.addType(new TokenIterator(context).define());
+    }
+    if (context.isBatchParsing()) {
+      spec.addType(new ParseAll(context).defineChunk());
+    }
+    if (context.isDelimitedInput()) {
+      DelimitedTokens delimitedTokens = new DelimitedTokens(context);
+      spec.addType(delimitedTokens.defineDelimiter())
+          .addType(delimitedTokens.define());
+      if (context.streamedParam().isPresent()) {
+        spec.addType(delimitedTokens.defineRemainingTokens());
+      }
+    }
+    spec.addTypes(parseResult.defineResultTypes())
+        .addTypes(new ParseError(context).define())
+        .addTypes(new IndexedValues(context).define())
+        .addType(helpText.renderedHelpType());
+    if (!context.subcommands().isEmpty()) {
+      spec.addTypes(new DispatchVisitors(context).define());
+    }
 
     return spec.addModifiers(FINAL)
         .addModifiers(accessModifiers)
         .addJavadoc(javadoc()).build();
   }
 
+  private List<FieldSpec> configFields() {
+    List<FieldSpec> result = new ArrayList<>();
+    if (context.isHelpParameterEnabled()) {
+      result.add(out);
+    }
+    result.addAll(Arrays.asList(err, maxLineWidth, runBeforeExit, messages, bundle));
+    return result;
+  }
+
+  private MethodSpec defaultConstructor(Modifier[] accessModifiers) {
+    List<CodeBlock> defaults = configFields().stream()
+        .map(field -> field.initializer)
+        .collect(Collectors.toList());
+    return MethodSpec.constructorBuilder()
+        .addStatement("this($L)", CodeBlock.join(defaults, ", "))
+        .addModifiers(accessModifiers)
+        .build();
+  }
+
+  private MethodSpec configConstructor() {
+    MethodSpec.Builder spec = MethodSpec.constructorBuilder();
+    for (FieldSpec field : configFields()) {
+      spec.addParameter(field.type, field.name);
+      spec.addStatement("this.$N = $N", field, field);
+    }
+    return spec.addModifiers(PRIVATE).build();
+  }
+
+  private MethodSpec configMethod(
+      String methodName, FieldSpec field, ParameterSpec param, CodeBlock value, Modifier[] accessModifiers) {
+    return configMethod(methodName, Collections.singletonMap(field, value), param, accessModifiers);
+  }
+
+  /**
+   * In immutable mode, returns a copy of this parser where the given fields have new values.
+   * Otherwise, sets the fields and returns this parser.
+   */
+  private MethodSpec configMethod(
+      String methodName, Map<FieldSpec, CodeBlock> values, ParameterSpec param, Modifier[] accessModifiers) {
+    MethodSpec.Builder spec = methodBuilder(methodName).addParameter(param);
+    if (context.isImmutable()) {
+      List<CodeBlock> args = configFields().stream()
+          .map(f -> values.getOrDefault(f, CodeBlock.of("this.$N", f)))
+          .collect(Collectors.toList());
+      spec.addStatement("return new $T($L)", context.generatedClass(), CodeBlock.join(args, ",$W"));
+    } else {
+      values.forEach((field, value) -> spec.addStatement("this.$N = $L", field, value));
+      spec.addStatement("return this");
+    }
+    return spec.returns(context.generatedClass())
+        .addModifiers(accessModifiers)
+        .build();
+  }
+
   private MethodSpec buildRowsMethod(Modifier[] accessModifiers) {
     ParameterSpec rows = builder(Constants.listOf(ENTRY_STRING_STRING), "rows").build();
     ParameterSpec optionParam = builder(context.optionType(), "option").build();
     ParameterSpec message = builder(STRING, "message").build();
+    ParameterSpec resolved = builder(messages.type, "resolved").build();
     CodeBlock.Builder builder = CodeBlock.builder();
-    builder.add("return $T.stream($T.values()).map($N -> {\n", Arrays.class, context.optionType(), optionParam).indent()
+    builder.addStatement("$T $N = messages()", resolved.type, resolved);
+    builder.addStatement("$T $N = new $T<>($T.values().length)", rows.type, rows, ArrayList.class, context.optionType());
+    builder.beginControlFlow("for ($T $N : $T.values())", context.optionType(), optionParam, context.optionType())
         .addStatement("$T $N = $N.getOrDefault($N.bundleKey, $T.join($S, $N.description)).trim()",
-            STRING, message, messages, optionParam, String.class, " ", optionParam)
-        .addStatement("return new $T($N.shape, $N)", ParameterizedTypeName.get(ClassName.get(SimpleImmutableEntry.class), STRING, STRING),
+            STRING, message, resolved, optionParam, String.class, " ", optionParam)
+        .addStatement("$N.add(new $T($N.shape, $N))", rows, ParameterizedTypeName.get(ClassName.get(SimpleImmutableEntry.class), STRING, STRING),
             optionParam, message)
-        .unindent()
-        .add("}).collect($T.toList());\n", Collectors.class);
+        .endControlFlow();
+    builder.addStatement("return $N", rows);
     return methodBuilder("buildRows").returns(rows.type)
         .addCode(builder.build())
         .addModifiers(accessModifiers)
@@ -149,140 +333,185 @@ public final class GeneratedClass {
   }
 
   private MethodSpec printOnlineHelpMethod(Modifier[] accessModifiers) {
-    List<Parameter> params = context.parameters();
-    // 2 space padding on both sides
-    int totalPadding = 4;
-    int width = params.stream().map(Parameter::sample).mapToInt(String::length).max().orElse(0) + totalPadding;
-    String format = "  %1$-" + (width - 2) + "s";
-    ParameterSpec row = builder(ENTRY_STRING_STRING, "row").build();
     ParameterSpec printStream = builder(PrintStream.class, "printStream").build();
-    ParameterSpec key = builder(STRING, "key").build();
-    MethodSpec.Builder spec = methodBuilder("printOnlineHelp");
-    spec.addStatement("printWrap($N, 8, $S, $S + synopsis())", printStream, "", "Usage: ");
-    spec.beginControlFlow("for ($T $N : buildRows())", row.type, row)
-        .addStatement("$T $N = $T.format($S, $N.getKey())", STRING, key, STRING, format, row)
-        .addStatement("printWrap($N, $L, $N, $N.getValue())", printStream, width, key, row)
-        .endControlFlow();
-    return spec.addParameter(printStream)
+    return methodBuilder("printOnlineHelp")
+        .addStatement("$N.print(help())", printStream)
+        .addParameter(printStream)
+        .addModifiers(accessModifiers)
+        .build();
+  }
+
+  private MethodSpec printOnlineHelpAppendableMethod(Modifier[] accessModifiers) {
+    ParameterSpec appendable = builder(Appendable.class, "appendable").build();
+    return methodBuilder("printOnlineHelp")
+        .addStatement("$N.append(help())", appendable)
+        .addStatement("flush($N)", appendable)
+        .addParameter(appendable)
+        .addException(IOException.class)
+        .addModifiers(accessModifiers)
+        .build();
+  }
+
+  private MethodSpec printUsageMethod(Modifier[] accessModifiers) {
+    ParameterSpec printStream = builder(PrintStream.class, "printStream").build();
+    return methodBuilder("printUsage")
+        .addStatement("$N.print(usage())", printStream)
+        .addParameter(printStream)
+        .addModifiers(accessModifiers)
+        .build();
+  }
+
+  private MethodSpec printUsageAppendableMethod(Modifier[] accessModifiers) {
+    ParameterSpec appendable = builder(Appendable.class, "appendable").build();
+    return methodBuilder("printUsage")
+        .addStatement("$N.append(usage())", appendable)
+        .addStatement("flush($N)", appendable)
+        .addParameter(appendable)
+        .addException(IOException.class)
         .addModifiers(accessModifiers)
         .build();
   }
 
+  private MethodSpec usageMethod() {
+    ParameterSpec sb = builder(StringBuilder.class, "sb").build();
+    return methodBuilder("usage")
+        .addStatement("$T $N = new $T()", sb.type, sb, StringBuilder.class)
+        .addStatement("appendWrap($N, 8, $S, $S)", sb, "", "Usage: " + HelpText.synopsis(context))
+        .addStatement("return $N.toString()", sb)
+        .returns(STRING)
+        .addModifiers(PRIVATE)
+        .build();
+  }
+
+  private static MethodSpec flushMethod() {
+    ParameterSpec appendable = builder(Appendable.class, "appendable").build();
+    CodeBlock code = CodeBlock.builder()
+        .add("if ($N instanceof $T)\n", appendable, Flushable.class).indent()
+        .addStatement("(($T) $N).flush()", Flushable.class, appendable).unindent()
+        .build();
+    return methodBuilder("flush")
+        .addParameter(appendable)
+        .addException(IOException.class)
+        .addCode(code)
+        .addModifiers(PRIVATE, STATIC)
+        .build();
+  }
+
+  /**
+   * Wraps the input, and writes it with a single call.
+   */
   private MethodSpec printWrapMethod(Modifier[] accessModifiers) {
     ParameterSpec printStream = builder(PrintStream.class, "printStream").build();
     ParameterSpec continuationIndent = builder(INT, "continuationIndent").build();
-    ParameterSpec i = builder(INT, "i").build();
-    ParameterSpec trim = builder(STRING, "trim").build();
     ParameterSpec init = builder(STRING, "init").build();
     ParameterSpec input = builder(STRING, "input").build();
     ParameterSpec sb = builder(StringBuilder.class, "sb").build();
-    ParameterSpec token = builder(STRING, "token").build();
-    ParameterSpec tokens = builder(ArrayTypeName.of(String.class), "tokens").build();
-    CodeBlock.Builder code = CodeBlock.builder();
-    code.beginControlFlow("if ($N.isEmpty())", input)
-        .addStatement("$T $N = $N.trim()", STRING, trim, init)
-        .addStatement("$N.println($N.substring(0, $N.indexOf($N)) + $N)",
-            printStream, init, init, trim, trim)
-        .addStatement("return")
-        .endControlFlow();
-    code.addStatement("$T $N = $N.split($S, $L)", tokens.type, tokens, input, "\\s+", -1);
-    code.addStatement("$T $N = new $T($N)", sb.type, sb, StringBuilder.class, init);
-    code.beginControlFlow("for ($T $N : $N)", STRING, token, tokens);
-
-    code.beginControlFlow("if ($N.length() + $N.length() + 1 > $N)",
-        token, sb, maxLineWidth);
-    code.beginControlFlow("if ($N.toString().isEmpty())", sb)
-        .addStatement("$N.println($N)", printStream, token)
-        .endControlFlow();
-    code.beginControlFlow("else")
-        .addStatement("$N.println($N)", printStream, sb)
-        .addStatement("$N.setLength(0)", sb)
-        .add("for ($T $N = 0; $N < $N; $N++)\n",
-            INT, i, i, continuationIndent, i).indent()
-        .addStatement(" $N.append(' ')", sb).unindent()
-        .addStatement("$N.append($N)", sb, token)
-        .endControlFlow();
-    code.endControlFlow();
-    code.beginControlFlow("else")
-        .add("if ($N.length() > 0 && !$T.isWhitespace($N.charAt($N.length() - 1)))\n",
-            sb, Character.class, sb, sb).indent()
-        .addStatement("$N.append(' ')", sb).unindent()
-        .addStatement("$N.append($N)", sb, token)
-        .endControlFlow();
-    code.endControlFlow();
-
-    code.add("if ($N.length() > 0)\n", sb).indent()
-        .addStatement("$N.println($N)", printStream, sb).unindent();
     return methodBuilder("printWrap")
+        .addStatement("$T $N = new $T()", sb.type, sb, StringBuilder.class)
+        .addStatement("appendWrap($N, $N, $N, $N)", sb, continuationIndent, init, input)
+        .addStatement("$N.print($N)", printStream, sb)
         .addModifiers(accessModifiers)
-        .addCode(code.build())
         .addParameters(Arrays.asList(printStream, continuationIndent, init, input))
         .build();
   }
 
   private MethodSpec maxLineWidthMethod(Modifier[] accessModifiers) {
     ParameterSpec indentParam = builder(maxLineWidth.type, "chars").build();
-    return methodBuilder("maxLineWidth")
-        .addParameter(indentParam)
-        .addStatement("this.$N = $N", maxLineWidth, indentParam)
-        .addStatement("return this")
-        .returns(context.generatedClass())
-        .addModifiers(accessModifiers)
-        .build();
+    return configMethod("maxLineWidth", maxLineWidth, indentParam, CodeBlock.of("$N", indentParam), accessModifiers);
   }
 
   private MethodSpec runBeforeExitMethod(Modifier[] accessModifiers) {
     ParameterSpec param = builder(runBeforeExit.type, runBeforeExit.name).build();
-    return methodBuilder("runBeforeExit")
-        .addParameter(param)
-        .addStatement("this.$N = $N", runBeforeExit, param)
-        .addStatement("return this")
-        .returns(context.generatedClass())
-        .addModifiers(accessModifiers)
-        .build();
+    return configMethod("runBeforeExit", runBeforeExit, param, CodeBlock.of("$N", param), accessModifiers);
   }
 
+  /**
+   * The map is copied, so that the cached help can't go stale
+   * when the caller modifies it later.
+   */
   private MethodSpec withMessagesMethod(Modifier[] accessModifiers) {
     ParameterSpec resourceBundleParam = builder(messages.type, "map").build();
-    MethodSpec.Builder spec = methodBuilder("withMessages");
-    return spec.addParameter(resourceBundleParam)
-        .addStatement("this.$N = $N", messages, resourceBundleParam)
-        .addStatement("return this")
-        .returns(context.generatedClass())
-        .addModifiers(accessModifiers)
-        .build();
+    CodeBlock value = CodeBlock.of("$T.unmodifiableMap(new $T<>($N))", Collections.class, HashMap.class, resourceBundleParam);
+    Map<FieldSpec, CodeBlock> values = new LinkedHashMap<>();
+    values.put(messages, value);
+    values.put(bundle, CodeBlock.of("null"));
+    return configMethod("withMessages", values, resourceBundleParam, accessModifiers);
   }
 
+  /**
+   * The bundle is only read when the help is rendered.
+   */
   private MethodSpec withResourceBundleMethod(Modifier[] accessModifiers) {
-    ParameterSpec bundle = builder(ResourceBundle.class, "bundle").build();
-    CodeBlock.Builder code = CodeBlock.builder();
-    code.add("return withMessages($T.list($N.getKeys()).stream()\n", Collections.class, bundle).indent()
-        .addStatement(".collect($T.toMap($T.identity(), $N::getString)))", Collectors.class, Function.class, bundle).unindent();
-    return methodBuilder("withResourceBundle").addParameter(bundle)
-        .returns(context.generatedClass())
-        .addCode(code.build())
-        .addModifiers(accessModifiers)
+    ParameterSpec param = builder(ResourceBundle.class, "bundle").build();
+    Map<FieldSpec, CodeBlock> values = new LinkedHashMap<>();
+    values.put(messages, CodeBlock.of("$T.emptyMap()", Collections.class));
+    values.put(bundle, CodeBlock.of("$T.requireNonNull($N)", Objects.class, param));
+    return configMethod("withResourceBundle", values, param, accessModifiers);
+  }
+
+  /**
+   * Returns the messages, or the messages from the bundle if there is one.
+   */
+  private MethodSpec messagesMethod() {
+    ParameterSpec result = builder(messages.type, "result").build();
+    CodeBlock code = CodeBlock.builder()
+        .add("if ($N == null)\n", bundle).indent()
+        .addStatement("return $N", messages).unindent()
+        .addStatement("$T $N = $N.get($N)", messages.type, result, bundleMessages, bundle)
+        .beginControlFlow("if ($N == null)", result)
+        .addStatement("$N = bundleMessages($N)", result, bundle)
+        .addStatement("$N.put($N, $N)", bundleMessages, bundle, result)
+        .endControlFlow()
+        .addStatement("return $N", result)
+        .build();
+    return methodBuilder("messages")
+        .returns(messages.type)
+        .addCode(code)
+        .addModifiers(PRIVATE)
+        .build();
+  }
+
+  /**
+   * Reads only the declared bundle keys.
+   * A bundle instance belongs to one locale, so the result can be cached per bundle.
+   */
+  private MethodSpec bundleMessagesMethod() {
+    ParameterSpec param = builder(ResourceBundle.class, "bundle").build();
+    ParameterSpec result = builder(messages.type, "result").build();
+    ParameterSpec option = builder(context.optionType(), "option").build();
+    CodeBlock code = CodeBlock.builder()
+        .addStatement("$T $N = new $T<>()", result.type, result, HashMap.class)
+        .beginControlFlow("for ($T $N : $T.values())", option.type, option, option.type)
+        .add("if ($N.bundleKey == null)\n", option).indent()
+        .addStatement("continue").unindent()
+        .beginControlFlow("try")
+        .addStatement("$N.put($N.bundleKey, $N.getString($N.bundleKey))", result, option, param, option)
+        .nextControlFlow("catch ($T e)", MissingResourceException.class)
+        .add("// fall back to the description\n")
+        .endControlFlow()
+        .endControlFlow()
+        .addStatement("return $T.unmodifiableMap($N)", Collections.class, result)
+        .build();
+    return methodBuilder("bundleMessages")
+        .addParameter(param)
+        .returns(messages.type)
+        .addCode(code)
+        .addModifiers(PRIVATE, STATIC)
         .build();
   }
 
   private MethodSpec withHelpStreamMethod(Modifier[] accessModifiers) {
-    return withPrintStreamMethod("withHelpStream", context, out, accessModifiers);
+    return withPrintStreamMethod("withHelpStream", out, accessModifiers);
   }
 
   private MethodSpec withErrorStreamMethod(Modifier[] accessModifiers) {
-    return withPrintStreamMethod("withErrorStream", context, err, accessModifiers);
+    return withPrintStreamMethod("withErrorStream", err, accessModifiers);
   }
 
-  private static MethodSpec withPrintStreamMethod(
-      String methodName, Context context, FieldSpec stream, Modifier[] accessModifiers) {
+  private MethodSpec withPrintStreamMethod(
+      String methodName, FieldSpec stream, Modifier[] accessModifiers) {
     ParameterSpec param = builder(stream.type, stream.name).build();
-    return methodBuilder(methodName)
-        .addParameter(param)
-        .addStatement("this.$N = $N", stream, param)
-        .addStatement("return this")
-        .returns(context.generatedClass())
-        .addModifiers(accessModifiers)
-        .build();
+    return configMethod(methodName, stream, param, CodeBlock.of("$N", param), accessModifiers);
   }
 
   private MethodSpec parseMethod(Modifier[] accessModifiers) {
@@ -296,51 +525,228 @@ public final class GeneratedClass {
             .addStatement("return new $T()", helpRequestedType)
             .unindent());
 
-    code.beginControlFlow("try")
-        .addStatement("return new $T(parse($T.asList($N).iterator()))", context.parsingSuccessType(), Arrays.class, args)
-        .endControlFlow();
+    if (context.isStructuredErrors()) {
+      code.add(structuredParseCode(args, e));
+    } else if (context.isArgumentFiles()) {
+      ParameterSpec it = builder(context.argumentFilesType(), "it").build();
+      code.addStatement("$T $N = new $T($N)", it.type, it, it.type, args);
+      code.beginControlFlow("try")
+          .addStatement("return new $T(parseTokens($N))", context.parsingSuccessType(), it)
+          .nextControlFlow("catch ($T $N)", RuntimeException.class, e)
+          .addStatement("return new $T($N)", context.parsingFailedType(), e)
+          .nextControlFlow("finally")
+          .addStatement("$N.close()", it)
+          .endControlFlow();
+    } else {
+      code.beginControlFlow("try")
+          .addStatement("return new $T(parseTokens($T.asList($N).iterator()))", context.parsingSuccessType(), Arrays.class, args)
+          .endControlFlow();
 
-    code.beginControlFlow("catch ($T $N)", RuntimeException.class, e)
-        .addStatement("return new $T($N)",
-            context.parsingFailedType(), e)
-        .endControlFlow();
+      code.beginControlFlow("catch ($T $N)", RuntimeException.class, e)
+          .addStatement("return new $T($N)",
+              context.parsingFailedType(), e)
+          .endControlFlow();
+    }
 
-    return MethodSpec.methodBuilder("parse").addParameter(args)
+    MethodSpec.Builder spec = MethodSpec.methodBuilder("parse").addParameter(args)
         .returns(context.parseResultType())
         .addCode(code.build())
         .addModifiers(accessModifiers)
         .addJavadoc("This parse method has no side effects.\n" +
             "Consider {@link #parseOrExit()} instead which does standard error-handling\n" +
-            "like printing error messages, and potentially shutting down the JVM.\n")
+            "like printing error messages, and potentially shutting down the JVM.\n");
+    if (context.isImmutable()) {
+      spec.addJavadoc("This method can be invoked concurrently from any number of threads.\n");
+    }
+    return spec.build();
+  }
+
+  /**
+   * The tokens are decoded while parsing.
+   * The channel is not closed.
+   */
+  private MethodSpec parseChannelMethod(Modifier[] accessModifiers) {
+    ParameterSpec channel = builder(ReadableByteChannel.class, "channel").build();
+    ParameterSpec delimiter = builder(context.delimiterType(), "delimiter").build();
+    ParameterSpec it = builder(context.delimitedTokensType(), "it").build();
+    CodeBlock.Builder code = CodeBlock.builder();
+    code.addStatement("$T $N = new $T($N, $N)", it.type, it, it.type, channel, delimiter);
+    code.add(peekingParseCode(it));
+    MethodSpec.Builder spec = MethodSpec.methodBuilder("parse")
+        .addParameter(channel)
+        .addParameter(delimiter)
+        .returns(context.parseResultType())
+        .addCode(code.build())
+        .addModifiers(accessModifiers)
+        .addJavadoc("Parses the tokens in the channel, which are separated by the delimiter.\n" +
+            "The channel is read until its end, or until parsing fails, but it is not closed.\n" +
+            "Like {@link #parse(String[])}, this method has no other side effects.\n");
+    context.streamedParam().ifPresent(param -> spec.addJavadoc(
+        "<p>When the first token of {@code $L} is read, this method returns.\n" +
+            "The remaining tokens are then read while {@code $L()} is consumed,\n" +
+            "so the channel must not be closed before that.\n", param.methodName(), param.methodName()));
+    return spec.build();
+  }
+
+  /**
+   * The tokens are not copied.
+   * They are wrapped in a TokenIterator, if the first token must be checked for {@code --help},
+   * or if the index of a parse error must be known.
+   */
+  private MethodSpec parseIteratorMethod(Modifier[] accessModifiers) {
+    ParameterSpec tokens = builder(STRING_ITERATOR, "tokens").build();
+    ParameterSpec e = builder(RuntimeException.class, "e").build();
+    CodeBlock.Builder code = CodeBlock.builder();
+    if (TokenIterator.isNeeded(context)) {
+      ParameterSpec it = builder(context.tokenIteratorType(), "it").build();
+      code.addStatement("$T $N = new $T($N)", it.type, it, it.type, tokens);
+      code.add(peekingParseCode(it));
+    } else {
+      code.beginControlFlow("try")
+          .addStatement("return new $T(parseTokens($N))", context.parsingSuccessType(), tokens)
+          .nextControlFlow("catch ($T $N)", RuntimeException.class, e)
+          .addStatement("return new $T($N)", context.parsingFailedType(), e)
+          .endControlFlow();
+    }
+    MethodSpec.Builder spec = MethodSpec.methodBuilder("parse")
+        .addParameter(tokens)
+        .returns(context.parseResultType())
+        .addCode(code.build())
+        .addModifiers(accessModifiers)
+        .addJavadoc("Parses the tokens, without copying them into an array.\n" +
+            "The iterator is advanced until its end, or until parsing fails.\n" +
+            "Like {@link #parse(String[])}, this method has no other side effects.\n");
+    if (context.isArgumentFiles()) {
+      spec.addJavadoc("The tokens are not expanded as argument files.\n");
+    }
+    return spec.build();
+  }
+
+  private MethodSpec parseIterableMethod(Modifier[] accessModifiers) {
+    ParameterSpec tokens = builder(STRING_ITERABLE, "tokens").build();
+    return MethodSpec.methodBuilder("parse")
+        .addParameter(tokens)
+        .returns(context.parseResultType())
+        .addStatement("return parse($N.iterator())", tokens)
+        .addModifiers(accessModifiers)
+        .addJavadoc("Like {@link #parse($T)}, for example with a {@code List<String>}.\n", Iterator.class)
         .build();
   }
 
+  /**
+   * The iterator must have the method {@code peek}, and with {@code structuredErrors}, {@code previousIndex}.
+   * The help check is inside the try block, because reading the first token may fail.
+   */
+  private CodeBlock peekingParseCode(ParameterSpec it) {
+    ParameterSpec e = builder(RuntimeException.class, "e").build();
+    CodeBlock.Builder code = CodeBlock.builder();
+    CodeBlock.Builder parse = CodeBlock.builder();
+    context.helpRequestedType().ifPresent(helpRequestedType ->
+        parse.add("if ($S.equals($N.peek()))\n", "--help", it).indent()
+            .addStatement("return new $T()", helpRequestedType)
+            .unindent());
+    parse.addStatement("return new $T(parseTokens($N))", context.parsingSuccessType(), it);
+    if (context.isStructuredErrors()) {
+      ParameterSpec parseError = builder(context.parseErrorType(), "parseError").build();
+      code.beginControlFlow("try")
+          .add(parse.build())
+          .nextControlFlow("catch ($T $N)", parseError.type, parseError)
+          .addStatement("return new $T($N, $N.token == null ? $N.index : $N.previousIndex())",
+              context.parsingFailedType(), parseError, parseError, parseError, it)
+          .nextControlFlow("catch ($T $N)", RuntimeException.class, e)
+          .addStatement("return new $T($L, -1)", context.parsingFailedType(),
+              CodeBlock.of("new $T($T.$L, null, null, $N, -1)", context.parseErrorType(), context.errorKindType(),
+                  ParseError.Kind.INVALID_VALUE, e))
+          .endControlFlow();
+    } else {
+      code.beginControlFlow("try")
+          .add(parse.build())
+          .nextControlFlow("catch ($T $N)", RuntimeException.class, e)
+          .addStatement("return new $T($N)", context.parsingFailedType(), e)
+          .endControlFlow();
+    }
+    return code.build();
+  }
+
+  private MethodSpec parseInputStreamMethod(Modifier[] accessModifiers) {
+    ParameterSpec in = builder(InputStream.class, "in").build();
+    ParameterSpec delimiter = builder(context.delimiterType(), "delimiter").build();
+    return MethodSpec.methodBuilder("parse")
+        .addParameter(in)
+        .addParameter(delimiter)
+        .returns(context.parseResultType())
+        .addStatement("return parse($T.newChannel($N), $N)", Channels.class, in, delimiter)
+        .addModifiers(accessModifiers)
+        .addJavadoc("Like {@link #parse($T, $T)}, for example with {@code System.in}.\n",
+            ReadableByteChannel.class, context.delimiterType())
+        .build();
+  }
+
+  /**
+   * When a parse error is thrown, the token iterator is positioned
+   * right after the offending token.
+   * A mapper failure carries the index of the failing value instead.
+   * With argument files, the index is the index of the argument that contained the token.
+   */
+  private CodeBlock structuredParseCode(ParameterSpec args, ParameterSpec e) {
+    ParameterSpec parseError = builder(context.parseErrorType(), "parseError").build();
+    CodeBlock.Builder code = CodeBlock.builder();
+    ParameterSpec it;
+    if (context.isArgumentFiles()) {
+      it = builder(context.argumentFilesType(), "it").build();
+      code.addStatement("$T $N = new $T($N)", it.type, it, it.type, args);
+    } else {
+      it = builder(context.tokenIteratorType(), "it").build();
+      code.addStatement("$T $N = new $T($T.asList($N).iterator())", it.type, it, it.type, Arrays.class, args);
+    }
+    code.beginControlFlow("try")
+        .addStatement("return new $T(parseTokens($N))", context.parsingSuccessType(), it)
+        .endControlFlow();
+    code.beginControlFlow("catch ($T $N)", parseError.type, parseError)
+        .addStatement("return new $T($N, $N.token == null ? $N.index : $N.previousIndex())",
+            context.parsingFailedType(), parseError, parseError, parseError, it)
+        .endControlFlow();
+    code.beginControlFlow("catch ($T $N)", RuntimeException.class, e)
+        .addStatement("return new $T($L, -1)", context.parsingFailedType(),
+            CodeBlock.of("new $T($T.$L, null, null, $N, -1)", context.parseErrorType(), context.errorKindType(),
+                ParseError.Kind.INVALID_VALUE, e))
+        .endControlFlow();
+    if (context.isArgumentFiles()) {
+      code.beginControlFlow("finally")
+          .addStatement("$N.close()", it)
+          .endControlFlow();
+    }
+    return code.build();
+  }
+
   private CodeBlock handleEndOfOptionParsing(ParameterSpec state, ParameterSpec it, ParameterSpec position, ParameterSpec token) {
     CodeBlock.Builder code = CodeBlock.builder();
     code.beginControlFlow("while ($N.hasNext())", it); // begin loop
     code.addStatement("$N = $N.next()", token, it);
-    code.add("if ($N >= $N.$N.size())\n", position, state, parserState.positionalParsersField()).indent()
-        .addStatement(throwInvalidOptionStatement(token, "Excess param"))
+    code.add("if ($N >= $L)\n", position, parserState.paramCountExpression(state)).indent()
+        .addStatement(throwTokenErrorStatement(ParseError.Kind.EXCESS_PARAM, token))
         .unindent();
-    code.addStatement("$N += $N.$N.get($N).read($N)", position, state, parserState.positionalParsersField(), position, token);
+    code.add(parserState.streamRemainingCode(state, position, token, it));
+    code.addStatement("$N += $L", position, parserState.readParamExpression(state, position, token));
     code.endControlFlow(); // end loop
     return code.build();
   }
 
-  private static CodeBlock throwInvalidOptionStatement(ParameterSpec token, String message) {
-    return CodeBlock.builder()
-        .add("throw new $T($S + $N)", RuntimeException.class,
-            message + ": ", token)
-        .build();
+  private CodeBlock throwTokenErrorStatement(ParseError.Kind kind, ParameterSpec token) {
+    return ParseError.throwStatement(context, kind, null, CodeBlock.of("$N", token));
   }
 
   private CodeBlock javadoc() {
-    return CodeBlock.builder().add("Generated by <a href=\"" + PROJECT_URL + "\">jbock " +
+    CodeBlock.Builder code = CodeBlock.builder().add("Generated by <a href=\"" + PROJECT_URL + "\">jbock " +
         getClass().getPackage().getImplementationVersion() +
-        "</a>\n").build();
+        "</a>\n");
+    if (context.isImmutable()) {
+      code.add("<p>Instances of this class are immutable, and can be shared between threads.\n");
+    }
+    return code.build();
   }
 
-  private static MethodSpec readOptionArgumentMethod() {
+  private MethodSpec readOptionArgumentMethod() {
     ParameterSpec token = builder(STRING, "token").build();
     ParameterSpec it = builder(STRING_ITERATOR, "it").build();
     CodeBlock.Builder code = CodeBlock.builder();
@@ -352,8 +758,7 @@ public final class GeneratedClass {
         .addStatement("return $N.substring(2)", token).unindent();
 
     code.add("if (!$N.hasNext())\n", it).indent()
-        .addStatement("throw new $T($S + $N)", RuntimeException.class,
-            "Missing value after token: ", token)
+        .addStatement(throwTokenErrorStatement(ParseError.Kind.MISSING_VALUE, token))
         .unindent();
 
     code.addStatement("return $N.next()", it);
@@ -366,42 +771,11 @@ public final class GeneratedClass {
   }
 
   private MethodSpec synopsisMethod(Modifier[] accessModifiers) {
-    MethodSpec.Builder spec = MethodSpec.methodBuilder("synopsis");
-
-    ParameterSpec joiner = builder(StringJoiner.class, "joiner").build();
-
-    spec.addCode("return new $T($S)", StringJoiner.class, " ");
-
-    List<Parameter> requiredOptions = context.options().stream().filter(Parameter::isRequired).collect(Collectors.toList());
-    List<Parameter> optionalOptions = context.options().stream().filter(p -> !p.isRequired()).collect(Collectors.toList());
-
-    spec.addCode(".add($S)", context.programName());
-
-    if (!optionalOptions.isEmpty()) {
-      spec.addCode(".add($S)", "[options...]");
-    }
-
-    for (Parameter option : requiredOptions) {
-      spec.addCode(addBreaks(".add($T.format($S, $T.$L.names.get(0), $T.$L.name().toLowerCase($T.US)))"),
-          String.class, "%s <%s>",
-          context.optionType(), option.enumConstant(),
-          context.optionType(), option.enumConstant(), Locale.class);
-    }
-
-    for (Parameter param : context.params()) {
-      if (param.isOptional()) {
-        spec.addCode("$Z.add($S)", "[<" + param.enumName().snake() + ">]");
-      } else if (param.isRequired()) {
-        spec.addCode("$Z.add($S)", "<" + param.enumName().snake() + ">");
-      } else if (param.isRepeatable()) {
-        spec.addCode("$Z.add($S)", "<" + param.enumName().snake() + ">...");
-      } else {
-        throw new AssertionError("all cases handled (param can't be flag)");
-      }
-    }
-
-    spec.addCode("$Z.toString();\n", joiner);
-    return spec.returns(STRING).addModifiers(accessModifiers).build();
+    return MethodSpec.methodBuilder("synopsis")
+        .addStatement("return $S", HelpText.synopsis(context))
+        .returns(STRING)
+        .addModifiers(accessModifiers)
+        .build();
   }
 
   private MethodSpec parseOrExitMethod(Modifier[] accessModifiers) {
@@ -420,7 +794,7 @@ public final class GeneratedClass {
         .beginControlFlow("if ($N instanceof $T)", result, helpRequestedType)
         .addStatement("printOnlineHelp($N)", out)
         .addStatement("$N.flush()", out)
-        .addStatement("$N.accept($N)", runBeforeExit, result)
+        .add(runBeforeExitStatement(result))
         .addStatement("$T.exit(0)", System.class)
         .endControlFlow());
 
@@ -428,14 +802,19 @@ public final class GeneratedClass {
     if (!context.isHelpParameterEnabled()) {
       code.addStatement("printOnlineHelp($N)", err);
     } else {
-      code.addStatement("printWrap($N, 8, $S, $S + synopsis())", err, "", "Usage: ");
+      code.addStatement("printUsage($N)", err);
+    }
+    if (context.isFastStartup()) {
+      code.addStatement("$N.print($S)", err, "Error: ");
+      code.addStatement("$N.println((($T) $N).getError().getMessage())", err, context.parsingFailedType(), result);
+    } else {
+      code.addStatement("$N.println($S + (($T) $N).getError().getMessage())", err, "Error: ", context.parsingFailedType(), result);
     }
-    code.addStatement("$N.println($S + (($T) $N).getError().getMessage())", err, "Error: ", context.parsingFailedType(), result);
     if (context.isHelpParameterEnabled()) {
       code.addStatement("$N.println($S)", err, "Try '--help' for more information.");
     }
     code.addStatement("$N.flush()", err)
-        .addStatement("$N.accept($N)", runBeforeExit, result)
+        .add(runBeforeExitStatement(result))
         .addStatement("$T.exit($L)", System.class, EXITCODE_ON_ERROR)
         .addStatement("throw new $T()", RuntimeException.class);
 
@@ -446,18 +825,157 @@ public final class GeneratedClass {
         .build();
   }
 
+  /**
+   * The subcommand parsers are only referenced in the branches of the switch,
+   * so a subcommand parser is not loaded unless its name is the first token.
+   */
+  private MethodSpec dispatchMethod(Modifier[] accessModifiers) {
+    ParameterSpec args = builder(STRING_ARRAY, "args").build();
+    ParameterSpec visitor = builder(DispatchVisitors.resultVisitor(context), "visitor").build();
+    CodeBlock.Builder code = CodeBlock.builder();
+    code.add("if ($N.length == 0)\n", args).indent()
+        .addStatement("return $N.visit(parse($N))", visitor, args).unindent();
+    code.beginControlFlow("switch ($N[0])", args);
+    for (Subcommand subcommand : context.subcommands()) {
+      code.add("case $S:\n", subcommand.name()).indent()
+          .addStatement("return $N.visit(new $T().parse($T.copyOfRange($N, 1, $N.length)))",
+              visitor, subcommand.parserType(), Arrays.class, args, args)
+          .unindent();
+    }
+    code.add("default:\n").indent()
+        .addStatement("return $N.visit(parse($N))", visitor, args)
+        .unindent();
+    code.endControlFlow();
+    return methodBuilder("dispatch").addParameter(args).addParameter(visitor)
+        .addModifiers(accessModifiers)
+        .addTypeVariable(DispatchVisitors.returnType())
+        .returns(DispatchVisitors.returnType())
+        .addCode(code.build())
+        .addJavadoc("If the first token is the name of a subcommand, the remaining tokens are parsed\n" +
+            "by the parser of that subcommand, and its {@code ParseResult} is passed to the visitor.\n" +
+            "Otherwise, the result of {@link #parse(String[])} is passed to the visitor.\n" +
+            "Only the parser of the selected subcommand is loaded.\n\n" +
+            "@return the value that the visitor returns\n")
+        .build();
+  }
+
+  /**
+   * The subcommand parser inherits the output streams, the line width,
+   * and the messages or resource bundle.
+   * It does not inherit {@code runBeforeExit}, because that consumer
+   * takes the {@code ParseResult} type of this parser.
+   */
+  private MethodSpec dispatchOrExitMethod(Modifier[] accessModifiers) {
+    ParameterSpec args = builder(STRING_ARRAY, "args").build();
+    ParameterSpec visitor = builder(DispatchVisitors.commandVisitor(context), "visitor").build();
+    CodeBlock.Builder code = CodeBlock.builder();
+    code.add("if ($N.length == 0)\n", args).indent()
+        .addStatement("return $N.visit(parseOrExit($N))", visitor, args).unindent();
+    code.beginControlFlow("switch ($N[0])", args);
+    for (Subcommand subcommand : context.subcommands()) {
+      ParameterSpec parser = builder(subcommand.parserType(), "parser").build();
+      code.add("case $S: {\n", subcommand.name()).indent()
+          .add("$T $N = new $T()\n", parser.type, parser, subcommand.parserType()).indent().indent()
+          .add(".withErrorStream($N)\n", err);
+      if (subcommand.isHelpParameterEnabled() && context.isHelpParameterEnabled()) {
+        code.add(".withHelpStream($N)\n", out);
+      }
+      code.add(".maxLineWidth($N);\n", maxLineWidth).unindent().unindent()
+          .add("$N = $N != null ?\n", parser, bundle).indent().indent()
+          .add("$N.withResourceBundle($N) :\n", parser, bundle)
+          .add("$N.withMessages($N);\n", parser, messages).unindent().unindent()
+          .addStatement("return $N.visit($N.parseOrExit($T.copyOfRange($N, 1, $N.length)))",
+              visitor, parser, Arrays.class, args, args)
+          .unindent()
+          .add("}\n");
+    }
+    code.add("default:\n").indent()
+        .addStatement("return $N.visit(parseOrExit($N))", visitor, args)
+        .unindent();
+    code.endControlFlow();
+    return methodBuilder("dispatchOrExit").addParameter(args).addParameter(visitor)
+        .addModifiers(accessModifiers)
+        .addTypeVariable(DispatchVisitors.returnType())
+        .returns(DispatchVisitors.returnType())
+        .addCode(code.build())
+        .addJavadoc("Like {@link #dispatch(String[], $T)}, but with the error handling of {@link #parseOrExit(String[])}.\n" +
+            "The visitor receives either this command, or the selected subcommand.\n" +
+            "The parser of the subcommand uses the streams, the line width and the messages of this parser,\n" +
+            "but not {@link #runBeforeExit}, whose {@code ParseResult} type is specific to this parser.\n\n" +
+            "@return the value that the visitor returns\n", context.resultVisitorType())
+        .build();
+  }
+
   private MethodSpec parseMethodOverloadIterator() {
 
     ParameterSpec state = builder(context.parserStateType(), "state").build();
-    ParameterSpec it = builder(STRING_ITERATOR, "it").build();
+    ParameterSpec it = builder(IndexedValues.iteratorType(context), "it").build();
     ParameterSpec option = builder(context.optionType(), "option").build();
     ParameterSpec token = builder(STRING, "token").build();
     ParameterSpec position = builder(INT, "position").build();
 
     CodeBlock.Builder code = CodeBlock.builder();
-    code.addStatement("$T $N = $L", position.type, position, 0);
-    code.addStatement("$T $N = new $T()", state.type, state, state.type);
+    CodeBlock parsing = context.isSharedRuntime() ?
+        sharedRuntimeParsing(state, it) :
+        parsingLoop(state, it, option, token, position);
+    if (!context.isSharedRuntime()) {
+      code.addStatement("$T $N = $L", position.type, position, 0);
+    }
+    if (context.isStructuredErrors()) {
+      parsing = CodeBlock.builder()
+          .addStatement("$N.setSource($N)", state, it)
+          .add(parsing)
+          .build();
+    }
+    if (context.isReuseParserState()) {
+      code.addStatement("$T $N = $N.get().acquire()", state.type, state, reusableState);
+      code.beginControlFlow("try")
+          .add(parsing)
+          .endControlFlow();
+      code.beginControlFlow("finally")
+          .addStatement("$N.release()", state)
+          .endControlFlow();
+    } else {
+      code.addStatement("$T $N = new $T()", state.type, state, state.type);
+      code.add(parsing);
+    }
+
+    return MethodSpec.methodBuilder("parseTokens")
+        .addParameter(it)
+        .addCode(code.build())
+        .addModifiers(PRIVATE)
+        .returns(context.sourceType())
+        .build();
+  }
+
+  /**
+   * With structured errors, the exceptions of the parse engine are converted.
+   */
+  private CodeBlock sharedRuntimeParsing(ParameterSpec state, ParameterSpec it) {
+    CodeBlock.Builder code = CodeBlock.builder();
+    if (!context.isStructuredErrors()) {
+      return code.addStatement(parserState.engineParseStatement(state, it))
+          .addStatement("return $N.build()", state)
+          .build();
+    }
+    ParameterSpec e = builder(PARSE_EXCEPTION, "e").build();
+    return code.beginControlFlow("try")
+        .addStatement(parserState.engineParseStatement(state, it))
+        .nextControlFlow("catch ($T $N)", e.type, e)
+        .addStatement("throw new $T($T.valueOf($N.getKind().name()),\n$>$N.getOption() == null ? null : $T.valueOf($N.getOption()),\n$N.getToken(), null, -1)$<",
+            context.parseErrorType(), context.errorKindType(), e, e, context.optionType(), e, e)
+        .endControlFlow()
+        .addStatement("return $N.build()", state)
+        .build();
+  }
 
+  private CodeBlock parsingLoop(
+      ParameterSpec state,
+      ParameterSpec it,
+      ParameterSpec option,
+      ParameterSpec token,
+      ParameterSpec position) {
+    CodeBlock.Builder code = CodeBlock.builder();
     // begin parsing loop
     code.beginControlFlow("while ($N.hasNext())", it);
 
@@ -471,36 +989,31 @@ public final class GeneratedClass {
     }
 
     if (!context.options().isEmpty()) {
-      code.addStatement("$T $N = $N.$N($N)", context.optionType(), option, state, parserState.tryReadOption(), token);
+      code.addStatement("$T $N = $T.$N($N)", context.optionType(), option, context.optionType(), optionEnum.tryReadOptionMethod(), token);
       code.beginControlFlow("if ($N != null)", option)
-          .addStatement("$N.$N.get($N).read($N, $N, $N)", state, parserState.parsersField(), option, option, token, it)
+          .addStatement(parserState.readOptionStatement(state, option, token, it))
           .addStatement("continue")
           .endControlFlow();
     }
 
     // handle unknown token
     code.add("if (!$N.isEmpty() && $N.charAt(0) == '-')\n", token, token).indent()
-        .addStatement(throwInvalidOptionStatement(token, "Invalid option"))
+        .addStatement(throwTokenErrorStatement(ParseError.Kind.INVALID_OPTION, token))
         .unindent();
 
-    code.add("if ($N >= $N.$N.size())\n", position, state, parserState.positionalParsersField()).indent()
-        .addStatement(throwInvalidOptionStatement(token, "Excess param"))
+    code.add("if ($N >= $L)\n", position, parserState.paramCountExpression(state)).indent()
+        .addStatement(throwTokenErrorStatement(ParseError.Kind.EXCESS_PARAM, token))
         .unindent();
 
     if (!context.params().isEmpty()) {
-      code.addStatement("$N += $N.$N.get($N).read($N)", position, state, parserState.positionalParsersField(), position, token);
+      code.add(parserState.streamRemainingCode(state, position, token, it));
+      code.addStatement("$N += $L", position, parserState.readParamExpression(state, position, token));
     }
 
     // end parsing loop
     code.endControlFlow();
 
     code.addStatement("return $N.build()", state);
-
-    return MethodSpec.methodBuilder("parse")
-        .addParameter(it)
-        .addCode(code.build())
-        .addModifiers(PRIVATE)
-        .returns(context.sourceType())
-        .build();
+    return code.build();
   }
 }
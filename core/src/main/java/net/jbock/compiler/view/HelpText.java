@@ -0,0 +1,364 @@
+package net.jbock.compiler.view;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import net.jbock.compiler.Context;
+import net.jbock.compiler.Subcommand;
+import net.jbock.compiler.parameter.Parameter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.squareup.javapoet.ParameterSpec.builder;
+import static com.squareup.javapoet.TypeName.INT;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.lang.model.element.Modifier.VOLATILE;
+import static net.jbock.compiler.Constants.ENTRY_STRING_STRING;
+import static net.jbock.compiler.Constants.HELP_RENDERER;
+import static net.jbock.compiler.Constants.STRING;
+import static net.jbock.compiler.Constants.STRING_TO_STRING_MAP;
+
+/**
+ * Renders the online help.
+ * If there are no messages, and the line width is the default,
+ * the help text is known at compile time, and becomes a constant.
+ * Otherwise it is rendered at runtime, and cached until the
+ * line width or the messages change.
+ *
+ * @see GeneratedClass
+ */
+final class HelpText {
+
+  static final int DEFAULT_WRAP_AFTER = 80;
+
+  private static final String IS_SEPARATOR = "isSeparator";
+
+  private static final String COMMANDS = "Commands:";
+
+  // a string constant is limited to 65535 bytes of modified UTF-8
+  private static final int MAX_CONSTANT_BYTES = 65535;
+
+  private final Context context;
+  private final FieldSpec maxLineWidth;
+  private final FieldSpec messages;
+  private final FieldSpec bundle;
+  private final FieldSpec renderedHelp;
+  private final ClassName renderedHelpType;
+  private final Optional<FieldSpec> defaultHelp;
+
+  HelpText(Context context, FieldSpec maxLineWidth, FieldSpec messages, FieldSpec bundle) {
+    this.context = context;
+    this.maxLineWidth = maxLineWidth;
+    this.messages = messages;
+    this.bundle = bundle;
+    this.renderedHelpType = context.generatedClass().nestedClass("RenderedHelp");
+    this.renderedHelp = renderedHelpField(context, renderedHelpType);
+    this.defaultHelp = defaultHelp();
+  }
+
+  /**
+   * An immutable parser may be shared between threads, so the cache is volatile.
+   * Racing threads may both render the help, but they render the same text.
+   * A mutable parser is not thread-safe anyway, so a plain field is enough there.
+   * Either way, a reader never sees a half-built entry, because all fields of
+   * {@code RenderedHelp} are final.
+   */
+  private static FieldSpec renderedHelpField(Context context, ClassName renderedHelpType) {
+    FieldSpec.Builder spec = FieldSpec.builder(renderedHelpType, "renderedHelp", PRIVATE);
+    if (context.isImmutable()) {
+      spec.addModifiers(VOLATILE);
+    }
+    return spec.build();
+  }
+
+  /**
+   * The synopsis, which is the same for all instances of the parser.
+   */
+  static String synopsis(Context context) {
+    List<String> result = new ArrayList<>();
+    result.add(context.programName());
+    if (context.options().stream().anyMatch(p -> !p.isRequired())) {
+      result.add("[options...]");
+    }
+    for (Parameter option : context.options()) {
+      if (option.isRequired()) {
+        result.add(String.format("%s <%s>", option.dashedNames().get(0),
+            option.enumConstant().toLowerCase(Locale.US)));
+      }
+    }
+    for (Parameter param : context.params()) {
+      if (param.isOptional()) {
+        result.add("[<" + param.enumName().snake() + ">]");
+      } else if (param.isRequired()) {
+        result.add("<" + param.enumName().snake() + ">");
+      } else if (param.isRepeatable()) {
+        result.add("<" + param.enumName().snake() + ">...");
+      } else {
+        throw new AssertionError("all cases handled (param can't be flag)");
+      }
+    }
+    return String.join(" ", result);
+  }
+
+  /**
+   * The width of the first column, including 2 space padding on both sides.
+   */
+  static int keyWidth(Context context) {
+    int totalPadding = 4;
+    return Stream.concat(
+        context.parameters().stream().map(Parameter::sample),
+        context.subcommands().stream().map(Subcommand::name))
+        .mapToInt(String::length).max().orElse(0) + totalPadding;
+  }
+
+  private static String keyFormat(Context context) {
+    return "  %1$-" + (keyWidth(context) - 2) + "s";
+  }
+
+  List<FieldSpec> fields() {
+    List<FieldSpec> result = new ArrayList<>();
+    defaultHelp.ifPresent(result::add);
+    result.add(renderedHelp);
+    return result;
+  }
+
+  private Optional<FieldSpec> defaultHelp() {
+    String text = renderDefault();
+    if (modifiedUtf8Length(text) > MAX_CONSTANT_BYTES) {
+      return Optional.empty();
+    }
+    return Optional.of(FieldSpec.builder(STRING, "DEFAULT_HELP", PRIVATE, STATIC, FINAL)
+        .initializer("$S", text)
+        .build());
+  }
+
+  /**
+   * Holds the help text together with the configuration it was rendered for.
+   */
+  TypeSpec renderedHelpType() {
+    FieldSpec width = FieldSpec.builder(INT, maxLineWidth.name, FINAL).build();
+    FieldSpec map = FieldSpec.builder(STRING_TO_STRING_MAP, messages.name, FINAL).build();
+    FieldSpec text = FieldSpec.builder(STRING, "text", FINAL).build();
+    return TypeSpec.classBuilder(renderedHelpType)
+        .addModifiers(PRIVATE, STATIC, FINAL)
+        .addField(width)
+        .addField(map)
+        .addField(text)
+        .addMethod(MethodSpec.constructorBuilder()
+            .addParameter(width.type, width.name)
+            .addParameter(map.type, map.name)
+            .addParameter(text.type, text.name)
+            .addStatement("this.$N = $N", width, width)
+            .addStatement("this.$N = $N", map, map)
+            .addStatement("this.$N = $N", text, text)
+            .build())
+        .build();
+  }
+
+  /**
+   * Returns the help text, rendering it only if the configuration has changed.
+   */
+  MethodSpec helpMethod() {
+    ParameterSpec cached = builder(renderedHelpType, "cached").build();
+    ParameterSpec sb = builder(StringBuilder.class, "sb").build();
+    ParameterSpec row = builder(ENTRY_STRING_STRING, "row").build();
+    ParameterSpec text = builder(STRING, "text").build();
+    ParameterSpec resolved = builder(STRING_TO_STRING_MAP, "resolved").build();
+    CodeBlock.Builder code = CodeBlock.builder();
+    defaultHelp.ifPresent(field -> code
+        .add("if ($N == $L && $N == null && $N.isEmpty() && $S.equals($T.lineSeparator()))\n",
+            maxLineWidth, DEFAULT_WRAP_AFTER, bundle, messages, "\n", System.class).indent()
+        .addStatement("return $N", field).unindent());
+    code.addStatement("$T $N = messages()", resolved.type, resolved);
+    code.addStatement("$T $N = $N", cached.type, cached, renderedHelp);
+    code.add("if ($N != null && $N.$N == $N && $N.$N == $N)\n",
+        cached, cached, maxLineWidth, maxLineWidth, cached, messages, resolved).indent()
+        .addStatement("return $N.text", cached).unindent();
+    code.addStatement("$T $N = new $T()", sb.type, sb, StringBuilder.class);
+    code.addStatement("appendWrap($N, 8, $S, $S)", sb, "", "Usage: " + synopsis(context));
+    code.beginControlFlow("for ($T $N : buildRows())", row.type, row)
+        .addStatement("appendWrap($N, $L, $T.format($S, $N.getKey()), $N.getValue())",
+            sb, keyWidth(context), STRING, keyFormat(context), row, row)
+        .endControlFlow();
+    code.add(subcommandRows(sb));
+    code.addStatement("$T $N = $N.toString()", STRING, text, sb);
+    code.addStatement("$N = new $T($N, $N, $N)", renderedHelp, renderedHelpType, maxLineWidth, resolved, text);
+    code.addStatement("return $N", text);
+    return MethodSpec.methodBuilder("help")
+        .addModifiers(PRIVATE)
+        .returns(STRING)
+        .addCode(code.build())
+        .build();
+  }
+
+  /**
+   * The subcommands are listed from constants, so their classes are not loaded.
+   */
+  private CodeBlock subcommandRows(ParameterSpec sb) {
+    CodeBlock.Builder code = CodeBlock.builder();
+    if (context.subcommands().isEmpty()) {
+      return code.build();
+    }
+    code.addStatement("appendWrap($N, 8, $S, $S)", sb, "", COMMANDS);
+    for (Subcommand subcommand : context.subcommands()) {
+      code.addStatement("appendWrap($N, $L, $S, $S)", sb, keyWidth(context),
+          String.format(keyFormat(context), subcommand.name()), subcommand.description());
+    }
+    return code.build();
+  }
+
+  /**
+   * Wraps the input in a single pass, without regular expressions.
+   * The tokens are separated by the same characters as the regex {@code \s}.
+   */
+  MethodSpec appendWrapMethod() {
+    ParameterSpec out = builder(StringBuilder.class, "out").build();
+    ParameterSpec continuationIndent = builder(INT, "continuationIndent").build();
+    ParameterSpec init = builder(STRING, "init").build();
+    ParameterSpec input = builder(STRING, "input").build();
+    if (context.isSharedRuntime()) {
+      return MethodSpec.methodBuilder("appendWrap")
+          .addModifiers(PRIVATE)
+          .addParameters(Arrays.asList(out, continuationIndent, init, input))
+          .addStatement("$T.appendWrap($N, $N, $N, $N, $N)", HELP_RENDERER, out, maxLineWidth, continuationIndent, init, input)
+          .build();
+    }
+    ParameterSpec trim = builder(STRING, "trim").build();
+    ParameterSpec lineStart = builder(INT, "lineStart").build();
+    ParameterSpec lineLength = builder(INT, "lineLength").build();
+    ParameterSpec start = builder(INT, "start").build();
+    ParameterSpec end = builder(INT, "end").build();
+    ParameterSpec i = builder(INT, "i").build();
+    CodeBlock.Builder code = CodeBlock.builder();
+    code.beginControlFlow("if ($N.isEmpty())", input)
+        .addStatement("$T $N = $N.trim()", STRING, trim, init)
+        .addStatement("$N.append($N, 0, $N.indexOf($N)).append($N).append($T.lineSeparator())",
+            out, init, init, trim, trim, System.class)
+        .addStatement("return")
+        .endControlFlow();
+    code.addStatement("$T $N = $N.length()", INT, lineStart, out);
+    code.addStatement("$N.append($N)", out, init);
+    code.addStatement("$T $N = 0", INT, start);
+    code.beginControlFlow("while (true)");
+    code.addStatement("$T $N = $N", INT, end, start);
+    code.add("while ($N < $N.length() && !$N($N.charAt($N)))\n", end, input, IS_SEPARATOR, input, end).indent()
+        .addStatement("$N++", end).unindent();
+    code.addStatement("$T $N = $N.length() - $N", INT, lineLength, out, lineStart);
+    code.beginControlFlow("if ($N - $N + $N + 1 > $N)", end, start, lineLength, maxLineWidth);
+    code.beginControlFlow("if ($N == 0)", lineLength)
+        .addStatement("$N.append($N, $N, $N).append($T.lineSeparator())", out, input, start, end, System.class)
+        .addStatement("$N = $N.length()", lineStart, out)
+        .endControlFlow();
+    code.beginControlFlow("else")
+        .addStatement("$N.append($T.lineSeparator())", out, System.class)
+        .addStatement("$N = $N.length()", lineStart, out)
+        .add("for ($T $N = 0; $N < $N; $N++)\n", INT, i, i, continuationIndent, i).indent()
+        .addStatement("$N.append(' ')", out).unindent()
+        .addStatement("$N.append($N, $N, $N)", out, input, start, end)
+        .endControlFlow();
+    code.endControlFlow();
+    code.beginControlFlow("else")
+        .add("if ($N > 0 && !$T.isWhitespace($N.charAt($N.length() - 1)))\n",
+            lineLength, Character.class, out, out).indent()
+        .addStatement("$N.append(' ')", out).unindent()
+        .addStatement("$N.append($N, $N, $N)", out, input, start, end)
+        .endControlFlow();
+    code.add("if ($N == $N.length())\n", end, input).indent()
+        .addStatement("break").unindent();
+    code.addStatement("$N = $N", start, end);
+    code.add("while ($N < $N.length() && $N($N.charAt($N)))\n", start, input, IS_SEPARATOR, input, start).indent()
+        .addStatement("$N++", start).unindent();
+    code.endControlFlow();
+    code.add("if ($N.length() > $N)\n", out, lineStart).indent()
+        .addStatement("$N.append($T.lineSeparator())", out, System.class).unindent();
+    return MethodSpec.methodBuilder("appendWrap")
+        .addModifiers(PRIVATE)
+        .addParameters(Arrays.asList(out, continuationIndent, init, input))
+        .addCode(code.build())
+        .build();
+  }
+
+  static MethodSpec isSeparatorMethod() {
+    ParameterSpec c = builder(TypeName.CHAR, "c").build();
+    return MethodSpec.methodBuilder(IS_SEPARATOR)
+        .addModifiers(PRIVATE, STATIC)
+        .addParameter(c)
+        .returns(TypeName.BOOLEAN)
+        .addStatement("return $N == ' ' || $N == '\\t' || $N == '\\n' || $N == '\\u000b' || $N == '\\f' || $N == '\\r'",
+            c, c, c, c, c, c)
+        .build();
+  }
+
+  /**
+   * Renders the help for the default line width, without messages.
+   * This must give the same result as the generated {@code help} method.
+   */
+  private String renderDefault() {
+    StringBuilder out = new StringBuilder();
+    wrap(out, 8, "", "Usage: " + synopsis(context));
+    String format = keyFormat(context);
+    int width = keyWidth(context);
+    for (Parameter param : context.parameters()) {
+      String message = String.join(" ", param.description()).trim();
+      wrap(out, width, String.format(format, param.sample()), message);
+    }
+    if (!context.subcommands().isEmpty()) {
+      wrap(out, 8, "", COMMANDS);
+    }
+    for (Subcommand subcommand : context.subcommands()) {
+      wrap(out, width, String.format(format, subcommand.name()), subcommand.description());
+    }
+    return out.toString();
+  }
+
+  private static void wrap(StringBuilder out, int continuationIndent, String init, String input) {
+    if (input.isEmpty()) {
+      String trim = init.trim();
+      out.append(init, 0, init.indexOf(trim)).append(trim).append('\n');
+      return;
+    }
+    StringBuilder sb = new StringBuilder(init);
+    for (String token : input.split("\\s+", -1)) {
+      if (token.length() + sb.length() + 1 > DEFAULT_WRAP_AFTER) {
+        if (sb.length() == 0) {
+          out.append(token).append('\n');
+        } else {
+          out.append(sb).append('\n');
+          sb.setLength(0);
+          for (int i = 0; i < continuationIndent; i++) {
+            sb.append(' ');
+          }
+          sb.append(token);
+        }
+      } else {
+        if (sb.length() > 0 && !Character.isWhitespace(sb.charAt(sb.length() - 1))) {
+          sb.append(' ');
+        }
+        sb.append(token);
+      }
+    }
+    if (sb.length() > 0) {
+      out.append(sb).append('\n');
+    }
+  }
+
+  private static int modifiedUtf8Length(String s) {
+    int result = 0;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      result += c != 0 && c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+    }
+    return result;
+  }
+}
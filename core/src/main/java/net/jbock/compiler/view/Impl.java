@@ -1,15 +1,30 @@
 package net.jbock.compiler.view;
 
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
+import net.jbock.coerce.Util;
 import net.jbock.compiler.Context;
 import net.jbock.compiler.parameter.Parameter;
 
+import java.util.Iterator;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
 import static javax.lang.model.element.Modifier.STATIC;
+import static javax.lang.model.element.Modifier.VOLATILE;
+import static net.jbock.compiler.Constants.STRING_ITERABLE;
+import static net.jbock.compiler.Constants.STRING_ITERATOR;
 
 /**
  * Defines the *_Impl inner class.
@@ -18,33 +33,174 @@ import static javax.lang.model.element.Modifier.STATIC;
  */
 final class Impl {
 
-  static TypeSpec define(Context context) {
+  static TypeSpec define(Context context, ValueCache valueCache) {
     TypeSpec.Builder spec = TypeSpec.classBuilder(context.implType())
         .superclass(context.sourceType());
     for (Parameter param : context.parameters()) {
-      spec.addField(FieldSpec.builder(param.returnType(), param.enumName().camel()).build());
+      if (param.coercion().isLazySequence()) {
+        spec.addField(tokensField(context, param));
+      } else if (isLazy(context, param)) {
+        spec.addField(tokensField(context, param));
+        spec.addField(cacheField(context, param));
+      } else if (isPrimitiveStream(param)) {
+        spec.addField(arrayField(param));
+      } else {
+        spec.addField(FieldSpec.builder(param.returnType(), param.enumName().camel()).build());
+      }
     }
     return spec.addModifiers(PRIVATE, STATIC)
         .addMethod(implConstructor(context))
         .addMethods(context.parameters().stream()
-            .map(Impl::parameterMethodOverride)
+            .map(param -> parameterMethodOverride(context, valueCache, param))
             .collect(Collectors.toList()))
         .build();
   }
 
-  private static MethodSpec parameterMethodOverride(Parameter param) {
-    return MethodSpec.methodBuilder(param.methodName())
+  private static MethodSpec parameterMethodOverride(Context context, ValueCache valueCache, Parameter param) {
+    MethodSpec.Builder spec = MethodSpec.methodBuilder(param.methodName())
         .returns(param.returnType())
-        .addModifiers(param.getAccessModifiers())
-        .addStatement("return $N", FieldSpec.builder(param.returnType(), param.enumName().camel()).build())
+        .addModifiers(param.getAccessModifiers());
+    if (param.coercion().isLazySequence()) {
+      return spec.addCode(lazySequenceAccessorCode(context, param)).build();
+    }
+    if (isLazy(context, param)) {
+      return spec.addCode(lazyAccessorCode(context, valueCache, param)).build();
+    }
+    if (isPrimitiveStream(param)) {
+      ParameterSpec array = param.coercion().constructorParam();
+      return spec.addStatement("$T $N = this.$N", array.type, array, arrayField(param))
+          .addStatement("return $L", param.coercion().extractExpr())
+          .build();
+    }
+    return spec.addStatement("return $N", FieldSpec.builder(param.returnType(), param.enumName().camel()).build())
+        .build();
+  }
+
+  /**
+   * Maps the tokens on first access, and caches the result.
+   * The mapped value is never {@code null}, so {@code null} means "not mapped yet".
+   * In synchronized mode, this is double-checked locking on a volatile field.
+   */
+  private static CodeBlock lazyAccessorCode(Context context, ValueCache valueCache, Parameter param) {
+    ParameterSpec result = param.coercion().constructorParam();
+    FieldSpec tokens = tokensField(context, param);
+    FieldSpec cache = cacheField(context, param);
+    CodeBlock.Builder code = CodeBlock.builder();
+    code.addStatement("$T $N = this.$N", result.type, result, cache);
+    code.beginControlFlow("if ($N == null)", result);
+    if (context.isSynchronizedCoercion()) {
+      code.beginControlFlow("synchronized (this)");
+      code.addStatement("$N = this.$N", result, cache);
+      code.beginControlFlow("if ($N == null)", result);
+    }
+    if (valueCache.isCached(param)) {
+      code.addStatement("$N = $T.$L(this.$N, $L)", result, context.parserStateType(),
+          ParserState.extractMethodName(param), tokens, valueCache.cacheExpr(param, true));
+    } else {
+      code.addStatement("$N = $T.$L(this.$N)", result, context.parserStateType(),
+          ParserState.extractMethodName(param), tokens);
+    }
+    code.addStatement("this.$N = $N", cache, result);
+    if (context.isSynchronizedCoercion()) {
+      code.endControlFlow();
+      code.endControlFlow();
+    }
+    code.endControlFlow();
+    return code.addStatement("return $L", param.coercion().extractExpr()).build();
+  }
+
+  /**
+   * Returns a new {@code Stream} or {@code Iterator} on each invocation.
+   * Each token is mapped when it is consumed, so a mapping error is thrown by the consumer.
+   * For the streamed param, the second invocation throws an {@link IllegalStateException}.
+   */
+  private static CodeBlock lazySequenceAccessorCode(Context context, Parameter param) {
+    TypeName mappedType = param.coercion().mappedType();
+    ParameterSpec mapper = ParameterSpec.builder(Util.mapperType(mappedType), "mapper").build();
+    FieldSpec tokens = tokensField(context, param);
+    CodeBlock.Builder code = CodeBlock.builder();
+    code.addStatement("$T $N = $L", mapper.type, mapper, MapperHolder.mapExpr(context, param));
+    if (param.returnType() instanceof ParameterizedTypeName
+        && ((ParameterizedTypeName) param.returnType()).rawType.equals(ClassName.get(Stream.class))) {
+      if (tokens.type.equals(STRING_ITERABLE)) {
+        return code.addStatement("return $T.stream(this.$N.spliterator(), false).map($N)",
+            StreamSupport.class, tokens, mapper).build();
+      }
+      return code.addStatement("return this.$N.stream().map($N)", tokens, mapper).build();
+    }
+    ParameterSpec it = ParameterSpec.builder(STRING_ITERATOR, "it").build();
+    TypeSpec iterator = TypeSpec.anonymousClassBuilder("")
+        .addSuperinterface(ParameterizedTypeName.get(ClassName.get(Iterator.class), mappedType))
+        .addMethod(MethodSpec.methodBuilder("hasNext")
+            .addAnnotation(Override.class)
+            .addModifiers(PUBLIC)
+            .returns(TypeName.BOOLEAN)
+            .addStatement("return $N.hasNext()", it)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("next")
+            .addAnnotation(Override.class)
+            .addModifiers(PUBLIC)
+            .returns(mappedType)
+            .addStatement("return $N.apply($N.next())", mapper, it)
+            .build())
         .build();
+    code.addStatement("$T $N = this.$N.iterator()", it.type, it, tokens);
+    return code.addStatement("return $L", iterator).build();
   }
 
   private static MethodSpec implConstructor(Context context) {
     MethodSpec.Builder spec = MethodSpec.constructorBuilder();
     for (Parameter p : context.parameters()) {
-      spec.addStatement("this.$N = $L", FieldSpec.builder(p.returnType(), p.enumName().camel()).build(), p.coercion().extractExpr());
-      spec.addParameter(p.coercion().constructorParam());
+      if (p.coercion().isLazySequence() || isLazy(context, p)) {
+        FieldSpec tokens = tokensField(context, p);
+        spec.addStatement("this.$N = $N", tokens, tokens);
+        spec.addParameter(tokens.type, tokens.name);
+      } else if (isPrimitiveStream(p)) {
+        ParameterSpec array = p.coercion().constructorParam();
+        spec.addStatement("this.$N = $N", arrayField(p), array);
+        spec.addParameter(array);
+      } else {
+        spec.addStatement("this.$N = $L", FieldSpec.builder(p.returnType(), p.enumName().camel()).build(), p.coercion().extractExpr());
+        spec.addParameter(p.coercion().constructorParam());
+      }
+    }
+    return spec.build();
+  }
+
+  private static boolean isLazy(Context context, Parameter param) {
+    return context.isLazyCoercion() && !param.isFlag();
+  }
+
+  /**
+   * A primitive stream can only be consumed once,
+   * so the array is stored, and the accessor returns a new stream on each invocation.
+   * This is the only case where the constructor param is an array, but the return type is not.
+   */
+  private static boolean isPrimitiveStream(Parameter param) {
+    TypeName arrayType = param.coercion().constructorParam().type;
+    return arrayType instanceof ArrayTypeName && !arrayType.equals(param.returnType());
+  }
+
+  private static FieldSpec arrayField(Parameter param) {
+    return FieldSpec.builder(param.coercion().constructorParam().type, param.enumName().camel(), PRIVATE, FINAL).build();
+  }
+
+  /**
+   * The tokens of the streamed param may still be in the input,
+   * so they are only known to be {@code Iterable}.
+   * With {@code structuredErrors}, the tokens keep their indexes.
+   */
+  private static FieldSpec tokensField(Context context, Parameter param) {
+    TypeName type = context.streamedParam().filter(param::equals).isPresent() ? STRING_ITERABLE : IndexedValues.valuesType(context);
+    return FieldSpec.builder(type, param.enumName().camel(), PRIVATE, FINAL).build();
+  }
+
+  // the camel name never contains an underscore, so this can't clash with another field
+  private static FieldSpec cacheField(Context context, Parameter param) {
+    FieldSpec.Builder spec = FieldSpec.builder(param.coercion().constructorParam().type,
+        param.enumName().camel() + "_", PRIVATE);
+    if (context.isSynchronizedCoercion()) {
+      spec.addModifiers(VOLATILE);
     }
     return spec.build();
   }
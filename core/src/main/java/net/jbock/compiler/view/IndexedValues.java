@@ -0,0 +1,164 @@
+package net.jbock.compiler.view;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import net.jbock.compiler.Context;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+
+import static com.squareup.javapoet.MethodSpec.methodBuilder;
+import static javax.lang.model.element.Modifier.ABSTRACT;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.lang.model.element.Modifier.TRANSIENT;
+import static net.jbock.compiler.Constants.LIST_OF_STRING;
+import static net.jbock.compiler.Constants.STRING;
+import static net.jbock.compiler.Constants.STRING_ITERATOR;
+
+/**
+ * Defines the inner interface IndexedIterator and the inner class IndexedValues,
+ * if the command has {@code structuredErrors}.
+ * Each value remembers the index of the token that it was read from,
+ * so that a mapper failure can report that index.
+ *
+ * @see ParseError
+ */
+final class IndexedValues {
+
+  private final Context context;
+
+  private final FieldSpec source;
+  private final FieldSpec indexes = FieldSpec.builder(int[].class, "indexes", PRIVATE).build();
+
+  IndexedValues(Context context) {
+    this.context = context;
+    this.source = FieldSpec.builder(context.indexedIteratorType(), "source", TRANSIENT).build();
+  }
+
+  /**
+   * @return the type of the tokens of a parameter
+   */
+  static TypeName valuesType(Context context) {
+    return context.isStructuredErrors() ? context.indexedValuesType() : LIST_OF_STRING;
+  }
+
+  /**
+   * @return an expression that creates an empty list of tokens
+   */
+  static CodeBlock newValues(Context context) {
+    if (context.isStructuredErrors()) {
+      return CodeBlock.of("new $T()", context.indexedValuesType());
+    }
+    return CodeBlock.of("new $T<>()", ArrayList.class);
+  }
+
+  /**
+   * @return an expression that copies the given tokens, and their indexes
+   */
+  static CodeBlock copyValues(Context context, CodeBlock values) {
+    if (context.isStructuredErrors()) {
+      return CodeBlock.of("$L.copy()", values);
+    }
+    return CodeBlock.of("new $T<>($L)", ArrayList.class, values);
+  }
+
+  /**
+   * @return the type of the iterator that the parsing loop reads from
+   */
+  static TypeName iteratorType(Context context) {
+    return context.isStructuredErrors() ? context.indexedIteratorType() : STRING_ITERATOR;
+  }
+
+  List<TypeSpec> define() {
+    if (!context.isStructuredErrors()) {
+      return new ArrayList<>();
+    }
+    return Arrays.asList(defineIterator(), defineValues());
+  }
+
+  private TypeSpec defineIterator() {
+    return TypeSpec.interfaceBuilder(context.indexedIteratorType())
+        .addSuperinterface(STRING_ITERATOR)
+        .addModifiers(PRIVATE)
+        .addMethod(methodBuilder("previousIndex")
+            .addJavadoc("The index of the last token, as in {@link $T#previousIndex()}.\n", ListIterator.class)
+            .addModifiers(PUBLIC, ABSTRACT)
+            .returns(TypeName.INT)
+            .build())
+        .build();
+  }
+
+  private TypeSpec defineValues() {
+    return TypeSpec.classBuilder(context.indexedValuesType())
+        .superclass(ParameterizedTypeName.get(ArrayList.class, String.class))
+        .addModifiers(PRIVATE, STATIC, FINAL)
+        .addField(FieldSpec.builder(TypeName.LONG, "serialVersionUID", PRIVATE, STATIC, FINAL)
+            .initializer("1L")
+            .build())
+        .addField(source)
+        .addField(indexes)
+        .addMethod(addMethod())
+        .addMethod(indexMethod())
+        .addMethod(copyMethod())
+        .build();
+  }
+
+  /**
+   * The index array grows with the list, and is kept when the list is cleared.
+   */
+  private MethodSpec addMethod() {
+    ParameterSpec value = ParameterSpec.builder(STRING, "value").build();
+    CodeBlock code = CodeBlock.builder()
+        .beginControlFlow("if ($N == null)", indexes)
+        .addStatement("$N = new int[4]", indexes)
+        .nextControlFlow("else if (size() == $N.length)", indexes)
+        .addStatement("$N = $T.copyOf($N, 2 * $N.length)", indexes, Arrays.class, indexes, indexes)
+        .endControlFlow()
+        .addStatement("$N[size()] = $N == null ? -1 : $N.previousIndex()", indexes, source, source)
+        .addStatement("return super.add($N)", value)
+        .build();
+    return methodBuilder("add")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .addParameter(value)
+        .returns(TypeName.BOOLEAN)
+        .addCode(code)
+        .build();
+  }
+
+  /**
+   * @return the index of the token of the {@code i}-th value, or {@code -1} if there is no such value
+   */
+  private MethodSpec indexMethod() {
+    ParameterSpec i = ParameterSpec.builder(TypeName.INT, "i").build();
+    return methodBuilder("index")
+        .addParameter(i)
+        .returns(TypeName.INT)
+        .addStatement("return $N < size() ? $N[$N] : -1", i, indexes, i)
+        .build();
+  }
+
+  /**
+   * A copy that is detached from the source, for a reused parser state.
+   */
+  private MethodSpec copyMethod() {
+    ParameterSpec copy = ParameterSpec.builder(context.indexedValuesType(), "copy").build();
+    return methodBuilder("copy")
+        .returns(context.indexedValuesType())
+        .addStatement("$T $N = new $T()", copy.type, copy, copy.type)
+        .addStatement("$N.addAll(this)", copy)
+        .addStatement("$N.$N = $N == null ? null : $N.clone()", copy, indexes, indexes, indexes)
+        .addStatement("return $N", copy)
+        .build();
+  }
+}
@@ -0,0 +1,85 @@
+package net.jbock.compiler.view;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import net.jbock.coerce.Util;
+import net.jbock.compiler.Context;
+import net.jbock.compiler.parameter.Parameter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.lang.model.element.Modifier.VOLATILE;
+
+/**
+ * Defines a holder class for each shared mapper.
+ * The mapper is created the first time it is used.
+ * It is not created in a static initializer, because a failure there
+ * would be an {@link ExceptionInInitializerError}, and the holder class would be unusable afterwards.
+ * Instead, a failure is reported like any other mapper failure, and the next parse tries again.
+ *
+ * @see GeneratedClass
+ */
+final class MapperHolder {
+
+  private static final String INSTANCE = "instance";
+  private static final String GET = "get";
+
+  static List<TypeSpec> define(Context context) {
+    List<TypeSpec> result = new ArrayList<>();
+    for (Parameter param : context.parameters()) {
+      if (!param.coercion().isSharedMapper()) {
+        continue;
+      }
+      ClassName holderType = holderType(context, param);
+      TypeName mapperType = Util.mapperType(param.coercion().mappedType());
+      FieldSpec instance = FieldSpec.builder(mapperType, INSTANCE)
+          .addModifiers(PRIVATE, STATIC, VOLATILE)
+          .build();
+      ParameterSpec mapper = ParameterSpec.builder(mapperType, "mapper").build();
+      MethodSpec get = MethodSpec.methodBuilder(GET)
+          .addModifiers(STATIC)
+          .returns(mapperType)
+          .addStatement("$T $N = $N", mapper.type, mapper, instance)
+          .addCode(CodeBlock.builder()
+              .add("if ($N != null)\n", mapper).indent()
+              .addStatement("return $N", mapper).unindent()
+              .build())
+          .beginControlFlow("synchronized ($T.class)", holderType)
+          .addCode(CodeBlock.builder()
+              .add("if ($N == null)\n", instance).indent()
+              .addStatement("$N = $L", instance, param.coercion().mapExpr()).unindent()
+              .build())
+          .addStatement("return $N", instance)
+          .endControlFlow()
+          .build();
+      result.add(TypeSpec.classBuilder(holderType)
+          .addModifiers(PRIVATE, STATIC, FINAL)
+          .addField(instance)
+          .addMethod(get)
+          .build());
+    }
+    return result;
+  }
+
+  static CodeBlock mapExpr(Context context, Parameter param) {
+    if (!param.coercion().isSharedMapper()) {
+      return param.coercion().mapExpr();
+    }
+    return CodeBlock.of("$T.$L()", holderType(context, param), GET);
+  }
+
+  private static ClassName holderType(Context context, Parameter param) {
+    String camel = param.enumName().camel();
+    return context.generatedClass().nestedClass(
+        Character.toUpperCase(camel.charAt(0)) + camel.substring(1) + "MapperHolder");
+  }
+}
@@ -12,12 +12,13 @@ import net.jbock.compiler.parameter.Parameter;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import static com.squareup.javapoet.ParameterSpec.builder;
+import static com.squareup.javapoet.TypeName.INT;
 import static com.squareup.javapoet.TypeSpec.anonymousClassBuilder;
 import static java.util.Arrays.asList;
 import static java.util.Collections.nCopies;
@@ -43,7 +44,7 @@ final class OptionEnum {
 
   private final FieldSpec bundleKeyField;
 
-  private final MethodSpec optionNamesMethod;
+  private final MethodSpec tryReadOptionMethod;
 
   private final MethodSpec optionParsersMethod;
 
@@ -52,12 +53,12 @@ final class OptionEnum {
   private final FieldSpec shapeField;
 
   private OptionEnum(Context context, FieldSpec bundleKeyField, FieldSpec descriptionField, FieldSpec namesField,
-                     MethodSpec optionNamesMethod, MethodSpec optionParsersMethod, FieldSpec shapeField, MethodSpec paramParsersMethod) {
+                     MethodSpec tryReadOptionMethod, MethodSpec optionParsersMethod, FieldSpec shapeField, MethodSpec paramParsersMethod) {
     this.context = context;
     this.bundleKeyField = bundleKeyField;
     this.descriptionField = descriptionField;
     this.namesField = namesField;
-    this.optionNamesMethod = optionNamesMethod;
+    this.tryReadOptionMethod = tryReadOptionMethod;
     this.optionParsersMethod = optionParsersMethod;
     this.shapeField = shapeField;
     this.paramParsersMethod = paramParsersMethod;
@@ -68,11 +69,11 @@ final class OptionEnum {
     FieldSpec bundleKeyField = FieldSpec.builder(STRING, "bundleKey").build();
     FieldSpec descriptionField = FieldSpec.builder(LIST_OF_STRING, "description").build();
     FieldSpec shapeField = FieldSpec.builder(STRING, "shape").build();
-    MethodSpec optionNamesMethod = optionNamesMethod(context.optionType(), namesField);
+    MethodSpec tryReadOptionMethod = tryReadOptionMethod(context);
     MethodSpec optionParsersMethod = optionParsersMethod(context);
     MethodSpec paramParsersMethod = paramParsersMethod(context);
 
-    return new OptionEnum(context, bundleKeyField, descriptionField, namesField, optionNamesMethod,
+    return new OptionEnum(context, bundleKeyField, descriptionField, namesField, tryReadOptionMethod,
         optionParsersMethod, shapeField, paramParsersMethod);
   }
 
@@ -83,17 +84,26 @@ final class OptionEnum {
       String enumConstant = param.enumConstant();
       spec.addEnumConstant(enumConstant, optionEnumConstant(param));
     }
-    return spec.addModifiers(PRIVATE)
-        .addField(namesField)
+    if (context.isStructuredErrors()) {
+      // ParsingFailed#getOption
+      spec.addModifiers(context.getAccessModifiers());
+    } else {
+      spec.addModifiers(PRIVATE);
+    }
+    spec.addField(namesField)
         .addField(bundleKeyField)
         .addField(descriptionField)
         .addField(shapeField)
         .addMethod(missingRequiredMethod())
-        .addMethod(privateConstructor())
-        .addMethod(optionNamesMethod)
-        .addMethod(optionParsersMethod)
-        .addMethod(paramParsersMethod)
-        .build();
+        .addMethod(privateConstructor());
+    if (!context.isSharedRuntime()) {
+      spec.addMethod(tryReadOptionMethod);
+    }
+    if (!context.isCompact()) {
+      spec.addMethod(optionParsersMethod)
+          .addMethod(paramParsersMethod);
+    }
+    return spec.build();
   }
 
   private TypeSpec optionEnumConstant(Parameter param) {
@@ -141,25 +151,102 @@ final class OptionEnum {
         String.join(",$W", nCopies(strings.size(), "$S"))), args);
   }
 
-  private static MethodSpec optionNamesMethod(ClassName optionType, FieldSpec namesField) {
-    ParameterSpec result = builder(mapOf(STRING, optionType), "result").build();
-    ParameterSpec option = builder(optionType, "option").build();
-    ParameterSpec name = builder(STRING, "name").build();
+  private static MethodSpec tryReadOptionMethod(Context context) {
+    ParameterSpec token = builder(STRING, "token").build();
+    ParameterSpec index = builder(INT, "index").build();
+    Map<Character, Parameter> mnemonics = new TreeMap<>();
+    Map<Integer, Map<String, Parameter>> longNames = new TreeMap<>();
+    for (Parameter option : context.options()) {
+      for (String name : option.dashedNames()) {
+        if (name.startsWith("--")) {
+          longNames.computeIfAbsent(name.length(), length -> new LinkedHashMap<>()).put(name, option);
+        } else {
+          mnemonics.put(name.charAt(1), option);
+        }
+      }
+    }
+
     CodeBlock.Builder code = CodeBlock.builder();
-    code.addStatement("$T $N = new $T<>($T.values().length)",
-        result.type, result, HashMap.class, option.type);
+    code.add("if ($N.length() <= 1 || $N.charAt(0) != '-')\n", token, token).indent()
+        .addStatement("return null").unindent();
+
+    if (mnemonics.isEmpty()) {
+      code.add("if ($N.charAt(1) != '-')\n", token).indent()
+          .addStatement("return null").unindent();
+    } else {
+      code.beginControlFlow("if ($N.charAt(1) != '-')", token);
+      code.beginControlFlow("switch ($N.charAt(1))", token);
+      for (Map.Entry<Character, Parameter> e : mnemonics.entrySet()) {
+        code.add("case $L:\n", charLiteral(e.getKey())).indent()
+            .addStatement("return $L", e.getValue().enumConstant()).unindent();
+      }
+      code.add("default:\n").indent()
+          .addStatement("return null").unindent();
+      code.endControlFlow();
+      code.endControlFlow();
+    }
 
-    code.add("for ($T $N : $T.values())\n", option.type, option, option.type).indent()
-        .addStatement("$N.$N.forEach($N -> $N.put($N, $N))", option, namesField, name, result, name, option)
-        .unindent();
-    code.addStatement("return $N", result);
+    code.addStatement("$T $N = $N.indexOf('=')", INT, index, token);
+    code.beginControlFlow("switch ($N < 0 ? $N.length() : $N)", index, token, index);
+    for (Map.Entry<Integer, Map<String, Parameter>> e : longNames.entrySet()) {
+      code.add("case $L:\n", e.getKey()).indent();
+      code.add(matchLongNames(token, e.getValue()));
+      code.unindent();
+    }
+    code.add("default:\n").indent()
+        .addStatement("return null").unindent();
+    code.endControlFlow();
 
-    return MethodSpec.methodBuilder("optionNames").returns(result.type)
+    return MethodSpec.methodBuilder("tryReadOption")
+        .addParameter(token)
+        .returns(context.optionType())
         .addCode(code.build())
         .addModifiers(STATIC)
         .build();
   }
 
+  /**
+   * All names in the bucket have the same length,
+   * so a successful {@code startsWith} is an exact match of the name part of the token.
+   * If there are several candidates, first switch on the character after the leading dashes.
+   */
+  private static CodeBlock matchLongNames(ParameterSpec token, Map<String, Parameter> bucket) {
+    CodeBlock.Builder code = CodeBlock.builder();
+    if (bucket.size() == 1) {
+      code.add(startsWithStatements(token, bucket));
+      return code.addStatement("return null").build();
+    }
+    Map<Character, Map<String, Parameter>> byFirstChar = new TreeMap<>();
+    bucket.forEach((name, option) -> byFirstChar.computeIfAbsent(name.charAt(2), c -> new LinkedHashMap<>()).put(name, option));
+    code.beginControlFlow("switch ($N.charAt(2))", token);
+    for (Map.Entry<Character, Map<String, Parameter>> e : byFirstChar.entrySet()) {
+      code.add("case $L:\n", charLiteral(e.getKey())).indent()
+          .add(startsWithStatements(token, e.getValue()))
+          .addStatement("return null")
+          .unindent();
+    }
+    code.add("default:\n").indent()
+        .addStatement("return null").unindent();
+    return code.endControlFlow().build();
+  }
+
+  private static CodeBlock startsWithStatements(ParameterSpec token, Map<String, Parameter> names) {
+    CodeBlock.Builder code = CodeBlock.builder();
+    names.forEach((name, option) -> code.add("if ($N.startsWith($S))\n", token, name).indent()
+        .addStatement("return $L", option.enumConstant()).unindent());
+    return code.build();
+  }
+
+  private static String charLiteral(char c) {
+    if (c == '\'' || c == '\\') {
+      return "'\\" + c + "'";
+    }
+    if (c < 0x20 || c > 0x7e) {
+      return String.format("'\\u%04x'", (int) c);
+    }
+    return "'" + c + "'";
+  }
+
   private static MethodSpec optionParsersMethod(Context context) {
     ParameterSpec parsers = builder(mapOf(context.optionType(), context.optionParserType()), "parsers").build();
 
@@ -243,17 +330,14 @@ final class OptionEnum {
   }
 
   private MethodSpec missingRequiredMethod() {
-    CodeBlock.Builder code = CodeBlock.builder()
-        .add("return new $T($S + name() +\n", RuntimeException.class, "Missing required: ").indent()
-        .addStatement("(names.isEmpty() ? $S : $S + $T.join($S, names) + $S))", "", " (", String.class, ", ", ")").unindent();
     return MethodSpec.methodBuilder("missingRequired")
         .returns(RuntimeException.class)
-        .addCode(code.build())
+        .addStatement("return $L", ParseError.exception(context, ParseError.Kind.MISSING_REQUIRED, CodeBlock.of("this"), null))
         .build();
   }
 
-  MethodSpec optionNamesMethod() {
-    return optionNamesMethod;
+  MethodSpec tryReadOptionMethod() {
+    return tryReadOptionMethod;
   }
 
   MethodSpec optionParsersMethod() {
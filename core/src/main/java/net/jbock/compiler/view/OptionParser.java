@@ -15,10 +15,8 @@ import static com.squareup.javapoet.ParameterSpec.builder;
 import static java.util.Arrays.asList;
 import static javax.lang.model.element.Modifier.PRIVATE;
 import static javax.lang.model.element.Modifier.STATIC;
-import static net.jbock.compiler.Constants.LIST_OF_STRING;
 import static net.jbock.compiler.Constants.STRING;
 import static net.jbock.compiler.Constants.STRING_ITERATOR;
-import static net.jbock.compiler.view.ParserState.throwRepetitionErrorStatement;
 
 /**
  * Generates the inner class OptionParser and its subtypes.
@@ -26,8 +24,8 @@ import static net.jbock.compiler.view.ParserState.throwRepetitionErrorStatement;
 final class OptionParser {
 
   static List<TypeSpec> define(Context context) {
-    FieldSpec values = FieldSpec.builder(LIST_OF_STRING, "values")
-        .initializer("new $T<>()", ArrayList.class)
+    FieldSpec values = FieldSpec.builder(IndexedValues.valuesType(context), "values")
+        .initializer(IndexedValues.newValues(context))
         .build();
     List<TypeSpec> result = new ArrayList<>();
     result.add(TypeSpec.classBuilder(context.optionParserType())
@@ -64,7 +62,7 @@ final class OptionParser {
     ParameterSpec option = builder(context.optionType(), "option").build();
     CodeBlock.Builder code = CodeBlock.builder();
     code.add("if (!values.isEmpty())\n").indent()
-        .addStatement(throwRepetitionErrorStatement(option))
+        .addStatement(ParseError.throwStatement(context, ParseError.Kind.REPEATED_OPTION, CodeBlock.of("$N", option), CodeBlock.of("$N", token)))
         .unindent();
 
     code.addStatement("super.read($N, $N, $N)", option, token, it);
@@ -82,10 +80,10 @@ final class OptionParser {
     CodeBlock.Builder code = CodeBlock.builder();
 
     code.add("if ($N.charAt(1) != '-' && $N.length() > 2 || $N.contains($S))\n", token, token, token, "=").indent()
-        .addStatement("throw new $T($S + $N)", RuntimeException.class, "Invalid token: ", token)
+        .addStatement(ParseError.throwStatement(context, ParseError.Kind.INVALID_TOKEN, CodeBlock.of("$N", option), CodeBlock.of("$N", token)))
         .unindent();
     code.add("if (!values.isEmpty())\n").indent()
-        .addStatement(throwRepetitionErrorStatement(option))
+        .addStatement(ParseError.throwStatement(context, ParseError.Kind.REPEATED_OPTION, CodeBlock.of("$N", option), CodeBlock.of("$N", token)))
         .unindent();
     code.addStatement("values.add($S)", "");
     return MethodSpec.methodBuilder("read")
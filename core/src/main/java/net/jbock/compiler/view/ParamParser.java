@@ -12,7 +12,6 @@ import java.util.List;
 
 import static javax.lang.model.element.Modifier.PRIVATE;
 import static javax.lang.model.element.Modifier.STATIC;
-import static net.jbock.compiler.Constants.LIST_OF_STRING;
 import static net.jbock.compiler.Constants.STRING;
 
 /**
@@ -21,8 +20,8 @@ import static net.jbock.compiler.Constants.STRING;
 final class ParamParser {
 
   static List<TypeSpec> define(Context context) {
-    FieldSpec values = FieldSpec.builder(LIST_OF_STRING, "values")
-        .initializer("new $T<>()", ArrayList.class)
+    FieldSpec values = FieldSpec.builder(IndexedValues.valuesType(context), "values")
+        .initializer(IndexedValues.newValues(context))
         .build();
     List<TypeSpec> result = new ArrayList<>();
     result.add(TypeSpec.classBuilder(context.repeatableParamParserType())
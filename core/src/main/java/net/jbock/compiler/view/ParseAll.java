@@ -0,0 +1,210 @@
+package net.jbock.compiler.view;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import net.jbock.compiler.Context;
+
+import javax.lang.model.element.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+import static com.squareup.javapoet.MethodSpec.constructorBuilder;
+import static com.squareup.javapoet.MethodSpec.methodBuilder;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PROTECTED;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.lang.model.element.Modifier.TRANSIENT;
+import static net.jbock.compiler.Constants.STRING_ARRAY;
+
+/**
+ * Defines the {@code parseAll} methods and the inner class ParseAllChunk,
+ * if the command has {@code batchParsing}.
+ * The input is split into a few chunks per core, so that a slow chunk
+ * does not leave the other cores idle for long.
+ * The first chunk runs in the calling thread.
+ * In a {@code ForkJoinPool}, the chunks are forked and joined, so a waiting caller does not block the pool.
+ *
+ * @see GeneratedClass
+ */
+final class ParseAll {
+
+  private static final int CHUNKS_PER_CORE = 4;
+
+  private final Context context;
+
+  private final FieldSpec parser;
+  private final FieldSpec argvs = FieldSpec.builder(ArrayTypeName.of(STRING_ARRAY), "argvs", PRIVATE, FINAL, TRANSIENT).build();
+  private final FieldSpec results;
+  private final FieldSpec from = FieldSpec.builder(TypeName.INT, "from", PRIVATE, FINAL, TRANSIENT).build();
+  private final FieldSpec to = FieldSpec.builder(TypeName.INT, "to", PRIVATE, FINAL, TRANSIENT).build();
+
+  ParseAll(Context context) {
+    this.context = context;
+    this.parser = FieldSpec.builder(context.generatedClass(), "parser", PRIVATE, FINAL, TRANSIENT).build();
+    this.results = FieldSpec.builder(ArrayTypeName.of(context.parseResultType()), "results", PRIVATE, FINAL, TRANSIENT).build();
+  }
+
+  List<MethodSpec> methods(Modifier[] accessModifiers) {
+    return Arrays.asList(
+        parseAllMethod(accessModifiers),
+        parseAllStreamMethod(accessModifiers),
+        parseAllExecutorMethod(accessModifiers));
+  }
+
+  private TypeName resultListType() {
+    return ParameterizedTypeName.get(ClassName.get(List.class), context.parseResultType());
+  }
+
+  private TypeName argvListType() {
+    return ParameterizedTypeName.get(ClassName.get(List.class), STRING_ARRAY);
+  }
+
+  private MethodSpec parseAllMethod(Modifier[] accessModifiers) {
+    ParameterSpec argvsParam = ParameterSpec.builder(argvListType(), "argvs").build();
+    return methodBuilder("parseAll")
+        .addParameter(argvsParam)
+        .returns(resultListType())
+        .addStatement("return parseAll($N, $T.commonPool())", argvsParam, ForkJoinPool.class)
+        .addModifiers(accessModifiers)
+        .addJavadoc("Parses each of the command lines, in parallel on the common {@link $T}.\n" +
+            "See {@link #parseAll($T, $T)}.\n", ForkJoinPool.class, List.class, Executor.class)
+        .build();
+  }
+
+  private MethodSpec parseAllStreamMethod(Modifier[] accessModifiers) {
+    ParameterSpec argvsParam = ParameterSpec.builder(
+        ParameterizedTypeName.get(ClassName.get(Stream.class), STRING_ARRAY), "argvs").build();
+    ParameterSpec list = ParameterSpec.builder(argvListType(), "list").build();
+    ParameterSpec it = ParameterSpec.builder(
+        ParameterizedTypeName.get(ClassName.get(Iterator.class), STRING_ARRAY), "it").build();
+    return methodBuilder("parseAll")
+        .addParameter(argvsParam)
+        .returns(resultListType())
+        .addStatement("$T $N = new $T<>()", list.type, list, ArrayList.class)
+        .addStatement("$T $N = $N.iterator()", it.type, it, argvsParam)
+        .addCode(CodeBlock.builder()
+            .add("while ($N.hasNext())\n", it).indent()
+            .addStatement("$N.add($N.next())", list, it).unindent()
+            .build())
+        .addStatement("return parseAll($N)", list)
+        .addModifiers(accessModifiers)
+        .addJavadoc("Collects the command lines, and then parses them like {@link #parseAll($T)}.\n",
+            List.class)
+        .build();
+  }
+
+  /**
+   * If the calling thread is a worker of the given pool, the chunks are forked and joined,
+   * so the caller runs the chunks that no other worker has taken.
+   * This also covers {@link #parseAll(List)} when it is called from a task in the common pool,
+   * for example in a parallel stream, where a blocking wait could starve the pool.
+   * Otherwise, the caller joins the chunks, which waits uninterruptibly.
+   * If the caller is a worker of a different {@code ForkJoinPool},
+   * that pool is compensated while the caller waits.
+   */
+  private MethodSpec parseAllExecutorMethod(Modifier[] accessModifiers) {
+    ParameterSpec argvsParam = ParameterSpec.builder(argvListType(), "argvs").build();
+    ParameterSpec executor = ParameterSpec.builder(Executor.class, "executor").build();
+    ParameterSpec array = ParameterSpec.builder(argvs.type, "array").build();
+    ParameterSpec resultArray = ParameterSpec.builder(results.type, "results").build();
+    ParameterSpec chunkCount = ParameterSpec.builder(TypeName.INT, "chunkCount").build();
+    ParameterSpec chunks = ParameterSpec.builder(ArrayTypeName.of(context.parseAllChunkType()), "chunks").build();
+    ParameterSpec i = ParameterSpec.builder(TypeName.INT, "i").build();
+    ParameterSpec chunk = ParameterSpec.builder(context.parseAllChunkType(), "chunk").build();
+    CodeBlock.Builder code = CodeBlock.builder();
+    code.addStatement("$T $N = $N.toArray(new $T[0][])", array.type, array, argvsParam, String.class);
+    code.addStatement("$T $N = new $T[$N.length]", resultArray.type, resultArray, context.parseResultType(), array);
+    code.addStatement("$T $N = $T.min($N.length, $L * $T.getRuntime().availableProcessors())",
+        chunkCount.type, chunkCount, Math.class, array, CHUNKS_PER_CORE, Runtime.class);
+    code.beginControlFlow("if ($N <= 1)", chunkCount)
+        .add("for ($T $N = 0; $N < $N.length; $N++)\n", i.type, i, i, array, i).indent()
+        .addStatement("$N[$N] = parse($N[$N])", resultArray, i, array, i).unindent()
+        .addStatement("return $T.asList($N)", Arrays.class, resultArray)
+        .endControlFlow();
+    code.addStatement("$T $N = new $T[$N]", chunks.type, chunks, context.parseAllChunkType(), chunkCount);
+    code.add("for ($T $N = 0; $N < $N; $N++)\n", i.type, i, i, chunkCount, i).indent()
+        .addStatement("$N[$N] = new $T(this, $N, $N,\n$>(int) ((long) $N * $N.length / $N),\n" +
+                "(int) ((long) ($N + 1) * $N.length / $N))$<", chunks, i, context.parseAllChunkType(),
+            array, resultArray, i, array, chunkCount, i, array, chunkCount)
+        .unindent();
+    code.beginControlFlow("if ($T.getPool() == $N)", ForkJoinTask.class, executor)
+        .addStatement("$T.invokeAll($N)", ForkJoinTask.class, chunks)
+        .addStatement("return $T.asList($N)", Arrays.class, resultArray)
+        .endControlFlow();
+    code.add("for ($T $N = 1; $N < $N; $N++)\n", i.type, i, i, chunkCount, i).indent()
+        .addStatement("$N.execute($N[$N])", executor, chunks, i).unindent();
+    code.addStatement("$N[0].quietlyInvoke()", chunks);
+    code.add("for ($T $N : $N)\n", chunk.type, chunk, chunks).indent()
+        .addStatement("$N.join()", chunk).unindent();
+    code.addStatement("return $T.asList($N)", Arrays.class, resultArray);
+    MethodSpec.Builder spec = methodBuilder("parseAll")
+        .addParameter(argvsParam)
+        .addParameter(executor)
+        .returns(resultListType())
+        .addCode(code.build())
+        .addModifiers(accessModifiers)
+        .addJavadoc("Parses each of the command lines, and returns the results in the same order.\n" +
+            "The command lines are split into chunks, which run on the executor.\n" +
+            "The first chunk runs in the calling thread.\n" +
+            "This method returns when all chunks are done.\n" +
+            "It may be called from a task that runs on the same {@link $T}.\n", ForkJoinPool.class);
+    if (!context.isImmutable()) {
+      spec.addJavadoc("The parser must not be reconfigured while this method runs.\n");
+    }
+    return spec.build();
+  }
+
+  /**
+   * The chunk is a {@link RecursiveAction}, so that it can be forked and joined in a {@link ForkJoinPool}.
+   * It is also a {@link Runnable}, for any other executor.
+   * The fields are transient, because the task is never serialized.
+   */
+  TypeSpec defineChunk() {
+    ParameterSpec i = ParameterSpec.builder(TypeName.INT, "i").build();
+    List<FieldSpec> fields = Arrays.asList(parser, argvs, results, from, to);
+    MethodSpec.Builder constructor = constructorBuilder();
+    for (FieldSpec field : fields) {
+      constructor.addParameter(field.type, field.name)
+          .addStatement("this.$N = $N", field, field);
+    }
+    CodeBlock compute = CodeBlock.builder()
+        .add("for ($T $N = $N; $N < $N; $N++)\n", i.type, i, from, i, to, i).indent()
+        .addStatement("$N[$N] = $N.parse($N[$N])", results, i, parser, argvs, i).unindent()
+        .build();
+    return TypeSpec.classBuilder(context.parseAllChunkType())
+        .superclass(RecursiveAction.class)
+        .addSuperinterface(Runnable.class)
+        .addModifiers(PRIVATE, STATIC, FINAL)
+        .addField(FieldSpec.builder(TypeName.LONG, "serialVersionUID", PRIVATE, STATIC, FINAL)
+            .initializer("1L").build())
+        .addFields(fields)
+        .addMethod(constructor.build())
+        .addMethod(methodBuilder("compute")
+            .addAnnotation(Override.class)
+            .addModifiers(PROTECTED)
+            .addCode(compute)
+            .build())
+        .addMethod(methodBuilder("run")
+            .addAnnotation(Override.class)
+            .addModifiers(PUBLIC)
+            .addStatement("quietlyInvoke()")
+            .build())
+        .build();
+  }
+}
@@ -0,0 +1,198 @@
+package net.jbock.compiler.view;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import net.jbock.compiler.Context;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.squareup.javapoet.MethodSpec.constructorBuilder;
+import static com.squareup.javapoet.MethodSpec.methodBuilder;
+import static com.squareup.javapoet.ParameterSpec.builder;
+import static com.squareup.javapoet.TypeSpec.classBuilder;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static net.jbock.coerce.Util.addBreaks;
+import static net.jbock.coerce.Util.concat;
+import static net.jbock.compiler.Constants.STRING;
+
+/**
+ * Defines the inner class ParseError and the inner enum ErrorKind,
+ * if the command has {@code structuredErrors}.
+ * A ParseError has no stack trace, and renders its message on demand.
+ * Without {@code structuredErrors}, a parse error is a {@link RuntimeException}
+ * with the same message.
+ */
+final class ParseError {
+
+  /**
+   * The kinds of parse errors.
+   */
+  enum Kind {
+
+    EXCESS_PARAM, INVALID_OPTION, MISSING_VALUE, INVALID_TOKEN, REPEATED_OPTION, MISSING_REQUIRED, INVALID_VALUE;
+
+    /**
+     * @param context the command context; in fast startup mode, {@code +} is avoided
+     * @param option an expression of the option type
+     * @param token an expression of type {@code String}
+     * @return an expression that renders the message
+     */
+    CodeBlock message(Context context, CodeBlock option, CodeBlock token) {
+      if (context.isFastStartup()) {
+        return plainMessage(option, token);
+      }
+      return message(option, token);
+    }
+
+    private CodeBlock message(CodeBlock option, CodeBlock token) {
+      switch (this) {
+        case EXCESS_PARAM:
+          return CodeBlock.of("$S + $L", "Excess param: ", token);
+        case INVALID_OPTION:
+          return CodeBlock.of("$S + $L", "Invalid option: ", token);
+        case MISSING_VALUE:
+          return CodeBlock.of("$S + $L", "Missing value after token: ", token);
+        case INVALID_TOKEN:
+          return CodeBlock.of("$S + $L", "Invalid token: ", token);
+        case REPEATED_OPTION:
+          return CodeBlock.of(addBreaks("$T.format($S, $L, $T.join($S, $L.names))"),
+              String.class, "Option %s (%s) is not repeatable", option, String.class, ", ", option);
+        case MISSING_REQUIRED:
+          return CodeBlock.of("$S + $L.name() +\n$>($L.names.isEmpty() ? $S : $S + $T.join($S, $L.names) + $S)$<",
+              "Missing required: ", option, option, "", " (", String.class, ", ", option, ")");
+        default:
+          throw new AssertionError("no static message: " + this);
+      }
+    }
+
+    private CodeBlock plainMessage(CodeBlock option, CodeBlock token) {
+      switch (this) {
+        case EXCESS_PARAM:
+          return concat(CodeBlock.of("$S", "Excess param: "), token);
+        case INVALID_OPTION:
+          return concat(CodeBlock.of("$S", "Invalid option: "), token);
+        case MISSING_VALUE:
+          return concat(CodeBlock.of("$S", "Missing value after token: "), token);
+        case INVALID_TOKEN:
+          return concat(CodeBlock.of("$S", "Invalid token: "), token);
+        case REPEATED_OPTION:
+          return message(option, token);
+        case MISSING_REQUIRED:
+          return concat(CodeBlock.of("$S", "Missing required: "), CodeBlock.of("$L.name()", option),
+              CodeBlock.of("($L.names.isEmpty() ? $S : $L)", option, "",
+                  concat(CodeBlock.of("$S", " ("), CodeBlock.of("$T.join($S, $L.names)", String.class, ", ", option),
+                      CodeBlock.of("$S", ")"))));
+        default:
+          throw new AssertionError("no static message: " + this);
+      }
+    }
+  }
+
+  private final Context context;
+
+  private final FieldSpec kind;
+  private final FieldSpec option;
+  private final FieldSpec token;
+
+  // the index of the failing value, if there is no offending token
+  private final FieldSpec index = FieldSpec.builder(TypeName.INT, "index", FINAL).build();
+
+  ParseError(Context context) {
+    this.context = context;
+    this.kind = FieldSpec.builder(context.errorKindType(), "kind", FINAL).build();
+    this.option = FieldSpec.builder(context.optionType(), "option", FINAL).build();
+    this.token = FieldSpec.builder(STRING, "token", FINAL).build();
+  }
+
+  /**
+   * @return an expression that creates the exception for a parse error
+   */
+  static CodeBlock exception(Context context, Kind kind, CodeBlock option, CodeBlock token) {
+    if (!context.isStructuredErrors()) {
+      return CodeBlock.of("new $T($L)", RuntimeException.class, kind.message(context, option, token));
+    }
+    return CodeBlock.of("new $T($T.$L, $L, $L, null, -1)", context.parseErrorType(), context.errorKindType(), kind,
+        option == null ? "null" : option, token == null ? "null" : token);
+  }
+
+  static CodeBlock throwStatement(Context context, Kind kind, CodeBlock option, CodeBlock token) {
+    return CodeBlock.of("throw $L", exception(context, kind, option, token));
+  }
+
+  List<TypeSpec> define() {
+    List<TypeSpec> result = new ArrayList<>();
+    if (!context.isStructuredErrors()) {
+      return result;
+    }
+    TypeSpec.Builder errorKind = TypeSpec.enumBuilder(context.errorKindType())
+        .addJavadoc("The kinds of parse errors.\n")
+        .addModifiers(context.getAccessModifiers());
+    for (Kind k : Kind.values()) {
+      errorKind.addEnumConstant(k.name());
+    }
+    result.add(errorKind.build());
+    result.add(classBuilder(context.parseErrorType())
+        .superclass(RuntimeException.class)
+        .addField(FieldSpec.builder(TypeName.LONG, "serialVersionUID", PRIVATE, STATIC, FINAL)
+            .initializer("1L")
+            .build())
+        .addFields(Arrays.asList(kind, option, token, index))
+        .addMethod(constructor())
+        .addMethod(getMessageMethod())
+        .addModifiers(PRIVATE, STATIC, FINAL)
+        .build());
+    return result;
+  }
+
+  /**
+   * The stack trace is not captured.
+   */
+  private MethodSpec constructor() {
+    ParameterSpec kindParam = builder(kind.type, kind.name).build();
+    ParameterSpec optionParam = builder(option.type, option.name).build();
+    ParameterSpec tokenParam = builder(token.type, token.name).build();
+    ParameterSpec cause = builder(RuntimeException.class, "cause").build();
+    ParameterSpec indexParam = builder(index.type, index.name).build();
+    return constructorBuilder()
+        .addParameters(Arrays.asList(kindParam, optionParam, tokenParam, cause, indexParam))
+        .addStatement("super(null, $N, false, false)", cause)
+        .addStatement("this.$N = $N", kind, kindParam)
+        .addStatement("this.$N = $N", option, optionParam)
+        .addStatement("this.$N = $N", token, tokenParam)
+        .addStatement("this.$N = $N", index, indexParam)
+        .build();
+  }
+
+  private MethodSpec getMessageMethod() {
+    CodeBlock.Builder code = CodeBlock.builder().beginControlFlow("switch ($N)", kind);
+    CodeBlock optionExpr = CodeBlock.of("$N", option);
+    CodeBlock tokenExpr = CodeBlock.of("$N", token);
+    for (Kind k : Kind.values()) {
+      if (k == Kind.INVALID_VALUE) {
+        continue;
+      }
+      code.add("case $L:\n", k).indent()
+          .addStatement("return $L", k.message(context, optionExpr, tokenExpr))
+          .unindent();
+    }
+    code.add("default:\n").indent()
+        .addStatement("return getCause().getMessage()")
+        .unindent();
+    code.endControlFlow();
+    return methodBuilder("getMessage")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(STRING)
+        .addCode(code.build())
+        .build();
+  }
+}
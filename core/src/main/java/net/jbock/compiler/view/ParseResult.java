@@ -1,13 +1,16 @@
 package net.jbock.compiler.view;
 
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import net.jbock.compiler.Context;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.squareup.javapoet.MethodSpec.constructorBuilder;
@@ -57,6 +60,9 @@ final class ParseResult {
   }
 
   private TypeSpec defineErrorResult() {
+    if (context.isStructuredErrors()) {
+      return defineStructuredErrorResult();
+    }
     ParameterSpec paramError = builder(RuntimeException.class, "error").build();
     FieldSpec fieldError = FieldSpec.builder(paramError.type, paramError.name, PRIVATE, FINAL).build();
     return classBuilder(context.parsingFailedType())
@@ -77,6 +83,67 @@ final class ParseResult {
         .build();
   }
 
+  /**
+   * The exception for {@code getError} is created on demand.
+   */
+  private TypeSpec defineStructuredErrorResult() {
+    ParameterSpec paramParseError = builder(context.parseErrorType(), "parseError").build();
+    ParameterSpec paramTokenIndex = builder(TypeName.INT, "tokenIndex").build();
+    FieldSpec fieldParseError = FieldSpec.builder(paramParseError.type, paramParseError.name, PRIVATE, FINAL).build();
+    FieldSpec fieldTokenIndex = FieldSpec.builder(paramTokenIndex.type, paramTokenIndex.name, PRIVATE, FINAL).build();
+    FieldSpec fieldError = FieldSpec.builder(RuntimeException.class, "error", PRIVATE).build();
+    CodeBlock getError = CodeBlock.builder()
+        .beginControlFlow("if ($N == null)", fieldError)
+        .addStatement("$N = $N.getCause() != null ? ($T) $N.getCause() : new $T($N.getMessage())", fieldError,
+            fieldParseError, RuntimeException.class, fieldParseError, RuntimeException.class, fieldParseError)
+        .endControlFlow()
+        .addStatement("return $N", fieldError)
+        .build();
+    return classBuilder(context.parsingFailedType())
+        .superclass(context.parseResultType())
+        .addFields(Arrays.asList(fieldParseError, fieldTokenIndex, fieldError))
+        .addMethod(constructorBuilder()
+            .addModifiers(PRIVATE)
+            .addParameters(Arrays.asList(paramParseError, paramTokenIndex))
+            .addStatement("this.$N = $N", fieldParseError, paramParseError)
+            .addStatement("this.$N = $N", fieldTokenIndex, paramTokenIndex)
+            .build())
+        .addModifiers(STATIC, FINAL)
+        .addModifiers(context.getAccessModifiers())
+        .addMethod(methodBuilder("getErrorKind")
+            .addStatement("return $N.kind", fieldParseError)
+            .addModifiers(context.getAccessModifiers())
+            .returns(context.errorKindType())
+            .build())
+        .addMethod(methodBuilder("getTokenIndex")
+            .addJavadoc("Returns the index of the offending token in the input array,\n" +
+                "or {@code -1} if the error was not caused by a particular token.\n" +
+                "If a mapper failed, this is the index of the token of the rejected value.\n")
+            .addStatement("return $N", fieldTokenIndex)
+            .addModifiers(context.getAccessModifiers())
+            .returns(TypeName.INT)
+            .build())
+        .addMethod(methodBuilder("getOption")
+            .addJavadoc("Returns the option or parameter that the error refers to, or {@code null}.\n")
+            .addStatement("return $N.option", fieldParseError)
+            .addModifiers(context.getAccessModifiers())
+            .returns(context.optionType())
+            .build())
+        .addMethod(methodBuilder("getMessage")
+            .addStatement("return $N.getMessage()", fieldParseError)
+            .addModifiers(context.getAccessModifiers())
+            .returns(String.class)
+            .build())
+        .addMethod(methodBuilder("getError")
+            .addJavadoc("Returns the mapper's exception if a mapper failed.\n" +
+                "Otherwise, an exception with the error message is created on first invocation.\n")
+            .addCode(getError)
+            .addModifiers(context.getAccessModifiers())
+            .returns(RuntimeException.class)
+            .build())
+        .build();
+  }
+
   private TypeSpec defineSuccessResult() {
     ParameterSpec paramResult = builder(result.type, result.name).build();
     return classBuilder(context.parsingSuccessType())
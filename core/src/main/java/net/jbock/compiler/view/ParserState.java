@@ -1,20 +1,33 @@
 package net.jbock.compiler.view;
 
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
+import net.jbock.coerce.Util;
 import net.jbock.compiler.Context;
 import net.jbock.compiler.parameter.Parameter;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
-import static com.squareup.javapoet.TypeName.INT;
+import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PRIVATE;
 import static javax.lang.model.element.Modifier.STATIC;
-import static net.jbock.coerce.Util.addBreaks;
+import static net.jbock.compiler.Constants.LIST_OF_STRING;
+import static net.jbock.compiler.Constants.PARSE_ENGINE;
 import static net.jbock.compiler.Constants.STRING;
+import static net.jbock.compiler.Constants.STRING_ITERATOR;
 import static net.jbock.compiler.Constants.listOf;
 import static net.jbock.compiler.Constants.mapOf;
 
@@ -23,31 +36,66 @@ import static net.jbock.compiler.Constants.mapOf;
  */
 final class ParserState {
 
-  private final Context context;
+  // compact mode: the kinds of parameters
+  private static final int FLAG = 0;
+  private static final int REGULAR = 1;
+  private static final int REPEATABLE = 2;
+
+  // a reused state drops a list that held more tokens than this, instead of keeping its capacity
+  private static final int MAX_RETAINED_TOKENS = 256;
 
-  private final FieldSpec optionNamesField;
+  private final Context context;
 
   private final FieldSpec optionParsersField;
 
   private final FieldSpec paramParsersField;
 
-  private final MethodSpec tryReadOptionMethod;
+  private final FieldSpec busyField = FieldSpec.builder(TypeName.BOOLEAN, "busy").build();
+
+  private final FieldSpec maxRetainedField = FieldSpec.builder(TypeName.INT, "MAX_RETAINED_TOKENS", PRIVATE, STATIC, FINAL)
+      .initializer("$L", MAX_RETAINED_TOKENS)
+      .build();
+
+  // the tokens of the streamed param, which are still in the input
+  private final FieldSpec restField;
+
+  // compact mode: the tokens of each parameter, indexed by ordinal
+  private final FieldSpec valuesField;
+
+  // compact mode: the kind of each parameter, indexed by ordinal
+  private final FieldSpec kindsField;
+
+  // compact mode: the ordinal of each positional parameter, indexed by position
+  private final FieldSpec paramsField;
 
-  private ParserState(Context context, FieldSpec optionNamesField, FieldSpec optionParsersField,
-                      FieldSpec paramParsersField, MethodSpec tryReadOptionMethod) {
+  private final ValueCache valueCache;
+
+  private ParserState(
+      Context context,
+      FieldSpec optionParsersField,
+      FieldSpec paramParsersField,
+      ValueCache valueCache) {
     this.context = context;
-    this.optionNamesField = optionNamesField;
+    this.valueCache = valueCache;
     this.optionParsersField = optionParsersField;
     this.paramParsersField = paramParsersField;
-    this.tryReadOptionMethod = tryReadOptionMethod;
+    this.restField = FieldSpec.builder(context.remainingTokensType(), "rest").build();
+    this.valuesField = FieldSpec.builder(ArrayTypeName.of(IndexedValues.valuesType(context)), "values", FINAL)
+        .initializer("newValues()")
+        .build();
+    this.kindsField = FieldSpec.builder(int[].class, "KINDS", PRIVATE, STATIC, FINAL)
+        .initializer("$L", intArray(context.parameters().stream()
+            .map(param -> kind(context, param))
+            .collect(Collectors.toList())))
+        .build();
+    this.paramsField = FieldSpec.builder(int[].class, "PARAMS", PRIVATE, STATIC, FINAL)
+        .initializer("$L", intArray(context.params().stream()
+            .map(param -> CodeBlock.of("$L", context.parameters().indexOf(param)))
+            .collect(Collectors.toList())))
+        .build();
   }
 
-  static ParserState create(Context context, OptionEnum optionEnum) {
-
-    // read-only lookups
-    FieldSpec optionNamesField = FieldSpec.builder(mapOf(STRING, context.optionType()), "optionNames")
-        .initializer("$T.$N()", context.optionType(), optionEnum.optionNamesMethod())
-        .build();
+  static ParserState create(Context context, OptionEnum optionEnum, ValueCache valueCache) {
 
     // stateful parsers
     FieldSpec optionParsersField = FieldSpec.builder(mapOf(context.optionType(), context.optionParserType()), "optionParsers")
@@ -58,96 +106,497 @@ final class ParserState {
         .initializer("$T.$N()", context.optionType(), optionEnum.paramParsersMethod())
         .build();
 
-    MethodSpec tryReadOptionMethod = tryReadOptionMethod(context, optionNamesField);
-
-    return new ParserState(context, optionNamesField, optionParsersField, paramParsersField, tryReadOptionMethod);
+    return new ParserState(context, optionParsersField, paramParsersField, valueCache);
   }
 
   TypeSpec define() {
-    return TypeSpec.classBuilder(context.parserStateType())
+    TypeSpec.Builder spec = TypeSpec.classBuilder(context.parserStateType())
         .addModifiers(PRIVATE, STATIC)
         .addMethod(buildMethod())
-        .addMethod(tryReadOptionMethod)
-        .addFields(Arrays.asList(optionNamesField, optionParsersField, paramParsersField))
+        .addMethods(context.parameters().stream()
+            .filter(param -> !param.coercion().isLazySequence())
+            .map(this::extractMethod)
+            .collect(Collectors.toList()));
+    if (context.isCompact()) {
+      defineCompact(spec);
+    } else {
+      spec.addFields(Arrays.asList(optionParsersField, paramParsersField));
+    }
+    if (context.streamedParam().isPresent()) {
+      spec.addField(restField);
+    }
+    if (!valueCache.isEmpty()) {
+      spec.addMethod(ValueCache.memoizeMethod(context));
+    }
+    if (context.isReuseParserState()) {
+      spec.addField(busyField)
+          .addField(maxRetainedField)
+          .addMethod(acquireMethod())
+          .addMethod(releaseMethod());
+    }
+    if (context.isStructuredErrors()) {
+      spec.addMethod(setSourceMethod());
+    }
+    return spec.build();
+  }
+
+  /**
+   * Returns this state if it is not in use, otherwise a fresh one.
+   * This handles the case where a mapper calls {@code parse} recursively.
+   */
+  private MethodSpec acquireMethod() {
+    CodeBlock.Builder code = CodeBlock.builder();
+    code.add("if ($N)\n", busyField).indent()
+        .addStatement("return new $T()", context.parserStateType()).unindent();
+    code.addStatement("$N = true", busyField);
+    code.addStatement("return this");
+    return MethodSpec.methodBuilder("acquire")
+        .addCode(code.build())
+        .returns(context.parserStateType())
         .build();
   }
 
-  private static MethodSpec tryReadOptionMethod(Context context, FieldSpec optionNamesField) {
-    ParameterSpec token = ParameterSpec.builder(STRING, "token").build();
-    ParameterSpec index = ParameterSpec.builder(INT, "index").build();
+  /**
+   * Instead of a parser object for each parameter, the tokens are stored in an array of lists.
+   * The kind of each parameter is looked up in an int table,
+   * because a switch on the enum itself would require a synthetic class.
+   */
+  private void defineCompact(TypeSpec.Builder spec) {
+    if (context.isSharedRuntime()) {
+      spec.addField(kindsField)
+          .addField(paramsField)
+          .addField(engineField())
+          .addField(valuesField)
+          .addMethod(newValuesMethod());
+      return;
+    }
+    spec.addField(FieldSpec.builder(TypeName.INT, "FLAG", PRIVATE, STATIC, FINAL).initializer("$L", FLAG).build())
+        .addField(FieldSpec.builder(TypeName.INT, "REGULAR", PRIVATE, STATIC, FINAL).initializer("$L", REGULAR).build())
+        .addField(FieldSpec.builder(TypeName.INT, "REPEATABLE", PRIVATE, STATIC, FINAL).initializer("$L", REPEATABLE).build())
+        .addField(kindsField)
+        .addField(valuesField)
+        .addMethod(newValuesMethod());
+    if (!context.options().isEmpty()) {
+      spec.addMethod(readOptionMethod());
+    }
+    if (!context.params().isEmpty()) {
+      spec.addField(paramsField)
+          .addMethod(readParamMethod());
+    }
+  }
+
+  private static CodeBlock kind(Context context, Parameter param) {
+    String kind = param.isFlag() ? "FLAG" : param.isRepeatable() ? "REPEATABLE" : "REGULAR";
+    if (context.isSharedRuntime()) {
+      return CodeBlock.of("$T.$L", PARSE_ENGINE, kind);
+    }
+    return CodeBlock.of("$L", kind);
+  }
+
+  /**
+   * The engine is created from the tables, and from the names of the options.
+   */
+  private FieldSpec engineField() {
+    List<CodeBlock> constants = new ArrayList<>();
+    List<CodeBlock> names = new ArrayList<>();
+    for (Parameter param : context.parameters()) {
+      constants.add(CodeBlock.of("$S", param.enumConstant()));
+      names.add(CodeBlock.of("{$L}", CodeBlock.join(param.dashedNames().stream()
+          .map(name -> CodeBlock.of("$S", name))
+          .collect(Collectors.toList()), ", ")));
+    }
+    return FieldSpec.builder(PARSE_ENGINE, "ENGINE", STATIC, FINAL)
+        .initializer("new $T(\n$>new $T[]{$L},\nnew $T[][]{$L},\n$N, $N)$<", PARSE_ENGINE,
+            String.class, CodeBlock.join(constants, ", "),
+            String.class, CodeBlock.join(names, ", "),
+            kindsField, paramsField)
+        .build();
+  }
+
+  private static CodeBlock intArray(List<CodeBlock> elements) {
+    return CodeBlock.of("{$L}", CodeBlock.join(elements, ", "));
+  }
+
+  /**
+   * With structured errors, the array is not generic.
+   */
+  private MethodSpec newValuesMethod() {
+    ParameterSpec values = ParameterSpec.builder(valuesField.type, "values").build();
+    ParameterSpec i = ParameterSpec.builder(TypeName.INT, "i").build();
+    TypeName rawType = context.isStructuredErrors() ? context.indexedValuesType() : ClassName.get(List.class);
+    CodeBlock code = CodeBlock.builder()
+        .addStatement("$T $N = new $T[$L]", values.type, values, rawType, context.parameters().size())
+        .add("for ($T $N = 0; $N < $N.length; $N++)\n", i.type, i, i, values, i).indent()
+        .addStatement("$N[$N] = $L", values, i, IndexedValues.newValues(context)).unindent()
+        .addStatement("return $N", values)
+        .build();
+    MethodSpec.Builder spec = MethodSpec.methodBuilder("newValues");
+    if (!context.isStructuredErrors()) {
+      spec.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+          .addMember("value", "{$S, $S}", "unchecked", "rawtypes")
+          .build());
+    }
+    return spec.addCode(code)
+        .returns(values.type)
+        .addModifiers(PRIVATE, STATIC)
+        .build();
+  }
 
+  /**
+   * Makes the values read the index of each token from the iterator.
+   */
+  private MethodSpec setSourceMethod() {
+    ParameterSpec source = ParameterSpec.builder(context.indexedIteratorType(), "source").build();
     CodeBlock.Builder code = CodeBlock.builder();
-    code.add("if ($N.length() <= 1 || $N.charAt(0) != '-')\n", token, token).indent()
-        .addStatement("return null").unindent();
+    if (context.isCompact()) {
+      ParameterSpec values = ParameterSpec.builder(context.indexedValuesType(), "values").build();
+      code.add("for ($T $N : this.$N)\n", values.type, values, valuesField).indent()
+          .addStatement("$N.source = $N", values, source).unindent();
+    } else {
+      ParameterSpec optionParser = ParameterSpec.builder(context.optionParserType(), "parser").build();
+      ParameterSpec paramParser = ParameterSpec.builder(context.repeatableParamParserType(), "parser").build();
+      code.add("for ($T $N : $N.values())\n", optionParser.type, optionParser, optionParsersField).indent()
+          .addStatement("$N.values.source = $N", optionParser, source).unindent();
+      code.add("for ($T $N : $N)\n", paramParser.type, paramParser, paramParsersField).indent()
+          .addStatement("$N.values.source = $N", paramParser, source).unindent();
+    }
+    return MethodSpec.methodBuilder("setSource")
+        .addParameter(source)
+        .addCode(code.build())
+        .build();
+  }
 
-    code.add("if ($N.charAt(1) != '-')\n", token).indent()
-        .addStatement("return $N.get($N.substring(0, 2))", optionNamesField, token).unindent();
+  private MethodSpec readOptionMethod() {
+    ParameterSpec option = ParameterSpec.builder(context.optionType(), "option").build();
+    ParameterSpec token = ParameterSpec.builder(STRING, "token").build();
+    ParameterSpec it = ParameterSpec.builder(STRING_ITERATOR, "it").build();
+    ParameterSpec tokens = ParameterSpec.builder(LIST_OF_STRING, "tokens").build();
+    CodeBlock repeated = ParseError.throwStatement(context, ParseError.Kind.REPEATED_OPTION,
+        CodeBlock.of("$N", option), CodeBlock.of("$N", token));
+    CodeBlock.Builder code = CodeBlock.builder();
+    code.addStatement("$T $N = $N[$N.ordinal()]", tokens.type, tokens, valuesField, option);
+    code.beginControlFlow("switch ($N[$N.ordinal()])", kindsField, option);
+    code.add("case FLAG:\n").indent();
+    code.add("if ($N.charAt(1) != '-' && $N.length() > 2 || $N.contains($S))\n", token, token, token, "=").indent()
+        .addStatement(ParseError.throwStatement(context, ParseError.Kind.INVALID_TOKEN,
+            CodeBlock.of("$N", option), CodeBlock.of("$N", token)))
+        .unindent();
+    code.add("if (!$N.isEmpty())\n", tokens).indent().addStatement(repeated).unindent();
+    code.addStatement("$N.add($S)", tokens, "");
+    code.addStatement("break").unindent();
+    code.add("case REGULAR:\n").indent();
+    code.add("if (!$N.isEmpty())\n", tokens).indent().addStatement(repeated).unindent();
+    code.addStatement("$N.add(readOptionArgument($N, $N))", tokens, token, it);
+    code.addStatement("break").unindent();
+    code.add("default:\n").indent();
+    code.addStatement("$N.add(readOptionArgument($N, $N))", tokens, token, it).unindent();
+    code.endControlFlow();
+    return MethodSpec.methodBuilder("read")
+        .addParameters(Arrays.asList(option, token, it))
+        .addCode(code.build())
+        .build();
+  }
 
-    code.addStatement("$T $N = $N.indexOf('=')", INT, index, token)
-        .addStatement("return $N.get($N.substring(0, $N < 0 ? $N.length() : $N))",
-            optionNamesField, token, index, token, index);
+  /**
+   * Returns the number of positions to advance: zero for a repeatable param, otherwise one.
+   */
+  private MethodSpec readParamMethod() {
+    ParameterSpec position = ParameterSpec.builder(TypeName.INT, "position").build();
+    ParameterSpec token = ParameterSpec.builder(STRING, "token").build();
+    ParameterSpec ordinal = ParameterSpec.builder(TypeName.INT, "ordinal").build();
+    return MethodSpec.methodBuilder("readParam")
+        .addParameters(Arrays.asList(position, token))
+        .addStatement("$T $N = $N[$N]", ordinal.type, ordinal, paramsField, position)
+        .addStatement("$N[$N].add($N)", valuesField, ordinal, token)
+        .addStatement("return $N[$N] == REPEATABLE ? 0 : 1", kindsField, ordinal)
+        .returns(TypeName.INT)
+        .build();
+  }
 
-    return MethodSpec.methodBuilder("tryReadOption")
-        .addParameter(token)
+  /**
+   * Clears the tokens, so that the state can be reused by the next parse on this thread.
+   * A list that has grown large is replaced, so that one long input does not pin its memory.
+   */
+  private MethodSpec releaseMethod() {
+    CodeBlock.Builder code = CodeBlock.builder();
+    if (context.isCompact()) {
+      ParameterSpec i = ParameterSpec.builder(TypeName.INT, "i").build();
+      code.beginControlFlow("for ($T $N = 0; $N < $N.length; $N++)", i.type, i, i, valuesField, i)
+          .add(recycleCode(CodeBlock.of("$N[$N]", valuesField, i)))
+          .endControlFlow();
+    } else {
+      ParameterSpec optionParser = ParameterSpec.builder(context.optionParserType(), "parser").build();
+      ParameterSpec paramParser = ParameterSpec.builder(context.repeatableParamParserType(), "parser").build();
+      code.beginControlFlow("for ($T $N : $N.values())", optionParser.type, optionParser, optionParsersField)
+          .add(recycleCode(CodeBlock.of("$N.values", optionParser)))
+          .endControlFlow();
+      code.beginControlFlow("for ($T $N : $N)", paramParser.type, paramParser, paramParsersField)
+          .add(recycleCode(CodeBlock.of("$N.values", paramParser)))
+          .endControlFlow();
+    }
+    code.add(clearRestCode());
+    code.addStatement("$N = false", busyField);
+    return MethodSpec.methodBuilder("release")
         .addCode(code.build())
-        .returns(context.optionType()).build();
+        .build();
+  }
+
+  private CodeBlock recycleCode(CodeBlock values) {
+    return CodeBlock.builder()
+        .beginControlFlow("if ($L.size() > $N)", values, maxRetainedField)
+        .addStatement("$L = $L", values, IndexedValues.newValues(context))
+        .nextControlFlow("else")
+        .addStatement("$L.clear()", values)
+        .endControlFlow()
+        .build();
+  }
+
+  private CodeBlock clearRestCode() {
+    if (!context.streamedParam().isPresent()) {
+      return CodeBlock.of("");
+    }
+    return CodeBlock.of("$N = null;\n", restField);
   }
 
   private MethodSpec buildMethod() {
 
+    CodeBlock.Builder code = CodeBlock.builder();
+    if (!context.isLazyCoercion()) {
+      code.add(valueCache.declarations());
+    }
     CodeBlock.Builder args = CodeBlock.builder().add("\n");
     for (int j = 0; j < context.parameters().size(); j++) {
       Parameter param = context.parameters().get(j);
-      args.add(extractExpression(param));
+      if (context.streamedParam().filter(param::equals).isPresent()) {
+        args.add("$N != null ? $N : $L", restField, restField, lazyValuesExpression(param));
+      } else if (param.coercion().isLazySequence()) {
+        args.add(lazyValuesExpression(param));
+      } else if (context.isLazyCoercion() && !param.isFlag()) {
+        if (param.isRequired()) {
+          code.add("if ($L.isEmpty())\n", getValuesExpression(param)).indent()
+              .addStatement("throw $T.$L.missingRequired()", context.optionType(), param.enumConstant())
+              .unindent();
+        }
+        args.add(lazyValuesExpression(param));
+      } else if (valueCache.isCached(param)) {
+        args.add("$N($L, $L)", extractMethodName(param), getValuesExpression(param),
+            valueCache.cacheExpr(param, false));
+      } else {
+        args.add("$N($L)", extractMethodName(param), getValuesExpression(param));
+      }
       if (j < context.parameters().size() - 1) {
         args.add(",\n");
       }
     }
     return MethodSpec.methodBuilder("build")
+        .addCode(code.build())
         .addStatement("return new $T($L)", context.implType(), args.build())
         .returns(context.sourceType())
         .build();
   }
 
-  private CodeBlock extractExpression(Parameter param) {
-    return getStreamExpression(param)
-        .add(".values.stream()")
-        .add(".map($L)", param.coercion().mapExpr())
-        .add(param.coercion().tailExpr())
+  /**
+   * In lazy mode, and for a {@code Stream} or {@code Iterator},
+   * the {@link Impl} keeps the tokens until the value is needed.
+   * A reused state clears its tokens after parsing, so they must be copied.
+   */
+  private CodeBlock lazyValuesExpression(Parameter param) {
+    if (context.isReuseParserState()) {
+      return IndexedValues.copyValues(context, getValuesExpression(param));
+    }
+    return getValuesExpression(param);
+  }
+
+  /**
+   * Defines a method that maps the collected tokens of the given parameter,
+   * and checks that the parameter is present if it is required.
+   * The result is passed to the constructor of the {@link Impl}.
+   */
+  private MethodSpec extractMethod(Parameter param) {
+    ParameterSpec values = ParameterSpec.builder(IndexedValues.valuesType(context), "values").build();
+    ParameterSpec mapper = ParameterSpec.builder(Util.mapperType(param.coercion().mappedType()), "mapper").build();
+    // with structured errors, the index of the value that is being mapped
+    ParameterSpec i = ParameterSpec.builder(TypeName.INT, "i").build();
+    boolean handleInvalidValue = context.isStructuredErrors() && !context.isLazyCoercion() && !param.isFlag();
+    MethodSpec.Builder spec = MethodSpec.methodBuilder(extractMethodName(param))
+        .addParameter(values);
+    CodeBlock.Builder code = CodeBlock.builder();
+    if (param.isFlag()) {
+      code.addStatement("return !$N.isEmpty()", values);
+    } else if (valueCache.isCached(param)) {
+      ParameterSpec cache = ParameterSpec.builder(ValueCache.cacheType(param), "cache").build();
+      spec.addParameter(cache);
+      code.addStatement("$T $N = memoize($L, $N)", mapper.type, mapper, MapperHolder.mapExpr(context, param), cache);
+      code.add(extractCode(param, values, mapper, handleInvalidValue ? i : null));
+    } else {
+      code.addStatement("$T $N = $L", mapper.type, mapper, MapperHolder.mapExpr(context, param));
+      code.add(extractCode(param, values, mapper, handleInvalidValue ? i : null));
+    }
+    if (handleInvalidValue) {
+      code = CodeBlock.builder().add(invalidValueHandler(param, values, i, code.build()));
+    }
+    return spec
+        .returns(param.coercion().constructorParam().type)
+        .addCode(code.build())
+        .addModifiers(STATIC)
+        .build();
+  }
+
+  /**
+   * Attributes mapper failures to the parameter, and to the token of the failing value.
+   * A repeatable parameter counts its values in {@code i}, which is declared before the try block.
+   */
+  private CodeBlock invalidValueHandler(Parameter param, ParameterSpec values, ParameterSpec i, CodeBlock body) {
+    ParameterSpec e = ParameterSpec.builder(RuntimeException.class, "e").build();
+    ParameterSpec parseError = ParameterSpec.builder(context.parseErrorType(), "parseError").build();
+    CodeBlock.Builder code = CodeBlock.builder();
+    CodeBlock index = CodeBlock.of("$L", 0);
+    if (param.isRepeatable()) {
+      code.addStatement("$T $N = 0", i.type, i);
+      index = CodeBlock.of("$N", i);
+    }
+    return code.beginControlFlow("try")
+        .add(body)
+        .nextControlFlow("catch ($T $N)", parseError.type, parseError)
+        .addStatement("throw $N", parseError)
+        .nextControlFlow("catch ($T $N)", e.type, e)
+        .addStatement("throw new $T($T.$L, $T.$L, null, $N, $N.index($L))", context.parseErrorType(), context.errorKindType(),
+            ParseError.Kind.INVALID_VALUE, context.optionType(), param.enumConstant(), e, values, index)
+        .endControlFlow()
+        .build();
+  }
+
+  /**
+   * @param i the counter of a repeatable parameter, which is declared outside of this code,
+   *          or {@code null}
+   */
+  private CodeBlock extractCode(Parameter param, ParameterSpec values, ParameterSpec mapper, ParameterSpec i) {
+    CodeBlock.Builder code = CodeBlock.builder();
+    switch (param.coercion().skew()) {
+      case REQUIRED:
+        code.add("if ($N.isEmpty())\n", values).indent()
+            .addStatement("throw $T.$L.missingRequired()", context.optionType(), param.enumConstant())
+            .unindent();
+        return code.addStatement("return $T.requireNonNull($N.apply($N.get(0)))", Objects.class, mapper, values)
+            .build();
+      case OPTIONAL:
+        code.add("if ($N.isEmpty())\n", values).indent()
+            .addStatement("return $T.empty()", Optional.class)
+            .unindent();
+        return code.addStatement("return $T.of($N.apply($N.get(0)))", Optional.class, mapper, values)
+            .build();
+      case REPEATABLE:
+        if (param.coercion().constructorParam().type instanceof ArrayTypeName) {
+          return extractArrayCode(param, values, mapper, i);
+        }
+        ParameterSpec result = ParameterSpec.builder(listOf(param.coercion().mappedType()), "result").build();
+        ParameterSpec value = ParameterSpec.builder(STRING, "value").build();
+        code.addStatement("$T $N = new $T<>($N.size())", result.type, result, ArrayList.class, values);
+        if (i != null) {
+          code.add("for (; $N < $N.size(); $N++)\n", i, values, i).indent()
+              .addStatement("$N.add($N.apply($N.get($N)))", result, mapper, values, i)
+              .unindent();
+        } else {
+          code.add("for ($T $N : $N)\n", value.type, value, values).indent()
+              .addStatement("$N.add($N.apply($N))", result, mapper, value)
+              .unindent();
+        }
+        return code.addStatement("return $N", result).build();
+      default:
+        throw new AssertionError("unexpected skew: " + param.coercion().skew());
+    }
+  }
+
+  private CodeBlock extractArrayCode(Parameter param, ParameterSpec values, ParameterSpec mapper, ParameterSpec counter) {
+    ArrayTypeName arrayType = (ArrayTypeName) param.coercion().constructorParam().type;
+    ParameterSpec result = ParameterSpec.builder(arrayType, "result").build();
+    ParameterSpec i = counter != null ? counter : ParameterSpec.builder(TypeName.INT, "i").build();
+    CodeBlock init = counter != null ? CodeBlock.of("") : CodeBlock.of("$T $N = 0", i.type, i);
+    return CodeBlock.builder()
+        .addStatement("$T $N = new $T[$N.size()]", arrayType, result, arrayType.componentType, values)
+        .add("for ($L; $N < $N.length; $N++)\n", init, i, result, i).indent()
+        .addStatement("$N[$N] = $N.$L($N.get($N))", result, i, mapper,
+            Util.applyMethod(param.coercion().mappedType()), values, i)
+        .unindent()
+        .addStatement("return $N", result)
         .build();
   }
 
-  static CodeBlock throwRepetitionErrorStatement(ParameterSpec optionParam) {
-    return CodeBlock.of(addBreaks("throw new $T($T.format($S, $N, $T.join($S, $N.names)))"),
-        RuntimeException.class, String.class,
-        "Option %s (%s) is not repeatable",
-        optionParam, String.class, ", ", optionParam);
+  static String extractMethodName(Parameter param) {
+    String camel = param.enumName().camel();
+    return "extract" + Character.toUpperCase(camel.charAt(0)) + camel.substring(1);
   }
 
   /**
-   * @return An expression that extracts the value of the given param from the parser state.
-   * This expression will evaluate either to a {@link java.util.stream.Stream} or a {@link java.util.Optional}.
+   * @return An expression that evaluates to the tokens of the given param.
    */
-  private CodeBlock.Builder getStreamExpression(Parameter param) {
+  private CodeBlock getValuesExpression(Parameter param) {
+    if (context.isCompact()) {
+      return CodeBlock.of("$N[$L]", valuesField, context.parameters().indexOf(param));
+    }
     if (param.isPositional()) {
-      return CodeBlock.builder().add(
-          "$N.get($L)", paramParsersField,
+      return CodeBlock.of(
+          "$N.get($L).values", paramParsersField,
           param.positionalIndex().orElseThrow(AssertionError::new));
     }
-    return CodeBlock.builder().add(
-        "$N.get($T.$N)", optionParsersField,
+    return CodeBlock.of(
+        "$N.get($T.$N).values", optionParsersField,
         context.optionType(), param.enumConstant());
   }
 
-  MethodSpec tryReadOption() {
-    return tryReadOptionMethod;
+  /**
+   * @return A statement that reads the given option token, and possibly the next token.
+   */
+  CodeBlock readOptionStatement(ParameterSpec state, ParameterSpec option, ParameterSpec token, ParameterSpec it) {
+    if (context.isCompact()) {
+      return CodeBlock.of("$N.read($N, $N, $N)", state, option, token, it);
+    }
+    return CodeBlock.of("$N.$N.get($N).read($N, $N, $N)", state, optionParsersField, option, option, token, it);
+  }
+
+  /**
+   * @return An expression that reads the given positional token,
+   * and evaluates to the number of positions to advance.
+   */
+  CodeBlock readParamExpression(ParameterSpec state, ParameterSpec position, ParameterSpec token) {
+    if (context.isCompact()) {
+      return CodeBlock.of("$N.readParam($N, $N)", state, position, token);
+    }
+    return CodeBlock.of("$N.$N.get($N).read($N)", state, paramParsersField, position, token);
+  }
+
+  /**
+   * When the streamed param is reached, parsing stops,
+   * and the remaining tokens are left in the input.
+   * Any later token is a value of the streamed param, even if it looks like an option.
+   *
+   * @return the code that stops parsing at the streamed param, or an empty block
+   */
+  CodeBlock streamRemainingCode(ParameterSpec state, ParameterSpec position, ParameterSpec token, ParameterSpec it) {
+    return context.streamedParam()
+        .map(param -> CodeBlock.builder()
+            .beginControlFlow("if ($N == $L)", position, param.positionalIndex().orElseThrow(AssertionError::new))
+            .addStatement("$N.$N = new $T($N, $N)", state, restField, context.remainingTokensType(), token, it)
+            .addStatement("return $N.build()", state)
+            .endControlFlow()
+            .build())
+        .orElse(CodeBlock.of(""));
   }
 
-  FieldSpec parsersField() {
-    return optionParsersField;
+  /**
+   * @return A statement that reads all tokens with the shared parse engine.
+   */
+  CodeBlock engineParseStatement(ParameterSpec state, ParameterSpec it) {
+    return CodeBlock.of("$T.ENGINE.parse($N, $N.$N)", context.parserStateType(), it, state, valuesField);
   }
 
-  FieldSpec positionalParsersField() {
-    return paramParsersField;
+  /**
+   * @return An expression that evaluates to the number of positional parameters.
+   */
+  CodeBlock paramCountExpression(ParameterSpec state) {
+    if (context.isCompact()) {
+      return CodeBlock.of("$L", context.params().size());
+    }
+    return CodeBlock.of("$N.$N.size()", state, paramParsersField);
   }
 }
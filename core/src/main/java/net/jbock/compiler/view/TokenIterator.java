@@ -0,0 +1,121 @@
+package net.jbock.compiler.view;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import net.jbock.compiler.Context;
+
+import java.util.Arrays;
+
+import static com.squareup.javapoet.MethodSpec.constructorBuilder;
+import static com.squareup.javapoet.MethodSpec.methodBuilder;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static net.jbock.compiler.Constants.STRING;
+import static net.jbock.compiler.Constants.STRING_ITERATOR;
+
+/**
+ * Defines the inner class TokenIterator, which wraps the iterator
+ * that is passed to the public {@code parse(Iterator)} method.
+ * It can look at the first token, to check for {@code --help},
+ * and with {@code structuredErrors}, it counts the tokens, for the index of a parse error.
+ * It is only defined if the command needs either of these.
+ *
+ * @see GeneratedClass
+ */
+final class TokenIterator {
+
+  private final Context context;
+
+  private final FieldSpec tokens = FieldSpec.builder(STRING_ITERATOR, "tokens", PRIVATE, FINAL).build();
+  private final FieldSpec peeked = FieldSpec.builder(TypeName.BOOLEAN, "peeked", PRIVATE).build();
+  private final FieldSpec next = FieldSpec.builder(STRING, "next", PRIVATE).build();
+  private final FieldSpec index = FieldSpec.builder(TypeName.INT, "index", PRIVATE).build();
+
+  TokenIterator(Context context) {
+    this.context = context;
+  }
+
+  static boolean isNeeded(Context context) {
+    return context.isHelpParameterEnabled() || context.isStructuredErrors();
+  }
+
+  TypeSpec define() {
+    ParameterSpec tokensParam = ParameterSpec.builder(STRING_ITERATOR, "tokens").build();
+    TypeSpec.Builder spec = TypeSpec.classBuilder(context.tokenIteratorType())
+        .addSuperinterface(IndexedValues.iteratorType(context))
+        .addModifiers(PRIVATE, STATIC, FINAL)
+        .addFields(Arrays.asList(tokens, peeked, next))
+        .addMethod(constructorBuilder()
+            .addParameter(tokensParam)
+            .addStatement("this.$N = $N", tokens, tokensParam)
+            .build())
+        .addMethod(hasNextMethod())
+        .addMethod(nextMethod())
+        .addMethod(peekMethod());
+    if (context.isStructuredErrors()) {
+      spec.addField(index).addMethod(previousIndexMethod());
+    }
+    return spec.build();
+  }
+
+  private MethodSpec hasNextMethod() {
+    return methodBuilder("hasNext")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(TypeName.BOOLEAN)
+        .addStatement("return $N || $N.hasNext()", peeked, tokens)
+        .build();
+  }
+
+  private MethodSpec nextMethod() {
+    ParameterSpec result = ParameterSpec.builder(STRING, "result").build();
+    CodeBlock.Builder code = CodeBlock.builder()
+        .addStatement("$T $N = $N ? $N : $N.next()", STRING, result, peeked, next, tokens)
+        .addStatement("$N = false", peeked)
+        .addStatement("$N = null", next);
+    if (context.isStructuredErrors()) {
+      code.addStatement("$N++", index);
+    }
+    return methodBuilder("next")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(STRING)
+        .addCode(code.build())
+        .addStatement("return $N", result)
+        .build();
+  }
+
+  /**
+   * @return the next token without consuming it, or {@code null} at the end of the input
+   */
+  private MethodSpec peekMethod() {
+    return methodBuilder("peek")
+        .returns(STRING)
+        .addCode(CodeBlock.builder()
+            .beginControlFlow("if (!$N && $N.hasNext())", peeked, tokens)
+            .addStatement("$N = $N.next()", next, tokens)
+            .addStatement("$N = true", peeked)
+            .endControlFlow()
+            .build())
+        .addStatement("return $N", next)
+        .build();
+  }
+
+  /**
+   * The index of the last token, as in {@link java.util.ListIterator#previousIndex()}.
+   * This implements the IndexedIterator, so it is only defined with {@code structuredErrors}.
+   */
+  private MethodSpec previousIndexMethod() {
+    return methodBuilder("previousIndex")
+        .addModifiers(PUBLIC)
+        .returns(TypeName.INT)
+        .addStatement("return $N - 1", index)
+        .build();
+  }
+}
@@ -0,0 +1,214 @@
+package net.jbock.compiler.view;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import net.jbock.compiler.Context;
+import net.jbock.compiler.parameter.Parameter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PROTECTED;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static net.jbock.compiler.Constants.STRING;
+
+/**
+ * Defines the caches for mapped values.
+ * Parameters with equal mappers share a cache.
+ * Within a parse, the cache is a {@link HashMap}.
+ * For pure mappers, a bounded cache can be shared by all parses.
+ *
+ * @see ParserState
+ */
+final class ValueCache {
+
+  private static final String INSTANCE = "INSTANCE";
+
+  private final Context context;
+
+  // parameters with equal mappers, by mapper
+  private final Map<String, List<Parameter>> groups;
+
+  private ValueCache(Context context, Map<String, List<Parameter>> groups) {
+    this.context = context;
+    this.groups = groups;
+  }
+
+  static ValueCache create(Context context) {
+    Map<String, List<Parameter>> groups = new LinkedHashMap<>();
+    for (Parameter param : context.parameters()) {
+      if (isCached(context, param)) {
+        groups.computeIfAbsent(groupKey(param), k -> new ArrayList<>()).add(param);
+      }
+    }
+    return new ValueCache(context, groups);
+  }
+
+  private static boolean isCached(Context context, Parameter param) {
+    // a lazy sequence is not cached, because that would keep all its mapped values
+    if (param.isFlag() || param.coercion().isLazySequence() || param.coercion().mappedType().isPrimitive()) {
+      return false;
+    }
+    return context.isMemoizeValues() || isShared(context, param);
+  }
+
+  private static boolean isShared(Context context, Parameter param) {
+    return context.valueCacheSize() > 0 && param.coercion().isPureMapper();
+  }
+
+  private static String groupKey(Parameter param) {
+    return param.coercion().mappedType() + " " + param.coercion().mapExpr();
+  }
+
+  boolean isCached(Parameter param) {
+    return isCached(context, param);
+  }
+
+  boolean isEmpty() {
+    return groups.isEmpty();
+  }
+
+  /**
+   * Declares the caches that live for one parse.
+   */
+  CodeBlock declarations() {
+    CodeBlock.Builder code = CodeBlock.builder();
+    for (List<Parameter> group : groups.values()) {
+      Parameter param = group.get(0);
+      if (!isShared(context, param)) {
+        ParameterSpec cache = localCache(param);
+        code.addStatement("$T $N = new $T<>()", cache.type, cache, HashMap.class);
+      }
+    }
+    return code.build();
+  }
+
+  /**
+   * Returns the cache for the given parameter.
+   * If the value is mapped lazily, the cache of a single parse is not available,
+   * and the parameter gets its own cache instead.
+   */
+  CodeBlock cacheExpr(Parameter param, boolean lazy) {
+    Parameter first = groups.get(groupKey(param)).get(0);
+    if (isShared(context, param)) {
+      return CodeBlock.of("$T.$L", holderType(first), INSTANCE);
+    }
+    if (lazy) {
+      return CodeBlock.of("new $T<>()", HashMap.class);
+    }
+    return CodeBlock.of("$N", localCache(first));
+  }
+
+  static TypeName cacheType(Parameter param) {
+    return ParameterizedTypeName.get(ClassName.get(Map.class), STRING, param.coercion().mappedType());
+  }
+
+  /**
+   * Defines a holder class for each shared cache.
+   * The cache evicts the least recently used value when it is full.
+   */
+  List<TypeSpec> define() {
+    List<TypeSpec> result = new ArrayList<>();
+    for (List<Parameter> group : groups.values()) {
+      Parameter param = group.get(0);
+      if (!isShared(context, param)) {
+        continue;
+      }
+      TypeName mappedType = param.coercion().mappedType();
+      ParameterizedTypeName entryType = ParameterizedTypeName.get(ClassName.get(Map.Entry.class), STRING, mappedType);
+      ParameterSpec eldest = ParameterSpec.builder(entryType, "eldest").build();
+      TypeSpec lru = TypeSpec.anonymousClassBuilder("16, 0.75f, true")
+          .superclass(ParameterizedTypeName.get(ClassName.get(LinkedHashMap.class), STRING, mappedType))
+          .addMethod(MethodSpec.methodBuilder("removeEldestEntry")
+              .addAnnotation(Override.class)
+              .addModifiers(PROTECTED)
+              .returns(TypeName.BOOLEAN)
+              .addParameter(eldest)
+              .addStatement("return size() > $L", context.valueCacheSize())
+              .build())
+          .build();
+      FieldSpec instance = FieldSpec.builder(cacheType(param), INSTANCE, STATIC, FINAL)
+          .initializer("$T.synchronizedMap($L)", Collections.class, lru)
+          .build();
+      result.add(TypeSpec.classBuilder(holderType(param))
+          .addModifiers(PRIVATE, STATIC, FINAL)
+          .addField(instance)
+          .build());
+    }
+    return result;
+  }
+
+  /**
+   * Wraps a mapper, so that it is invoked at most once per distinct token.
+   * Lookup and insertion are separate, so a shared cache is not locked while the mapper runs.
+   */
+  static MethodSpec memoizeMethod(Context context) {
+    TypeVariableName m = TypeVariableName.get("M");
+    ParameterSpec mapper = ParameterSpec.builder(
+        ParameterizedTypeName.get(ClassName.get(Function.class), STRING, m), "mapper").build();
+    ParameterSpec cache = ParameterSpec.builder(
+        ParameterizedTypeName.get(ClassName.get(Map.class), STRING, m), "cache").build();
+    ParameterSpec token = ParameterSpec.builder(STRING, "token").build();
+    ParameterSpec result = ParameterSpec.builder(m, "result").build();
+    CodeBlock body = CodeBlock.builder()
+        .addStatement("$T $N = $N.get($N)", m, result, cache, token)
+        .beginControlFlow("if ($N == null)", result)
+        .addStatement("$N = $N.apply($N)", result, mapper, token)
+        .addStatement("$N.put($N, $N)", cache, token, result)
+        .endControlFlow()
+        .addStatement("return $N", result)
+        .build();
+    CodeBlock code;
+    if (context.isFastStartup()) {
+      TypeSpec function = TypeSpec.anonymousClassBuilder("")
+          .addSuperinterface(mapper.type)
+          .addMethod(MethodSpec.methodBuilder("apply")
+              .addAnnotation(Override.class)
+              .addModifiers(PUBLIC)
+              .returns(m)
+              .addParameter(token)
+              .addCode(body)
+              .build())
+          .build();
+      code = CodeBlock.builder().addStatement("return $L", function).build();
+    } else {
+      code = CodeBlock.builder()
+          .add("return $N -> {\n", token).indent()
+          .add(body)
+          .unindent().add("};\n").build();
+    }
+    return MethodSpec.methodBuilder("memoize")
+        .addTypeVariable(m)
+        .addModifiers(STATIC)
+        .returns(mapper.type)
+        .addParameter(mapper)
+        .addParameter(cache)
+        .addCode(code)
+        .build();
+  }
+
+  private ParameterSpec localCache(Parameter param) {
+    return ParameterSpec.builder(cacheType(param), param.enumName().camel() + "Cache").build();
+  }
+
+  private ClassName holderType(Parameter param) {
+    String camel = param.enumName().camel();
+    return context.generatedClass().nestedClass(
+        Character.toUpperCase(camel.charAt(0)) + camel.substring(1) + "ValueCache");
+  }
+}
@@ -3,5 +3,5 @@ package net.jbock.qualifier;
 import javax.inject.Qualifier;
 
 @Qualifier
-public @interface TailExpr {
+public @interface MappedType {
 }
@@ -0,0 +1,7 @@
+package net.jbock.qualifier;
+
+import javax.inject.Qualifier;
+
+@Qualifier
+public @interface PureMapper {
+}
@@ -1,7 +1,7 @@
 package net.jbock.coerce.matching.matcher;
 
-import com.google.common.collect.ImmutableList;
 import com.squareup.javapoet.TypeName;
+import net.jbock.compiler.AlreadyCreated;
 import net.jbock.compiler.EnumName;
 import net.jbock.compiler.EvaluatingProcessor;
 import net.jbock.compiler.ParameterContext;
@@ -75,7 +75,7 @@ class OptionalMatcherTest {
   private OptionalMatcher createMatcher(TypeTool tool, TypeMirror returnType) {
     ExecutableElement sourceMethod = Mockito.mock(ExecutableElement.class);
     Mockito.when(sourceMethod.getReturnType()).thenReturn(returnType);
-    ParameterContext context = new ParameterContext(sourceMethod, null, tool, null, ImmutableList.of(),
+    ParameterContext context = new ParameterContext(sourceMethod, null, tool, null, new AlreadyCreated(),
         new String[0], "", EnumName.create("a"));
     return new OptionalMatcher(context);
   }
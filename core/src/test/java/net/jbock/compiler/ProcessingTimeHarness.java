@@ -0,0 +1,165 @@
+package net.jbock.compiler;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.testing.compile.Compiler.javac;
+
+/**
+ * Measures how the processing time grows with the number of options.
+ * Each run compiles a synthetic command with the given number of options,
+ * and reports the time spent in the processor.
+ * Beyond 254 parameters, the generated class itself does not compile,
+ * because the JVM limits the number of constructor parameters;
+ * this doesn't affect the time spent in the processor.
+ *
+ * <p>Run with {@code ./gradlew core:processingTime}, or pass the sizes as arguments.
+ */
+public final class ProcessingTimeHarness {
+
+  private static final String MNEMONICS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+  public static void main(String[] args) {
+    List<Integer> sizes = new ArrayList<>();
+    if (args.length == 0) {
+      sizes.addAll(Arrays.asList(10, 100, 500, 1000, 2000, 5000));
+    } else {
+      for (String arg : args) {
+        sizes.add(Integer.parseInt(arg));
+      }
+    }
+    for (int i = 0; i < 3; i++) {
+      run(100); // warm up
+    }
+    System.out.printf("%8s %12s %12s %14s%n", "options", "total ms", "processor ms", "processor us/option");
+    for (int size : sizes) {
+      Result result = run(size);
+      System.out.printf("%8d %12d %12d %14d%n", size,
+          result.totalNanos / 1_000_000,
+          result.processorNanos / 1_000_000,
+          result.processorNanos / 1_000 / size);
+    }
+  }
+
+  static Result run(int size) {
+    TimingProcessor processor = new TimingProcessor(new Processor());
+    long start = System.nanoTime();
+    Compilation compilation = javac().withProcessors(processor).compile(syntheticCommand(size));
+    long totalNanos = System.nanoTime() - start;
+    for (Diagnostic<? extends JavaFileObject> error : compilation.errors()) {
+      if (error.getSource() == null || !error.getSource().getName().endsWith("Synthetic_Parser.java")) {
+        throw new IllegalStateException(error.toString());
+      }
+    }
+    return new Result(totalNanos, processor.nanos);
+  }
+
+  static JavaFileObject syntheticCommand(int size) {
+    List<String> lines = new ArrayList<>();
+    lines.add("package test;");
+    lines.add("");
+    lines.add("import java.util.List;");
+    lines.add("import java.util.Optional;");
+    lines.add("import net.jbock.Command;");
+    lines.add("import net.jbock.Option;");
+    lines.add("import net.jbock.Param;");
+    lines.add("");
+    lines.add("@Command");
+    lines.add("abstract class Synthetic {");
+    lines.add("");
+    lines.add("  @Param(1)");
+    lines.add("  abstract List<String> rest();");
+    for (int i = 0; i < size; i++) {
+      String mnemonic = i < MNEMONICS.length() ? ", mnemonic = '" + MNEMONICS.charAt(i) + "'" : "";
+      lines.add("");
+      lines.add("  @Option(value = \"option" + i + "\"" + mnemonic + ", bundleKey = \"key" + i + "\")");
+      lines.add("  abstract " + type(i) + " option" + i + "();");
+    }
+    lines.add("}");
+    return JavaFileObjects.forSourceLines("test.Synthetic", lines);
+  }
+
+  private static String type(int i) {
+    switch (i % 4) {
+      case 0:
+        return "Optional<String>";
+      case 1:
+        return "List<Integer>";
+      case 2:
+        return "boolean";
+      default:
+        return "Optional<java.nio.file.Path>";
+    }
+  }
+
+  static final class Result {
+    final long totalNanos;
+    final long processorNanos;
+
+    Result(long totalNanos, long processorNanos) {
+      this.totalNanos = totalNanos;
+      this.processorNanos = processorNanos;
+    }
+  }
+
+  private static final class TimingProcessor implements javax.annotation.processing.Processor {
+
+    private final javax.annotation.processing.Processor delegate;
+    private long nanos;
+
+    TimingProcessor(javax.annotation.processing.Processor delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+      return delegate.getSupportedOptions();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return delegate.getSupportedAnnotationTypes();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return delegate.getSupportedSourceVersion();
+    }
+
+    @Override
+    public void init(ProcessingEnvironment processingEnv) {
+      delegate.init(processingEnv);
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      long start = System.nanoTime();
+      try {
+        return delegate.process(annotations, roundEnv);
+      } finally {
+        nanos += System.nanoTime() - start;
+      }
+    }
+
+    @Override
+    public Iterable<? extends Completion> getCompletions(
+        Element element, AnnotationMirror annotation, ExecutableElement member, String userText) {
+      return delegate.getCompletions(element, annotation, member, userText);
+    }
+  }
+}
@@ -56,6 +56,43 @@ class ProcessorTest {
         .withErrorContaining("duplicate mnemonic");
   }
 
+  @Test
+  void manyOptions() {
+    assertAbout(javaSources()).that(singletonList(ProcessingTimeHarness.syntheticCommand(200)))
+        .processedWith(new Processor())
+        .compilesWithoutError();
+  }
+
+  @Test
+  void duplicateOptionNameAfterManyOptions() {
+    List<String> lines = new ArrayList<>();
+    lines.add("@Command");
+    lines.add("abstract class Arguments {");
+    for (int i = 0; i < 100; i++) {
+      lines.add("  @Option(value = \"x" + i + "\", bundleKey = \"k" + i + "\") abstract Optional<String> a" + i + "();");
+    }
+    lines.add("  @Option(\"x50\") abstract Optional<String> b();");
+    lines.add("}");
+    assertAbout(javaSources()).that(singletonList(fromSource(lines.toArray(new String[0]))))
+        .processedWith(new Processor())
+        .failsToCompile()
+        .withErrorContaining("duplicate option name");
+  }
+
+  @Test
+  void twoRepeatablePositionalParameters() {
+    JavaFileObject javaFile = fromSource(
+        "@Command",
+        "abstract class Arguments {",
+        "  @Param(1) abstract List<String> a();",
+        "  @Param(2) abstract List<String> b();",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .processedWith(new Processor())
+        .failsToCompile()
+        .withErrorContaining("positional parameter A is also repeatable");
+  }
+
   @Test
   void unknownReturnType() {
     JavaFileObject javaFile = fromSource(
@@ -155,10 +192,176 @@ class ProcessorTest {
         "  @Option(\"x\")",
         "  abstract int[] a();",
         "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .processedWith(new Processor())
+        .compilesWithoutError();
+  }
+
+  @Test
+  void shortArray() {
+    JavaFileObject javaFile = fromSource(
+        "@Command",
+        "abstract class Arguments {",
+        "",
+        "  @Option(\"x\")",
+        "  abstract short[] a();",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .processedWith(new Processor())
+        .failsToCompile()
+        .withErrorContaining("define a mapper that implements Function<String, short[]>");
+  }
+
+  @Test
+  void intStreamWithMapper() {
+    JavaFileObject javaFile = fromSource(
+        "@Command",
+        "abstract class Arguments {",
+        "",
+        "  @Option(value = \"x\", mappedBy = IntMapper.class)",
+        "  abstract java.util.stream.IntStream a();",
+        "",
+        "  static class IntMapper implements Function<String, Integer> {",
+        "    public Integer apply(String s) { return null; }",
+        "  }",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .processedWith(new Processor())
+        .compilesWithoutError();
+  }
+
+  @Test
+  void lazySequenceWithOtherModes() {
+    JavaFileObject javaFile = fromSource(
+        "@Command(coercion = Command.Coercion.LAZY_SYNCHRONIZED, memoizeValues = true, compact = true)",
+        "abstract class Arguments {",
+        "",
+        "  @Option(\"x\")",
+        "  abstract java.util.Iterator<java.math.BigInteger> a();",
+        "",
+        "  @Option(\"y\")",
+        "  abstract List<java.math.BigInteger> b();",
+        "",
+        "  @Param(1)",
+        "  abstract java.util.stream.Stream<java.nio.file.Path> c();",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .processedWith(new Processor())
+        .compilesWithoutError();
+  }
+
+  @Test
+  void lazySequenceMapperMismatch() {
+    JavaFileObject javaFile = fromSource(
+        "@Command",
+        "abstract class Arguments {",
+        "",
+        "  @Param(value = 1, mappedBy = IntMapper.class)",
+        "  abstract java.util.stream.Stream<String> a();",
+        "",
+        "  static class IntMapper implements Function<String, Integer> {",
+        "    public Integer apply(String s) { return null; }",
+        "  }",
+        "}");
     assertAbout(javaSources()).that(singletonList(javaFile))
         .processedWith(new Processor())
         .failsToCompile()
-        .withErrorContaining("define a mapper that implements Function<String, int[]>");
+        .withErrorContaining("mapper should implement Function<String, String>");
+  }
+
+  @Test
+  void compactWithoutRawtypesWarning() {
+    JavaFileObject javaFile = fromSource(
+        "@Command(compact = true)",
+        "abstract class Arguments {",
+        "",
+        "  @Option(\"x\")",
+        "  abstract List<String> a();",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .withCompilerOptions("-Xlint:rawtypes,unchecked,-processing")
+        .processedWith(new Processor())
+        .compilesWithoutWarnings();
+  }
+
+  @Test
+  void structuredErrorsWithoutSerialWarning() {
+    JavaFileObject javaFile = fromSource(
+        "@Command(structuredErrors = true, compact = true)",
+        "abstract class Arguments {",
+        "",
+        "  @Option(\"x\")",
+        "  abstract List<Integer> a();",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .withCompilerOptions("-Xlint:serial,rawtypes,unchecked,-processing")
+        .processedWith(new Processor())
+        .compilesWithoutWarnings();
+  }
+
+  @Test
+  void argumentFilesWithStructuredErrors() {
+    JavaFileObject javaFile = fromSource(
+        "@Command(argumentFiles = true, structuredErrors = true, fastStartup = true, compact = true)",
+        "abstract class Arguments {",
+        "",
+        "  @Option(\"x\")",
+        "  abstract Optional<String> a();",
+        "",
+        "  @Param(1)",
+        "  abstract List<String> b();",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .processedWith(new Processor())
+        .compilesWithoutError();
+  }
+
+  @Test
+  void delimitedInputWithFastStartup() {
+    JavaFileObject javaFile = fromSource(
+        "@Command(delimitedInput = true, argumentFiles = true, fastStartup = true, helpDisabled = true)",
+        "abstract class Arguments {",
+        "",
+        "  @Option(\"x\")",
+        "  abstract Optional<String> a();",
+        "",
+        "  @Param(1)",
+        "  abstract java.util.Iterator<String> b();",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .processedWith(new Processor())
+        .compilesWithoutError();
+  }
+
+  @Test
+  void streamedParamCompactReuseState() {
+    JavaFileObject javaFile = fromSource(
+        "@Command(delimitedInput = true, compact = true, reuseParserState = true, fastStartup = true)",
+        "abstract class Arguments {",
+        "",
+        "  @Param(1)",
+        "  abstract String a();",
+        "",
+        "  @Param(2)",
+        "  abstract java.util.stream.Stream<Integer> b();",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .processedWith(new Processor())
+        .compilesWithoutError();
+  }
+
+  @Test
+  void batchParsingImmutableFastStartup() {
+    JavaFileObject javaFile = fromSource(
+        "@Command(batchParsing = true, immutable = true, fastStartup = true, structuredErrors = true)",
+        "abstract class Arguments {",
+        "",
+        "  @Option(\"x\")",
+        "  abstract Optional<String> a();",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .processedWith(new Processor())
+        .compilesWithoutError();
   }
 
   @Test
@@ -490,6 +693,86 @@ class ProcessorTest {
         .withErrorContaining("command class cannot be private");
   }
 
+  @Test
+  void sharedRuntimeNotOnClasspath() {
+    JavaFileObject javaFile = fromSource(
+        "@Command(sharedRuntime = true)",
+        "abstract class Arguments {",
+        "  @Option(\"x\") abstract String a();",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .processedWith(new Processor())
+        .failsToCompile()
+        .withErrorContaining("sharedRuntime requires the jbock-runtime library on the classpath");
+  }
+
+  @Test
+  void subcommandNotACommand() {
+    JavaFileObject javaFile = fromSource(
+        "@Command(subcommands = Arguments.Foo.class)",
+        "abstract class Arguments {",
+        "  @Option(\"x\") abstract String a();",
+        "  static abstract class Foo {",
+        "    @Option(\"y\") abstract String b();",
+        "  }",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .processedWith(new Processor())
+        .failsToCompile()
+        .withErrorContaining("subcommand test.Arguments.Foo must be annotated with @Command");
+  }
+
+  @Test
+  void duplicateSubcommandName() {
+    JavaFileObject javaFile = fromSource(
+        "@Command(subcommands = {Arguments.Foo.class, Arguments.Bar.class})",
+        "abstract class Arguments {",
+        "  @Option(\"x\") abstract String a();",
+        "  @Command(\"run\")",
+        "  static abstract class Foo {",
+        "    @Option(\"y\") abstract String b();",
+        "  }",
+        "  @Command(\"run\")",
+        "  static abstract class Bar {",
+        "    @Option(\"z\") abstract String c();",
+        "  }",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .processedWith(new Processor())
+        .failsToCompile()
+        .withErrorContaining("duplicate subcommand name: run");
+  }
+
+  @Test
+  void invalidSubcommandName() {
+    JavaFileObject javaFile = fromSource(
+        "@Command(subcommands = Arguments.Foo.class)",
+        "abstract class Arguments {",
+        "  @Option(\"x\") abstract String a();",
+        "  @Command(\"--run\")",
+        "  static abstract class Foo {",
+        "    @Option(\"y\") abstract String b();",
+        "  }",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .processedWith(new Processor())
+        .failsToCompile()
+        .withErrorContaining("invalid subcommand name: --run");
+  }
+
+  @Test
+  void ownSubcommand() {
+    JavaFileObject javaFile = fromSource(
+        "@Command(subcommands = Arguments.class)",
+        "abstract class Arguments {",
+        "  @Option(\"x\") abstract String a();",
+        "}");
+    assertAbout(javaSources()).that(singletonList(javaFile))
+        .processedWith(new Processor())
+        .failsToCompile()
+        .withErrorContaining("command cannot be its own subcommand");
+  }
+
   static JavaFileObject fromSource(String... lines) {
     List<String> sourceLines = withImports(lines);
     return forSourceLines("test.Arguments", sourceLines);
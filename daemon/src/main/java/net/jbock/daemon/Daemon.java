@@ -0,0 +1,272 @@
+package net.jbock.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.lang.reflect.Method;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Keeps generated parsers, and the application code that uses them, in a long-lived JVM.
+ * The {@link DaemonClient} sends the arguments of a command line invocation,
+ * and the daemon sends back the output and the exit code.
+ * This way, the cost of starting the JVM, loading the classes and compiling the code
+ * is paid once, instead of once per invocation.
+ *
+ * <p>The daemon listens on a Unix domain socket, or on a TCP port of the loopback interface.
+ * It doesn't accept connections from other hosts.
+ * A Unix domain socket is protected by the permissions of its directory.
+ * A loopback port is open to all local users.
+ *
+ * <pre>{@code
+ * Daemon daemon = new Daemon()
+ *     .register("cp", invocation -> {
+ *       CpArguments_Parser.ParseResult result = new CpArguments_Parser()
+ *           .withHelpStream(invocation.out())
+ *           .withErrorStream(invocation.err())
+ *           .parse(invocation.args());
+ *       // ...
+ *       return 0;
+ *     })
+ *     .start(UnixDomainSocketAddress.of("/run/user/1000/cp.sock"));
+ * }</pre>
+ */
+public final class Daemon implements Closeable {
+
+  private static final Logger LOGGER = System.getLogger(Daemon.class.getName());
+
+  // the longest pause of the accept loop after a failed accept
+  private static final long MAX_BACKOFF_MILLIS = 1000;
+
+  private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+
+  private ExecutorService executor;
+
+  private ServerSocketChannel server;
+
+  private boolean closed;
+
+  /**
+   * Registers a handler.
+   *
+   * @param command the name that the client sends
+   * @param handler the handler
+   * @return this daemon
+   */
+  public Daemon register(String command, Handler handler) {
+    handlers.put(Objects.requireNonNull(command), Objects.requireNonNull(handler));
+    return this;
+  }
+
+  /**
+   * Sets the executor that runs the handlers.
+   * By default, each invocation runs in a new virtual thread if the JVM supports them,
+   * and in a pooled thread otherwise.
+   *
+   * @param executor the executor, which is shut down when the daemon is closed
+   * @return this daemon
+   */
+  public synchronized Daemon withExecutor(ExecutorService executor) {
+    if (server != null) {
+      throw new IllegalStateException("already started");
+    }
+    this.executor = Objects.requireNonNull(executor);
+    return this;
+  }
+
+  /**
+   * Starts accepting connections in a background thread.
+   * If the address is a Unix domain socket, and its file exists but no daemon is listening,
+   * the stale file is deleted.
+   *
+   * @param address a {@link UnixDomainSocketAddress}, or an {@link java.net.InetSocketAddress}
+   *                of the loopback interface; the port can be {@code 0}
+   * @return this daemon
+   * @throws IOException if the address can't be bound
+   * @throws IllegalArgumentException if the address is not a loopback address
+   */
+  public synchronized Daemon start(SocketAddress address) throws IOException {
+    if (server != null) {
+      throw new IllegalStateException("already started");
+    }
+    if (address instanceof UnixDomainSocketAddress) {
+      deleteStaleSocket(((UnixDomainSocketAddress) address).getPath());
+    }
+    if (executor == null) {
+      executor = defaultExecutor();
+    }
+    ServerSocketChannel server = Protocol.listen(address);
+    this.server = server;
+    Thread acceptor = new Thread(() -> acceptLoop(server), "jbock-daemon-" + server.getLocalAddress());
+    acceptor.setDaemon(true);
+    acceptor.start();
+    return this;
+  }
+
+  /**
+   * @return the address that the daemon listens on, which contains the actual port
+   * @throws IOException if the daemon is closed
+   */
+  public synchronized SocketAddress address() throws IOException {
+    if (server == null) {
+      throw new IllegalStateException("not started");
+    }
+    return server.getLocalAddress();
+  }
+
+  /**
+   * Stops accepting connections, and shuts down the executor.
+   * Running handlers are not interrupted.
+   * The file of a Unix domain socket is deleted.
+   * Closing a daemon that is already closed has no effect.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (server == null || closed) {
+      return;
+    }
+    closed = true;
+    SocketAddress address = server.getLocalAddress();
+    server.close();
+    executor.shutdown();
+    if (address instanceof UnixDomainSocketAddress) {
+      Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+    }
+  }
+
+  /**
+   * If accepting fails, for example because the process has too many open files,
+   * the failure is logged, and the loop pauses before the next attempt.
+   * The pause doubles with each consecutive failure, up to {@link #MAX_BACKOFF_MILLIS}.
+   */
+  private void acceptLoop(ServerSocketChannel server) {
+    long backoff = 0;
+    while (true) {
+      SocketChannel channel;
+      try {
+        channel = server.accept();
+        backoff = 0;
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException e) {
+        backoff = Math.min(MAX_BACKOFF_MILLIS, Math.max(10, 2 * backoff));
+        LOGGER.log(Level.WARNING, "Accept failed, retrying in " + backoff + " ms", e);
+        try {
+          Thread.sleep(backoff);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+        continue;
+      }
+      try {
+        executor.execute(() -> serve(channel));
+      } catch (RejectedExecutionException e) {
+        // the daemon was closed after this connection was accepted
+        closeQuietly(channel);
+        return;
+      }
+    }
+  }
+
+  private static void closeQuietly(SocketChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException ignored) {
+    }
+  }
+
+  private void serve(SocketChannel channel) {
+    try (SocketChannel c = channel) {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(c)));
+      DataOutputStream connection = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(c)));
+      PrintStream out = new PrintStream(new FrameOutputStream(connection, Protocol.OUT), false, StandardCharsets.UTF_8);
+      PrintStream err = new PrintStream(new FrameOutputStream(connection, Protocol.ERR), false, StandardCharsets.UTF_8);
+      int exitCode = run(in, out, err);
+      out.flush();
+      err.flush();
+      synchronized (connection) {
+        connection.writeByte(Protocol.EXIT);
+        connection.writeInt(exitCode);
+        connection.flush();
+      }
+    } catch (IOException e) {
+      // the client has disconnected
+    }
+  }
+
+  private int run(DataInputStream in, PrintStream out, PrintStream err) {
+    Invocation invocation;
+    try {
+      invocation = Protocol.readRequest(in, out, err);
+    } catch (IOException e) {
+      err.println("Error: " + e.getMessage());
+      return Protocol.EXIT_USAGE;
+    }
+    Handler handler = handlers.get(invocation.command());
+    if (handler == null) {
+      err.println("Error: Unknown command: " + invocation.command());
+      return Protocol.EXIT_USAGE;
+    }
+    try {
+      return handler.run(invocation);
+    } catch (Throwable e) {
+      // an Error, such as a StackOverflowError, must not cut the client off without an exit code
+      e.printStackTrace(err);
+      return Protocol.EXIT_SOFTWARE;
+    }
+  }
+
+  private static void deleteStaleSocket(Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return;
+    }
+    boolean listening;
+    try {
+      SocketChannel channel = Protocol.connect(UnixDomainSocketAddress.of(path));
+      closeQuietly(channel);
+      listening = true;
+    } catch (IOException e) {
+      listening = false;
+    }
+    if (listening) {
+      throw new IOException("Another daemon is listening on " + path);
+    }
+    Files.delete(path);
+  }
+
+  /**
+   * Virtual threads are used if the JVM has them.
+   */
+  private static ExecutorService defaultExecutor() {
+    try {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "jbock-daemon-worker");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+}
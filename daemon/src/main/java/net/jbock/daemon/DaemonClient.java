@@ -0,0 +1,81 @@
+package net.jbock.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+/**
+ * The client of a {@link Daemon}.
+ * It sends its arguments to the daemon, prints the output, and exits with the daemon's exit code.
+ * This class only uses {@code java.base}, and no lambdas, so that it starts quickly:
+ *
+ * <pre>
+ * java -Xshare:auto -XX:TieredStopAtLevel=1 -XX:+UseSerialGC \
+ *     -cp jbock-daemon.jar net.jbock.daemon.DaemonClient /run/user/1000/cp.sock cp -r a b
+ * </pre>
+ *
+ * <p>A shell alias or a small script usually hides this command line.
+ */
+public final class DaemonClient {
+
+  private DaemonClient() {
+  }
+
+  /**
+   * @param args the port number or the socket path, the command name, and the arguments of the command
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: DaemonClient <port or socket path> <command> [<args>...]");
+      System.exit(Protocol.EXIT_USAGE);
+    }
+    SocketAddress address = Protocol.parseAddress(args[0]);
+    int exitCode = run(address, args[1], Arrays.copyOfRange(args, 2, args.length), System.out, System.err);
+    System.exit(exitCode);
+  }
+
+  /**
+   * Sends one invocation to the daemon, and waits until it is finished.
+   * The working directory of the invocation is the {@code user.dir} of this JVM.
+   *
+   * @param address the address of the daemon
+   * @param command the name of the command
+   * @param args the arguments of the command
+   * @param out receives the standard output of the invocation
+   * @param err receives the standard error of the invocation
+   * @return the exit code
+   * @throws IOException if the daemon can't be reached, or if it disconnects
+   */
+  public static int run(SocketAddress address, String command, String[] args, OutputStream out, OutputStream err) throws IOException {
+    try (SocketChannel channel = Protocol.connect(address)) {
+      DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+      Protocol.writeRequest(request, command, System.getProperty("user.dir"), args);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+      byte[] buffer = new byte[8192];
+      while (true) {
+        byte kind = in.readByte();
+        if (kind == Protocol.EXIT) {
+          return in.readInt();
+        }
+        OutputStream target = kind == Protocol.OUT ? out : err;
+        int remaining = in.readInt();
+        while (remaining > 0) {
+          int n = in.read(buffer, 0, Math.min(remaining, buffer.length));
+          if (n < 0) {
+            throw new IOException("Unexpected end of stream");
+          }
+          target.write(buffer, 0, n);
+          remaining -= n;
+        }
+        target.flush();
+      }
+    }
+  }
+}
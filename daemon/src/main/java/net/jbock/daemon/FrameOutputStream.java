@@ -0,0 +1,68 @@
+package net.jbock.daemon;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffers the output of one stream, and sends it as a frame when it is flushed or full.
+ * The standard output and the standard error of an invocation share the same connection,
+ * so the frames are written under a lock on the connection.
+ */
+final class FrameOutputStream extends OutputStream {
+
+  private final DataOutputStream connection;
+  private final byte kind;
+  private final byte[] buffer = new byte[8192];
+  private int count;
+
+  FrameOutputStream(DataOutputStream connection, byte kind) {
+    this.connection = connection;
+    this.kind = kind;
+  }
+
+  @Override
+  public synchronized void write(int b) throws IOException {
+    if (count == buffer.length) {
+      sendFrame();
+    }
+    buffer[count++] = (byte) b;
+  }
+
+  @Override
+  public synchronized void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (count == buffer.length) {
+        sendFrame();
+      }
+      int n = Math.min(len, buffer.length - count);
+      System.arraycopy(b, off, buffer, count, n);
+      count += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    if (count > 0) {
+      sendFrame();
+    }
+  }
+
+  // the connection stays open until the exit code is sent
+  @Override
+  public void close() throws IOException {
+    flush();
+  }
+
+  private void sendFrame() throws IOException {
+    synchronized (connection) {
+      connection.writeByte(kind);
+      connection.writeInt(count);
+      connection.write(buffer, 0, count);
+      connection.flush();
+    }
+    count = 0;
+  }
+}
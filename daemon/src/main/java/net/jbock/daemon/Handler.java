@@ -0,0 +1,20 @@
+package net.jbock.daemon;
+
+/**
+ * Runs a command in the {@link Daemon}.
+ * A typical handler invokes the {@code parse} method of a generated parser,
+ * with the handler's output streams as help and error streams,
+ * and then runs the application code.
+ * A handler must not invoke {@code parseOrExit}, because that would shut down the daemon.
+ * Handlers can be invoked concurrently.
+ */
+@FunctionalInterface
+public interface Handler {
+
+  /**
+   * @param invocation the arguments and the output streams
+   * @return the exit code of the client
+   * @throws Exception if the command fails; the stack trace is sent to the client's standard error
+   */
+  int run(Invocation invocation) throws Exception;
+}
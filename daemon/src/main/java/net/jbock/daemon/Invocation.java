@@ -0,0 +1,66 @@
+package net.jbock.daemon;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A single run of a command, as requested by a {@link DaemonClient}.
+ * The output streams are sent back to the client.
+ * They must not be closed by the handler.
+ */
+public final class Invocation {
+
+  private final String command;
+  private final String workingDirectory;
+  private final String[] args;
+  private final PrintStream out;
+  private final PrintStream err;
+
+  Invocation(String command, String workingDirectory, String[] args, PrintStream out, PrintStream err) {
+    this.command = command;
+    this.workingDirectory = workingDirectory;
+    this.args = args;
+    this.out = out;
+    this.err = err;
+  }
+
+  /**
+   * @return the name that the command was registered with
+   */
+  public String command() {
+    return command;
+  }
+
+  /**
+   * Returns the working directory of the client.
+   * Relative paths in the arguments should be resolved against it,
+   * because the daemon may have been started in a different directory.
+   *
+   * @return the working directory of the client
+   */
+  public Path workingDirectory() {
+    return Paths.get(workingDirectory);
+  }
+
+  /**
+   * @return the arguments, without the command name
+   */
+  public String[] args() {
+    return args.clone();
+  }
+
+  /**
+   * @return the standard output of the client
+   */
+  public PrintStream out() {
+    return out;
+  }
+
+  /**
+   * @return the standard error of the client
+   */
+  public PrintStream err() {
+    return err;
+  }
+}
@@ -0,0 +1,147 @@
+package net.jbock.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The wire format between the {@link DaemonClient} and the {@link Daemon}.
+ * All integers are big-endian, and all strings are a length followed by UTF-8 bytes.
+ *
+ * <p>The client sends one request per connection:
+ *
+ * <pre>
+ * int magic, string command, string workingDirectory, int argc, string... args
+ * </pre>
+ *
+ * <p>The daemon answers with a sequence of frames, each starting with a kind byte.
+ * An {@link #OUT} or {@link #ERR} frame is followed by a length and that many bytes.
+ * The final {@link #EXIT} frame is followed by the exit code.
+ *
+ * <p>The client side of this class doesn't use lambdas, to keep the client's startup short.
+ */
+final class Protocol {
+
+  static final int MAGIC = 0x6a626b31; // "jbk1"
+
+  static final byte OUT = 1;
+  static final byte ERR = 2;
+  static final byte EXIT = 3;
+
+  // the exit code if the command is not registered, or if the request is malformed
+  static final int EXIT_USAGE = 64;
+
+  // the exit code if the handler throws
+  static final int EXIT_SOFTWARE = 70;
+
+  // a request can't be larger than this, see ARG_MAX
+  private static final int MAX_REQUEST_BYTES = 1 << 21;
+
+  private Protocol() {
+  }
+
+  /**
+   * @param address a port number for a loopback TCP socket, or the path of a Unix domain socket
+   * @return the socket address
+   */
+  static SocketAddress parseAddress(String address) {
+    for (int i = 0; i < address.length(); i++) {
+      if (address.charAt(i) < '0' || address.charAt(i) > '9') {
+        return UnixDomainSocketAddress.of(address);
+      }
+    }
+    if (address.isEmpty()) {
+      throw new IllegalArgumentException("Empty address");
+    }
+    return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+  }
+
+  static SocketChannel connect(SocketAddress address) throws IOException {
+    if (address instanceof UnixDomainSocketAddress) {
+      SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+      channel.connect(address);
+      return channel;
+    }
+    SocketChannel channel = SocketChannel.open(address);
+    channel.socket().setTcpNoDelay(true);
+    return channel;
+  }
+
+  static ServerSocketChannel listen(SocketAddress address) throws IOException {
+    if (address instanceof UnixDomainSocketAddress) {
+      ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+      channel.bind(address);
+      return channel;
+    }
+    InetSocketAddress inet = (InetSocketAddress) address;
+    if (inet.getAddress() == null || !inet.getAddress().isLoopbackAddress()) {
+      throw new IllegalArgumentException("Not a loopback address: " + address);
+    }
+    ServerSocketChannel channel = ServerSocketChannel.open();
+    channel.bind(address);
+    return channel;
+  }
+
+  static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * @param budget the number of bytes that the rest of the request may contain;
+   *               the length of the string is subtracted from {@code budget[0]}
+   */
+  static String readString(DataInputStream in, int[] budget) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > budget[0]) {
+      throw new IOException("Request too large");
+    }
+    budget[0] -= length;
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  static void writeRequest(DataOutputStream out, String command, String workingDirectory, String[] args) throws IOException {
+    out.writeInt(MAGIC);
+    writeString(out, command);
+    writeString(out, workingDirectory);
+    out.writeInt(args.length);
+    for (String arg : args) {
+      writeString(out, arg);
+    }
+    out.flush();
+  }
+
+  static Invocation readRequest(DataInputStream in, PrintStream out, PrintStream err) throws IOException {
+    int magic = in.readInt();
+    if (magic != MAGIC) {
+      throw new IOException("Not a jbock daemon request");
+    }
+    // the budget covers the whole request, so that its size doesn't depend on argc
+    int[] budget = {MAX_REQUEST_BYTES};
+    String command = readString(in, budget);
+    String workingDirectory = readString(in, budget);
+    int argc = in.readInt();
+    // each argument takes at least the 4 bytes of its length
+    if (argc < 0 || argc > budget[0] / 4) {
+      throw new IOException("Invalid argument count: " + argc);
+    }
+    budget[0] -= argc * 4;
+    String[] args = new String[argc];
+    for (int i = 0; i < argc; i++) {
+      args[i] = readString(in, budget);
+    }
+    return new Invocation(command, workingDirectory, args, out, err);
+  }
+}
@@ -0,0 +1,234 @@
+package net.jbock.daemon;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DaemonTest {
+
+  private static final Handler ECHO = invocation -> {
+    invocation.out().print(String.join(" ", invocation.args()));
+    invocation.err().print("err");
+    return invocation.args().length;
+  };
+
+  @Test
+  void testLoopbackTcp() throws IOException {
+    try (Daemon daemon = new Daemon().register("echo", ECHO)
+        .start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      Result result = run(daemon.address(), "echo", "a", "b c");
+      assertEquals(2, result.exitCode);
+      assertEquals("a b c", result.out);
+      assertEquals("err", result.err);
+    }
+  }
+
+  @Test
+  void testUnixDomainSocket(@TempDir Path dir) throws IOException {
+    Path socket = dir.resolve("test.sock");
+    try (Daemon daemon = new Daemon().register("echo", ECHO).start(UnixDomainSocketAddress.of(socket))) {
+      Result result = run(daemon.address(), "echo", "x");
+      assertEquals(1, result.exitCode);
+      assertEquals("x", result.out);
+      assertEquals("err", result.err);
+    }
+    assertFalse(Files.exists(socket));
+  }
+
+  @Test
+  void testParseAddress(@TempDir Path dir) {
+    assertEquals(new InetSocketAddress(InetAddress.getLoopbackAddress(), 8080), Protocol.parseAddress("8080"));
+    assertEquals(UnixDomainSocketAddress.of(dir.resolve("a.sock")), Protocol.parseAddress(dir.resolve("a.sock").toString()));
+  }
+
+  @Test
+  void testStaleSocketIsDeleted(@TempDir Path dir) throws IOException {
+    Path socket = dir.resolve("stale.sock");
+    Files.createFile(socket);
+    try (Daemon daemon = new Daemon().register("echo", ECHO).start(UnixDomainSocketAddress.of(socket))) {
+      assertEquals(0, run(daemon.address(), "echo").exitCode);
+    }
+  }
+
+  @Test
+  void testSocketInUse(@TempDir Path dir) throws IOException {
+    Path socket = dir.resolve("used.sock");
+    try (Daemon daemon = new Daemon().register("echo", ECHO).start(UnixDomainSocketAddress.of(socket))) {
+      IOException e = assertThrows(IOException.class, () -> new Daemon().start(daemon.address()));
+      assertTrue(e.getMessage().startsWith("Another daemon is listening on"));
+    }
+  }
+
+  @Test
+  void testNotLoopback() {
+    assertThrows(IllegalArgumentException.class, () -> new Daemon().start(new InetSocketAddress(0)));
+  }
+
+  @Test
+  void testUnknownCommand() throws IOException {
+    try (Daemon daemon = new Daemon().register("echo", ECHO)
+        .start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      Result result = run(daemon.address(), "ls");
+      assertEquals(Protocol.EXIT_USAGE, result.exitCode);
+      assertEquals("Error: Unknown command: ls" + System.lineSeparator(), result.err);
+    }
+  }
+
+  @Test
+  void testHandlerThrows() throws IOException {
+    Handler failing = invocation -> {
+      invocation.out().print("before");
+      throw new IllegalStateException("boom");
+    };
+    try (Daemon daemon = new Daemon().register("fail", failing)
+        .start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      Result result = run(daemon.address(), "fail");
+      assertEquals(Protocol.EXIT_SOFTWARE, result.exitCode);
+      assertEquals("before", result.out);
+      assertTrue(result.err.startsWith("java.lang.IllegalStateException: boom"));
+    }
+  }
+
+  @Test
+  void testHandlerThrowsError() throws IOException {
+    Handler failing = invocation -> {
+      throw new StackOverflowError();
+    };
+    try (Daemon daemon = new Daemon().register("fail", failing)
+        .start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      Result result = run(daemon.address(), "fail");
+      assertEquals(Protocol.EXIT_SOFTWARE, result.exitCode);
+      assertTrue(result.err.startsWith("java.lang.StackOverflowError"));
+    }
+  }
+
+  @Test
+  void testCloseTwice(@TempDir Path dir) throws IOException {
+    Path socket = dir.resolve("twice.sock");
+    Daemon daemon = new Daemon().register("echo", ECHO).start(UnixDomainSocketAddress.of(socket));
+    daemon.close();
+    daemon.close();
+    assertFalse(Files.exists(socket));
+  }
+
+  @Test
+  void testRequestTooLarge() throws IOException {
+    // with its length, each argument takes 1 KiB
+    String arg = "x".repeat((1 << 10) - 4);
+    String[] args = new String[1 << 11];
+    Arrays.fill(args, arg);
+    IOException e = assertThrows(IOException.class, () -> readRequest("echo", args));
+    assertEquals("Request too large", e.getMessage());
+    assertEquals(args.length - 1, readRequest("echo", Arrays.copyOf(args, args.length - 1)).args().length);
+  }
+
+  @Test
+  void testArgumentCountTooLarge() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(Protocol.MAGIC);
+    Protocol.writeString(out, "echo");
+    Protocol.writeString(out, "/");
+    out.writeInt(1 << 19);
+    IOException e = assertThrows(IOException.class, () -> Protocol.readRequest(
+        new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), System.out, System.err));
+    assertEquals("Invalid argument count: " + (1 << 19), e.getMessage());
+  }
+
+  private static Invocation readRequest(String command, String[] args) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Protocol.writeRequest(new DataOutputStream(bytes), command, "/", args);
+    return Protocol.readRequest(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), System.out, System.err);
+  }
+
+  @Test
+  void testLargeOutput() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 10_000; i++) {
+      sb.append(i).append('\n');
+    }
+    String text = sb.toString();
+    Handler large = invocation -> {
+      invocation.out().print(text);
+      return 0;
+    };
+    try (Daemon daemon = new Daemon().register("large", large)
+        .start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      assertEquals(text, run(daemon.address(), "large").out);
+    }
+  }
+
+  @Test
+  void testWorkingDirectory() throws IOException {
+    Handler pwd = invocation -> {
+      invocation.out().print(invocation.workingDirectory());
+      return 0;
+    };
+    try (Daemon daemon = new Daemon().register("pwd", pwd)
+        .start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      assertEquals(System.getProperty("user.dir"), run(daemon.address(), "pwd").out);
+    }
+  }
+
+  @Test
+  void testConcurrentInvocations() throws Exception {
+    ExecutorService clients = Executors.newFixedThreadPool(8);
+    try (Daemon daemon = new Daemon().register("echo", ECHO)
+        .start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      SocketAddress address = daemon.address();
+      List<Future<Result>> futures = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        String arg = Integer.toString(i);
+        futures.add(clients.submit(() -> run(address, "echo", arg)));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        assertEquals(Integer.toString(i), futures.get(i).get().out);
+      }
+    } finally {
+      clients.shutdown();
+    }
+  }
+
+  private static Result run(SocketAddress address, String command, String... args) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    int exitCode = DaemonClient.run(address, command, args, out, err);
+    return new Result(exitCode, out.toString(StandardCharsets.UTF_8), err.toString(StandardCharsets.UTF_8));
+  }
+
+  private static final class Result {
+
+    final int exitCode;
+    final String out;
+    final String err;
+
+    Result(int exitCode, String out, String err) {
+      this.exitCode = exitCode;
+      this.out = out;
+      this.err = err;
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Option;
+import net.jbock.Param;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Command(argumentFiles = true)
+abstract class ArgumentFilesArguments {
+
+  @Option(value = "message", mnemonic = 'm')
+  abstract Optional<String> message();
+
+  @Option(value = "verbose", mnemonic = 'v')
+  abstract boolean verbose();
+
+  @Option(value = "include", mnemonic = 'I')
+  abstract List<String> includes();
+
+  @Param(1)
+  abstract Stream<String> files();
+}
@@ -0,0 +1,21 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Option;
+import net.jbock.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+@Command(batchParsing = true, reuseParserState = true)
+abstract class BatchArguments {
+
+  @Option(value = "name", mnemonic = 'n')
+  abstract String name();
+
+  @Option(value = "priority", mnemonic = 'p')
+  abstract Optional<Integer> priority();
+
+  @Param(1)
+  abstract List<String> command();
+}
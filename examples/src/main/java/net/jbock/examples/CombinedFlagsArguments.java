@@ -0,0 +1,36 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Option;
+import net.jbock.Param;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Command(
+    value = "combined-flags",
+    structuredErrors = true,
+    coercion = Command.Coercion.LAZY,
+    reuseParserState = true,
+    compact = true,
+    memoizeValues = true,
+    fastStartup = true,
+    argumentFiles = true)
+abstract class CombinedFlagsArguments {
+
+  @Option(value = "count", mnemonic = 'c')
+  abstract Optional<Integer> count();
+
+  @Option(value = "header", mnemonic = 'H')
+  abstract List<String> headers();
+
+  @Option(value = "verbose", mnemonic = 'v')
+  abstract boolean verbose();
+
+  @Param(1)
+  abstract int first();
+
+  @Param(2)
+  abstract Stream<Integer> rest();
+}
@@ -0,0 +1,36 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Option;
+import net.jbock.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+@Command(value = "compact", compact = true, reuseParserState = true)
+abstract class CompactArguments {
+
+  /**
+   * Be verbose
+   */
+  @Option(value = "verbose", mnemonic = 'v')
+  abstract boolean verbose();
+
+  @Option(value = "file", mnemonic = 'f')
+  abstract String file();
+
+  @Option(value = "count", mnemonic = 'c')
+  abstract Optional<Integer> count();
+
+  @Option(value = "header", mnemonic = 'H')
+  abstract List<String> headers();
+
+  @Param(1)
+  abstract String source();
+
+  @Param(2)
+  abstract Optional<String> target();
+
+  @Param(3)
+  abstract List<String> rest();
+}
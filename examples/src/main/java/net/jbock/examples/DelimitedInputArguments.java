@@ -0,0 +1,26 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Option;
+import net.jbock.Param;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Command(delimitedInput = true, structuredErrors = true)
+abstract class DelimitedInputArguments {
+
+  @Option(value = "verbose", mnemonic = 'v')
+  abstract boolean verbose();
+
+  @Option(value = "count", mnemonic = 'c')
+  abstract Optional<Integer> count();
+
+  @Option(value = "label", mnemonic = 'l')
+  abstract List<String> labels();
+
+  @Param(1)
+  abstract Stream<Path> files();
+}
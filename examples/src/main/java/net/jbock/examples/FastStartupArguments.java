@@ -0,0 +1,47 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Option;
+import net.jbock.Param;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+@Command(value = "fast-startup", fastStartup = true, reuseParserState = true, memoizeValues = true)
+abstract class FastStartupArguments {
+
+  enum Mode {FAST, SLOW}
+
+  /**
+   * Number of retries
+   */
+  @Option(value = "count", mnemonic = 'c')
+  abstract Optional<Integer> count();
+
+  @Option(value = "mode", mnemonic = 'm')
+  abstract Optional<Mode> mode();
+
+  @Option(value = "include", mnemonic = 'i')
+  abstract List<Pattern> include();
+
+  @Option(value = "sizes", mnemonic = 's')
+  abstract int[] sizes();
+
+  @Option(value = "separator")
+  abstract Optional<Character> separator();
+
+  @Option(value = "config")
+  abstract Optional<File> config();
+
+  @Option(value = "verbose", mnemonic = 'v')
+  abstract boolean verbose();
+
+  @Param(1)
+  abstract String command();
+
+  @Param(2)
+  abstract List<Path> paths();
+}
@@ -0,0 +1,27 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Option;
+import net.jbock.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+@Command(value = "immutable", immutable = true)
+abstract class ImmutableArguments {
+
+  /**
+   * Number of retries
+   */
+  @Option(value = "count", mnemonic = 'c', bundleKey = "count")
+  abstract Optional<Integer> count();
+
+  @Option(value = "header", mnemonic = 'H')
+  abstract List<String> headers();
+
+  @Option(value = "verbose", mnemonic = 'v')
+  abstract boolean verbose();
+
+  @Param(1)
+  abstract List<String> files();
+}
@@ -0,0 +1,41 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Mapper;
+import net.jbock.Option;
+import net.jbock.Param;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+@Command(coercion = Command.Coercion.LAZY, reuseParserState = true)
+abstract class LazyArguments {
+
+  static final AtomicInteger MAPPER_CALLS = new AtomicInteger();
+
+  @Param(1)
+  abstract int required();
+
+  @Option(value = "pattern", mnemonic = 'p', mappedBy = CountingMapper.class)
+  abstract Optional<String> pattern();
+
+  @Option(value = "header", mnemonic = 'H', mappedBy = CountingMapper.class)
+  abstract List<String> headers();
+
+  @Option(value = "verbose", mnemonic = 'v')
+  abstract boolean verbose();
+
+  @Mapper
+  static class CountingMapper implements Function<String, String> {
+    @Override
+    public String apply(String s) {
+      MAPPER_CALLS.incrementAndGet();
+      if (s.isEmpty()) {
+        throw new IllegalArgumentException("Empty value");
+      }
+      return s;
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Mapper;
+import net.jbock.Option;
+import net.jbock.Param;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+@Command(reuseParserState = true)
+abstract class LazySequenceArguments {
+
+  static final AtomicInteger MAPPER_CALLS = new AtomicInteger();
+
+  @Option(value = "number", mnemonic = 'n', mappedBy = CountingMapper.class)
+  abstract Iterator<Integer> numbers();
+
+  @Option(value = "verbose", mnemonic = 'v')
+  abstract boolean verbose();
+
+  @Param(1)
+  abstract Stream<Path> files();
+
+  @Mapper
+  static class CountingMapper implements Function<String, Integer> {
+    @Override
+    public Integer apply(String s) {
+      MAPPER_CALLS.incrementAndGet();
+      return Integer.valueOf(s);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Mapper;
+import net.jbock.Option;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+@Command(coercion = Command.Coercion.LAZY_SYNCHRONIZED)
+abstract class LazySynchronizedArguments {
+
+  static final AtomicInteger MAPPER_CALLS = new AtomicInteger();
+
+  @Option(value = "size", mnemonic = 's', mappedBy = SlowMapper.class)
+  abstract Optional<Integer> size();
+
+  @Option(value = "count", mnemonic = 'c')
+  abstract long count();
+
+  @Mapper
+  static class SlowMapper implements Function<String, Integer> {
+    @Override
+    public Integer apply(String s) {
+      MAPPER_CALLS.incrementAndGet();
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return Integer.valueOf(s);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Mapper;
+import net.jbock.Option;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+@Command(memoizeValues = true, valueCacheSize = 2)
+abstract class MemoizeArguments {
+
+  static final AtomicInteger HEADER_CALLS = new AtomicInteger();
+  static final AtomicInteger QUERY_CALLS = new AtomicInteger();
+
+  @Option(value = "include", mnemonic = 'i')
+  abstract List<Pattern> include();
+
+  @Option(value = "exclude", mnemonic = 'e')
+  abstract List<Pattern> exclude();
+
+  @Option(value = "header", mnemonic = 'H', mappedBy = HeaderMapper.class)
+  abstract List<String> headers();
+
+  @Option(value = "default-header", mnemonic = 'D', mappedBy = HeaderMapper.class)
+  abstract Optional<String> defaultHeader();
+
+  @Option(value = "query", mnemonic = 'q', mappedBy = QueryMapper.class)
+  abstract List<String> queries();
+
+  @Mapper
+  static class HeaderMapper implements Function<String, String> {
+    @Override
+    public String apply(String s) {
+      HEADER_CALLS.incrementAndGet();
+      return s.trim();
+    }
+  }
+
+  @Mapper(pure = true)
+  static class QueryMapper implements Function<String, String> {
+    @Override
+    public String apply(String s) {
+      QUERY_CALLS.incrementAndGet();
+      return s.toLowerCase();
+    }
+  }
+}
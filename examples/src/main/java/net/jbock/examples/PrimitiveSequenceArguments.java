@@ -0,0 +1,48 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Mapper;
+import net.jbock.Option;
+import net.jbock.Param;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+@Command
+abstract class PrimitiveSequenceArguments {
+
+  @Option(value = "int", mnemonic = 'i')
+  abstract int[] ints();
+
+  @Option(value = "long", mnemonic = 'l')
+  abstract long[] longs();
+
+  @Option(value = "double", mnemonic = 'd')
+  abstract double[] doubles();
+
+  @Option(value = "int-stream", mnemonic = 'I')
+  abstract IntStream intStream();
+
+  @Option(value = "long-stream", mnemonic = 'L')
+  abstract LongStream longStream();
+
+  @Option(value = "double-stream", mnemonic = 'D')
+  abstract DoubleStream doubleStream();
+
+  @Option(value = "hex", mnemonic = 'x', mappedBy = HexMapper.class)
+  abstract int[] hex();
+
+  @Param(1)
+  abstract long[] rest();
+
+  @Mapper
+  static class HexMapper implements Supplier<Function<String, Integer>> {
+    @Override
+    public Function<String, Integer> get() {
+      return s -> Integer.parseInt(s, 16);
+    }
+  }
+}
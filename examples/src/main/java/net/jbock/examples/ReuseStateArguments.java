@@ -0,0 +1,30 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Option;
+import net.jbock.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Same as {@link CurlArguments}, but the parser state is reused.
+ */
+@Command(value = "curl", reuseParserState = true)
+abstract class ReuseStateArguments {
+
+  @Option(value = "request", mnemonic = 'X')
+  abstract Optional<String> method();
+
+  @Option(value = "H", mnemonic = 'H')
+  abstract List<String> headers();
+
+  @Option(value = "verbose", mnemonic = 'v')
+  abstract boolean verbose();
+
+  @Option(value = "include", mnemonic = 'i')
+  abstract boolean include();
+
+  @Param(1)
+  abstract List<String> urls();
+}
@@ -0,0 +1,69 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Mapper;
+import net.jbock.Option;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Command
+abstract class SharedMapperArguments {
+
+  static final AtomicInteger LOOKUP_TABLES = new AtomicInteger();
+  static final AtomicInteger SHARED_INSTANCES = new AtomicInteger();
+  static final AtomicInteger UNSHARED_INSTANCES = new AtomicInteger();
+
+  @Option(value = "color", mnemonic = 'c', mappedBy = ColorMapper.class)
+  abstract Optional<Integer> color();
+
+  @Option(value = "upper", mnemonic = 'u', mappedBy = UpperCaseMapper.class)
+  abstract Optional<String> upper();
+
+  @Option(value = "prefix", mnemonic = 'p', mappedBy = PrefixMapper.class)
+  abstract Optional<String> prefix();
+
+  @Mapper(shared = true)
+  static class ColorMapper implements Supplier<Function<String, Integer>> {
+    @Override
+    public Function<String, Integer> get() {
+      LOOKUP_TABLES.incrementAndGet();
+      Map<String, Integer> colors = new HashMap<>();
+      colors.put("red", 0xff0000);
+      colors.put("green", 0x00ff00);
+      colors.put("blue", 0x0000ff);
+      return colors::get;
+    }
+  }
+
+  @Mapper(shared = true)
+  static class UpperCaseMapper implements Function<String, String> {
+
+    UpperCaseMapper() {
+      SHARED_INSTANCES.incrementAndGet();
+    }
+
+    @Override
+    public String apply(String s) {
+      return s.toUpperCase();
+    }
+  }
+
+  static class PrefixMapper implements Function<String, String> {
+
+    private final String prefix = "prefix-";
+
+    PrefixMapper() {
+      UNSHARED_INSTANCES.incrementAndGet();
+    }
+
+    @Override
+    public String apply(String s) {
+      return prefix + s;
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Mapper;
+import net.jbock.Option;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+@Command
+abstract class SharedMapperFailureArguments {
+
+  static final AtomicInteger ATTEMPTS = new AtomicInteger();
+
+  @Option(value = "size", mnemonic = 's', mappedBy = SizeMapper.class)
+  abstract Optional<Integer> size();
+
+  @Mapper(shared = true)
+  static class SizeMapper implements Function<String, Integer> {
+
+    SizeMapper() {
+      if (ATTEMPTS.incrementAndGet() == 1) {
+        throw new IllegalStateException("not ready");
+      }
+    }
+
+    @Override
+    public Integer apply(String s) {
+      return Integer.valueOf(s);
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Option;
+import net.jbock.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+@Command(value = "structured-errors", structuredErrors = true)
+abstract class StructuredErrorsArguments {
+
+  @Option(value = "file", mnemonic = 'f')
+  abstract String file();
+
+  @Option(value = "count", mnemonic = 'c')
+  abstract Optional<Integer> count();
+
+  @Option(value = "verbose", mnemonic = 'v')
+  abstract boolean verbose();
+
+  @Param(1)
+  abstract Optional<String> source();
+
+  @Param(2)
+  abstract List<Integer> numbers();
+}
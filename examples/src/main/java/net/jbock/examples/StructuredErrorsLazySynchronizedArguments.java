@@ -0,0 +1,22 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Option;
+import net.jbock.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+@Command(value = "structured-errors-lazy-synchronized", structuredErrors = true,
+    coercion = Command.Coercion.LAZY_SYNCHRONIZED, compact = true)
+abstract class StructuredErrorsLazySynchronizedArguments {
+
+  @Option(value = "count", mnemonic = 'c')
+  abstract Optional<Integer> count();
+
+  @Option(value = "verbose", mnemonic = 'v')
+  abstract boolean verbose();
+
+  @Param(1)
+  abstract List<Integer> numbers();
+}
@@ -0,0 +1,41 @@
+package net.jbock.examples;
+
+import net.jbock.Command;
+import net.jbock.Option;
+import net.jbock.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+@Command(value = "vcs", subcommands = {SubcommandArguments.Add.class, SubcommandArguments.Commit.class})
+abstract class SubcommandArguments {
+
+  /**
+   * Print the version and exit.
+   */
+  @Option("version")
+  abstract boolean version();
+
+  /**
+   * Add file contents to the index.
+   */
+  @Command("add")
+  static abstract class Add {
+
+    @Option(value = "verbose", mnemonic = 'v')
+    abstract boolean verbose();
+
+    @Param(1)
+    abstract List<String> paths();
+  }
+
+  /**
+   * Record changes to the repository.
+   */
+  @Command(value = "commit", helpDisabled = true)
+  static abstract class Commit {
+
+    @Option(value = "message", mnemonic = 'm')
+    abstract Optional<String> message();
+  }
+}
@@ -0,0 +1,118 @@
+package net.jbock.examples;
+
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArgumentFilesArgumentsTest {
+
+  private final ParserTestFixture<ArgumentFilesArguments> f =
+      ParserTestFixture.create(new ArgumentFilesArguments_Parser());
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void testExpansion() throws IOException {
+    Path file = write("options.txt", "-v --include=a\n-I b\n");
+    ArgumentFilesArguments parsed = f.parse("x", "@" + file, "y");
+    assertTrue(parsed.verbose());
+    assertEquals(Arrays.asList("a", "b"), parsed.includes());
+    assertEquals(Arrays.asList("x", "y"), parsed.files().collect(Collectors.toList()));
+  }
+
+  @Test
+  void testQuotesAndEscapes() throws IOException {
+    Path file = write("quotes.txt",
+        "-m 'hello world'\n" +
+            "\"it's\" 'say \"hi\"' \"a\\tb\" C:\\temp\n" +
+            "\"\" 'line \\\n" +
+            "    continued'\n");
+    ArgumentFilesArguments parsed = f.parse("@" + file);
+    assertEquals(Optional.of("hello world"), parsed.message());
+    assertEquals(Arrays.asList("it's", "say \"hi\"", "a\tb", "C:\\temp", "", "line continued"),
+        parsed.files().collect(Collectors.toList()));
+  }
+
+  @Test
+  void testComments() throws IOException {
+    Path file = write("comments.txt", "# a comment\n  a#b # another comment -v\r\n#\nc");
+    ArgumentFilesArguments parsed = f.parse("@" + file);
+    assertFalse(parsed.verbose());
+    assertEquals(Arrays.asList("a#b", "c"), parsed.files().collect(Collectors.toList()));
+  }
+
+  @Test
+  void testNotExpanded() throws IOException {
+    Path file = write("nested.txt", "@nested.txt");
+    ArgumentFilesArguments parsed = f.parse("@@x", "@", "@" + file, "--", "@@y");
+    assertEquals(Arrays.asList("@x", "@", "@nested.txt", "@y"), parsed.files().collect(Collectors.toList()));
+  }
+
+  @Test
+  void testEmptyFile() throws IOException {
+    Path empty = write("empty.txt", "");
+    Path blank = write("blank.txt", " \n\t\n# only a comment");
+    ArgumentFilesArguments parsed = f.parse("@" + empty, "-v", "@" + blank, "@" + empty);
+    assertTrue(parsed.verbose());
+    assertEquals(0, parsed.files().count());
+  }
+
+  @Test
+  void testOptionValueInNextFile() throws IOException {
+    Path first = write("first.txt", "-m");
+    Path second = write("second.txt", "value");
+    assertEquals(Optional.of("value"), f.parse("@" + first, "@" + second).message());
+  }
+
+  @Test
+  void testMissingFile() {
+    Path missing = dir.resolve("missing.txt");
+    f.assertThat("@" + missing).failsWithMessage("java.nio.file.NoSuchFileException: " + missing);
+  }
+
+  @Test
+  void testParseErrorInFile() throws IOException {
+    Path file = write("error.txt", "a\n--unknown\n");
+    f.assertThat("@" + file).failsWithMessage("Invalid option: --unknown");
+  }
+
+  @Test
+  void testLargeFile() throws IOException {
+    Path file = dir.resolve("large.txt");
+    int count = 200_000;
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (int i = 0; i < count; i++) {
+        writer.write("'file number " + i + "'\n");
+      }
+    }
+    ArgumentFilesArguments parsed = f.parse("@" + file);
+    assertEquals(count, parsed.files().count());
+    assertEquals("file number 199999", parsed.files().skip(count - 1).findFirst().orElse(null));
+  }
+
+  @Test
+  void testNoArgumentFiles() {
+    ArgumentFilesArguments parsed = f.parse("-v");
+    assertTrue(parsed.verbose());
+    assertEquals(Collections.emptyList(), parsed.includes());
+  }
+
+  private Path write(String name, String content) throws IOException {
+    return Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+  }
+}
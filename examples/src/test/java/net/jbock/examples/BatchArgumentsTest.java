@@ -0,0 +1,145 @@
+package net.jbock.examples;
+
+import net.jbock.examples.BatchArguments_Parser.ParseResult;
+import net.jbock.examples.BatchArguments_Parser.ParsingFailed;
+import net.jbock.examples.BatchArguments_Parser.ParsingSuccess;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchArgumentsTest {
+
+  private final BatchArguments_Parser parser = new BatchArguments_Parser();
+
+  @Test
+  void testInputOrder() {
+    List<String[]> argvs = argvs(10_000);
+    List<ParseResult> results = parser.parseAll(argvs);
+    assertEquals(argvs.size(), results.size());
+    for (int i = 0; i < results.size(); i++) {
+      if (i % 7 == 0) {
+        assertTrue(results.get(i) instanceof ParsingFailed);
+        continue;
+      }
+      BatchArguments parsed = success(results.get(i));
+      assertEquals("job" + i, parsed.name());
+      assertEquals(Optional.of(i % 10), parsed.priority());
+      assertEquals(Arrays.asList("run", Integer.toString(i)), parsed.command());
+    }
+  }
+
+  @Test
+  void testExecutor() {
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      List<String[]> argvs = argvs(1_000);
+      List<ParseResult> results = parser.parseAll(argvs, executor);
+      for (int i = 1; i < results.size(); i += 7) {
+        assertEquals("job" + i, success(results.get(i)).name());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void testSameResultsAsParse() {
+    List<String[]> argvs = argvs(500);
+    List<ParseResult> results = parser.parseAll(argvs, new ForkJoinPool(8));
+    for (int i = 0; i < argvs.size(); i++) {
+      assertEquals(parser.parse(argvs.get(i)).getClass(), results.get(i).getClass());
+    }
+  }
+
+  @Test
+  void testInsideCommonPool() {
+    List<String[]> argvs = argvs(1_000);
+    int tasks = 4 * ForkJoinPool.getCommonPoolParallelism();
+    List<Integer> sizes = assertTimeoutPreemptively(Duration.ofSeconds(60), () ->
+        IntStream.range(0, tasks).parallel()
+            .mapToObj(i -> parser.parseAll(argvs).size())
+            .collect(Collectors.toList()));
+    assertEquals(Collections.nCopies(tasks, argvs.size()), sizes);
+    List<ParseResult> results = assertTimeoutPreemptively(Duration.ofSeconds(60), () ->
+        CompletableFuture.supplyAsync(() -> parser.parseAll(argvs)).get());
+    assertEquals("job1", success(results.get(1)).name());
+  }
+
+  @Test
+  void testInsideOtherPool() throws Exception {
+    ForkJoinPool pool = new ForkJoinPool(1);
+    try {
+      List<String[]> argvs = argvs(1_000);
+      List<ParseResult> results = assertTimeoutPreemptively(Duration.ofSeconds(60), () ->
+          pool.submit(() -> parser.parseAll(argvs, ForkJoinPool.commonPool())).get());
+      assertEquals("job1", success(results.get(1)).name());
+      results = assertTimeoutPreemptively(Duration.ofSeconds(60), () ->
+          pool.submit(() -> parser.parseAll(argvs, pool)).get());
+      assertEquals("job1", success(results.get(1)).name());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void testStream() {
+    List<ParseResult> results = parser.parseAll(Stream.of(
+        new String[]{"-n", "a", "x"},
+        new String[]{"-n", "b", "y"}));
+    assertEquals("a", success(results.get(0)).name());
+    assertEquals("b", success(results.get(1)).name());
+  }
+
+  @Test
+  void testEmpty() {
+    assertEquals(Collections.emptyList(), parser.parseAll(Collections.emptyList()));
+  }
+
+  @Test
+  void testSingle() {
+    List<ParseResult> results = parser.parseAll(Collections.singletonList(new String[]{"--name=x", "y"}));
+    assertEquals("x", success(results.get(0)).name());
+  }
+
+  @Test
+  void testRejected() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.shutdown();
+    assertThrows(RejectedExecutionException.class, () -> parser.parseAll(argvs(100), executor));
+  }
+
+  private static List<String[]> argvs(int count) {
+    List<String[]> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      if (i % 7 == 0) {
+        result.add(new String[]{"-p", Integer.toString(i % 10), "run"});
+      } else {
+        result.add(new String[]{"-n", "job" + i, "-p" + i % 10, "run", Integer.toString(i)});
+      }
+    }
+    return result;
+  }
+
+  private static BatchArguments success(ParseResult result) {
+    assertTrue(result instanceof ParsingSuccess);
+    return ((ParsingSuccess) result).getResult();
+  }
+}
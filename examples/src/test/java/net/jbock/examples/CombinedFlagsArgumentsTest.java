@@ -0,0 +1,78 @@
+package net.jbock.examples;
+
+import net.jbock.examples.CombinedFlagsArguments_Parser.ErrorKind;
+import net.jbock.examples.CombinedFlagsArguments_Parser.ParseResult;
+import net.jbock.examples.CombinedFlagsArguments_Parser.ParsingFailed;
+import net.jbock.examples.CombinedFlagsArguments_Parser.ParsingSuccess;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A command that turns on most of the mode flags at once.
+ */
+class CombinedFlagsArgumentsTest {
+
+  @Test
+  void testSuccess() {
+    CombinedFlagsArguments args = succeed("-c", "2", "-H", "x", "-v", "1", "2", "3");
+    assertEquals(Optional.of(2), args.count());
+    assertEquals(asList("x"), args.headers());
+    assertTrue(args.verbose());
+    assertEquals(1, args.first());
+    assertEquals(asList(2, 3), args.rest().collect(Collectors.toList()));
+  }
+
+  @Test
+  void testTokensSurviveStateReuse() {
+    CombinedFlagsArguments first = succeed("-H", "a", "1", "2");
+    CombinedFlagsArguments second = succeed("2");
+    assertEquals(asList("a"), first.headers());
+    assertEquals(asList(2), first.rest().collect(Collectors.toList()));
+    assertEquals(emptyList(), second.headers());
+    assertEquals(2, second.first());
+    assertFalse(second.verbose());
+  }
+
+  @Test
+  void testArgumentFile(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("args");
+    Files.write(file, asList("-c", "7", "4"), StandardCharsets.UTF_8);
+    CombinedFlagsArguments args = succeed("@" + file, "5");
+    assertEquals(Optional.of(7), args.count());
+    assertEquals(4, args.first());
+    assertEquals(asList(5), args.rest().collect(Collectors.toList()));
+  }
+
+  @Test
+  void testErrors() {
+    assertEquals(ErrorKind.MISSING_REQUIRED, fail("-v").getErrorKind());
+    ParsingFailed failed = fail("1", "--foo");
+    assertEquals(ErrorKind.INVALID_OPTION, failed.getErrorKind());
+    assertEquals(1, failed.getTokenIndex());
+  }
+
+  private static CombinedFlagsArguments succeed(String... args) {
+    ParseResult result = new CombinedFlagsArguments_Parser().parse(args);
+    assertTrue(result instanceof ParsingSuccess);
+    return ((ParsingSuccess) result).getResult();
+  }
+
+  private static ParsingFailed fail(String... args) {
+    ParseResult result = new CombinedFlagsArguments_Parser().parse(args);
+    assertTrue(result instanceof ParsingFailed);
+    return (ParsingFailed) result;
+  }
+}
@@ -0,0 +1,122 @@
+package net.jbock.examples;
+
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CompactArgumentsTest {
+
+  private final ParserTestFixture<CompactArguments> f =
+      ParserTestFixture.create(new CompactArguments_Parser());
+
+  @Test
+  void testSuccess() {
+    f.assertThat("-v", "-fa", "--count=2", "-H", "x", "--header", "y", "src", "tgt", "r1", "r2").succeeds(
+        "verbose", true,
+        "file", "a",
+        "count", Optional.of(2),
+        "headers", asList("x", "y"),
+        "source", "src",
+        "target", Optional.of("tgt"),
+        "rest", asList("r1", "r2"));
+    f.assertThat("src", "--file", "a").succeeds(
+        "verbose", false,
+        "file", "a",
+        "count", Optional.empty(),
+        "headers", emptyList(),
+        "source", "src",
+        "target", Optional.empty(),
+        "rest", emptyList());
+  }
+
+  @Test
+  void testEscape() {
+    f.assertThat("-f", "a", "--", "-src", "-v", "-f", "b").succeeds(
+        "verbose", false,
+        "file", "a",
+        "count", Optional.empty(),
+        "headers", emptyList(),
+        "source", "-src",
+        "target", Optional.of("-v"),
+        "rest", asList("-f", "b"));
+  }
+
+  @Test
+  void testStateIsCleared() {
+    CompactArguments_Parser parser = new CompactArguments_Parser();
+    CompactArguments first = ((CompactArguments_Parser.ParsingSuccess) parser.parse(
+        new String[]{"-v", "-f", "a", "-H", "x", "src", "t", "r"})).getResult();
+    CompactArguments second = ((CompactArguments_Parser.ParsingSuccess) parser.parse(
+        new String[]{"-f", "b", "src2"})).getResult();
+    assertEquals(asList("x"), first.headers());
+    assertEquals(asList("r"), first.rest());
+    assertFalse(second.verbose());
+    assertEquals("b", second.file());
+    assertEquals(emptyList(), second.headers());
+    assertEquals(Optional.empty(), second.target());
+    assertEquals(emptyList(), second.rest());
+  }
+
+  @Test
+  void testNoHelperClasses() {
+    assertEquals(emptyList(), Arrays.stream(CompactArguments_Parser.class.getDeclaredClasses())
+        .map(Class::getSimpleName)
+        .filter(name -> name.endsWith("OptionParser") || name.endsWith("ParamParser") || name.equals("FlagParser"))
+        .collect(Collectors.toList()));
+  }
+
+  @Test
+  void testRepeatedFlag() {
+    f.assertThat("-v", "--verbose", "-f", "a", "src").failsWithMessage(
+        "Option VERBOSE (-v, --verbose) is not repeatable");
+  }
+
+  @Test
+  void testRepeatedOption() {
+    f.assertThat("-f", "a", "--file=b", "src").failsWithMessage(
+        "Option FILE (-f, --file) is not repeatable");
+  }
+
+  @Test
+  void testInvalidFlagToken() {
+    f.assertThat("--verbose=true", "-f", "a", "src").failsWithMessage("Invalid token: --verbose=true");
+  }
+
+  @Test
+  void testMissingValue() {
+    f.assertThat("src", "-f").failsWithMessage("Missing value after token: -f");
+  }
+
+  @Test
+  void testMissingRequired() {
+    f.assertThat("src").failsWithMessage("Missing required: FILE (-f, --file)");
+    f.assertThat("-f", "a").failsWithMessage("Missing required: SOURCE");
+  }
+
+  @Test
+  void testInvalidOption() {
+    f.assertThat("-f", "a", "-x", "src").failsWithMessage("Invalid option: -x");
+  }
+
+  @Test
+  void testPrint() {
+    f.assertPrintsHelp(
+        "Usage: compact [options...] -f <file> <source> [<target>] <rest>...",
+        "  source",
+        "  target",
+        "  rest",
+        "  -v, --verbose         Be verbose",
+        "  -f, --file FILE",
+        "  -c, --count COUNT",
+        "  -H, --header HEADERS",
+        "");
+  }
+}
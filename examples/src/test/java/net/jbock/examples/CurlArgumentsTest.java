@@ -172,6 +172,16 @@ class CurlArgumentsTest {
         "Invalid token: -vH'Content-Type: application/xml'");
   }
 
+  @Test
+  void errorSameLengthNames() {
+    f.assertThat("--verbosx").failsWithMessage("Invalid option: --verbosx");
+    f.assertThat("--requesx=GET").failsWithMessage("Invalid option: --requesx=GET");
+    f.assertThat("--verbose=").failsWithMessage("Invalid token: --verbose=");
+    f.assertThat("--verbos").failsWithMessage("Invalid option: --verbos");
+    f.assertThat("--verbosee").failsWithMessage("Invalid option: --verbosee");
+    f.assertThat("-x").failsWithMessage("Invalid option: -x");
+  }
+
   @Test
   void errorMissingRepeatable() {
     f.assertThat("-H").failsWithMessage("Missing value after token: -H");
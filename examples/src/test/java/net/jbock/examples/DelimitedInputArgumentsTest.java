@@ -0,0 +1,189 @@
+package net.jbock.examples;
+
+import net.jbock.examples.DelimitedInputArguments_Parser.Delimiter;
+import net.jbock.examples.DelimitedInputArguments_Parser.ErrorKind;
+import net.jbock.examples.DelimitedInputArguments_Parser.HelpRequested;
+import net.jbock.examples.DelimitedInputArguments_Parser.ParseResult;
+import net.jbock.examples.DelimitedInputArguments_Parser.ParsingFailed;
+import net.jbock.examples.DelimitedInputArguments_Parser.ParsingSuccess;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DelimitedInputArgumentsTest {
+
+  @Test
+  void testNul() {
+    DelimitedInputArguments parsed = success(parse("-v\0-c\0003\0a b\0./c\0", Delimiter.NUL));
+    assertTrue(parsed.verbose());
+    assertEquals(Optional.of(3), parsed.count());
+    assertEquals(Arrays.asList(Paths.get("a b"), Paths.get("./c")), parsed.files().collect(Collectors.toList()));
+  }
+
+  @Test
+  void testNewline() {
+    DelimitedInputArguments parsed = success(parse("-v\na\nb", Delimiter.NEWLINE));
+    assertTrue(parsed.verbose());
+    assertEquals(Arrays.asList(Paths.get("a"), Paths.get("b")), parsed.files().collect(Collectors.toList()));
+  }
+
+  @Test
+  void testOptionAfterFirstFile() {
+    DelimitedInputArguments parsed = success(parse("a\0-v\0--\0b\0", Delimiter.NUL));
+    assertFalse(parsed.verbose());
+    assertEquals(Arrays.asList(Paths.get("a"), Paths.get("-v"), Paths.get("--"), Paths.get("b")),
+        parsed.files().collect(Collectors.toList()));
+  }
+
+  @Test
+  void testFilesCanOnlyBeConsumedOnce() {
+    DelimitedInputArguments parsed = success(parse("a\0b\0", Delimiter.NUL));
+    assertEquals(2, parsed.files().count());
+    assertThrows(IllegalStateException.class, parsed::files);
+  }
+
+  @Test
+  void testUnboundedInput() {
+    ReadableByteChannel endless = new ReadableByteChannel() {
+      int i;
+
+      @Override
+      public int read(ByteBuffer dst) {
+        int start = dst.position();
+        while (dst.remaining() >= 16) {
+          dst.put(("f" + i++ + "\0").getBytes(StandardCharsets.UTF_8));
+        }
+        return dst.position() - start;
+      }
+
+      @Override
+      public boolean isOpen() {
+        return true;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    DelimitedInputArguments parsed = success(new DelimitedInputArguments_Parser().parse(endless, Delimiter.NUL));
+    assertEquals(Arrays.asList(Paths.get("f0"), Paths.get("f1"), Paths.get("f2")),
+        parsed.files().limit(3).collect(Collectors.toList()));
+  }
+
+  @Test
+  void testEmptyInput() {
+    DelimitedInputArguments parsed = success(parse("", Delimiter.NUL));
+    assertFalse(parsed.verbose());
+    assertEquals(0, parsed.files().count());
+  }
+
+  @Test
+  void testEmptyToken() {
+    DelimitedInputArguments parsed = success(parse("--\0\0b\0", Delimiter.NUL));
+    assertEquals(Arrays.asList(Paths.get(""), Paths.get("b")), parsed.files().collect(Collectors.toList()));
+  }
+
+  @Test
+  void testMultibyteCharacters() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      sb.append("-lä€😀").append(i).append('\0');
+    }
+    DelimitedInputArguments parsed = success(parse(sb.toString(), Delimiter.NUL));
+    assertEquals(5000, parsed.labels().size());
+    for (int i = 0; i < 5000; i++) {
+      assertEquals("ä€😀" + i, parsed.labels().get(i));
+    }
+  }
+
+  @Test
+  void testHelp() {
+    assertTrue(parse("--help\0", Delimiter.NUL) instanceof HelpRequested);
+    assertTrue(parse("-v\0--help\0", Delimiter.NUL) instanceof ParsingFailed);
+  }
+
+  @Test
+  void testErrorIndex() {
+    ParsingFailed failed = (ParsingFailed) parse("-v\0-c\0003\0--foo\0b\0", Delimiter.NUL);
+    assertEquals(ErrorKind.INVALID_OPTION, failed.getErrorKind());
+    assertEquals(3, failed.getTokenIndex());
+  }
+
+  @Test
+  void testReadError() {
+    ReadableByteChannel broken = new ReadableByteChannel() {
+      @Override
+      public int read(ByteBuffer dst) throws IOException {
+        throw new IOException("broken pipe");
+      }
+
+      @Override
+      public boolean isOpen() {
+        return true;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    ParseResult result = new DelimitedInputArguments_Parser().parse(broken, Delimiter.NUL);
+    RuntimeException error = ((ParsingFailed) result).getError();
+    assertTrue(error instanceof UncheckedIOException);
+    assertEquals("broken pipe", error.getCause().getMessage());
+  }
+
+  @Test
+  void testLongStream() {
+    int count = 100_000;
+    ReadableByteChannel channel = new ReadableByteChannel() {
+      int i;
+
+      @Override
+      public int read(ByteBuffer dst) {
+        if (i == count) {
+          return -1;
+        }
+        int start = dst.position();
+        while (i < count && dst.remaining() >= 16) {
+          dst.put(("f" + i++ + "\0").getBytes(StandardCharsets.UTF_8));
+        }
+        return dst.position() - start;
+      }
+
+      @Override
+      public boolean isOpen() {
+        return true;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    DelimitedInputArguments parsed = success(new DelimitedInputArguments_Parser().parse(channel, Delimiter.NUL));
+    assertEquals(count, parsed.files().count());
+  }
+
+  private static ParseResult parse(String input, Delimiter delimiter) {
+    return new DelimitedInputArguments_Parser()
+        .parse(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), delimiter);
+  }
+
+  private static DelimitedInputArguments success(ParseResult result) {
+    assertTrue(result instanceof ParsingSuccess, result.toString());
+    return ((ParsingSuccess) result).getResult();
+  }
+}
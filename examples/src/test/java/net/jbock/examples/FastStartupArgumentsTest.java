@@ -0,0 +1,101 @@
+package net.jbock.examples;
+
+import net.jbock.examples.FastStartupArguments.Mode;
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FastStartupArgumentsTest {
+
+  private final ParserTestFixture<FastStartupArguments> f =
+      ParserTestFixture.create(new FastStartupArguments_Parser());
+
+  @Test
+  void testSuccess() {
+    f.assertThat("-c3", "--mode=SLOW", "--separator", ":", "-v", "build", "a", "b").succeeds(
+        "count", Optional.of(3),
+        "mode", Optional.of(Mode.SLOW),
+        "include", emptyList(),
+        "separator", Optional.of(':'),
+        "config", Optional.empty(),
+        "verbose", true,
+        "command", "build",
+        "paths", asList(Paths.get("a"), Paths.get("b")));
+  }
+
+  @Test
+  void testRepeatable() {
+    FastStartupArguments args = f.parse("-i", "[a-z]+", "-i", "x", "-s1", "--sizes=2", "-s1", "run");
+    assertEquals(asList("[a-z]+", "x"), asList(
+        args.include().get(0).pattern(),
+        args.include().get(1).pattern()));
+    assertArrayEquals(new int[]{1, 2, 1}, args.sizes());
+    assertEquals("run", args.command());
+  }
+
+  @Test
+  void testInvalidNumber() {
+    f.assertThat("-c", "x", "run").failsWithMessage("For input string: \"x\"");
+  }
+
+  @Test
+  void testInvalidEnum() {
+    f.assertThat("--mode", "MEDIUM", "run").failsWithMessage(
+        "No enum constant net.jbock.examples.FastStartupArguments.Mode.MEDIUM");
+  }
+
+  @Test
+  void testInvalidCharacter() {
+    f.assertThat("--separator", "ab", "run").failsWithMessage("Not a single character: <ab>");
+  }
+
+  @Test
+  void testConfigNotFound() {
+    f.assertThat("--config", "no/such/file", "run").failsWithMessage("File does not exist: no/such/file");
+  }
+
+  @Test
+  void testRepeatedOption() {
+    f.assertThat("-c1", "-c2", "run").failsWithMessage("Option COUNT (-c, --count) is not repeatable");
+  }
+
+  @Test
+  void testMissingRequired() {
+    f.assertThat("-v").failsWithMessage("Missing required: COMMAND");
+  }
+
+  @Test
+  void testConfig() throws IOException {
+    File config = File.createTempFile("config", ".txt");
+    config.deleteOnExit();
+    FastStartupArguments args = f.parse("--config", config.getPath(), "run");
+    assertEquals(Optional.of(config), args.config());
+    f.assertThat("--config", config.getParent(), "run").failsWithMessage("Not a file: " + config.getParent());
+  }
+
+  @Test
+  void testPrint() {
+    f.assertPrintsHelp(
+        "Usage: fast-startup [options...] <command> <paths>...",
+        "  command",
+        "  paths",
+        "  -c, --count COUNT          Number of retries",
+        "  -m, --mode MODE",
+        "  -i, --include INCLUDE",
+        "  -s, --sizes SIZES",
+        "      --separator SEPARATOR",
+        "      --config CONFIG",
+        "  -v, --verbose",
+        "");
+  }
+}
@@ -3,6 +3,7 @@ package net.jbock.examples;
 import net.jbock.examples.fixture.ParserTestFixture;
 import org.junit.jupiter.api.Test;
 
+import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -39,6 +40,15 @@ class HelplessArgumentsTest {
     assertEquals("x", args.required());
   }
 
+  @Test
+  void successIterable() {
+    HelplessArguments_Parser.ParseResult opt = new HelplessArguments_Parser().parse(asList("--help", "x"));
+    assertTrue(opt instanceof HelplessArguments_Parser.ParsingSuccess);
+    HelplessArguments args = ((HelplessArguments_Parser.ParsingSuccess) opt).getResult();
+    assertTrue(args.help());
+    assertEquals("x", args.required());
+  }
+
   @Test
   void errorNoArguments() {
     f.assertThat().failsWithMessage("Missing required: REQUIRED");
@@ -0,0 +1,129 @@
+package net.jbock.examples;
+
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImmutableArgumentsTest {
+
+  private static final int TASKS = 20_000;
+
+  private final ParserTestFixture<ImmutableArguments> f =
+      ParserTestFixture.create(new ImmutableArguments_Parser());
+
+  @Test
+  void testParse() {
+    f.assertThat("-c3", "-H1", "--header=2", "-v", "a", "b").succeeds(
+        "count", Optional.of(3),
+        "headers", asList("1", "2"),
+        "verbose", true,
+        "files", asList("a", "b"));
+    f.assertThat("a").succeeds(
+        "count", Optional.empty(),
+        "headers", emptyList(),
+        "verbose", false,
+        "files", singletonList("a"));
+  }
+
+  @Test
+  void testConfigurationReturnsNewInstance() {
+    ImmutableArguments_Parser parser = new ImmutableArguments_Parser();
+    ImmutableArguments_Parser narrow = parser.maxLineWidth(20);
+    assertNotSame(parser, narrow);
+    assertNotEquals(help(parser), help(narrow));
+    assertEquals(help(new ImmutableArguments_Parser()), help(parser));
+  }
+
+  @Test
+  void testMessagesAreCopied() {
+    Map<String, String> messages = new HashMap<>();
+    messages.put("count", "Number of attempts");
+    ImmutableArguments_Parser parser = new ImmutableArguments_Parser().withMessages(messages);
+    messages.put("count", "Changed later");
+    String help = help(parser);
+    assertTrue(help.contains("Number of attempts"), help);
+    assertTrue(help(new ImmutableArguments_Parser()).contains("Number of retries"));
+  }
+
+  @Test
+  void testConcurrentParse() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      parseConcurrently(executor);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void testConcurrentParseManyThreads() throws Exception {
+    // many more threads than cores, so that parses are interleaved at arbitrary points
+    ExecutorService executor = Executors.newFixedThreadPool(64);
+    try {
+      parseConcurrently(executor);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  // all tasks share one configured parser
+  private static void parseConcurrently(ExecutorService executor) throws Exception {
+    ImmutableArguments_Parser parser = new ImmutableArguments_Parser()
+        .maxLineWidth(100)
+        .withMessages(new HashMap<>());
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>(TASKS);
+    for (int i = 0; i < TASKS; i++) {
+      int n = i;
+      Callable<?> task = () -> {
+        start.await();
+        String[] args = {"-c", Integer.toString(n), "-H" + n, "--header=x", "file" + n};
+        if (n % 2 == 0) {
+          args = Arrays.copyOf(args, args.length + 1);
+          args[args.length - 1] = "-v";
+        }
+        ImmutableArguments_Parser.ParseResult result = parser.parse(args);
+        ImmutableArguments parsed = ((ImmutableArguments_Parser.ParsingSuccess) result).getResult();
+        assertEquals(Optional.of(n), parsed.count());
+        assertEquals(asList(Integer.toString(n), "x"), parsed.headers());
+        assertEquals(n % 2 == 0, parsed.verbose());
+        assertEquals(singletonList("file" + n), parsed.files());
+        return null;
+      };
+      futures.add(executor.submit(task));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(); // rethrows assertion errors
+    }
+  }
+
+  private static String help(ImmutableArguments_Parser parser) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(bytes, true);
+    parser.printOnlineHelp(out);
+    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,70 @@
+package net.jbock.examples;
+
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LazyArgumentsTest {
+
+  private final ParserTestFixture<LazyArguments> f =
+      ParserTestFixture.create(new LazyArguments_Parser());
+
+  @BeforeEach
+  void resetCounter() {
+    LazyArguments.MAPPER_CALLS.set(0);
+  }
+
+  @Test
+  void testMappedOnFirstAccess() {
+    LazyArguments parsed = f.parse("-p", "a", "-H", "b", "-H", "c", "-v", "1");
+    assertEquals(0, LazyArguments.MAPPER_CALLS.get());
+    assertTrue(parsed.verbose());
+    assertEquals(1, parsed.required());
+    assertEquals(Optional.of("a"), parsed.pattern());
+    assertEquals(1, LazyArguments.MAPPER_CALLS.get());
+    assertEquals(Optional.of("a"), parsed.pattern());
+    assertEquals(1, LazyArguments.MAPPER_CALLS.get());
+    assertEquals(Arrays.asList("b", "c"), parsed.headers());
+    assertEquals(Arrays.asList("b", "c"), parsed.headers());
+    assertEquals(3, LazyArguments.MAPPER_CALLS.get());
+  }
+
+  @Test
+  void testTokensSurviveStateReuse() {
+    LazyArguments first = f.parse("-H", "x", "1");
+    LazyArguments second = f.parse("-H", "y", "2");
+    assertEquals(Arrays.asList("x"), first.headers());
+    assertEquals(Arrays.asList("y"), second.headers());
+    assertEquals(1, first.required());
+    assertEquals(2, second.required());
+    assertFalse(first.verbose());
+  }
+
+  @Test
+  void testMapperErrorOnAccess() {
+    LazyArguments parsed = f.parse("-p", "", "1");
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, parsed::pattern);
+    assertEquals("Empty value", e.getMessage());
+    assertEquals(Optional.empty(), f.parse("1").pattern());
+  }
+
+  @Test
+  void testRequiredCheckedWhileParsing() {
+    f.assertThat("-v").failsWithMessage("Missing required: REQUIRED");
+  }
+
+  @Test
+  void testInvalidNumberOnAccess() {
+    LazyArguments parsed = f.parse("x");
+    NumberFormatException e = assertThrows(NumberFormatException.class, parsed::required);
+    assertEquals("For input string: \"x\"", e.getMessage());
+  }
+}
@@ -0,0 +1,93 @@
+package net.jbock.examples;
+
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LazySequenceArgumentsTest {
+
+  private final ParserTestFixture<LazySequenceArguments> f =
+      ParserTestFixture.create(new LazySequenceArguments_Parser());
+
+  @BeforeEach
+  void resetCounter() {
+    LazySequenceArguments.MAPPER_CALLS.set(0);
+  }
+
+  @Test
+  void testMappedOnConsumption() {
+    LazySequenceArguments parsed = f.parse("-n", "1", "-n2", "-n", "3");
+    assertEquals(0, LazySequenceArguments.MAPPER_CALLS.get());
+    Iterator<Integer> numbers = parsed.numbers();
+    assertEquals(0, LazySequenceArguments.MAPPER_CALLS.get());
+    assertEquals(1, numbers.next());
+    assertEquals(1, LazySequenceArguments.MAPPER_CALLS.get());
+    assertEquals(2, numbers.next());
+    assertEquals(3, numbers.next());
+    assertFalse(numbers.hasNext());
+    assertThrows(NoSuchElementException.class, numbers::next);
+    assertEquals(3, LazySequenceArguments.MAPPER_CALLS.get());
+  }
+
+  @Test
+  void testNewSequenceOnEachInvocation() {
+    LazySequenceArguments parsed = f.parse("-v", "a", "b/c");
+    assertTrue(parsed.verbose());
+    assertEquals(Arrays.asList(Paths.get("a"), Paths.get("b/c")), parsed.files().collect(Collectors.toList()));
+    assertEquals(Arrays.asList(Paths.get("a"), Paths.get("b/c")), parsed.files().collect(Collectors.toList()));
+    assertFalse(parsed.numbers().hasNext());
+  }
+
+  @Test
+  void testIterationContinuesAfterMappingError() {
+    LazySequenceArguments parsed = f.parse("-n", "1", "-n", "x", "-n", "3");
+    Iterator<Integer> numbers = parsed.numbers();
+    assertEquals(1, numbers.next());
+    assertThrows(NumberFormatException.class, numbers::next);
+    assertEquals(3, numbers.next());
+  }
+
+  @Test
+  void testOnlyConsumedValuesAreMapped() {
+    Path first = f.parse("a", "b", "c").files().findFirst().orElseThrow(AssertionError::new);
+    assertEquals(Paths.get("a"), first);
+    LazySequenceArguments parsed = f.parse("-n", "1", "-n", "x");
+    assertEquals(1, parsed.numbers().next());
+    assertEquals(1, LazySequenceArguments.MAPPER_CALLS.get());
+  }
+
+  @Test
+  void testMappingErrorOnConsumption() {
+    LazySequenceArguments parsed = f.parse("-n", "x");
+    assertThrows(NumberFormatException.class, () -> parsed.numbers().next());
+  }
+
+  @Test
+  void testTokensSurviveStateReuse() {
+    LazySequenceArguments first = f.parse("-n", "1", "a");
+    LazySequenceArguments second = f.parse("-n", "2", "b");
+    assertEquals(1, first.numbers().next());
+    assertEquals(2, second.numbers().next());
+    assertEquals(Arrays.asList(Paths.get("a")), first.files().collect(Collectors.toList()));
+    assertEquals(Arrays.asList(Paths.get("b")), second.files().collect(Collectors.toList()));
+  }
+
+  @Test
+  void testEmpty() {
+    LazySequenceArguments parsed = f.parse();
+    assertFalse(parsed.numbers().hasNext());
+    assertEquals(0, parsed.files().count());
+  }
+}
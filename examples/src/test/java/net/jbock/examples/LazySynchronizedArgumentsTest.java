@@ -0,0 +1,46 @@
+package net.jbock.examples;
+
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LazySynchronizedArgumentsTest {
+
+  private final ParserTestFixture<LazySynchronizedArguments> f =
+      ParserTestFixture.create(new LazySynchronizedArguments_Parser());
+
+  @Test
+  void testConcurrentAccess() throws Exception {
+    int threads = 8;
+    LazySynchronizedArguments.MAPPER_CALLS.set(0);
+    LazySynchronizedArguments parsed = f.parse("-s", "12", "-c", "3");
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Optional<Integer>>> results = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        results.add(executor.submit(() -> {
+          start.await();
+          return parsed.size();
+        }));
+      }
+      start.countDown();
+      for (Future<Optional<Integer>> result : results) {
+        assertEquals(Optional.of(12), result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(1, LazySynchronizedArguments.MAPPER_CALLS.get());
+    assertEquals(3L, parsed.count());
+  }
+}
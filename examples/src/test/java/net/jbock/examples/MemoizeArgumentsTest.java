@@ -0,0 +1,55 @@
+package net.jbock.examples;
+
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MemoizeArgumentsTest {
+
+  private final ParserTestFixture<MemoizeArguments> f =
+      ParserTestFixture.create(new MemoizeArguments_Parser());
+
+  @BeforeEach
+  void resetCounters() {
+    MemoizeArguments.HEADER_CALLS.set(0);
+    MemoizeArguments.QUERY_CALLS.set(0);
+  }
+
+  @Test
+  void testMemoizedWithinParse() {
+    MemoizeArguments parsed = f.parse(
+        "-H", "a ", "-H", "a ", "-H", "b", "-D", "a ");
+    assertEquals(Arrays.asList("a", "a", "b"), parsed.headers());
+    assertEquals(Optional.of("a"), parsed.defaultHeader());
+    assertEquals(2, MemoizeArguments.HEADER_CALLS.get());
+    f.parse("-H", "a ");
+    assertEquals(3, MemoizeArguments.HEADER_CALLS.get());
+  }
+
+  @Test
+  void testPatternSharedBetweenOptions() {
+    MemoizeArguments parsed = f.parse("-i", "x.*", "-e", "x.*", "-i", "y");
+    assertEquals(2, parsed.include().size());
+    assertSame(parsed.include().get(0), parsed.exclude().get(0));
+    MemoizeArguments again = f.parse("-e", "x.*");
+    assertSame(parsed.include().get(0), again.exclude().get(0));
+  }
+
+  @Test
+  void testSharedCacheBounded() {
+    f.parse("-q", "A", "-q", "B");
+    assertEquals(2, MemoizeArguments.QUERY_CALLS.get());
+    f.parse("-q", "A", "-q", "B", "-q", "A");
+    assertEquals(2, MemoizeArguments.QUERY_CALLS.get());
+    f.parse("-q", "C");
+    assertEquals(3, MemoizeArguments.QUERY_CALLS.get());
+    f.parse("-q", "B");
+    assertEquals(4, MemoizeArguments.QUERY_CALLS.get());
+  }
+}
@@ -0,0 +1,65 @@
+package net.jbock.examples;
+
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrimitiveSequenceArgumentsTest {
+
+  private final ParserTestFixture<PrimitiveSequenceArguments> f =
+      ParserTestFixture.create(new PrimitiveSequenceArguments_Parser());
+
+  @Test
+  void simpleTest() {
+    PrimitiveSequenceArguments parsed = f.parse(
+        "-i", "1", "--int=2",
+        "-l", "3",
+        "-d", "4.5", "-d6",
+        "-I", "7", "-I8",
+        "-L", "9",
+        "-D", "10.5",
+        "-x", "ff",
+        "11", "12");
+    assertArrayEquals(new int[]{1, 2}, parsed.ints());
+    assertArrayEquals(new long[]{3}, parsed.longs());
+    assertArrayEquals(new double[]{4.5, 6}, parsed.doubles());
+    assertArrayEquals(new int[]{7, 8}, parsed.intStream().toArray());
+    assertArrayEquals(new long[]{9}, parsed.longStream().toArray());
+    assertArrayEquals(new double[]{10.5}, parsed.doubleStream().toArray());
+    assertArrayEquals(new int[]{255}, parsed.hex());
+    assertArrayEquals(new long[]{11, 12}, parsed.rest());
+  }
+
+  @Test
+  void testEmpty() {
+    PrimitiveSequenceArguments parsed = f.parse();
+    assertEquals(0, parsed.ints().length);
+    assertEquals(0, parsed.longs().length);
+    assertEquals(0, parsed.doubles().length);
+    assertEquals(0, parsed.intStream().count());
+    assertEquals(0, parsed.longStream().count());
+    assertEquals(0, parsed.doubleStream().count());
+    assertEquals(0, parsed.hex().length);
+    assertEquals(0, parsed.rest().length);
+  }
+
+  @Test
+  void testStreamCanBeConsumedTwice() {
+    PrimitiveSequenceArguments parsed = f.parse("-I", "1", "-I2", "-L", "3", "-D", "4.5");
+    assertEquals(3, parsed.intStream().sum());
+    assertArrayEquals(new int[]{1, 2}, parsed.intStream().toArray());
+    assertEquals(3, parsed.longStream().sum());
+    assertArrayEquals(new long[]{3}, parsed.longStream().toArray());
+    assertEquals(4.5, parsed.doubleStream().sum());
+    assertArrayEquals(new double[]{4.5}, parsed.doubleStream().toArray());
+  }
+
+  @Test
+  void errorInvalidNumber() {
+    f.assertThat("-i", "x").failsWithMessage("For input string: \"x\"");
+    f.assertThat("-L", "1.5").failsWithMessage("For input string: \"1.5\"");
+    f.assertThat("-d", "y").failsWithMessage("For input string: \"y\"");
+  }
+}
@@ -4,12 +4,20 @@ import net.jbock.examples.fixture.ParserTestFixture;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Vector;
+import java.util.stream.Collectors;
 
 import static net.jbock.examples.fixture.ParserTestFixture.assertArraysEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -40,6 +48,15 @@ class RestArgumentsTest {
     assertArraysEquals(expected, help);
   }
 
+  @Test
+  void testMessagesAreCopied() throws Exception {
+    RestArguments_Parser parser = new RestArguments_Parser().withMessages(messages);
+    messages.put("the.file", "Changed later");
+    StringWriter help = new StringWriter();
+    parser.printOnlineHelp(help);
+    assertArraysEquals(expected, help.toString().split("\\R", -1));
+  }
+
   @Test
   void testBundleKeyFromResourceBundle() {
     ResourceBundle bundle = mock(ResourceBundle.class);
@@ -48,4 +65,48 @@ class RestArgumentsTest {
     String[] help = f.getHelp(bundle);
     assertArraysEquals(expected, help);
   }
+
+  @Test
+  void testResourceBundleIsReadLazily() {
+    CountingBundle bundle = new CountingBundle();
+    RestArguments_Parser parser = new RestArguments_Parser().withResourceBundle(bundle);
+    parser.parse(new String[]{"--file", "a", "b"});
+    assertEquals(Collections.emptyList(), bundle.lookups);
+  }
+
+  @Test
+  void testResourceBundleOnlyDeclaredKeys() throws Exception {
+    CountingBundle bundle = new CountingBundle();
+    StringWriter help = new StringWriter();
+    new RestArguments_Parser().withResourceBundle(bundle).printOnlineHelp(help);
+    assertEquals(2, bundle.lookups.size());
+    assertEquals(Collections.emptyList(), bundle.lookups.stream()
+        .filter(key -> !key.equals("the.file") && !key.equals("the.rest"))
+        .collect(Collectors.toList()));
+    assertEquals(String.join(System.lineSeparator(), expected), help.toString());
+  }
+
+  @Test
+  void testResourceBundleIsCached() throws Exception {
+    CountingBundle bundle = new CountingBundle();
+    new RestArguments_Parser().withResourceBundle(bundle).printOnlineHelp(new StringWriter());
+    new RestArguments_Parser().withResourceBundle(bundle).maxLineWidth(40).printOnlineHelp(new StringWriter());
+    assertEquals(2, bundle.lookups.size());
+  }
+
+  private class CountingBundle extends ResourceBundle {
+
+    final List<String> lookups = new ArrayList<>();
+
+    @Override
+    protected Object handleGetObject(String key) {
+      lookups.add(key);
+      return key.equals("unused") ? "Not declared" : messages.get(key);
+    }
+
+    @Override
+    public Enumeration<String> getKeys() {
+      return new Vector<>(Arrays.asList("the.file", "the.rest", "unused")).elements();
+    }
+  }
 }
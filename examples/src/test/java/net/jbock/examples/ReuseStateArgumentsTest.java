@@ -0,0 +1,100 @@
+package net.jbock.examples;
+
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ReuseStateArgumentsTest {
+
+  private static final String[] ARGS = {"-v", "-XPOST", "-H1", "-H2", "http://localhost:8080"};
+
+  private static final int ITERATIONS = 20_000;
+
+  private final ParserTestFixture<ReuseStateArguments> f =
+      ParserTestFixture.create(new ReuseStateArguments_Parser());
+
+  private volatile Object sink;
+
+  @Test
+  void testRepeatedParse() {
+    f.assertThat("-H1", "-H2", "-v", "a").succeeds(
+        "method", Optional.empty(),
+        "headers", asList("1", "2"),
+        "verbose", true,
+        "include", false,
+        "urls", singletonList("a"));
+    f.assertThat("-i").succeeds(
+        "method", Optional.empty(),
+        "headers", emptyList(),
+        "verbose", false,
+        "include", true,
+        "urls", emptyList());
+  }
+
+  @Test
+  void testParseAfterFailure() {
+    f.assertThat("-X1", "-X2").failsWithMessage("Option METHOD (-X, --request) is not repeatable");
+    f.assertThat("-X1").succeeds(
+        "method", Optional.of("1"),
+        "headers", emptyList(),
+        "verbose", false,
+        "include", false,
+        "urls", emptyList());
+  }
+
+  @Test
+  void testParseAfterLargeInput() {
+    String[] args = new String[2000];
+    for (int i = 0; i < args.length; i += 2) {
+      args[i] = "-H";
+      args[i + 1] = Integer.toString(i);
+    }
+    assertEquals(1000, f.parse(args).headers().size());
+    f.assertThat("-H1", "a").succeeds(
+        "method", Optional.empty(),
+        "headers", singletonList("1"),
+        "verbose", false,
+        "include", false,
+        "urls", singletonList("a"));
+  }
+
+  @Test
+  void testAllocationPerParse() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+    ReuseStateArguments_Parser reusing = new ReuseStateArguments_Parser();
+    NoReuseStateArguments_Parser allocating = new NoReuseStateArguments_Parser();
+    long reused = allocationPerParse(threadBean, () -> reusing.parse(ARGS));
+    long fresh = allocationPerParse(threadBean, () -> allocating.parse(ARGS));
+    assertTrue(reused < fresh, String.format(
+        "Expecting less allocation with reused state, but got %d bytes vs. %d bytes per parse", reused, fresh));
+  }
+
+  private long allocationPerParse(com.sun.management.ThreadMXBean threadBean, Supplier<Object> parse) {
+    long threadId = Thread.currentThread().getId();
+    for (int i = 0; i < ITERATIONS; i++) {
+      sink = parse.get(); // warmup
+    }
+    long before = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < ITERATIONS; i++) {
+      sink = parse.get();
+    }
+    long after = threadBean.getThreadAllocatedBytes(threadId);
+    assertEquals(ReuseStateArguments_Parser.ParsingSuccess.class.getSimpleName(), sink.getClass().getSimpleName());
+    return (after - before) / ITERATIONS;
+  }
+}
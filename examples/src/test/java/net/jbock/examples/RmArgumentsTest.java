@@ -3,7 +3,16 @@ package net.jbock.examples;
 import net.jbock.examples.fixture.ParserTestFixture;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class RmArgumentsTest {
 
@@ -33,4 +42,99 @@ class RmArgumentsTest {
         "  -f, --force      Use the force, Luke.",
         "");
   }
+
+  @Test
+  void testDefaultHelpSameAsRendered() {
+    // the default help is a constant, other messages are rendered at runtime
+    String constant = help(new RmArguments_Parser());
+    String rendered = help(new RmArguments_Parser().withMessages(singletonMap("unknown", "")));
+    assertEquals(rendered, constant);
+    assertEquals(rendered, help(new RmArguments_Parser().maxLineWidth(80).withMessages(singletonMap("unknown", ""))));
+  }
+
+  @Test
+  void testRenderedHelpFollowsConfiguration() {
+    RmArguments_Parser parser = new RmArguments_Parser();
+    String wide = help(parser.maxLineWidth(120));
+    String narrow = help(parser.maxLineWidth(40));
+    assertEquals(narrow, help(parser));
+    assertEquals(wide, help(parser.maxLineWidth(120)));
+    assertTrue(narrow.split("\\R").length > wide.split("\\R").length);
+  }
+
+  private static String help(RmArguments_Parser parser) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    parser.printOnlineHelp(new PrintStream(bytes, true));
+    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void testPrintOnlineHelpAppendable() throws IOException {
+    int[] flushes = new int[1];
+    StringWriter writer = new StringWriter() {
+      @Override
+      public void flush() {
+        flushes[0]++;
+      }
+    };
+    new RmArguments_Parser().printOnlineHelp(writer);
+    assertEquals(help(new RmArguments_Parser()), writer.toString());
+    assertEquals(1, flushes[0]);
+  }
+
+  @Test
+  void testPrintUsage() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    new RmArguments_Parser().maxLineWidth(30).printUsage(sb);
+    String nl = System.lineSeparator();
+    assertEquals("Usage: rm-arguments" + nl + "        [options...]" + nl + "        <other_tokens>..." + nl, sb.toString());
+  }
+
+  @Test
+  void testWrapSameAsRegex() throws IOException {
+    String[] inputs = {"a  b\tc\n\nd", " leading", "trailing ", "  ", "x\u000by\fz\r",
+        "averyveryveryverylongtokenthatdoesnotfit short", "\u00a0non-breaking\u00a0space"};
+    for (int width : new int[]{5, 12, 40}) {
+      RmArguments_Parser parser = new RmArguments_Parser().maxLineWidth(width);
+      for (String input : inputs) {
+        for (String init : new String[]{"", "  key  "}) {
+          ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+          parser.printWrap(new PrintStream(bytes, true, "UTF-8"), 4, init, input);
+          assertEquals(regexWrap(width, 4, init, input),
+              new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        }
+      }
+    }
+  }
+
+  // the previous implementation of printWrap
+  private static String regexWrap(int maxLineWidth, int continuationIndent, String init, String input) {
+    String nl = System.lineSeparator();
+    StringBuilder out = new StringBuilder();
+    String[] tokens = input.split("\\s+", -1);
+    StringBuilder sb = new StringBuilder(init);
+    for (String token : tokens) {
+      if (token.length() + sb.length() + 1 > maxLineWidth) {
+        if (sb.toString().isEmpty()) {
+          out.append(token).append(nl);
+        } else {
+          out.append(sb).append(nl);
+          sb.setLength(0);
+          for (int i = 0; i < continuationIndent; i++) {
+            sb.append(' ');
+          }
+          sb.append(token);
+        }
+      } else {
+        if (sb.length() > 0 && !Character.isWhitespace(sb.charAt(sb.length() - 1))) {
+          sb.append(' ');
+        }
+        sb.append(token);
+      }
+    }
+    if (sb.length() > 0) {
+      out.append(sb).append(nl);
+    }
+    return out.toString();
+  }
 }
@@ -0,0 +1,27 @@
+package net.jbock.examples;
+
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SharedMapperArgumentsTest {
+
+  private final ParserTestFixture<SharedMapperArguments> f =
+      ParserTestFixture.create(new SharedMapperArguments_Parser());
+
+  @Test
+  void testMapperCreatedOnce() {
+    for (int i = 0; i < 3; i++) {
+      SharedMapperArguments parsed = f.parse("-c", "green", "-u", "a", "-p", "b");
+      assertEquals(Optional.of(0x00ff00), parsed.color());
+      assertEquals(Optional.of("A"), parsed.upper());
+      assertEquals(Optional.of("prefix-b"), parsed.prefix());
+    }
+    assertEquals(1, SharedMapperArguments.LOOKUP_TABLES.get());
+    assertEquals(1, SharedMapperArguments.SHARED_INSTANCES.get());
+    assertEquals(3, SharedMapperArguments.UNSHARED_INSTANCES.get());
+  }
+}
@@ -0,0 +1,28 @@
+package net.jbock.examples;
+
+import net.jbock.examples.SharedMapperFailureArguments_Parser.ParseResult;
+import net.jbock.examples.SharedMapperFailureArguments_Parser.ParsingFailed;
+import net.jbock.examples.SharedMapperFailureArguments_Parser.ParsingSuccess;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SharedMapperFailureArgumentsTest {
+
+  @Test
+  void testFailedCreationIsRetried() {
+    SharedMapperFailureArguments_Parser parser = new SharedMapperFailureArguments_Parser();
+    ParseResult failed = parser.parse(new String[]{"-s", "1"});
+    assertTrue(failed instanceof ParsingFailed);
+    assertEquals("not ready", ((ParsingFailed) failed).getError().getMessage());
+    for (int i = 2; i <= 3; i++) {
+      ParseResult result = parser.parse(new String[]{"-s", Integer.toString(i)});
+      assertTrue(result instanceof ParsingSuccess);
+      assertEquals(Optional.of(i), ((ParsingSuccess) result).getResult().size());
+    }
+    assertEquals(2, SharedMapperFailureArguments.ATTEMPTS.get());
+  }
+}
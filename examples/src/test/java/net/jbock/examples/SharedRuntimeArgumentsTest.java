@@ -0,0 +1,140 @@
+package net.jbock.examples;
+
+import net.jbock.examples.SharedRuntimeArguments_Parser.ErrorKind;
+import net.jbock.examples.SharedRuntimeArguments_Parser.Option;
+import net.jbock.examples.SharedRuntimeArguments_Parser.ParseResult;
+import net.jbock.examples.SharedRuntimeArguments_Parser.ParsingFailed;
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SharedRuntimeArgumentsTest {
+
+  private final ParserTestFixture<SharedRuntimeArguments> f =
+      ParserTestFixture.create(new SharedRuntimeArguments_Parser());
+
+  @Test
+  void testSuccess() {
+    f.assertThat("-v", "-fa", "--count=2", "-H", "x", "--header", "y", "src", "tgt", "r1", "r2").succeeds(
+        "verbose", true,
+        "file", "a",
+        "count", Optional.of(2),
+        "headers", asList("x", "y"),
+        "source", "src",
+        "target", Optional.of("tgt"),
+        "rest", asList("r1", "r2"));
+    f.assertThat("src", "--file", "a").succeeds(
+        "verbose", false,
+        "file", "a",
+        "count", Optional.empty(),
+        "headers", emptyList(),
+        "source", "src",
+        "target", Optional.empty(),
+        "rest", emptyList());
+  }
+
+  @Test
+  void testEscape() {
+    f.assertThat("-f", "a", "--", "-src", "-v", "-f", "b").succeeds(
+        "verbose", false,
+        "file", "a",
+        "count", Optional.empty(),
+        "headers", emptyList(),
+        "source", "-src",
+        "target", Optional.of("-v"),
+        "rest", asList("-f", "b"));
+  }
+
+  @Test
+  void testNoParsingCode() {
+    assertEquals(emptyList(), Arrays.stream(SharedRuntimeArguments_Parser.class.getDeclaredMethods())
+        .map(method -> method.getName())
+        .filter(name -> name.equals("readOptionArgument") || name.equals("isSeparator") || name.equals("tryReadOption"))
+        .collect(Collectors.toList()));
+  }
+
+  @Test
+  void testRepeatedFlag() {
+    f.assertThat("-v", "--verbose", "-f", "a", "src").failsWithMessage(
+        "Option VERBOSE (-v, --verbose) is not repeatable");
+    ParsingFailed failed = fail("-v", "--verbose", "-f", "a", "src");
+    assertEquals(ErrorKind.REPEATED_OPTION, failed.getErrorKind());
+    assertEquals(Option.VERBOSE, failed.getOption());
+    assertEquals(1, failed.getTokenIndex());
+  }
+
+  @Test
+  void testRepeatedOption() {
+    f.assertThat("-f", "a", "--file=b", "src").failsWithMessage(
+        "Option FILE (-f, --file) is not repeatable");
+  }
+
+  @Test
+  void testInvalidFlagToken() {
+    f.assertThat("--verbose=true", "-f", "a", "src").failsWithMessage("Invalid token: --verbose=true");
+    ParsingFailed failed = fail("--verbose=true");
+    assertEquals(ErrorKind.INVALID_TOKEN, failed.getErrorKind());
+    assertEquals(Option.VERBOSE, failed.getOption());
+    assertEquals(0, failed.getTokenIndex());
+  }
+
+  @Test
+  void testMissingValue() {
+    f.assertThat("src", "-f").failsWithMessage("Missing value after token: -f");
+    ParsingFailed failed = fail("src", "-f");
+    assertEquals(ErrorKind.MISSING_VALUE, failed.getErrorKind());
+    assertNull(failed.getOption());
+    assertEquals(1, failed.getTokenIndex());
+  }
+
+  @Test
+  void testMissingRequired() {
+    f.assertThat("src").failsWithMessage("Missing required: FILE (-f, --file)");
+    f.assertThat("-f", "a").failsWithMessage("Missing required: SOURCE");
+  }
+
+  @Test
+  void testInvalidOption() {
+    f.assertThat("-f", "a", "-x", "src").failsWithMessage("Invalid option: -x");
+    ParsingFailed failed = fail("-f", "a", "-x", "src");
+    assertEquals(ErrorKind.INVALID_OPTION, failed.getErrorKind());
+    assertEquals(2, failed.getTokenIndex());
+  }
+
+  @Test
+  void testInvalidValue() {
+    ParsingFailed failed = fail("-f", "a", "-c", "x", "src");
+    assertEquals(ErrorKind.INVALID_VALUE, failed.getErrorKind());
+    assertEquals(Option.COUNT, failed.getOption());
+    assertEquals(3, failed.getTokenIndex());
+  }
+
+  @Test
+  void testPrint() {
+    f.assertPrintsHelp(
+        "Usage: shared-runtime [options...] -f <file> <source> [<target>] <rest>...",
+        "  source",
+        "  target",
+        "  rest",
+        "  -v, --verbose         Be verbose",
+        "  -f, --file FILE",
+        "  -c, --count COUNT",
+        "  -H, --header HEADERS",
+        "");
+  }
+
+  private static ParsingFailed fail(String... args) {
+    ParseResult result = new SharedRuntimeArguments_Parser().parse(args);
+    assertTrue(result instanceof ParsingFailed);
+    return (ParsingFailed) result;
+  }
+}
@@ -0,0 +1,175 @@
+package net.jbock.examples;
+
+import net.jbock.examples.StructuredErrorsArguments_Parser.ErrorKind;
+import net.jbock.examples.StructuredErrorsArguments_Parser.HelpRequested;
+import net.jbock.examples.StructuredErrorsArguments_Parser.Option;
+import net.jbock.examples.StructuredErrorsArguments_Parser.ParseResult;
+import net.jbock.examples.StructuredErrorsArguments_Parser.ParsingFailed;
+import net.jbock.examples.StructuredErrorsArguments_Parser.ParsingSuccess;
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StructuredErrorsArgumentsTest {
+
+  private final ParserTestFixture<StructuredErrorsArguments> f =
+      ParserTestFixture.create(new StructuredErrorsArguments_Parser());
+
+  @Test
+  void testSuccess() {
+    f.assertThat("-f", "a", "-c3", "-v", "src", "1", "2").succeeds(
+        "file", "a",
+        "count", Optional.of(3),
+        "verbose", true,
+        "source", Optional.of("src"),
+        "numbers", asList(1, 2));
+    f.assertThat("--file=a", "--", "-src").succeeds(
+        "file", "a",
+        "count", Optional.empty(),
+        "verbose", false,
+        "source", Optional.of("-src"),
+        "numbers", singletonList(1).subList(0, 0));
+  }
+
+  @Test
+  void testInvalidOption() {
+    ParsingFailed failed = fail("-f", "a", "--foo");
+    assertEquals(ErrorKind.INVALID_OPTION, failed.getErrorKind());
+    assertEquals(2, failed.getTokenIndex());
+    assertNull(failed.getOption());
+    assertEquals("Invalid option: --foo", failed.getMessage());
+  }
+
+  @Test
+  void testMissingValue() {
+    ParsingFailed failed = fail("-v", "--file");
+    assertEquals(ErrorKind.MISSING_VALUE, failed.getErrorKind());
+    assertEquals(1, failed.getTokenIndex());
+    assertEquals("Missing value after token: --file", failed.getMessage());
+  }
+
+  @Test
+  void testRepeatedOption() {
+    ParsingFailed failed = fail("-f", "a", "-v", "--file", "b");
+    assertEquals(ErrorKind.REPEATED_OPTION, failed.getErrorKind());
+    assertEquals(3, failed.getTokenIndex());
+    assertEquals(Option.FILE, failed.getOption());
+    assertEquals("Option FILE (-f, --file) is not repeatable", failed.getMessage());
+  }
+
+  @Test
+  void testInvalidToken() {
+    ParsingFailed failed = fail("-f", "a", "--verbose=true");
+    assertEquals(ErrorKind.INVALID_TOKEN, failed.getErrorKind());
+    assertEquals(2, failed.getTokenIndex());
+    assertEquals(Option.VERBOSE, failed.getOption());
+    assertEquals("Invalid token: --verbose=true", failed.getMessage());
+  }
+
+  @Test
+  void testMissingRequired() {
+    ParsingFailed failed = fail("-v", "src");
+    assertEquals(ErrorKind.MISSING_REQUIRED, failed.getErrorKind());
+    assertEquals(-1, failed.getTokenIndex());
+    assertEquals(Option.FILE, failed.getOption());
+    assertEquals("Missing required: FILE (-f, --file)", failed.getMessage());
+  }
+
+  @Test
+  void testInvalidValue() {
+    ParsingFailed failed = fail("-f", "a", "src", "1", "x");
+    assertEquals(ErrorKind.INVALID_VALUE, failed.getErrorKind());
+    assertEquals(4, failed.getTokenIndex());
+    assertEquals(Option.NUMBERS, failed.getOption());
+    assertTrue(failed.getError() instanceof NumberFormatException);
+    assertEquals(failed.getError().getMessage(), failed.getMessage());
+  }
+
+  @Test
+  void testInvalidValueIndex() {
+    assertEquals(4, fail("src", "1", "-f", "a", "x", "3").getTokenIndex());
+    assertEquals(3, fail("-v", "src", "-c", "x", "--file=a").getTokenIndex());
+    assertEquals(2, fail("-v", "src", "-cx", "--file=a").getTokenIndex());
+    assertEquals(2, fail("-f", "a", "--count=x").getTokenIndex());
+  }
+
+  @Test
+  void testInvalidValueIndexIterator() {
+    ParseResult result = new StructuredErrorsArguments_Parser().parse(asList("-f", "a", "src", "1", "x").iterator());
+    assertTrue(result instanceof ParsingFailed);
+    assertEquals(ErrorKind.INVALID_VALUE, ((ParsingFailed) result).getErrorKind());
+    assertEquals(4, ((ParsingFailed) result).getTokenIndex());
+  }
+
+  @Test
+  void testErrorIsCreatedOnDemand() {
+    ParsingFailed failed = fail("-f", "a", "--foo");
+    RuntimeException error = failed.getError();
+    assertEquals(RuntimeException.class, error.getClass());
+    assertEquals("Invalid option: --foo", error.getMessage());
+    assertSame(error, failed.getError());
+  }
+
+  @Test
+  void testParseOrExitMessages() {
+    f.assertThat("-f", "a", "--foo").failsWithMessage("Invalid option: --foo");
+    f.assertThat("--file").failsWithMessage("Missing value after token: --file");
+    f.assertThat("-f", "a", "-f", "b").failsWithMessage("Option FILE (-f, --file) is not repeatable");
+    f.assertThat("-vv", "-f", "a").failsWithMessage("Invalid token: -vv");
+    f.assertThat().failsWithMessage("Missing required: FILE (-f, --file)");
+    f.assertThat("-f", "a", "-c", "x").failsWithMessage("For input string: \"x\"");
+  }
+
+  @Test
+  void testIterable() {
+    ParseResult result = new StructuredErrorsArguments_Parser().parse(asList("-f", "a", "src", "1", "2"));
+    assertTrue(result instanceof ParsingSuccess);
+    StructuredErrorsArguments args = ((ParsingSuccess) result).getResult();
+    assertEquals("a", args.file());
+    assertEquals(Optional.of("src"), args.source());
+    assertEquals(asList(1, 2), args.numbers());
+  }
+
+  @Test
+  void testIterableHelp() {
+    assertTrue(new StructuredErrorsArguments_Parser().parse(asList("--help", "--foo")) instanceof HelpRequested);
+    assertTrue(new StructuredErrorsArguments_Parser().parse(asList("-v", "--help")) instanceof ParsingFailed);
+  }
+
+  @Test
+  void testIteratorStopsAtError() {
+    Iterator<String> tokens = Stream.iterate(0, i -> i + 1)
+        .map(i -> i == 2 ? "--foo" : "-v")
+        .iterator();
+    ParseResult result = new StructuredErrorsArguments_Parser().parse(tokens);
+    assertTrue(result instanceof ParsingFailed);
+    ParsingFailed failed = (ParsingFailed) result;
+    assertEquals(ErrorKind.REPEATED_OPTION, failed.getErrorKind());
+    assertEquals(1, failed.getTokenIndex());
+    assertTrue(tokens.hasNext());
+  }
+
+  @Test
+  void testIteratorTokenIndex() {
+    ParseResult result = new StructuredErrorsArguments_Parser().parse(asList("-f", "a", "--foo").iterator());
+    assertTrue(result instanceof ParsingFailed);
+    assertEquals(ErrorKind.INVALID_OPTION, ((ParsingFailed) result).getErrorKind());
+    assertEquals(2, ((ParsingFailed) result).getTokenIndex());
+  }
+
+  private static ParsingFailed fail(String... args) {
+    ParseResult result = new StructuredErrorsArguments_Parser().parse(args);
+    assertTrue(result instanceof ParsingFailed);
+    return (ParsingFailed) result;
+  }
+}
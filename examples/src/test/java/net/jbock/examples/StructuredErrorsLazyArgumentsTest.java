@@ -0,0 +1,74 @@
+package net.jbock.examples;
+
+import net.jbock.examples.StructuredErrorsLazyArguments_Parser.ErrorKind;
+import net.jbock.examples.StructuredErrorsLazyArguments_Parser.ParseResult;
+import net.jbock.examples.StructuredErrorsLazyArguments_Parser.ParsingFailed;
+import net.jbock.examples.StructuredErrorsLazyArguments_Parser.ParsingSuccess;
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StructuredErrorsLazyArgumentsTest {
+
+  private final ParserTestFixture<StructuredErrorsLazyArguments> f =
+      ParserTestFixture.create(new StructuredErrorsLazyArguments_Parser());
+
+  @Test
+  void testSuccess() {
+    f.assertThat("-f", "a", "-c3", "-v", "1", "2").succeeds(
+        "file", "a",
+        "count", Optional.of(3),
+        "verbose", true,
+        "numbers", asList(1, 2));
+    f.assertThat("--file=a").succeeds(
+        "file", "a",
+        "count", Optional.empty(),
+        "verbose", false,
+        "numbers", emptyList());
+  }
+
+  @Test
+  void testTokensSurviveStateReuse() {
+    StructuredErrorsLazyArguments first = succeed("-f", "a", "1", "2");
+    StructuredErrorsLazyArguments second = succeed("-f", "b", "3");
+    assertEquals(asList(1, 2), first.numbers());
+    assertEquals(asList(3), second.numbers());
+    assertEquals("a", first.file());
+    assertEquals("b", second.file());
+  }
+
+  @Test
+  void testMapperErrorOnAccess() {
+    StructuredErrorsLazyArguments parsed = succeed("-f", "a", "-c", "x", "1", "y");
+    assertEquals(NumberFormatException.class, assertThrows(RuntimeException.class, parsed::count).getClass());
+    assertEquals(NumberFormatException.class, assertThrows(RuntimeException.class, parsed::numbers).getClass());
+  }
+
+  @Test
+  void testMissingRequired() {
+    ParseResult result = new StructuredErrorsLazyArguments_Parser().parse(new String[]{"-v"});
+    assertTrue(result instanceof ParsingFailed);
+    assertEquals(ErrorKind.MISSING_REQUIRED, ((ParsingFailed) result).getErrorKind());
+  }
+
+  @Test
+  void testInvalidOption() {
+    ParseResult result = new StructuredErrorsLazyArguments_Parser().parse(new String[]{"-f", "a", "--foo"});
+    assertTrue(result instanceof ParsingFailed);
+    assertEquals(ErrorKind.INVALID_OPTION, ((ParsingFailed) result).getErrorKind());
+    assertEquals(2, ((ParsingFailed) result).getTokenIndex());
+  }
+
+  private static StructuredErrorsLazyArguments succeed(String... args) {
+    ParseResult result = new StructuredErrorsLazyArguments_Parser().parse(args);
+    assertTrue(result instanceof ParsingSuccess);
+    return ((ParsingSuccess) result).getResult();
+  }
+}
@@ -0,0 +1,47 @@
+package net.jbock.examples;
+
+import net.jbock.examples.StructuredErrorsLazySynchronizedArguments_Parser.ErrorKind;
+import net.jbock.examples.StructuredErrorsLazySynchronizedArguments_Parser.ParseResult;
+import net.jbock.examples.StructuredErrorsLazySynchronizedArguments_Parser.ParsingFailed;
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StructuredErrorsLazySynchronizedArgumentsTest {
+
+  private final ParserTestFixture<StructuredErrorsLazySynchronizedArguments> f =
+      ParserTestFixture.create(new StructuredErrorsLazySynchronizedArguments_Parser());
+
+  @Test
+  void testSuccess() {
+    f.assertThat("-c", "3", "-v", "1", "2").succeeds(
+        "count", Optional.of(3),
+        "verbose", true,
+        "numbers", asList(1, 2));
+    f.assertThat().succeeds(
+        "count", Optional.empty(),
+        "verbose", false,
+        "numbers", emptyList());
+  }
+
+  @Test
+  void testMapperErrorOnAccess() {
+    StructuredErrorsLazySynchronizedArguments parsed = f.parse("1", "x");
+    assertThrows(NumberFormatException.class, parsed::numbers);
+  }
+
+  @Test
+  void testRepeatedOption() {
+    ParseResult result = new StructuredErrorsLazySynchronizedArguments_Parser().parse(new String[]{"-c1", "-c2"});
+    assertTrue(result instanceof ParsingFailed);
+    assertEquals(ErrorKind.REPEATED_OPTION, ((ParsingFailed) result).getErrorKind());
+    assertEquals(1, ((ParsingFailed) result).getTokenIndex());
+  }
+}
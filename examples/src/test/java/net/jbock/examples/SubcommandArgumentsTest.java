@@ -0,0 +1,186 @@
+package net.jbock.examples;
+
+import net.jbock.examples.SubcommandArguments_Parser.CommandVisitor;
+import net.jbock.examples.SubcommandArguments_Parser.ResultVisitor;
+import net.jbock.examples.fixture.ParserTestFixture;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubcommandArgumentsTest {
+
+  private final ParserTestFixture<SubcommandArguments> f =
+      ParserTestFixture.create(new SubcommandArguments_Parser());
+
+  private final SubcommandArguments_Parser parser = new SubcommandArguments_Parser();
+
+  private final ResultVisitor<Object> results = new IdentityVisitor();
+
+  @Test
+  void testDispatchAdd() {
+    Object result = parser.dispatch(new String[]{"add", "-v", "a", "b"}, results);
+    assertTrue(result instanceof SubcommandArguments_Add_Parser.ParsingSuccess);
+    SubcommandArguments.Add add = ((SubcommandArguments_Add_Parser.ParsingSuccess) result).getResult();
+    assertTrue(add.verbose());
+    assertEquals(asList("a", "b"), add.paths());
+  }
+
+  @Test
+  void testDispatchCommit() {
+    Object result = parser.dispatch(new String[]{"commit", "--message=m"}, results);
+    assertTrue(result instanceof SubcommandArguments_Commit_Parser.ParsingSuccess);
+    SubcommandArguments.Commit commit = ((SubcommandArguments_Commit_Parser.ParsingSuccess) result).getResult();
+    assertEquals(Optional.of("m"), commit.message());
+  }
+
+  @Test
+  void testDispatchOwnParameters() {
+    Object result = parser.dispatch(new String[]{"--version"}, results);
+    assertTrue(result instanceof SubcommandArguments_Parser.ParsingSuccess);
+    assertTrue(((SubcommandArguments_Parser.ParsingSuccess) result).getResult().version());
+    result = parser.dispatch(new String[0], results);
+    assertTrue(result instanceof SubcommandArguments_Parser.ParsingSuccess);
+    assertFalse(((SubcommandArguments_Parser.ParsingSuccess) result).getResult().version());
+  }
+
+  @Test
+  void testDispatchUnknownCommand() {
+    Object result = parser.dispatch(new String[]{"push"}, results);
+    assertTrue(result instanceof SubcommandArguments_Parser.ParsingFailed);
+    assertEquals("Excess param: push", ((SubcommandArguments_Parser.ParsingFailed) result).getError().getMessage());
+  }
+
+  @Test
+  void testSubcommandError() {
+    Object result = parser.dispatch(new String[]{"add", "-x"}, results);
+    assertTrue(result instanceof SubcommandArguments_Add_Parser.ParsingFailed);
+    assertEquals("Invalid option: -x", ((SubcommandArguments_Add_Parser.ParsingFailed) result).getError().getMessage());
+  }
+
+  @Test
+  void testSubcommandHelp() {
+    assertTrue(parser.dispatch(new String[]{"add", "--help"}, results) instanceof SubcommandArguments_Add_Parser.HelpRequested);
+    assertTrue(parser.dispatch(new String[]{"--help", "add"}, results) instanceof SubcommandArguments_Parser.HelpRequested);
+  }
+
+  @Test
+  void testDispatchOrExit() {
+    CommandVisitor<String> describe = new CommandVisitor<String>() {
+      @Override
+      public String visit(SubcommandArguments command) {
+        return "vcs " + command.version();
+      }
+
+      @Override
+      public String visit(SubcommandArguments.Add add) {
+        return "add " + add.verbose() + " " + add.paths();
+      }
+
+      @Override
+      public String visit(SubcommandArguments.Commit commit) {
+        return "commit " + commit.message();
+      }
+    };
+    assertEquals("add false [a]", parser.dispatchOrExit(new String[]{"add", "a"}, describe));
+    assertEquals("commit Optional.empty", parser.dispatchOrExit(new String[]{"commit"}, describe));
+    assertEquals("vcs true", parser.dispatchOrExit(new String[]{"--version"}, describe));
+    assertEquals("vcs false", parser.dispatchOrExit(new String[0], describe));
+  }
+
+  @Test
+  void testOwnParameters() {
+    f.assertThat("--version").succeeds("version", true);
+    f.assertThat("add").failsWithMessage("Excess param: add");
+  }
+
+  @Test
+  void testOnlySelectedSubcommandIsLoaded() throws Exception {
+    URL classes = SubcommandArguments_Parser.class.getProtectionDomain().getCodeSource().getLocation();
+    URL testClasses = IdentityVisitor.class.getProtectionDomain().getCodeSource().getLocation();
+    try (IsolatedClassLoader loader = new IsolatedClassLoader(classes, testClasses)) {
+      Class<?> parserClass = loader.loadClass(SubcommandArguments_Parser.class.getName());
+      Class<?> visitorClass = loader.loadClass(IdentityVisitor.class.getName());
+      Constructor<?> constructor = parserClass.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      Constructor<?> visitorConstructor = visitorClass.getDeclaredConstructor();
+      visitorConstructor.setAccessible(true);
+      Method dispatch = parserClass.getDeclaredMethod("dispatch", String[].class,
+          loader.loadClass(ResultVisitor.class.getName()));
+      dispatch.setAccessible(true);
+      dispatch.invoke(constructor.newInstance(), new String[]{"commit", "-m", "x"}, visitorConstructor.newInstance());
+      assertTrue(loader.isLoaded(SubcommandArguments_Commit_Parser.class.getName()));
+      assertFalse(loader.isLoaded(SubcommandArguments_Add_Parser.class.getName()));
+      assertFalse(loader.isLoaded(SubcommandArguments.Add.class.getName()));
+    }
+  }
+
+  @Test
+  void testHelpDoesNotLoadSubcommands() throws Exception {
+    URL classes = SubcommandArguments_Parser.class.getProtectionDomain().getCodeSource().getLocation();
+    try (IsolatedClassLoader loader = new IsolatedClassLoader(classes)) {
+      Class<?> parserClass = loader.loadClass(SubcommandArguments_Parser.class.getName());
+      Constructor<?> constructor = parserClass.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      Method printOnlineHelp = parserClass.getDeclaredMethod("printOnlineHelp", Appendable.class);
+      printOnlineHelp.setAccessible(true);
+      printOnlineHelp.invoke(constructor.newInstance(), new StringBuilder());
+      assertFalse(loader.isLoaded(SubcommandArguments_Commit_Parser.class.getName()));
+      assertFalse(loader.isLoaded(SubcommandArguments_Add_Parser.class.getName()));
+    }
+  }
+
+  @Test
+  void testPrint() {
+    f.assertPrintsHelp(
+        "Usage: vcs [options...]",
+        "  --version  Print the version and exit.",
+        "Commands:",
+        "  add        Add file contents to the index.",
+        "  commit     Record changes to the repository.",
+        "");
+  }
+
+  /**
+   * Returns each result as it is.
+   */
+  private static final class IdentityVisitor implements ResultVisitor<Object> {
+
+    @Override
+    public Object visit(SubcommandArguments_Parser.ParseResult result) {
+      return result;
+    }
+
+    @Override
+    public Object visit(SubcommandArguments_Add_Parser.ParseResult result) {
+      return result;
+    }
+
+    @Override
+    public Object visit(SubcommandArguments_Commit_Parser.ParseResult result) {
+      return result;
+    }
+  }
+
+  /**
+   * Loads the example classes in isolation, so the loaded classes can be observed.
+   */
+  private static final class IsolatedClassLoader extends URLClassLoader {
+
+    IsolatedClassLoader(URL... classes) {
+      super(classes, ClassLoader.getSystemClassLoader().getParent());
+    }
+
+    boolean isLoaded(String name) {
+      return findLoadedClass(name) != null;
+    }
+  }
+}
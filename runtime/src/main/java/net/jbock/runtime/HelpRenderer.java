@@ -0,0 +1,70 @@
+package net.jbock.runtime;
+
+/**
+ * The text wrapping of the help output, for generated parsers with {@code sharedRuntime = true}.
+ */
+public final class HelpRenderer {
+
+  private HelpRenderer() {
+  }
+
+  /**
+   * Appends the input to the output, wrapping it in a single pass, without regular expressions.
+   * The words are separated by the same characters as the regex {@code \s}.
+   *
+   * @param out the output
+   * @param maxLineWidth the maximum line width
+   * @param continuationIndent the indent of each line after the first
+   * @param init the beginning of the first line
+   * @param input the text to wrap
+   */
+  public static void appendWrap(StringBuilder out, int maxLineWidth, int continuationIndent, String init, String input) {
+    if (input.isEmpty()) {
+      String trim = init.trim();
+      out.append(init, 0, init.indexOf(trim)).append(trim).append(System.lineSeparator());
+      return;
+    }
+    int lineStart = out.length();
+    out.append(init);
+    int start = 0;
+    while (true) {
+      int end = start;
+      while (end < input.length() && !isSeparator(input.charAt(end))) {
+        end++;
+      }
+      int lineLength = out.length() - lineStart;
+      if (end - start + lineLength + 1 > maxLineWidth) {
+        if (lineLength == 0) {
+          out.append(input, start, end).append(System.lineSeparator());
+          lineStart = out.length();
+        } else {
+          out.append(System.lineSeparator());
+          lineStart = out.length();
+          for (int i = 0; i < continuationIndent; i++) {
+            out.append(' ');
+          }
+          out.append(input, start, end);
+        }
+      } else {
+        if (lineLength > 0 && !Character.isWhitespace(out.charAt(out.length() - 1))) {
+          out.append(' ');
+        }
+        out.append(input, start, end);
+      }
+      if (end == input.length()) {
+        break;
+      }
+      start = end;
+      while (start < input.length() && isSeparator(input.charAt(start))) {
+        start++;
+      }
+    }
+    if (out.length() > lineStart) {
+      out.append(System.lineSeparator());
+    }
+  }
+
+  private static boolean isSeparator(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000b' || c == '\f' || c == '\r';
+  }
+}
@@ -0,0 +1,189 @@
+package net.jbock.runtime;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parsing loop of a generated parser with {@code sharedRuntime = true}.
+ * A generated parser creates one instance, from static tables that describe its parameters.
+ * All parameters are identified by the ordinal of their constant in the generated {@code Option} enum.
+ * Because all such parsers share this code, it only has to be loaded and compiled once.
+ *
+ * <p>Instances of this class are immutable, and can be shared between threads.
+ */
+public final class ParseEngine {
+
+  /**
+   * A named option without an argument.
+   */
+  public static final int FLAG = 0;
+
+  /**
+   * A parameter that takes at most one value.
+   */
+  public static final int REGULAR = 1;
+
+  /**
+   * A parameter that takes any number of values.
+   */
+  public static final int REPEATABLE = 2;
+
+  private final String[] constants;
+  private final String[][] names;
+  private final int[] kinds;
+  private final int[] params;
+
+  // option names like "--file", by ordinal
+  private final Map<String, Integer> longNames = new HashMap<>();
+
+  // mnemonics like 'f', and their ordinals
+  private final char[] mnemonics;
+  private final int[] mnemonicOrdinals;
+
+  /**
+   * @param constants the names of the enum constants, by ordinal
+   * @param names the option names, by ordinal, where the mnemonic comes first;
+   *              empty for a positional parameter
+   * @param kinds the kinds of the parameters, by ordinal:
+   *              one of {@link #FLAG}, {@link #REGULAR} and {@link #REPEATABLE}
+   * @param params the ordinals of the positional parameters, by position
+   */
+  public ParseEngine(String[] constants, String[][] names, int[] kinds, int[] params) {
+    this.constants = constants;
+    this.names = names;
+    this.kinds = kinds;
+    this.params = params;
+    int mnemonicCount = 0;
+    for (String[] optionNames : names) {
+      for (String name : optionNames) {
+        if (!name.startsWith("--")) {
+          mnemonicCount++;
+        }
+      }
+    }
+    this.mnemonics = new char[mnemonicCount];
+    this.mnemonicOrdinals = new int[mnemonicCount];
+    int m = 0;
+    for (int ordinal = 0; ordinal < names.length; ordinal++) {
+      for (String name : names[ordinal]) {
+        if (name.startsWith("--")) {
+          longNames.put(name, ordinal);
+        } else {
+          mnemonics[m] = name.charAt(1);
+          mnemonicOrdinals[m] = ordinal;
+          m++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads all tokens, and adds them to the lists of the parameters that they belong to.
+   * For a flag, the empty string is added.
+   *
+   * @param it the tokens; if parsing fails, this iterator is positioned
+   *           right after the offending token
+   * @param values the tokens of each parameter, by ordinal
+   * @throws ParseException if the input is not valid
+   */
+  public void parse(Iterator<String> it, List<String>[] values) {
+    int position = 0;
+    while (it.hasNext()) {
+      String token = it.next();
+      if (params.length > 0 && "--".equals(token)) {
+        while (it.hasNext()) {
+          token = it.next();
+          position += readParam(values, position, token);
+        }
+        return;
+      }
+      int ordinal = tryReadOption(token);
+      if (ordinal >= 0) {
+        readOption(values, ordinal, token, it);
+        continue;
+      }
+      if (!token.isEmpty() && token.charAt(0) == '-') {
+        throw new ParseException(ParseException.Kind.INVALID_OPTION, null, null, token);
+      }
+      position += readParam(values, position, token);
+    }
+  }
+
+  /**
+   * @param token a token
+   * @return the ordinal of the option that the token denotes, or {@code -1}
+   */
+  public int tryReadOption(String token) {
+    if (token.length() <= 1 || token.charAt(0) != '-') {
+      return -1;
+    }
+    if (token.charAt(1) != '-') {
+      char c = token.charAt(1);
+      for (int i = 0; i < mnemonics.length; i++) {
+        if (mnemonics[i] == c) {
+          return mnemonicOrdinals[i];
+        }
+      }
+      return -1;
+    }
+    int index = token.indexOf('=');
+    Integer ordinal = longNames.get(index < 0 ? token : token.substring(0, index));
+    return ordinal == null ? -1 : ordinal;
+  }
+
+  /**
+   * Returns the value of an option that takes an argument.
+   * The value is either attached to the token, or it is the next token.
+   *
+   * @param token an option token
+   * @param it the remaining tokens
+   * @return the value
+   * @throws ParseException if there is no value
+   */
+  public static String readOptionArgument(String token, Iterator<String> it) {
+    if (token.charAt(1) == '-' && token.indexOf('=') >= 0) {
+      return token.substring(token.indexOf('=') + 1);
+    }
+    if (token.charAt(1) != '-' && token.length() >= 3) {
+      return token.substring(2);
+    }
+    if (!it.hasNext()) {
+      throw new ParseException(ParseException.Kind.MISSING_VALUE, null, null, token);
+    }
+    return it.next();
+  }
+
+  private void readOption(List<String>[] values, int ordinal, String token, Iterator<String> it) {
+    List<String> tokens = values[ordinal];
+    switch (kinds[ordinal]) {
+      case FLAG:
+        if (token.charAt(1) != '-' && token.length() > 2 || token.contains("=")) {
+          throw new ParseException(ParseException.Kind.INVALID_TOKEN, constants[ordinal], names[ordinal], token);
+        }
+        if (!tokens.isEmpty()) {
+          throw new ParseException(ParseException.Kind.REPEATED_OPTION, constants[ordinal], names[ordinal], token);
+        }
+        tokens.add("");
+        break;
+      case REGULAR:
+        if (!tokens.isEmpty()) {
+          throw new ParseException(ParseException.Kind.REPEATED_OPTION, constants[ordinal], names[ordinal], token);
+        }
+        tokens.add(readOptionArgument(token, it));
+        break;
+      default:
+        tokens.add(readOptionArgument(token, it));
+    }
+  }
+
+  private int readParam(List<String>[] values, int position, String token) {
+    if (position >= params.length) {
+      throw new ParseException(ParseException.Kind.EXCESS_PARAM, null, null, token);
+    }
+    int ordinal = params[position];
+    values[ordinal].add(token);
+    return kinds[ordinal] == REPEATABLE ? 0 : 1;
+  }
+}
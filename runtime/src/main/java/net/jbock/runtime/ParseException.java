@@ -0,0 +1,68 @@
+package net.jbock.runtime;
+
+/**
+ * Thrown by the {@link ParseEngine} if the input is not valid.
+ * This exception has no stack trace, and renders its message on demand.
+ */
+public final class ParseException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The kinds of errors that the {@link ParseEngine} can detect.
+   * The names are the same as in the {@code ErrorKind} enum of a generated parser.
+   */
+  public enum Kind {
+    EXCESS_PARAM, INVALID_OPTION, MISSING_VALUE, INVALID_TOKEN, REPEATED_OPTION
+  }
+
+  private final Kind kind;
+  private final String option;
+  private final String[] names;
+  private final String token;
+
+  ParseException(Kind kind, String option, String[] names, String token) {
+    super(null, null, false, false);
+    this.kind = kind;
+    this.option = option;
+    this.names = names;
+    this.token = token;
+  }
+
+  /**
+   * @return the kind of error
+   */
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * @return the name of the enum constant of the option that was involved, or {@code null}
+   */
+  public String getOption() {
+    return option;
+  }
+
+  /**
+   * @return the offending token
+   */
+  public String getToken() {
+    return token;
+  }
+
+  @Override
+  public String getMessage() {
+    switch (kind) {
+      case EXCESS_PARAM:
+        return "Excess param: " + token;
+      case INVALID_OPTION:
+        return "Invalid option: " + token;
+      case MISSING_VALUE:
+        return "Missing value after token: " + token;
+      case INVALID_TOKEN:
+        return "Invalid token: " + token;
+      default:
+        return String.format("Option %s (%s) is not repeatable", option, String.join(", ", names));
+    }
+  }
+}